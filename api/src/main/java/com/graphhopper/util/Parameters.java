@@ -131,6 +131,16 @@ public class Parameters {
          * a rectangle lat1,lon1,lat2,lon2
          */
         public static final String BLOCK_AREA = "block_area";
+        /**
+         * the time of day of the departure in the format HH:mm or as local date time like 2021-03-01T08:00, only
+         * used if the graph contains speed profiles
+         */
+        public static final String DEPARTURE_TIME = "departure_time";
+        /**
+         * how map matching calculates the routes between the candidates of consecutive observations, point_to_point
+         * or one_to_many
+         */
+        public static final String TRANSITION_ROUTING = "transition_routing";
     }
 
     /**
@@ -0,0 +1,81 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.AbstractBidirCHAlgo;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.util.PMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculates CH routes between random nodes, with and without unpacking the shortcuts of the resulting paths.
+ * {@link #calcWeight} replaces the path extraction with one that only reads the weight of the meeting entries.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CHRoutingBenchmark {
+    private static final int QUERIES = 100;
+    private RoutingCHGraph chGraph;
+    private final int[] from = new int[QUERIES];
+    private final int[] to = new int[QUERIES];
+
+    @Setup
+    public void setUp(GraphHopperState state) {
+        chGraph = state.hopper.getGraphHopperStorage().getRoutingCHGraph(GraphHopperState.PROFILE);
+        Random rnd = new Random(123);
+        for (int i = 0; i < QUERIES; i++) {
+            from[i] = rnd.nextInt(chGraph.getNodes());
+            to[i] = rnd.nextInt(chGraph.getNodes());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public double calcWeight() {
+        double sum = 0;
+        CHRoutingAlgorithmFactory factory = new CHRoutingAlgorithmFactory(chGraph);
+        for (int i = 0; i < QUERIES; i++) {
+            AbstractBidirCHAlgo algo = (AbstractBidirCHAlgo) factory.createAlgo(new PMap());
+            algo.setPathExtractorSupplier(() -> (fwdEntry, bwdEntry, bestWeight) ->
+                    new Path(chGraph.getBaseGraph()).setWeight(bestWeight).setFound(true));
+            sum += algo.calcPath(from[i], to[i]).getWeight();
+        }
+        return sum;
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(QUERIES)
+    public int calcPath() {
+        int sum = 0;
+        CHRoutingAlgorithmFactory factory = new CHRoutingAlgorithmFactory(chGraph);
+        for (int i = 0; i < QUERIES; i++) {
+            Path path = factory.createAlgo(new PMap()).calcPath(from[i], to[i]);
+            sum += path.calcNodes().size();
+        }
+        return sum;
+    }
+}
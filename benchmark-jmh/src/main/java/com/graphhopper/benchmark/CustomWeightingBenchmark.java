@@ -0,0 +1,62 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.PMap;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculates the weights of all edges in both directions using the weighting of a custom model.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class CustomWeightingBenchmark {
+    private Graph graph;
+    private Weighting weighting;
+
+    @Setup
+    public void setUp(GraphHopperState state) {
+        graph = state.hopper.getGraphHopperStorage();
+        weighting = state.hopper.createWeighting(state.hopper.getProfile(GraphHopperState.CUSTOM_PROFILE), new PMap());
+    }
+
+    @Benchmark
+    public double calcEdgeWeight() {
+        double sum = 0;
+        for (int edge = 0; edge < graph.getEdges(); edge++) {
+            EdgeIteratorState edgeState = graph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            double fwd = weighting.calcEdgeWeight(edgeState, false);
+            double bwd = weighting.calcEdgeWeight(edgeState, true);
+            // skip the infinite weights of one-way roads
+            if (!Double.isInfinite(fwd))
+                sum += fwd;
+            if (!Double.isInfinite(bwd))
+                sum += bwd;
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,73 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.LMProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.routing.weighting.custom.CustomProfile;
+import com.graphhopper.util.CustomModel;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.graphhopper.json.Statement.If;
+import static com.graphhopper.json.Statement.Op.MULTIPLY;
+
+/**
+ * Imports the OSM file once per fork (or loads the graph if it was already imported by a previous run) and makes it
+ * available to the benchmarks. The default paths are relative to the root directory of the repository.
+ */
+@State(Scope.Benchmark)
+public class GraphHopperState {
+    public static final String PROFILE = "car";
+    public static final String CUSTOM_PROFILE = "custom_car";
+
+    @Param("core/files/andorra.osm.pbf")
+    public String osmFile;
+    @Param("benchmark-jmh/target/benchmark-gh")
+    public String graphLocation;
+
+    public GraphHopper hopper;
+
+    @Setup(Level.Trial)
+    public void setUp() {
+        CustomModel customModel = new CustomModel();
+        customModel.addToPriority(If("road_class == PRIMARY", MULTIPLY, 0.5));
+        customModel.addToSpeed(If("road_environment == TUNNEL", MULTIPLY, 0.8));
+        GraphHopperConfig config = new GraphHopperConfig();
+        config.putObject("graph.flag_encoders", "car");
+        config.putObject("datareader.file", osmFile);
+        config.putObject("graph.location", graphLocation);
+        config.setProfiles(Arrays.asList(
+                new Profile(PROFILE).setVehicle("car").setWeighting("fastest"),
+                new CustomProfile(CUSTOM_PROFILE).setCustomModel(customModel).setVehicle("car")));
+        config.setCHProfiles(Collections.singletonList(new CHProfile(PROFILE)));
+        config.setLMProfiles(Collections.singletonList(new LMProfile(PROFILE)));
+        hopper = new GraphHopper().init(config);
+        hopper.importOrLoad();
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() {
+        hopper.close();
+    }
+}
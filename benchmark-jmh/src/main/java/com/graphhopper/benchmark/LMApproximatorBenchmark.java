@@ -0,0 +1,64 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.routing.lm.LMApproximator;
+import com.graphhopper.routing.lm.LandmarkStorage;
+import com.graphhopper.storage.Graph;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Calculates the landmark based approximations of random nodes towards a fixed target, like A* does for every node
+ * it visits.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class LMApproximatorBenchmark {
+    private static final int NODES = 1000;
+    private LMApproximator approximator;
+    private final int[] nodes = new int[NODES];
+
+    @Setup
+    public void setUp(GraphHopperState state) {
+        Graph graph = state.hopper.getGraphHopperStorage();
+        LandmarkStorage lms = state.hopper.getLMPreparationHandler().getPreparation(GraphHopperState.PROFILE).getLandmarkStorage();
+        approximator = LMApproximator.forLandmarks(graph, lms, Math.min(8, lms.getLandmarkCount()));
+        Random rnd = new Random(123);
+        approximator.setTo(rnd.nextInt(graph.getNodes()));
+        for (int i = 0; i < NODES; i++) {
+            nodes[i] = rnd.nextInt(graph.getNodes());
+        }
+    }
+
+    @Benchmark
+    @OperationsPerInvocation(NODES)
+    public double approximate() {
+        double sum = 0;
+        for (int node : nodes) {
+            sum += approximator.approximate(node);
+        }
+        return sum;
+    }
+}
@@ -0,0 +1,68 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.graphhopper.util.PointList;
+import org.openjdk.jmh.annotations.*;
+
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Builds point lists like the geometry of a path is built from the geometries of its edges.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class PointListBenchmark {
+    @Param({"100", "10000"})
+    public int size;
+    @Param({"false", "true"})
+    public boolean is3D;
+
+    private PointList edgeGeometry;
+
+    @Setup
+    public void setUp() {
+        edgeGeometry = new PointList(10, is3D);
+        for (int i = 0; i < 10; i++) {
+            edgeGeometry.add(42.5 + i * 1e-4, 1.5 + i * 1e-4, is3D ? 1000 + i : Double.NaN);
+        }
+    }
+
+    @Benchmark
+    public PointList addPoints() {
+        PointList points = new PointList(10, is3D);
+        double ele = is3D ? 1000 : Double.NaN;
+        for (int i = 0; i < size; i++) {
+            points.add(42.5 + i * 1e-5, 1.5 + i * 1e-5, ele);
+        }
+        return points;
+    }
+
+    @Benchmark
+    public PointList addPointLists() {
+        PointList points = new PointList(10, is3D);
+        for (int i = 0; i < size; i += edgeGeometry.size()) {
+            points.add(edgeGeometry);
+        }
+        return points;
+    }
+}
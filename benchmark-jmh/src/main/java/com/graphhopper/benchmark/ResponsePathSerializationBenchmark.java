@@ -0,0 +1,72 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.benchmark;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.jackson.Jackson;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.util.shapes.GHPoint;
+import org.openjdk.jmh.annotations.*;
+
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Serializes a long route including its instructions to JSON like the route endpoint does.
+ */
+@State(Scope.Thread)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(1)
+public class ResponsePathSerializationBenchmark {
+    @Param({"true", "false"})
+    public boolean pointsEncoded;
+
+    private final ObjectMapper objectMapper = Jackson.newObjectMapper();
+    private GHResponse response;
+
+    @Setup
+    public void setUp(GraphHopperState state) {
+        GHRequest request = new GHRequest(new GHPoint(42.506, 1.522), new GHPoint(42.542, 1.733))
+                .setProfile(GraphHopperState.PROFILE);
+        response = state.hopper.route(request);
+        if (response.hasErrors())
+            throw new IllegalStateException("Could not calculate the route: " + response.getErrors());
+    }
+
+    @Benchmark
+    public byte[] serialize() throws JsonProcessingException {
+        return objectMapper.writeValueAsBytes(ResponsePathSerializer.jsonObject(response, true, true, false, pointsEncoded, 0));
+    }
+
+    @Benchmark
+    public byte[] serializeStreaming() throws IOException {
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(out)) {
+            ResponsePathSerializer.writeJson(gen, response, true, true, false, pointsEncoded, 0);
+        }
+        return out.toByteArray();
+    }
+}
@@ -24,8 +24,11 @@ import com.graphhopper.reader.dem.*;
 import com.graphhopper.reader.osm.OSMReader;
 import com.graphhopper.reader.osm.conditional.DateRangeParser;
 import com.graphhopper.routing.DefaultWeightingFactory;
+import com.graphhopper.routing.RouteCache;
+import com.graphhopper.routing.SnapCache;
 import com.graphhopper.routing.Router;
 import com.graphhopper.routing.RouterConfig;
+import com.graphhopper.routing.SearchWorkspacePool;
 import com.graphhopper.routing.WeightingFactory;
 import com.graphhopper.routing.ch.CHPreparationHandler;
 import com.graphhopper.routing.ev.*;
@@ -50,11 +53,13 @@ import com.graphhopper.routing.weighting.custom.CustomWeighting;
 import com.graphhopper.storage.*;
 import com.graphhopper.storage.index.LocationIndex;
 import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.MajorRoadIndex;
 import com.graphhopper.util.*;
 import com.graphhopper.util.Parameters.CH;
 import com.graphhopper.util.Parameters.Landmark;
 import com.graphhopper.util.Parameters.Routing;
 import com.graphhopper.util.details.PathDetailsBuilderFactory;
+import com.graphhopper.util.shapes.BBox;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
@@ -62,6 +67,10 @@ import java.io.File;
 import java.io.IOException;
 import java.text.DateFormat;
 import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
 import static com.graphhopper.util.Helper.*;
 import static com.graphhopper.util.Parameters.Algorithms.RoundTrip;
@@ -87,18 +96,25 @@ public class GraphHopper implements GraphHopperAPI {
     private String ghLocation = "";
     private DAType dataAccessType = DAType.RAM_STORE;
     private boolean sortGraph = false;
+    private boolean csrAdjacency = false;
+    private String speedProfilesFile;
     private boolean elevation = false;
     private LockFactory lockFactory = new NativeFSLockFactory();
     private boolean allowWrites = true;
     private boolean fullyLoaded = false;
     private boolean smoothElevation = false;
     private double longEdgeSamplingDistance = Double.MAX_VALUE;
+    private int elevationThreads = 1;
     // for routing
     private final RouterConfig routerConfig = new RouterConfig();
+    private SearchWorkspacePool searchWorkspacePool;
+    private RouteCache routeCache;
     // for index
     private LocationIndex locationIndex;
     private int preciseIndexResolution = 300;
     private int maxRegionSearch = 4;
+    private boolean majorRoadIndexEnabled = false;
+    private MajorRoadIndex majorRoadIndex;
     // for prepare
     private int minNetworkSize = 200;
     // for LM
@@ -112,6 +128,8 @@ public class GraphHopper implements GraphHopperAPI {
     private String osmFile;
     private double dataReaderWayPointMaxDistance = 1;
     private int dataReaderWorkerThreads = 2;
+    private int dataReaderTagParserThreads = 1;
+    private boolean dataReaderDeltaEncodedNodeMap = false;
     private ElevationProvider eleProvider = ElevationProvider.NOOP;
     private FlagEncoderFactory flagEncoderFactory = new DefaultFlagEncoderFactory();
     private EncodedValueFactory encodedValueFactory = new DefaultEncodedValueFactory();
@@ -192,6 +210,16 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Creates a {@link MajorRoadIndex} after the import, which is needed to show the roads at low zoom levels of the
+     * vector tiles. This requires the road_class encoded value.
+     */
+    public GraphHopper setMajorRoadIndexEnabled(boolean majorRoadIndexEnabled) {
+        ensureNotLoaded();
+        this.majorRoadIndexEnabled = majorRoadIndexEnabled;
+        return this;
+    }
+
     public GraphHopper setMinNetworkSize(int minNetworkSize) {
         ensureNotLoaded();
         this.minNetworkSize = minNetworkSize;
@@ -292,6 +320,15 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Sets the number of threads used to look up the elevation of the nodes during the import and to interpolate the
+     * elevation of tunnels, bridges and ferries. Default is 1
+     */
+    public GraphHopper setElevationThreads(int elevationThreads) {
+        this.elevationThreads = elevationThreads;
+        return this;
+    }
+
     /**
      * Sets the max elevation discrepancy between way points and the simplified polyline in meters
      */
@@ -362,12 +399,20 @@ public class GraphHopper implements GraphHopperAPI {
         return locationIndex;
     }
 
+    /**
+     * @return the index of the major roads or null if it is not enabled
+     */
+    public MajorRoadIndex getMajorRoadIndex() {
+        return majorRoadIndex;
+    }
+
     protected void setLocationIndex(LocationIndex locationIndex) {
         this.locationIndex = locationIndex;
     }
 
     /**
-     * Sorts the graph which requires more RAM while import. See #12
+     * Sorts the nodes and edges of the graph along a Hilbert curve after the import, such that nodes and edges which
+     * are close in space are also close in memory. See #12
      */
     public GraphHopper setSortGraph(boolean sortGraph) {
         ensureNotLoaded();
@@ -375,6 +420,26 @@ public class GraphHopper implements GraphHopperAPI {
         return this;
     }
 
+    /**
+     * Stores the edges of every node contiguously once the graph is frozen, which makes iterating the edges of a
+     * node faster but requires additional memory (8 bytes per edge and node).
+     */
+    public GraphHopper setCSRAdjacency(boolean csrAdjacency) {
+        ensureNotLoaded();
+        this.csrAdjacency = csrAdjacency;
+        return this;
+    }
+
+    /**
+     * Reads historic speeds of OSM ways from the specified CSV file during the import and stores them for every edge,
+     * see {@link com.graphhopper.reader.osm.SpeedProfileReader}. Requests with a departure time then use these speeds.
+     */
+    public GraphHopper setSpeedProfilesFile(String speedProfilesFile) {
+        ensureNotLoaded();
+        this.speedProfilesFile = speedProfilesFile;
+        return this;
+    }
+
     public boolean isAllowWrites() {
         return allowWrites;
     }
@@ -448,6 +513,8 @@ public class GraphHopper implements GraphHopperAPI {
         dataAccessType = DAType.fromString(graphDATypeStr);
 
         sortGraph = ghConfig.getBool("graph.do_sort", sortGraph);
+        csrAdjacency = ghConfig.getBool("graph.csr_adjacency", csrAdjacency);
+        speedProfilesFile = ghConfig.getString("graph.speed_profiles.file", speedProfilesFile);
         removeZipped = ghConfig.getBool("graph.remove_zipped", removeZipped);
 
         if (encodingManager != null)
@@ -468,6 +535,7 @@ public class GraphHopper implements GraphHopperAPI {
         // elevation
         this.smoothElevation = ghConfig.getBool("graph.elevation.smoothing", false);
         this.longEdgeSamplingDistance = ghConfig.getDouble("graph.elevation.long_edge_sampling_distance", Double.MAX_VALUE);
+        this.elevationThreads = ghConfig.getInt("graph.elevation.threads", elevationThreads);
         setElevationWayPointMaxDistance(ghConfig.getDouble("graph.elevation.way_point_max_distance", Double.MAX_VALUE));
         ElevationProvider elevationProvider = createElevationProvider(ghConfig);
         setElevationProvider(elevationProvider);
@@ -486,10 +554,13 @@ public class GraphHopper implements GraphHopperAPI {
         dataReaderWayPointMaxDistance = ghConfig.getDouble(Routing.INIT_WAY_POINT_MAX_DISTANCE, dataReaderWayPointMaxDistance);
 
         dataReaderWorkerThreads = ghConfig.getInt("datareader.worker_threads", dataReaderWorkerThreads);
+        dataReaderTagParserThreads = ghConfig.getInt("datareader.tag_parser_threads", dataReaderTagParserThreads);
+        dataReaderDeltaEncodedNodeMap = ghConfig.getBool("datareader.delta_encoded_node_map", dataReaderDeltaEncodedNodeMap);
 
         // index
         preciseIndexResolution = ghConfig.getInt("index.high_resolution", preciseIndexResolution);
         maxRegionSearch = ghConfig.getInt("index.max_region_search", maxRegionSearch);
+        majorRoadIndexEnabled = ghConfig.getBool("index.major_roads", majorRoadIndexEnabled);
 
         // routing
         routerConfig.setMaxVisitedNodes(ghConfig.getInt(Routing.INIT_MAX_VISITED_NODES, routerConfig.getMaxVisitedNodes()));
@@ -500,6 +571,9 @@ public class GraphHopper implements GraphHopperAPI {
             throw new IllegalArgumentException("Default value for active landmarks " + activeLandmarkCount
                     + " should be less or equal to landmark count of " + lmPreparationHandler.getLandmarks());
         routerConfig.setActiveLandmarkCount(activeLandmarkCount);
+        routerConfig.setSearchWorkspaces(ghConfig.getInt("routing.search_workspaces", routerConfig.getSearchWorkspaces()));
+        routerConfig.setRouteCacheSize(ghConfig.getInt("routing.route_cache.size", routerConfig.getRouteCacheSize()));
+        routerConfig.setRouteCacheTTLMillis(ghConfig.getLong("routing.route_cache.ttl_seconds", routerConfig.getRouteCacheTTLMillis() / 1000) * 1000);
 
         return this;
     }
@@ -576,6 +650,7 @@ public class GraphHopper implements GraphHopperAPI {
         if (!baseURL.isEmpty())
             elevationProvider.setBaseURL(baseURL);
         elevationProvider.setDAType(elevationDAType);
+        elevationProvider.setMaxCachedTiles(ghConfig.getInt("graph.elevation.max_cached_tiles", Integer.MAX_VALUE));
         return elevationProvider;
     }
 
@@ -632,6 +707,8 @@ public class GraphHopper implements GraphHopperAPI {
             ensureWriteAccess();
             importOSM();
             cleanUp();
+            if (sortGraph)
+                sortGraph();
             postProcessing(closeEarly);
             flush();
         } finally {
@@ -649,11 +726,16 @@ public class GraphHopper implements GraphHopperAPI {
         OSMReader reader = new OSMReader(ghStorage).setFile(_getOSMFile()).
                 setElevationProvider(eleProvider).
                 setWorkerThreads(dataReaderWorkerThreads).
+                setTagParserThreads(dataReaderTagParserThreads).
+                setElevationThreads(elevationThreads).
+                setDeltaEncodedNodeMap(dataReaderDeltaEncodedNodeMap).
                 setWayPointMaxDistance(dataReaderWayPointMaxDistance).
                 setWayPointElevationMaxDistance(routerConfig.getElevationWayPointMaxDistance()).
                 setSmoothElevation(smoothElevation).
                 setLongEdgeSamplingDistance(longEdgeSamplingDistance);
         logger.info("using " + ghStorage.toString() + ", memory:" + getMemInfo());
+        if (!isEmpty(speedProfilesFile))
+            reader.setSpeedProfilesFile(new File(speedProfilesFile));
         try {
             reader.readGraph();
         } catch (IOException ex) {
@@ -714,6 +796,8 @@ public class GraphHopper implements GraphHopperAPI {
 
         GHDirectory dir = new GHDirectory(ghLocation, dataAccessType);
         ghStorage = new GraphHopperStorage(dir, encodingManager, hasElevation(), encodingManager.needsTurnCostsSupport(), defaultSegmentSize);
+        ghStorage.setCSRAdjacency(csrAdjacency);
+        ghStorage.setSpeedProfiles(!isEmpty(speedProfilesFile));
         checkProfilesConsistency();
 
         if (lmPreparationHandler.isEnabled())
@@ -872,27 +956,20 @@ public class GraphHopper implements GraphHopperAPI {
      * @param closeEarly release resources as early as possible
      */
     protected void postProcessing(boolean closeEarly) {
-        // Later: move this into the GraphStorage.optimize method
-        // Or: Doing it after preparation to optimize shortcuts too. But not possible yet #12
-
-        if (sortGraph) {
-            if (ghStorage.isCHPossible() && isCHPrepared())
-                throw new IllegalArgumentException("Sorting a prepared CHGraph is not possible yet. See #12");
-
-            GraphHopperStorage newGraph = GHUtility.newStorage(ghStorage);
-            GHUtility.sortDFS(ghStorage, newGraph);
-            logger.info("graph sorted (" + getMemInfo() + ")");
-            ghStorage = newGraph;
-        }
-
         if (!hasInterpolated() && hasElevation()) {
             interpolateBridgesTunnelsAndFerries();
         }
 
         initLocationIndex();
+        if (majorRoadIndexEnabled)
+            initMajorRoadIndex();
 
         importPublicTransit();
 
+        // the adjacency layout is created when freezing, which otherwise only happens for CH and LM
+        if (csrAdjacency && allowWrites)
+            ghStorage.freeze();
+
         if (lmPreparationHandler.isEnabled())
             lmPreparationHandler.createPreparations(ghStorage, locationIndex);
         loadOrPrepareLM(closeEarly);
@@ -922,6 +999,11 @@ public class GraphHopper implements GraphHopperAPI {
     void interpolateBridgesTunnelsAndFerries() {
         if (ghStorage.getEncodingManager().hasEncodedValue(RoadEnvironment.KEY)) {
             EnumEncodedValue<RoadEnvironment> roadEnvEnc = ghStorage.getEncodingManager().getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class);
+            if (elevationThreads > 1) {
+                interpolateConcurrently(roadEnvEnc);
+                ghStorage.getProperties().put(INTERPOLATION_KEY, true);
+                return;
+            }
             StopWatch sw = new StopWatch().start();
             new EdgeElevationInterpolator(ghStorage, roadEnvEnc, RoadEnvironment.TUNNEL).execute();
             float tunnel = sw.stop().getSeconds();
@@ -937,6 +1019,35 @@ public class GraphHopper implements GraphHopperAPI {
         }
     }
 
+    /**
+     * Interpolates tunnels, bridges and ferries at the same time. This is possible because their edges are disjoint
+     * and a node that is changed by one of them is only adjacent to its own edges, so it is never read by the others.
+     */
+    private void interpolateConcurrently(EnumEncodedValue<RoadEnvironment> roadEnvEnc) {
+        StopWatch sw = new StopWatch().start();
+        List<RoadEnvironment> roadEnvironments = Arrays.asList(RoadEnvironment.TUNNEL, RoadEnvironment.BRIDGE, RoadEnvironment.FERRY);
+        ExecutorService pool = Executors.newFixedThreadPool(Math.min(elevationThreads, roadEnvironments.size()));
+        try {
+            List<Future<?>> futures = new ArrayList<>();
+            for (RoadEnvironment roadEnvironment : roadEnvironments)
+                futures.add(pool.submit(() -> new EdgeElevationInterpolator(ghStorage, roadEnvEnc, roadEnvironment).execute()));
+            for (Future<?> future : futures)
+                future.get();
+        } catch (InterruptedException | ExecutionException ex) {
+            throw new RuntimeException("Couldn't interpolate the elevation", ex);
+        } finally {
+            pool.shutdownNow();
+        }
+
+        // the elevation range of the bounds is not updated atomically, so we repeat the updates of all nodes
+        NodeAccess nodeAccess = ghStorage.getNodeAccess();
+        BBox bounds = ghStorage.getBounds();
+        for (int node = 0; node < ghStorage.getNodes(); node++) {
+            bounds.update(nodeAccess.getLat(node), nodeAccess.getLon(node), nodeAccess.getEle(node));
+        }
+        logger.info("Bridge, tunnel and ferry interpolation with " + elevationThreads + " threads " + (int) sw.stop().getSeconds() + "s");
+    }
+
     public final Weighting createWeighting(Profile profile, PMap hints) {
         return createWeighting(profile, hints, false);
     }
@@ -954,6 +1065,14 @@ public class GraphHopper implements GraphHopperAPI {
         return createRouter().route(request);
     }
 
+    /**
+     * Calculates the route like {@link #route(GHRequest)}, but shares the snaps of the points with all other requests
+     * that use the same {@link SnapCache}.
+     */
+    public GHResponse route(GHRequest request, SnapCache snapCache) {
+        return createRouter().route(request, snapCache);
+    }
+
     private Router createRouter() {
         if (ghStorage == null || !fullyLoaded)
             throw new IllegalStateException("Do a successful call to load or importOrLoad before routing");
@@ -983,7 +1102,7 @@ public class GraphHopper implements GraphHopperAPI {
                                     PathDetailsBuilderFactory pathBuilderFactory, TranslationMap trMap, RouterConfig routerConfig,
                                     WeightingFactory weightingFactory, Map<String, CHGraph> chGraphs, Map<String, LandmarkStorage> landmarks) {
         return new Router(ghStorage, locationIndex, profilesByName, pathBuilderFactory,
-                trMap, routerConfig, weightingFactory, chGraphs, landmarks
+                trMap, routerConfig, weightingFactory, chGraphs, landmarks, searchWorkspacePool, routeCache
         );
     }
 
@@ -1009,6 +1128,19 @@ public class GraphHopper implements GraphHopperAPI {
         locationIndex = createLocationIndex(ghStorage.getDirectory());
     }
 
+    private void initMajorRoadIndex() {
+        if (!encodingManager.hasEncodedValue(RoadClass.KEY))
+            throw new IllegalArgumentException("The major road index requires the encoded value " + RoadClass.KEY + ", e.g. graph.encoded_values: road_class");
+        majorRoadIndex = new MajorRoadIndex(ghStorage, encodingManager.getEnumEncodedValue(RoadClass.KEY, RoadClass.class), ghStorage.getDirectory());
+        if (!majorRoadIndex.loadExisting()) {
+            ensureWriteAccess();
+            StopWatch sw = new StopWatch().start();
+            majorRoadIndex.prepareIndex();
+            majorRoadIndex.flush();
+            logger.info("created major road index with " + majorRoadIndex.getRoadCount() + " roads, took: " + sw.stop().getSeconds() + "s");
+        }
+    }
+
     private boolean isCHPrepared() {
         return "true".equals(ghStorage.getProperties().get(CH.PREPARE + "done"));
     }
@@ -1034,6 +1166,8 @@ public class GraphHopper implements GraphHopperAPI {
 
             if (closeEarly) {
                 locationIndex.close();
+                if (majorRoadIndex != null)
+                    majorRoadIndex.close();
                 boolean includesCustomProfiles = getProfiles().stream().anyMatch(p -> p instanceof CustomProfile);
                 if (!includesCustomProfiles)
                     // when there are custom profiles we must not close way geometry or StringIndex, because
@@ -1112,6 +1246,16 @@ public class GraphHopper implements GraphHopperAPI {
         return jobs;
     }
 
+    /**
+     * Renumbers nodes and edges along a Hilbert curve. This has to happen before the location index, CH and LM are
+     * created as they refer to node and edge IDs.
+     */
+    protected void sortGraph() {
+        StopWatch sw = new StopWatch().start();
+        ghStorage.sortAlongHilbertCurve();
+        logger.info("graph sorted along hilbert curve, took: " + sw.stop().getSeconds() + "s (" + getMemInfo() + ")");
+    }
+
     protected void flush() {
         logger.info("flushing graph " + ghStorage.toString() + ", details:" + ghStorage.toDetailsString() + ", "
                 + getMemInfo() + ")");
@@ -1125,12 +1269,18 @@ public class GraphHopper implements GraphHopperAPI {
      * remove the files created in graphhopperLocation you have to call clean().
      */
     public void close() {
+        if (routeCache != null)
+            routeCache.clear();
+
         if (ghStorage != null)
             ghStorage.close();
 
         if (locationIndex != null)
             locationIndex.close();
 
+        if (majorRoadIndex != null)
+            majorRoadIndex.close();
+
         try {
             lockFactory.forceRemove(fileLockName, true);
         } catch (Exception ex) {
@@ -1161,6 +1311,12 @@ public class GraphHopper implements GraphHopperAPI {
     }
 
     private void setFullyLoaded() {
+        // the workspaces are shared by all requests, so they must outlive the router, which is created per request
+        if (routerConfig.getSearchWorkspaces() > 0)
+            searchWorkspacePool = new SearchWorkspacePool(routerConfig.getSearchWorkspaces());
+        // a new cache for every loaded graph, so no response of a previous graph is returned
+        if (routerConfig.getRouteCacheSize() > 0)
+            routeCache = new RouteCache(routerConfig.getRouteCacheSize(), routerConfig.getRouteCacheTTLMillis());
         fullyLoaded = true;
     }
 
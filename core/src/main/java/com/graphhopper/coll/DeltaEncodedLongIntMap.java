@@ -0,0 +1,339 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.carrotsearch.hppc.cursors.LongIntCursor;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.util.Helper;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * A memory friendly map from long to int that stores nearly all of its data in {@link DataAccess} objects, which
+ * makes it suitable for the OSM node ids of big imports. The keys are kept in sorted runs, which are split into
+ * blocks of {@link #BLOCK_SIZE} keys. Every block stores its first key in a header and all following keys as variable
+ * length deltas to their predecessor, so the dense and increasing ids of OSM files need only one or two bytes per key.
+ * A lookup does a binary search over the block headers of every run and then decodes a single block.
+ * <p>
+ * New keys are collected in a small buffer on the heap. Once the buffer is full it is written as a new run and runs
+ * of similar size are merged, so there are only logarithmically many runs. Updating the value of an existing key
+ * happens in place, which is why most puts of the second import pass do not change the runs at all.
+ * <p>
+ * If the directory uses memory mapping the runs are stored off-heap, otherwise in large byte arrays.
+ */
+public class DeltaEncodedLongIntMap implements LongIntMap {
+    static final int BLOCK_SIZE = 64;
+    // for every block the first key (8 bytes) and the start of the deltas in the keys DataAccess (8 bytes)
+    private static final int HEADER_BYTES = 16;
+    private final Directory dir;
+    private final DAType daType;
+    private final String name;
+    private final int noEntryValue;
+    private final int maxBufferSize;
+    private final LongIntHashMap buffer;
+    // sorted by decreasing size
+    private final List<Run> runs = new ArrayList<>();
+    private int runCounter;
+    private long size;
+
+    public DeltaEncodedLongIntMap(Directory dir, String name, int noEntryValue) {
+        this(dir, name, noEntryValue, 1 << 20);
+    }
+
+    /**
+     * @param name          the prefix of all DataAccess objects created by this map
+     * @param maxBufferSize the number of new keys that are kept on the heap before they are written to a run
+     */
+    public DeltaEncodedLongIntMap(Directory dir, String name, int noEntryValue, int maxBufferSize) {
+        if (maxBufferSize < 1)
+            throw new IllegalArgumentException("maxBufferSize must be positive but was " + maxBufferSize);
+        this.dir = dir;
+        // byte based access is required, so integer based RAM types cannot be used
+        this.daType = dir.getDefaultType().isMMap() ? DAType.MMAP : DAType.RAM;
+        this.name = name;
+        this.noEntryValue = noEntryValue;
+        this.maxBufferSize = maxBufferSize;
+        this.buffer = new LongIntHashMap(Math.min(maxBufferSize, 1 << 16));
+    }
+
+    @Override
+    public int put(long key, int value) {
+        int index = buffer.indexOf(key);
+        if (buffer.indexExists(index))
+            return buffer.indexReplace(index, value);
+
+        for (Run run : runs) {
+            long pos = run.find(key);
+            if (pos >= 0) {
+                int oldValue = run.getValue(pos);
+                run.setValue(pos, value);
+                return oldValue;
+            }
+        }
+
+        buffer.put(key, value);
+        size++;
+        if (buffer.size() >= maxBufferSize)
+            flushBuffer();
+        return noEntryValue;
+    }
+
+    @Override
+    public int get(long key) {
+        int index = buffer.indexOf(key);
+        if (buffer.indexExists(index))
+            return buffer.indexGet(index);
+
+        for (Run run : runs) {
+            long pos = run.find(key);
+            if (pos >= 0)
+                return run.getValue(pos);
+        }
+        return noEntryValue;
+    }
+
+    @Override
+    public long getSize() {
+        return size;
+    }
+
+    int getRuns() {
+        return runs.size();
+    }
+
+    /**
+     * Writes all buffered keys and merges all runs into a single one, which makes lookups faster.
+     */
+    @Override
+    public void optimize() {
+        if (!buffer.isEmpty())
+            flushBuffer();
+        while (runs.size() > 1) {
+            Run smaller = runs.remove(runs.size() - 1);
+            Run bigger = runs.remove(runs.size() - 1);
+            runs.add(merge(bigger, smaller));
+        }
+    }
+
+    @Override
+    public int getMemoryUsage() {
+        long bytes = buffer.keys.length * 12L;
+        for (Run run : runs) {
+            bytes += run.headers.getCapacity() + run.keys.getCapacity() + run.values.getCapacity();
+        }
+        return Math.round(bytes / Helper.MB);
+    }
+
+    /**
+     * Removes all DataAccess objects of this map. The map must not be used afterwards.
+     */
+    public void clear() {
+        for (Run run : runs) {
+            run.remove();
+        }
+        runs.clear();
+        buffer.release();
+        size = 0;
+    }
+
+    private void flushBuffer() {
+        long[] keys = new long[buffer.size()];
+        int i = 0;
+        for (LongIntCursor cursor : buffer) {
+            keys[i++] = cursor.key;
+        }
+        Arrays.sort(keys);
+        Run run = new Run(keys.length);
+        for (long key : keys) {
+            run.add(key, buffer.get(key));
+        }
+        buffer.clear();
+
+        // merge runs of similar size like a binary counter, so the number of runs stays logarithmic
+        while (!runs.isEmpty() && runs.get(runs.size() - 1).size <= run.size) {
+            run = merge(runs.remove(runs.size() - 1), run);
+        }
+        runs.add(run);
+    }
+
+    private Run merge(Run run1, Run run2) {
+        Run result = new Run(run1.size + run2.size);
+        RunIterator iter1 = new RunIterator(run1);
+        RunIterator iter2 = new RunIterator(run2);
+        boolean has1 = iter1.next(), has2 = iter2.next();
+        while (has1 || has2) {
+            if (has1 && (!has2 || iter1.key < iter2.key)) {
+                result.add(iter1.key, run1.getValue(iter1.index));
+                has1 = iter1.next();
+            } else {
+                result.add(iter2.key, run2.getValue(iter2.index));
+                has2 = iter2.next();
+            }
+        }
+        run1.remove();
+        run2.remove();
+        return result;
+    }
+
+    private final class Run {
+        final DataAccess headers;
+        final DataAccess keys;
+        final DataAccess values;
+        long size;
+        long keyBytes;
+        long lastKey;
+
+        Run(long expectedSize) {
+            int id = runCounter++;
+            long blocks = (expectedSize + BLOCK_SIZE - 1) / BLOCK_SIZE;
+            headers = dir.find(name + "_" + id + "_headers", daType).create(Math.max(blocks * HEADER_BYTES, 16));
+            keys = dir.find(name + "_" + id + "_keys", daType).create(Math.max(expectedSize * 2, 16));
+            values = dir.find(name + "_" + id + "_values", daType).create(Math.max(expectedSize * 4, 16));
+        }
+
+        /**
+         * Appends the key, which must be larger than all previous keys of this run.
+         */
+        void add(long key, int value) {
+            if (size % BLOCK_SIZE == 0) {
+                long headerPointer = size / BLOCK_SIZE * HEADER_BYTES;
+                headers.ensureCapacity(headerPointer + HEADER_BYTES);
+                setLong(headers, headerPointer, key);
+                setLong(headers, headerPointer + 8, keyBytes);
+            } else {
+                if (key <= lastKey)
+                    throw new IllegalArgumentException("Keys must be added in increasing order " + key + " <= " + lastKey);
+                // the subtraction can overflow but the unsigned delta is still correct
+                long delta = key - lastKey;
+                keys.ensureCapacity(keyBytes + 10);
+                while ((delta & ~0x7FL) != 0) {
+                    keys.setByte(keyBytes++, (byte) ((delta & 0x7F) | 0x80));
+                    delta >>>= 7;
+                }
+                keys.setByte(keyBytes++, (byte) delta);
+            }
+            values.ensureCapacity(size * 4 + 4);
+            values.setInt(size * 4, value);
+            lastKey = key;
+            size++;
+        }
+
+        /**
+         * @return the index of the key or -1 if this run does not contain the key
+         */
+        long find(long key) {
+            if (size == 0)
+                return -1;
+            // find the last block with a first key smaller or equal to the specified key
+            long low = 0, high = (size + BLOCK_SIZE - 1) / BLOCK_SIZE - 1;
+            if (getLong(headers, 0) > key)
+                return -1;
+            while (low < high) {
+                long mid = (low + high + 1) >>> 1;
+                if (getLong(headers, mid * HEADER_BYTES) <= key)
+                    low = mid;
+                else
+                    high = mid - 1;
+            }
+
+            long index = low * BLOCK_SIZE;
+            long current = getLong(headers, low * HEADER_BYTES);
+            long pointer = getLong(headers, low * HEADER_BYTES + 8);
+            long end = Math.min(size, index + BLOCK_SIZE);
+            while (true) {
+                if (current == key)
+                    return index;
+                if (current > key || ++index >= end)
+                    return -1;
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = keys.getByte(pointer++);
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                current += delta;
+            }
+        }
+
+        int getValue(long index) {
+            return values.getInt(index * 4);
+        }
+
+        void setValue(long index, int value) {
+            values.setInt(index * 4, value);
+        }
+
+        void remove() {
+            dir.remove(headers);
+            dir.remove(keys);
+            dir.remove(values);
+        }
+    }
+
+    /**
+     * Decodes the keys of a run in increasing order.
+     */
+    private static final class RunIterator {
+        private final Run run;
+        private long index = -1;
+        private long pointer;
+        private long key;
+
+        RunIterator(Run run) {
+            this.run = run;
+        }
+
+        boolean next() {
+            index++;
+            if (index >= run.size)
+                return false;
+            if (index % BLOCK_SIZE == 0) {
+                long headerPointer = index / BLOCK_SIZE * HEADER_BYTES;
+                key = getLong(run.headers, headerPointer);
+                pointer = getLong(run.headers, headerPointer + 8);
+            } else {
+                long delta = 0;
+                int shift = 0;
+                byte b;
+                do {
+                    b = run.keys.getByte(pointer++);
+                    delta |= (long) (b & 0x7F) << shift;
+                    shift += 7;
+                } while (b < 0);
+                key += delta;
+            }
+            return true;
+        }
+    }
+
+    private static void setLong(DataAccess da, long pointer, long value) {
+        da.setInt(pointer, (int) value);
+        da.setInt(pointer + 4, (int) (value >>> 32));
+    }
+
+    private static long getLong(DataAccess da, long pointer) {
+        return ((long) da.getInt(pointer + 4) << 32) | (da.getInt(pointer) & 0xFFFFFFFFL);
+    }
+}
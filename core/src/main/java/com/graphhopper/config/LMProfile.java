@@ -30,6 +30,7 @@ public class LMProfile {
     private String profile = "";
     private String preparationProfile = "this";
     private double maximumLMWeight = -1;
+    private int landmarkThreads = 1;
 
     private LMProfile() {
         // default constructor needed for jackson
@@ -75,8 +76,23 @@ public class LMProfile {
         return this;
     }
 
+    public int getLandmarkThreads() {
+        return landmarkThreads;
+    }
+
+    /**
+     * Sets the number of threads that are used to calculate the weights of the different landmarks of this profile.
+     */
+    public LMProfile setLandmarkThreads(int landmarkThreads) {
+        if (landmarkThreads < 1)
+            throw new IllegalArgumentException("landmark_threads must be at least 1 but was " + landmarkThreads);
+        this.landmarkThreads = landmarkThreads;
+        return this;
+    }
+
     @Override
     public String toString() {
-        return profile + "|preparation_profile=" + preparationProfile + "|maximum_lm_weight=" + maximumLMWeight;
+        return profile + "|preparation_profile=" + preparationProfile + "|maximum_lm_weight=" + maximumLMWeight
+                + "|landmark_threads=" + landmarkThreads;
     }
 }
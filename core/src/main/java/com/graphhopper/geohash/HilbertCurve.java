@@ -0,0 +1,86 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.geohash;
+
+import com.graphhopper.util.shapes.BBox;
+
+/**
+ * Maps coordinates to their position along a Hilbert curve that covers the given bounds. Unlike the Z-order curve
+ * used in {@link SpatialKeyAlgo} consecutive positions on the Hilbert curve are always adjacent cells, so sorting
+ * points by their key keeps points that are close in space close in the resulting order.
+ * <p>
+ * See https://en.wikipedia.org/wiki/Hilbert_curve
+ */
+public class HilbertCurve {
+    private final int bitsPerAxis;
+    private final long cells;
+    private final BBox bounds;
+    private final double deltaLat;
+    private final double deltaLon;
+
+    /**
+     * @param bitsPerAxis the grid has 2^bitsPerAxis cells in each direction, the resulting keys use twice as many bits
+     */
+    public HilbertCurve(int bitsPerAxis, BBox bounds) {
+        if (bitsPerAxis <= 0 || bitsPerAxis > 31)
+            throw new IllegalArgumentException("bitsPerAxis must be in [1, 31] but was " + bitsPerAxis);
+        this.bitsPerAxis = bitsPerAxis;
+        this.cells = 1L << bitsPerAxis;
+        this.bounds = bounds;
+        this.deltaLat = (bounds.maxLat - bounds.minLat) / cells;
+        this.deltaLon = (bounds.maxLon - bounds.minLon) / cells;
+    }
+
+    public long encode(double lat, double lon) {
+        return encodeCell(toCell(lon, bounds.minLon, deltaLon), toCell(lat, bounds.minLat, deltaLat));
+    }
+
+    private long toCell(double value, double min, double delta) {
+        if (delta <= 0)
+            return 0;
+        long cell = (long) ((value - min) / delta);
+        return Math.max(0, Math.min(cells - 1, cell));
+    }
+
+    /**
+     * @return the position of the cell (x, y) along the curve
+     */
+    long encodeCell(long x, long y) {
+        long key = 0;
+        for (long s = cells >>> 1; s > 0; s >>>= 1) {
+            int rx = (x & s) > 0 ? 1 : 0;
+            int ry = (y & s) > 0 ? 1 : 0;
+            key += s * s * ((3 * rx) ^ ry);
+            // rotate the quadrant such that the curve continues in the right direction
+            if (ry == 0) {
+                if (rx == 1) {
+                    x = cells - 1 - x;
+                    y = cells - 1 - y;
+                }
+                long tmp = x;
+                x = y;
+                y = tmp;
+            }
+        }
+        return key;
+    }
+
+    public int getBitsPerAxis() {
+        return bitsPerAxis;
+    }
+}
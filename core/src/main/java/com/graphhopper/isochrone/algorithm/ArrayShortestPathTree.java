@@ -0,0 +1,307 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.isochrone.algorithm;
+
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.graphhopper.coll.DoubleMinHeapWithUpdate;
+import com.graphhopper.routing.AbstractRoutingAlgorithm;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+
+import java.util.Arrays;
+import java.util.BitSet;
+
+import static com.graphhopper.isochrone.algorithm.ShortestPathTree.ExploreType.*;
+
+/**
+ * Computes the same shortest path tree as {@link ShortestPathTree}, but without an object per label. The labels are
+ * numbered in the order they are found and their node, edge, weight, time, distance and parent label are stored in
+ * parallel arrays. The label of a node or, for edge-based traversal, of an edge key is found via a primitive map, so the
+ * memory only depends on the explored part of the graph. The queue is a primitive heap of the label numbers with the
+ * weights as double keys, so the labels are settled in the same order as by {@link ShortestPathTree}.
+ * <p>
+ * The labels are settled while iterating over the {@link Cursor} returned by {@link #search(int)}.
+ */
+public class ArrayShortestPathTree extends AbstractRoutingAlgorithm {
+    private static final int NO_PARENT = -1;
+
+    private final IntIntHashMap labelsByTraversalId;
+    private final DoubleMinHeapWithUpdate heap;
+    private final BitSet settled = new BitSet();
+    private final boolean reverseFlow;
+    private int[] nodes;
+    private int[] edges;
+    private double[] weights;
+    private long[] times;
+    private double[] distances;
+    private int[] parents;
+    private int labels;
+    private int visitedNodes;
+    private double limit = -1;
+    private ShortestPathTree.ExploreType exploreType = TIME;
+
+    public ArrayShortestPathTree(Graph g, Weighting weighting, boolean reverseFlow, TraversalMode traversalMode) {
+        super(g, weighting, traversalMode);
+        this.reverseFlow = reverseFlow;
+        int capacity = 1000;
+        labelsByTraversalId = new IntIntHashMap(capacity);
+        heap = new DoubleMinHeapWithUpdate(capacity);
+        nodes = new int[capacity];
+        edges = new int[capacity];
+        weights = new double[capacity];
+        times = new long[capacity];
+        distances = new double[capacity];
+        parents = new int[capacity];
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        throw new IllegalStateException("call search instead");
+    }
+
+    /**
+     * Time limit in milliseconds
+     */
+    public void setTimeLimit(double limit) {
+        exploreType = TIME;
+        this.limit = limit;
+    }
+
+    /**
+     * Distance limit in meter
+     */
+    public void setDistanceLimit(double limit) {
+        exploreType = DISTANCE;
+        this.limit = limit;
+    }
+
+    public void setWeightLimit(double limit) {
+        exploreType = WEIGHT;
+        this.limit = limit;
+    }
+
+    /**
+     * Starts the search. Every call of {@link Cursor#next()} settles the label with the next smallest weight.
+     */
+    public Cursor search(int from) {
+        checkAlreadyRun();
+        int label = addLabel(from, EdgeIterator.NO_EDGE, 0, 0, 0, NO_PARENT);
+        if (traversalMode == TraversalMode.NODE_BASED)
+            labelsByTraversalId.put(from, label);
+        heap.push(label, 0);
+        return new Cursor();
+    }
+
+    /**
+     * Settles the next label and explores its edges.
+     *
+     * @return the settled label or -1 if the search is finished
+     */
+    private int settleNext() {
+        while (!finished()) {
+            int current = heap.poll();
+            // skip the labels that were improved to a value beyond the limit
+            if (getExploreValue(current) > limit)
+                continue;
+            settled.set(current);
+            visitedNodes++;
+            explore(current);
+            return current;
+        }
+        return -1;
+    }
+
+    private void explore(int current) {
+        int currentEdge = edges[current];
+        EdgeIterator iter = edgeExplorer.setBaseNode(nodes[current]);
+        while (iter.next()) {
+            if (!accept(iter, currentEdge))
+                continue;
+
+            double nextWeight = GHUtility.calcWeightWithTurnWeightWithAccess(weighting, iter, reverseFlow, currentEdge) + weights[current];
+            if (Double.isInfinite(nextWeight))
+                continue;
+
+            double nextDistance = iter.getDistance() + distances[current];
+            long nextTime = GHUtility.calcMillisWithTurnMillis(weighting, iter, reverseFlow, currentEdge) + times[current];
+            int nextTraversalId = traversalMode.createTraversalId(iter, reverseFlow);
+            int index = labelsByTraversalId.indexOf(nextTraversalId);
+            int label;
+            if (labelsByTraversalId.indexExists(index)) {
+                label = labelsByTraversalId.indexGet(index);
+                if (weights[label] <= nextWeight || settled.get(label))
+                    continue;
+                nodes[label] = iter.getAdjNode();
+                edges[label] = iter.getEdge();
+                weights[label] = nextWeight;
+                times[label] = nextTime;
+                distances[label] = nextDistance;
+                parents[label] = current;
+            } else {
+                label = addLabel(iter.getAdjNode(), iter.getEdge(), nextWeight, nextTime, nextDistance, current);
+                labelsByTraversalId.indexInsert(index, nextTraversalId, label);
+            }
+            if (heap.contains(label))
+                heap.update(label, nextWeight);
+            else if (getExploreValue(label) <= limit)
+                heap.push(label, nextWeight);
+        }
+    }
+
+    private int addLabel(int node, int edge, double weight, long time, double distance, int parent) {
+        if (labels == nodes.length) {
+            int capacity = labels * 2;
+            nodes = Arrays.copyOf(nodes, capacity);
+            edges = Arrays.copyOf(edges, capacity);
+            weights = Arrays.copyOf(weights, capacity);
+            times = Arrays.copyOf(times, capacity);
+            distances = Arrays.copyOf(distances, capacity);
+            parents = Arrays.copyOf(parents, capacity);
+            heap.ensureCapacity(capacity);
+        }
+        nodes[labels] = node;
+        edges[labels] = edge;
+        weights[labels] = weight;
+        times[labels] = time;
+        distances[labels] = distance;
+        parents[labels] = parent;
+        return labels++;
+    }
+
+    private double getExploreValue(int label) {
+        if (exploreType == TIME)
+            return times[label];
+        if (exploreType == WEIGHT)
+            return weights[label];
+        return distances[label];
+    }
+
+    /**
+     * @return the number of labels, including the ones that exceed the limit
+     */
+    public int getLabelCount() {
+        return labels;
+    }
+
+    @Override
+    protected boolean finished() {
+        return heap.isEmpty();
+    }
+
+    @Override
+    protected Path extractPath() {
+        throw new UnsupportedOperationException();
+    }
+
+    @Override
+    public String getName() {
+        return "reachability";
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * Iterates over the labels of the shortest path tree in the order of their weight. The getters refer to the label
+     * of the last successful call of {@link #next()}, its values do not change anymore.
+     */
+    public class Cursor {
+        private int label = -1;
+
+        private Cursor() {
+        }
+
+        /**
+         * Settles the next label.
+         *
+         * @return false if all labels within the limit are settled
+         */
+        public boolean next() {
+            label = settleNext();
+            return label >= 0;
+        }
+
+        public int getNode() {
+            return nodes[label];
+        }
+
+        /**
+         * @return the edge from the parent or {@link EdgeIterator#NO_EDGE} for the start
+         */
+        public int getEdge() {
+            return edges[label];
+        }
+
+        public double getWeight() {
+            return weights[label];
+        }
+
+        /**
+         * @return the time in milliseconds
+         */
+        public long getTime() {
+            return times[label];
+        }
+
+        /**
+         * @return the distance in meter
+         */
+        public double getDistance() {
+            return distances[label];
+        }
+
+        public boolean hasParent() {
+            return parents[label] != NO_PARENT;
+        }
+
+        public int getParentNode() {
+            return nodes[parent()];
+        }
+
+        public int getParentEdge() {
+            return edges[parent()];
+        }
+
+        public long getParentTime() {
+            return times[parent()];
+        }
+
+        public double getParentDistance() {
+            return distances[parent()];
+        }
+
+        private int parent() {
+            int parent = parents[label];
+            if (parent == NO_PARENT)
+                throw new IllegalStateException("The start has no parent");
+            return parent;
+        }
+
+        @Override
+        public String toString() {
+            return label < 0 ? "no label" : "node=" + getNode() + ", edge=" + getEdge() + ", weight=" + getWeight()
+                    + ", time=" + getTime() + ", distance=" + getDistance();
+        }
+    }
+}
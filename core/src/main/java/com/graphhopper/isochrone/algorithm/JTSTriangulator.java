@@ -47,31 +47,45 @@ public class JTSTriangulator implements Triangulator {
     }
 
     public Result triangulate(Snap snap, QueryGraph queryGraph, ShortestPathTree shortestPathTree, ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double tolerance) {
-        final NodeAccess na = queryGraph.getNodeAccess();
         Collection<Coordinate> sites = new ArrayList<>();
-        shortestPathTree.search(snap.getClosestNode(), label -> {
-            double exploreValue = fz.applyAsDouble(label);
-            double lat = na.getLat(label.node);
-            double lon = na.getLon(label.node);
-            Coordinate site = new Coordinate(lon, lat);
-            site.z = exploreValue;
-            sites.add(site);
-
-            // add a pillar node to increase precision a bit for longer roads
-            if (label.parent != null) {
-                EdgeIteratorState edge = queryGraph.getEdgeIteratorState(label.edge, label.node);
-                PointList innerPoints = edge.fetchWayGeometry(FetchMode.PILLAR_ONLY);
-                if (innerPoints.size() > 0) {
-                    int midIndex = innerPoints.size() / 2;
-                    double lat2 = innerPoints.getLat(midIndex);
-                    double lon2 = innerPoints.getLon(midIndex);
-                    Coordinate site2 = new Coordinate(lon2, lat2);
-                    site2.z = exploreValue;
-                    sites.add(site2);
-                }
+        shortestPathTree.search(snap.getClosestNode(), label ->
+                addSites(sites, queryGraph, label.node, label.edge, label.parent != null, fz.applyAsDouble(label)));
+        return triangulate(sites, tolerance);
+    }
+
+    public Result triangulate(Snap snap, QueryGraph queryGraph, ArrayShortestPathTree shortestPathTree, ToDoubleFunction<ArrayShortestPathTree.Cursor> fz, double tolerance) {
+        Collection<Coordinate> sites = new ArrayList<>();
+        ArrayShortestPathTree.Cursor label = shortestPathTree.search(snap.getClosestNode());
+        while (label.next()) {
+            addSites(sites, queryGraph, label.getNode(), label.getEdge(), label.hasParent(), fz.applyAsDouble(label));
+        }
+        return triangulate(sites, tolerance);
+    }
+
+    private void addSites(Collection<Coordinate> sites, QueryGraph queryGraph, int node, int edge, boolean hasParent, double exploreValue) {
+        final NodeAccess na = queryGraph.getNodeAccess();
+        double lat = na.getLat(node);
+        double lon = na.getLon(node);
+        Coordinate site = new Coordinate(lon, lat);
+        site.z = exploreValue;
+        sites.add(site);
+
+        // add a pillar node to increase precision a bit for longer roads
+        if (hasParent) {
+            EdgeIteratorState edgeState = queryGraph.getEdgeIteratorState(edge, node);
+            PointList innerPoints = edgeState.fetchWayGeometry(FetchMode.PILLAR_ONLY);
+            if (innerPoints.size() > 0) {
+                int midIndex = innerPoints.size() / 2;
+                double lat2 = innerPoints.getLat(midIndex);
+                double lon2 = innerPoints.getLon(midIndex);
+                Coordinate site2 = new Coordinate(lon2, lat2);
+                site2.z = exploreValue;
+                sites.add(site2);
             }
-        });
+        }
+    }
 
+    private Result triangulate(Collection<Coordinate> sites, double tolerance) {
         if (sites.size() > routerConfig.getMaxVisitedNodes() / 3)
             throw new IllegalArgumentException("Too many nodes would be included in post processing (" + sites.size() + "). Let us know if you need this increased.");
 
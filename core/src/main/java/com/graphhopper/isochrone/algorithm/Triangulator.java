@@ -40,4 +40,6 @@ public interface Triangulator {
 
     Result triangulate(Snap snap, QueryGraph queryGraph, ShortestPathTree shortestPathTree, ToDoubleFunction<ShortestPathTree.IsoLabel> fz, double tolerance);
 
+    Result triangulate(Snap snap, QueryGraph queryGraph, ArrayShortestPathTree shortestPathTree, ToDoubleFunction<ArrayShortestPathTree.Cursor> fz, double tolerance);
+
 }
@@ -18,6 +18,7 @@
 package com.graphhopper.reader.dem;
 
 import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
 import com.graphhopper.storage.Directory;
 import com.graphhopper.storage.GHDirectory;
 import com.graphhopper.util.Downloader;
@@ -26,6 +27,14 @@ import org.slf4j.LoggerFactory;
 
 import java.io.File;
 import java.io.IOException;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
 
 /**
  * Provides basic methods that are usually used in an ElevationProvider.
@@ -42,6 +51,9 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
     boolean interpolate = false;
     boolean autoRemoveTemporary = true;
     long sleep = 2000;
+    int maxCachedTiles = Integer.MAX_VALUE;
+    // the names of the tiles that were closed, but whose files might still need to be removed
+    private final Set<String> closedTiles = new HashSet<>();
 
     protected AbstractElevationProvider(String cacheDirString) {
         File cacheDir = new File(cacheDirString);
@@ -96,6 +108,111 @@ public abstract class AbstractElevationProvider implements ElevationProvider {
         return this;
     }
 
+    @Override
+    public ElevationProvider setMaxCachedTiles(int maxCachedTiles) {
+        if (maxCachedTiles < 1)
+            throw new IllegalArgumentException("At least one tile has to be cached: " + maxCachedTiles);
+        this.maxCachedTiles = maxCachedTiles;
+        return this;
+    }
+
+    /**
+     * The loaded tiles of a provider. The elevation can be looked up by multiple threads concurrently and only loading
+     * a tile blocks the other threads. If more than maxCachedTiles tiles are loaded, the least recently used tile is
+     * closed. It is loaded again from the cache directory when needed.
+     */
+    class TileCache<K> {
+        private final Map<K, CachedTile> tiles = new HashMap<>();
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final AtomicLong accessCounter = new AtomicLong();
+
+        /**
+         * @param loader loads the tile if it is not cached yet and returns null if there is no tile for the point
+         */
+        double getEle(K key, double lat, double lon, Supplier<HeightTile> loader) {
+            lock.readLock().lock();
+            try {
+                CachedTile cached = tiles.get(key);
+                if (cached != null)
+                    return cached.getEle(lat, lon);
+            } finally {
+                lock.readLock().unlock();
+            }
+
+            lock.writeLock().lock();
+            try {
+                CachedTile cached = tiles.get(key);
+                if (cached == null) {
+                    HeightTile tile = loader.get();
+                    if (tile == null)
+                        return 0;
+                    if (tiles.size() >= maxCachedTiles)
+                        closeLeastRecentlyUsed();
+                    cached = new CachedTile(tile);
+                    tiles.put(key, cached);
+                }
+                return cached.getEle(lat, lon);
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void closeLeastRecentlyUsed() {
+            Map.Entry<K, CachedTile> eldest = null;
+            for (Map.Entry<K, CachedTile> entry : tiles.entrySet()) {
+                if (eldest == null || entry.getValue().lastAccess < eldest.getValue().lastAccess)
+                    eldest = entry;
+            }
+            tiles.remove(eldest.getKey());
+            DataAccess heights = eldest.getValue().tile.getHeights();
+            closedTiles.add(heights.getName());
+            dir.close(heights);
+        }
+
+        void clear() {
+            lock.writeLock().lock();
+            try {
+                tiles.clear();
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private class CachedTile {
+            final HeightTile tile;
+            volatile long lastAccess;
+
+            CachedTile(HeightTile tile) {
+                this.tile = tile;
+            }
+
+            double getEle(double lat, double lon) {
+                lastAccess = accessCounter.incrementAndGet();
+                return tile.isSeaLevel() ? 0 : tile.getHeight(lat, lon);
+            }
+        }
+    }
+
+    /**
+     * Closes all tiles and removes the temporary files if enabled.
+     */
+    void releaseTiles(TileCache<?> tiles) {
+        tiles.clear();
+        if (dir != null) {
+            // for memory mapped type we remove temporary files
+            if (autoRemoveTemporary) {
+                // the closed tiles are added again so that their files are removed as well
+                for (String name : closedTiles) {
+                    dir.find(name);
+                }
+                dir.clear();
+            } else {
+                dir.close();
+            }
+        }
+        closedTiles.clear();
+    }
+
 
     protected Directory getDirectory() {
         if (dir != null)
@@ -39,6 +39,11 @@ public interface ElevationProvider {
             return this;
         }
 
+        @Override
+        public ElevationProvider setMaxCachedTiles(int maxCachedTiles) {
+            return this;
+        }
+
         @Override
         public void release() {
         }
@@ -73,6 +78,14 @@ public interface ElevationProvider {
      */
     ElevationProvider setDAType(DAType daType);
 
+    /**
+     * Limits the number of tiles that are kept open. When a new tile is needed the least recently used tile is
+     * closed. This bounds the memory usage independent of the area, but the tiles must not be removed in the
+     * meantime, so the extracted files in the cache directory are only removed by {@link #release()}.
+     * Default is Integer.MAX_VALUE, i.e. no limit.
+     */
+    ElevationProvider setMaxCachedTiles(int maxCachedTiles);
+
     /**
      * Configuration option to use bilinear interpolation to find the elevation at a point from the
      * surrounding elevation points. Has only an effect if called before the first getEle call.
@@ -66,6 +66,10 @@ public class HeightTile {
         return this;
     }
 
+    DataAccess getHeights() {
+        return heights;
+    }
+
     public boolean isSeaLevel() {
         return heights.getHeader(0) == 1;
     }
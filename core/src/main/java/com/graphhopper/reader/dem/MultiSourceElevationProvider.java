@@ -76,6 +76,13 @@ public class MultiSourceElevationProvider implements ElevationProvider {
         return this;
     }
 
+    @Override
+    public ElevationProvider setMaxCachedTiles(int maxCachedTiles) {
+        srtmProvider.setMaxCachedTiles(maxCachedTiles);
+        globalProvider.setMaxCachedTiles(maxCachedTiles);
+        return this;
+    }
+
     @Override
     public void setInterpolate(boolean interpolate) {
         srtmProvider.setInterpolate(interpolate);
@@ -37,6 +37,7 @@ import javax.xml.stream.XMLStreamException;
 import java.io.File;
 import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.*;
 
 import static com.graphhopper.util.Helper.nf;
 
@@ -84,6 +85,10 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
     private long locations;
     private final EncodingManager encodingManager;
     private int workerThreads = 2;
+    private int tagParserThreads = 1;
+    private int elevationThreads = 1;
+    private static final int WAY_BATCH_SIZE = 10_000;
+    private static final int NODE_BATCH_SIZE = 100_000;
     // Choosing the best Map<Long, Integer> is hard. We need a memory efficient and fast solution for big data sets!
     //
     // very slow: new SparseLongLongArray
@@ -99,6 +104,8 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
     // stores osm way ids used by relations to identify which edge ids needs to be mapped later
     private GHLongHashSet osmWayIdSet = new GHLongHashSet();
     private IntLongMap edgeIdToOsmWayIdMap;
+    private File speedProfilesFile;
+    private LongIntHashMap osmWayIdToSpeedProfileMap;
     private boolean doSimplify = true;
     private int nextTowerId = 0;
     private int nextPillarId = 0;
@@ -109,6 +116,7 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
     private Date osmDataDate;
     private final IntsRef tempRelFlags;
     private final TurnCostStorage tcs;
+    private final SpeedProfileStorage speedProfileStorage;
 
     public OSMReader(GraphHopperStorage ghStorage) {
         this.ghStorage = ghStorage;
@@ -125,6 +133,7 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
             throw new IllegalArgumentException("Cannot use relation flags with != 2 integers");
 
         tcs = graph.getTurnCostStorage();
+        speedProfileStorage = ghStorage.getSpeedProfileStorage();
     }
 
     public void readGraph() throws IOException {
@@ -139,6 +148,8 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
 
         StopWatch sw1 = new StopWatch().start();
         preProcess(osmFile);
+        // no new osm node ids will be added (except for barriers), so this is a good time to compact the node map
+        getNodeMap().optimize();
         sw1.stop();
 
         StopWatch sw2 = new StopWatch().start();
@@ -246,19 +257,37 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
         int tmp = (int) Math.max(getNodeMap().getSize() / 50, 100);
         LOGGER.info("creating graph. Found nodes (pillar+tower):" + nf(getNodeMap().getSize()) + ", " + Helper.getMemInfo());
         ghStorage.create(tmp);
+        if (speedProfilesFile != null)
+            readSpeedProfiles();
 
         long wayStart = -1;
         long relationStart = -1;
         long counter = 1;
+        ExecutorService tagParserPool = tagParserThreads > 1 && isParallelWayParsingSupported()
+                ? Executors.newFixedThreadPool(tagParserThreads) : null;
+        ExecutorService elevationPool = elevationThreads > 1 && eleProvider != ElevationProvider.NOOP && isParallelElevationLookupSupported()
+                ? Executors.newFixedThreadPool(elevationThreads) : null;
+        List<ReaderWay> wayBatch = new ArrayList<>();
+        List<ReaderNode> nodeBatch = new ArrayList<>();
         try (OSMInput in = openOsmInputFile(osmFile)) {
             LongIntMap nodeFilter = getNodeMap();
 
             ReaderElement item;
             while ((item = in.getNext()) != null) {
+                if (!wayBatch.isEmpty() && item.getType() != ReaderElement.WAY)
+                    processWayBatch(wayBatch, tagParserPool);
+                if (!nodeBatch.isEmpty() && item.getType() != ReaderElement.NODE)
+                    processNodeBatch(nodeBatch, elevationPool);
                 switch (item.getType()) {
                     case ReaderElement.NODE:
                         if (nodeFilter.get(item.getId()) != EMPTY_NODE) {
-                            processNode((ReaderNode) item);
+                            if (elevationPool == null) {
+                                processNode((ReaderNode) item);
+                            } else {
+                                nodeBatch.add((ReaderNode) item);
+                                if (nodeBatch.size() >= NODE_BATCH_SIZE)
+                                    processNodeBatch(nodeBatch, elevationPool);
+                            }
                         }
                         break;
 
@@ -267,7 +296,13 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
                             LOGGER.info(nf(counter) + ", now parsing ways");
                             wayStart = counter;
                         }
-                        processWay((ReaderWay) item);
+                        if (tagParserPool == null) {
+                            processWay((ReaderWay) item);
+                        } else {
+                            wayBatch.add((ReaderWay) item);
+                            if (wayBatch.size() >= WAY_BATCH_SIZE)
+                                processWayBatch(wayBatch, tagParserPool);
+                        }
                         break;
                     case ReaderElement.RELATION:
                         if (relationStart < 0) {
@@ -286,12 +321,22 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
                 }
             }
 
+            if (!wayBatch.isEmpty())
+                processWayBatch(wayBatch, tagParserPool);
+            if (!nodeBatch.isEmpty())
+                processNodeBatch(nodeBatch, elevationPool);
+
             if (in.getUnprocessedElements() > 0)
                 throw new IllegalStateException("Still unprocessed elements in reader queue " + in.getUnprocessedElements());
 
             // logger.info("storage nodes:" + storage.nodes() + " vs. graph nodes:" + storage.getGraph().nodes());
         } catch (Exception ex) {
             throw new RuntimeException("Couldn't process file " + osmFile + ", error: " + ex.getMessage(), ex);
+        } finally {
+            if (tagParserPool != null)
+                tagParserPool.shutdownNow();
+            if (elevationPool != null)
+                elevationPool.shutdownNow();
         }
 
         finishedReading();
@@ -299,28 +344,130 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
             throw new RuntimeException("Graph after reading OSM must not be empty. Read " + counter + " items and " + locations + " locations");
     }
 
+    /**
+     * Parses the tags of the given ways using multiple threads and then creates their edges one after the other in
+     * the order of the batch. Afterwards the batch is cleared.
+     */
+    private void processWayBatch(List<ReaderWay> wayBatch, ExecutorService tagParserPool) throws InterruptedException, ExecutionException {
+        IntsRef[] edgeFlags = new IntsRef[wayBatch.size()];
+        int chunkSize = (wayBatch.size() + tagParserThreads - 1) / tagParserThreads;
+        List<Callable<Object>> tasks = new ArrayList<>(tagParserThreads);
+        for (int start = 0; start < wayBatch.size(); start += chunkSize) {
+            final int from = start, to = Math.min(start + chunkSize, wayBatch.size());
+            tasks.add(() -> {
+                IntsRef relationFlags = encodingManager.createRelationFlags();
+                for (int i = from; i < to; i++) {
+                    ReaderWay way = wayBatch.get(i);
+                    edgeFlags[i] = parseWay(way, getRelFlagsMap(way.getId(), relationFlags));
+                }
+                return null;
+            });
+        }
+        for (Future<Object> future : tagParserPool.invokeAll(tasks))
+            future.get();
+
+        for (int i = 0; i < edgeFlags.length; i++) {
+            if (edgeFlags[i] != null)
+                addWayEdges(wayBatch.get(i), edgeFlags[i]);
+        }
+        wayBatch.clear();
+    }
+
+    /**
+     * Looks up the elevations of the given nodes using multiple threads and then adds the nodes one after the other in
+     * the order of the batch. The lookups are sorted by the one degree cell of the node, so every thread mostly needs a
+     * single elevation tile at a time and a tile is decoded only once per batch even if the elevation provider caches
+     * only a few tiles. Afterwards the batch is cleared.
+     */
+    private void processNodeBatch(List<ReaderNode> nodeBatch, ExecutorService elevationPool) throws InterruptedException, ExecutionException {
+        // the cell is stored in the upper and the index in the batch in the lower bits
+        long[] sorted = new long[nodeBatch.size()];
+        for (int i = 0; i < sorted.length; i++) {
+            ReaderNode node = nodeBatch.get(i);
+            long cell = (long) Math.floor(node.getLat() + 90) * 360 + (long) Math.floor(node.getLon() + 180);
+            sorted[i] = cell << 32 | i;
+        }
+        Arrays.sort(sorted);
+
+        double[] eles = new double[sorted.length];
+        int chunkSize = (sorted.length + elevationThreads - 1) / elevationThreads;
+        List<Callable<Object>> tasks = new ArrayList<>(elevationThreads);
+        for (int start = 0; start < sorted.length; start += chunkSize) {
+            final int from = start, to = Math.min(start + chunkSize, sorted.length);
+            tasks.add(() -> {
+                for (int i = from; i < to; i++) {
+                    int index = (int) sorted[i];
+                    ReaderNode node = nodeBatch.get(index);
+                    eles[index] = eleProvider.getEle(node.getLat(), node.getLon());
+                }
+                return null;
+            });
+        }
+        for (Future<Object> future : elevationPool.invokeAll(tasks))
+            future.get();
+
+        for (int i = 0; i < eles.length; i++) {
+            ReaderNode node = nodeBatch.get(i);
+            int nodeType = getNodeMap().get(node.getId());
+            if (nodeType != EMPTY_NODE)
+                addNode(node, nodeType, eles[i]);
+            processNodeTags(node);
+        }
+        nodeBatch.clear();
+    }
+
+    /**
+     * The ways that are parsed by multiple threads are not passed to {@link #processWay}, so a subclass that overrides
+     * processWay has to override this method and return false. Then the ways are processed by a single thread.
+     *
+     * @return true if the ways can be parsed by multiple threads, see {@link #setTagParserThreads(int)}
+     */
+    protected boolean isParallelWayParsingSupported() {
+        return true;
+    }
+
+    /**
+     * The nodes whose elevations are looked up by multiple threads are not passed to {@link #processNode}, so a
+     * subclass that overrides processNode has to override this method and return false. Then the nodes are processed
+     * by a single thread.
+     *
+     * @return true if the elevations can be looked up by multiple threads, see {@link #setElevationThreads(int)}
+     */
+    protected boolean isParallelElevationLookupSupported() {
+        return true;
+    }
+
     protected OSMInput openOsmInputFile(File osmFile) throws XMLStreamException, IOException {
         return new OSMInputFile(osmFile).setWorkerThreads(workerThreads).open();
     }
 
     /**
-     * Process properties, encode flags and create edges for the way.
+     * Process properties, encode flags and create edges for the way. A subclass that overrides this method has to
+     * disable the parallel parsing of the ways, see {@link #isParallelWayParsingSupported()}.
      */
     protected void processWay(ReaderWay way) {
+        IntsRef edgeFlags = parseWay(way, getRelFlagsMap(way.getId()));
+        if (edgeFlags != null)
+            addWayEdges(way, edgeFlags);
+    }
+
+    /**
+     * Parses the tags of the given way and encodes its flags. This method does not modify the graph and can be
+     * called from multiple threads as long as each thread uses its own relationFlags.
+     *
+     * @return the edge flags of the way or null if the way should not be added to the graph
+     */
+    private IntsRef parseWay(ReaderWay way, IntsRef relationFlags) {
         if (way.getNodes().size() < 2)
-            return;
+            return null;
 
         // ignore multipolygon geometry
         if (!way.hasTags())
-            return;
-
-        long wayOsmId = way.getId();
+            return null;
 
         EncodingManager.AcceptWay acceptWay = new EncodingManager.AcceptWay();
         if (!encodingManager.acceptWay(way, acceptWay))
-            return;
-
-        IntsRef relationFlags = getRelFlagsMap(way.getId());
+            return null;
 
         // TODO move this after we have created the edge and know the coordinates => encodingManager.applyWayTags
         LongArrayList osmNodeIds = way.getNodes();
@@ -347,9 +494,15 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
         }
 
         IntsRef edgeFlags = encodingManager.handleWayTags(way, acceptWay, relationFlags);
-        if (edgeFlags.isEmpty())
-            return;
+        return edgeFlags.isEmpty() ? null : edgeFlags;
+    }
 
+    /**
+     * Creates the edges for the way with the given edge flags, see {@link #parseWay}.
+     */
+    private void addWayEdges(ReaderWay way, IntsRef edgeFlags) {
+        long wayOsmId = way.getId();
+        LongArrayList osmNodeIds = way.getNodes();
         List<EdgeIteratorState> createdEdges = new ArrayList<>();
         // look for barriers along the way
         final int size = osmNodeIds.size();
@@ -474,9 +627,16 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
             return Double.NaN;
     }
 
+    /**
+     * Adds the node and analyzes its tags. A subclass that overrides this method has to disable the parallel lookup of
+     * the elevations, see {@link #isParallelElevationLookupSupported()}.
+     */
     protected void processNode(ReaderNode node) {
         addNode(node);
+        processNodeTags(node);
+    }
 
+    private void processNodeTags(ReaderNode node) {
         // analyze node tags for barriers
         if (node.hasTags()) {
             long nodeFlags = encodingManager.handleNodeTags(node);
@@ -492,9 +652,13 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
         if (nodeType == EMPTY_NODE)
             return false;
 
+        addNode(node, nodeType, eleProvider.getEle(node.getLat(), node.getLon()));
+        return true;
+    }
+
+    private void addNode(ReaderNode node, int nodeType, double ele) {
         double lat = node.getLat();
         double lon = node.getLon();
-        double ele = eleProvider.getEle(lat, lon);
         if (nodeType == TOWER_NODE) {
             addTowerNode(node.getId(), lat, lon, ele);
         } else if (nodeType == PILLAR_NODE) {
@@ -502,7 +666,6 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
             getNodeMap().put(node.getId(), nextPillarId + 3);
             nextPillarId++;
         }
-        return true;
     }
 
     /**
@@ -720,6 +883,11 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
 
         checkDistance(iter);
         storeOsmWayID(iter.getEdge(), wayOsmId);
+        if (osmWayIdToSpeedProfileMap != null) {
+            int profile = osmWayIdToSpeedProfileMap.getOrDefault(wayOsmId, 0);
+            if (profile > 0)
+                speedProfileStorage.setEdgeProfile(iter.getEdge(), profile);
+        }
         return iter;
     }
 
@@ -778,11 +946,24 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
         pillarInfo.clear();
         encodingManager.releaseParsers();
         eleProvider.release();
+        if (osmNodeIdToInternalNodeMap instanceof DeltaEncodedLongIntMap)
+            ((DeltaEncodedLongIntMap) osmNodeIdToInternalNodeMap).clear();
         osmNodeIdToInternalNodeMap = null;
         osmNodeIdToNodeFlagsMap = null;
         osmWayIdToRouteWeightMap = null;
         osmWayIdSet = null;
         edgeIdToOsmWayIdMap = null;
+        osmWayIdToSpeedProfileMap = null;
+    }
+
+    private void readSpeedProfiles() {
+        try {
+            osmWayIdToSpeedProfileMap = new SpeedProfileReader(speedProfileStorage).read(speedProfilesFile);
+        } catch (IOException ex) {
+            throw new RuntimeException("Cannot read speed profiles from " + speedProfilesFile, ex);
+        }
+        LOGGER.info("read speed profiles of " + nf(osmWayIdToSpeedProfileMap.size()) + " ways, distinct profiles: "
+                + nf(speedProfileStorage.getProfileCount()));
     }
 
     /**
@@ -906,10 +1087,14 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
     }
 
     IntsRef getRelFlagsMap(long osmId) {
+        return getRelFlagsMap(osmId, tempRelFlags);
+    }
+
+    private IntsRef getRelFlagsMap(long osmId, IntsRef relFlags) {
         long relFlagsAsLong = osmWayIdToRouteWeightMap.get(osmId);
-        tempRelFlags.ints[0] = (int) relFlagsAsLong;
-        tempRelFlags.ints[1] = (int) (relFlagsAsLong >> 32);
-        return tempRelFlags;
+        relFlags.ints[0] = (int) relFlagsAsLong;
+        relFlags.ints[1] = (int) (relFlagsAsLong >> 32);
+        return relFlags;
     }
 
     void putRelFlagsMap(long osmId, IntsRef relFlags) {
@@ -943,6 +1128,45 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
         return this;
     }
 
+    /**
+     * Stores the map from OSM node ids to internal node ids in a {@link DeltaEncodedLongIntMap} instead of a
+     * {@link GHLongIntBTree}. This requires far less heap for big imports but makes the import slower, and if the graph
+     * directory uses memory mapping the map is stored off-heap. Must be called before the import starts.
+     */
+    public OSMReader setDeltaEncodedNodeMap(boolean deltaEncodedNodeMap) {
+        if (osmNodeIdToInternalNodeMap.getSize() > 0)
+            throw new IllegalStateException("Cannot change the node map after the import started");
+        osmNodeIdToInternalNodeMap = deltaEncodedNodeMap
+                ? new DeltaEncodedLongIntMap(ghStorage.getDirectory(), "tmp_osm_node_map", EMPTY_NODE)
+                : new GHLongIntBTree(200);
+        return this;
+    }
+
+    /**
+     * Sets the number of threads used to parse the tags and encode the flags of the ways in the second pass. The
+     * edges are still created by a single thread in the order the ways appear in the OSM file, so the resulting graph
+     * does not depend on this setting. This setting has no effect if {@link #isParallelWayParsingSupported()} returns
+     * false.
+     */
+    public OSMReader setTagParserThreads(int tagParserThreads) {
+        if (tagParserThreads < 1)
+            throw new IllegalArgumentException("tag parser threads must be positive but was " + tagParserThreads);
+        this.tagParserThreads = tagParserThreads;
+        return this;
+    }
+
+    /**
+     * Sets the number of threads used to look up the elevations of the nodes. The nodes are still added by a single
+     * thread in the order they appear in the OSM file, so the resulting graph does not depend on this setting. This
+     * setting has no effect if {@link #isParallelElevationLookupSupported()} returns false.
+     */
+    public OSMReader setElevationThreads(int elevationThreads) {
+        if (elevationThreads < 1)
+            throw new IllegalArgumentException("elevation threads must be positive but was " + elevationThreads);
+        this.elevationThreads = elevationThreads;
+        return this;
+    }
+
     public OSMReader setElevationProvider(ElevationProvider eleProvider) {
         if (eleProvider == null)
             throw new IllegalStateException("Use the NOOP elevation provider instead of null or don't call setElevationProvider");
@@ -954,6 +1178,18 @@ public class OSMReader implements TurnCostParser.ExternalInternalMap {
         return this;
     }
 
+    /**
+     * Reads the speed profiles of OSM ways from the specified CSV file, see {@link SpeedProfileReader}, and assigns
+     * them to the edges of these ways. Speed profiles need to be enabled for the graph, see
+     * {@link GraphHopperStorage#setSpeedProfiles(boolean)}.
+     */
+    public OSMReader setSpeedProfilesFile(File speedProfilesFile) {
+        if (speedProfileStorage == null)
+            throw new IllegalStateException("Speed profiles are not enabled for the graph");
+        this.speedProfilesFile = speedProfilesFile;
+        return this;
+    }
+
     public OSMReader setFile(File osmFile) {
         this.osmFile = osmFile;
         return this;
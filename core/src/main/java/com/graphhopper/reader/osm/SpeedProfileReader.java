@@ -0,0 +1,80 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.graphhopper.storage.SpeedProfileStorage;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Reads historic speeds of OSM ways from a CSV file. Every line contains the OSM way ID followed by
+ * {@link SpeedProfileStorage#BUCKETS} speeds in km/h, one for every quarter of an hour starting at midnight, e.g.
+ * <pre>
+ * # osm_way_id,00:00,00:15,...,23:45
+ * 4312753,50,50,...,45
+ * </pre>
+ * Empty lines and lines starting with # are ignored. A speed of 0 means that there is no data for this quarter of an
+ * hour. The profiles are added to the {@link SpeedProfileStorage} and the {@link OSMReader} uses the returned map
+ * to assign the profiles to the edges of the ways.
+ */
+public class SpeedProfileReader {
+    private final SpeedProfileStorage storage;
+
+    public SpeedProfileReader(SpeedProfileStorage storage) {
+        this.storage = storage;
+    }
+
+    /**
+     * @return the profile ID for every OSM way ID
+     */
+    public LongIntHashMap read(File file) throws IOException {
+        try (Reader reader = new InputStreamReader(new FileInputStream(file), StandardCharsets.UTF_8)) {
+            return read(reader);
+        }
+    }
+
+    public LongIntHashMap read(Reader reader) throws IOException {
+        LongIntHashMap wayProfiles = new LongIntHashMap();
+        BufferedReader bufferedReader = new BufferedReader(reader);
+        int[] speeds = new int[SpeedProfileStorage.BUCKETS];
+        String line;
+        int lineNumber = 0;
+        while ((line = bufferedReader.readLine()) != null) {
+            lineNumber++;
+            line = line.trim();
+            if (line.isEmpty() || line.startsWith("#"))
+                continue;
+            String[] values = line.split(",");
+            if (values.length != SpeedProfileStorage.BUCKETS + 1)
+                throw new IllegalArgumentException("Line " + lineNumber + " needs the OSM way ID and "
+                        + SpeedProfileStorage.BUCKETS + " speeds but has " + values.length + " values");
+            try {
+                long wayId = Long.parseLong(values[0].trim());
+                for (int i = 0; i < speeds.length; i++) {
+                    speeds[i] = Integer.parseInt(values[i + 1].trim());
+                }
+                wayProfiles.put(wayId, storage.addProfile(speeds));
+            } catch (IllegalArgumentException ex) {
+                throw new IllegalArgumentException("Invalid speed profile in line " + lineNumber + ": " + ex.getMessage(), ex);
+            }
+        }
+        return wayProfiles;
+    }
+}
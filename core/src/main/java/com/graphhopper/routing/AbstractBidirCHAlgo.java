@@ -270,7 +270,7 @@ public abstract class AbstractBidirCHAlgo extends AbstractBidirAlgo implements B
         return getName() + "|" + graph.getWeighting();
     }
 
-    private static class CHLevelEdgeFilter implements CHEdgeFilter {
+    static class CHLevelEdgeFilter implements CHEdgeFilter {
         private final RoutingCHGraph graph;
         private final int maxNodes;
 
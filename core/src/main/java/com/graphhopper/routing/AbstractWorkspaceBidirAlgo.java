@@ -0,0 +1,304 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.util.EdgeIterator;
+
+import java.util.Collections;
+import java.util.List;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+
+/**
+ * Common subclass for bidirectional algorithms that store their shortest path trees in a {@link SearchWorkspace}
+ * instead of maps of {@link SPTEntry} objects. The workspace is taken from a {@link SearchWorkspacePool} for the
+ * duration of a single search, so apart from the resulting {@link Path} a search does not allocate any memory that
+ * grows with the number of visited nodes. If all workspaces of the pool are in use the search is done by the
+ * map-based algorithm this class mirrors, see {@link #createFallbackAlgo()}.
+ *
+ * @see AbstractBidirAlgo for the algorithms this class mirrors
+ */
+public abstract class AbstractWorkspaceBidirAlgo implements BidirRoutingAlgorithm {
+    // used as parent of the entries next to the root of an edge-based search, which has no traversal id
+    static final int ROOT = -1;
+    protected final TraversalMode traversalMode;
+    private final SearchWorkspacePool workspacePool;
+    SearchWorkspace.Tree fwd;
+    SearchWorkspace.Tree bwd;
+    protected int from;
+    protected int to;
+    protected int fromOutEdge = ANY_EDGE;
+    protected int toInEdge = ANY_EDGE;
+    // the priority of the entries polled last
+    protected double currFrom;
+    protected double currTo;
+    protected double bestWeight = Double.MAX_VALUE;
+    // the traversal ids of the entries where the two searches meet
+    int bestFwdId;
+    int bestBwdId;
+    protected boolean finishedFrom;
+    protected boolean finishedTo;
+    int visitedCountFrom;
+    int visitedCountTo;
+    protected int maxVisitedNodes = Integer.MAX_VALUE;
+    private BidirRoutingAlgorithm fallbackAlgo;
+    private boolean alreadyRun;
+
+    public AbstractWorkspaceBidirAlgo(TraversalMode traversalMode, SearchWorkspacePool workspacePool) {
+        this.traversalMode = traversalMode;
+        this.workspacePool = workspacePool;
+    }
+
+    /**
+     * @return the number of traversal ids the workspace has to provide for the graph of this algorithm
+     */
+    protected abstract int getTraversalIdCount();
+
+    /**
+     * Relaxes all edges adjacent to the given node and updates the shortest path tree and the priority queue.
+     *
+     * @param id             the traversal id of the entry of node or {@link #ROOT}
+     * @param incEdge        the edge the node was reached with or {@link EdgeIterator#NO_EDGE} for the root
+     * @param restrictedEdge if not {@link EdgeIterator#ANY_EDGE} only this edge may be used
+     */
+    abstract void fillEdges(SearchWorkspace.Tree tree, int id, int node, int incEdge, double weight, int restrictedEdge, boolean reverse);
+
+    protected abstract Path extractPath(SPTEntry fwdEntry, SPTEntry bwdEntry, double weight);
+
+    protected abstract Path createEmptyPath();
+
+    /**
+     * @return the map-based algorithm that is used instead of this one if no workspace is available
+     */
+    protected abstract BidirRoutingAlgorithm createFallbackAlgo();
+
+    /**
+     * @return the priority of an entry in the queue, e.g. the weight plus an estimate for the remaining weight
+     */
+    protected double getKey(double weight, int node, boolean reverse) {
+        return weight;
+    }
+
+    @Override
+    public List<Path> calcPaths(int from, int to) {
+        return Collections.singletonList(calcPath(from, to));
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        return calcPath(from, to, ANY_EDGE, ANY_EDGE);
+    }
+
+    @Override
+    public Path calcPath(int from, int to, int fromOutEdge, int toInEdge) {
+        if ((fromOutEdge != ANY_EDGE || toInEdge != ANY_EDGE) && !traversalMode.isEdgeBased()) {
+            throw new IllegalArgumentException("Restricting the start/target edges is only possible for edge-based graph traversal");
+        }
+        this.fromOutEdge = fromOutEdge;
+        this.toInEdge = toInEdge;
+        checkAlreadyRun();
+        SearchWorkspace workspace = workspacePool.acquire(getTraversalIdCount());
+        if (workspace == null) {
+            // creating another workspace would allocate more memory than the maps of a single search
+            fallbackAlgo = createFallbackAlgo();
+            fallbackAlgo.setMaxVisitedNodes(maxVisitedNodes);
+            return fallbackAlgo.calcPath(from, to, fromOutEdge, toInEdge);
+        }
+        try {
+            fwd = workspace.fwd;
+            bwd = workspace.bwd;
+            init(from, to);
+            runAlgo();
+            return extractPath();
+        } finally {
+            fwd = null;
+            bwd = null;
+            workspacePool.release(workspace);
+        }
+    }
+
+    void init(int from, int to) {
+        this.from = from;
+        this.to = to;
+        currFrom = getKey(0, from, false);
+        currTo = getKey(0, to, true);
+        if (!traversalMode.isEdgeBased()) {
+            fwd.set(from, 0, EdgeIterator.NO_EDGE, from, ROOT);
+            bwd.set(to, 0, EdgeIterator.NO_EDGE, to, ROOT);
+            if (from == to) {
+                bestFwdId = from;
+                bestBwdId = to;
+                bestWeight = 0;
+            }
+        } else if (from == to && fromOutEdge == ANY_EDGE && toInEdge == ANY_EDGE) {
+            // special handling if start and end are the same and no directions are restricted
+            // the resulting weight should be zero
+            bestFwdId = ROOT;
+            bestBwdId = ROOT;
+            bestWeight = 0;
+            finishedFrom = true;
+            finishedTo = true;
+            return;
+        }
+        // for node-based traversal the root has a traversal id so its children can point to it
+        int rootFromId = traversalMode.isEdgeBased() ? ROOT : from;
+        int rootToId = traversalMode.isEdgeBased() ? ROOT : to;
+        visitedCountFrom++;
+        fillEdges(fwd, rootFromId, from, EdgeIterator.NO_EDGE, 0, fromOutEdge, false);
+        visitedCountTo++;
+        fillEdges(bwd, rootToId, to, EdgeIterator.NO_EDGE, 0, toInEdge, true);
+    }
+
+    protected void runAlgo() {
+        while (!finished() && !isMaxVisitedNodesExceeded()) {
+            if (!finishedFrom)
+                finishedFrom = !fillEdgesFrom();
+
+            if (!finishedTo)
+                finishedTo = !fillEdgesTo();
+        }
+    }
+
+    protected boolean finished() {
+        if (finishedFrom || finishedTo)
+            return true;
+
+        return currFrom + currTo >= bestWeight;
+    }
+
+    boolean fillEdgesFrom() {
+        if (fwd.heap.isEmpty())
+            return false;
+        int id = fwd.heap.poll();
+        visitedCountFrom++;
+        currFrom = getKey(fwd.weights[id], fwd.nodes[id], false);
+        if (entryCanBeSkipped(fwd, id, false))
+            return true;
+        fillEdges(fwd, id, fwd.nodes[id], fwd.edges[id], fwd.weights[id], ANY_EDGE, false);
+        return true;
+    }
+
+    boolean fillEdgesTo() {
+        if (bwd.heap.isEmpty())
+            return false;
+        int id = bwd.heap.poll();
+        visitedCountTo++;
+        currTo = getKey(bwd.weights[id], bwd.nodes[id], true);
+        if (entryCanBeSkipped(bwd, id, true))
+            return true;
+        fillEdges(bwd, id, bwd.nodes[id], bwd.edges[id], bwd.weights[id], ANY_EDGE, true);
+        return true;
+    }
+
+    protected boolean entryCanBeSkipped(SearchWorkspace.Tree tree, int id, boolean reverse) {
+        return false;
+    }
+
+    /**
+     * Checks if the entry with the given traversal id, that was just added or improved, connects the two searches
+     * with a smaller weight than the best path found so far.
+     *
+     * @param edgeWeight the weight of the last edge of the entry, only used for edge-based traversal
+     */
+    void updateBestPath(int id, double edgeWeight, boolean reverse) {
+        SearchWorkspace.Tree tree = reverse ? bwd : fwd;
+        SearchWorkspace.Tree other = reverse ? fwd : bwd;
+        if (!other.contains(id))
+            return;
+
+        double weight = tree.weights[id] + other.weights[id];
+        int entryId = id;
+        if (traversalMode.isEdgeBased()) {
+            // prevents the path to contain the edge at the meeting point twice
+            entryId = tree.parents[id];
+            weight -= edgeWeight;
+        }
+
+        if (weight < bestWeight) {
+            bestFwdId = reverse ? id : entryId;
+            bestBwdId = reverse ? entryId : id;
+            bestWeight = weight;
+        }
+    }
+
+    /**
+     * @return true if the other search already reached the given traversal id, which can be used to skip expensive
+     * calculations needed only for {@link #updateBestPath}
+     */
+    boolean isMeetingPoint(int id, boolean reverse) {
+        return (reverse ? fwd : bwd).contains(id);
+    }
+
+    protected Path extractPath() {
+        if (finished() && bestWeight < Double.MAX_VALUE)
+            return extractPath(createEntry(fwd, bestFwdId, from), createEntry(bwd, bestBwdId, to), bestWeight);
+
+        return createEmptyPath();
+    }
+
+    /**
+     * Creates the {@link SPTEntry}s of the path from the entry with the given traversal id to the root, so the
+     * existing path extractors can be used. Only the entries of the final path are created.
+     */
+    static SPTEntry createEntry(SearchWorkspace.Tree tree, int id, int root) {
+        SPTEntry first = null;
+        SPTEntry last = null;
+        while (true) {
+            SPTEntry entry = id == ROOT
+                    ? new SPTEntry(root, 0)
+                    : new SPTEntry(tree.edges[id], tree.nodes[id], tree.weights[id]);
+            if (last == null)
+                first = entry;
+            else
+                last.parent = entry;
+            last = entry;
+            if (id == ROOT || !EdgeIterator.Edge.isValid(tree.edges[id]))
+                return first;
+            id = tree.parents[id];
+        }
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        if (fallbackAlgo != null)
+            return fallbackAlgo.getVisitedNodes();
+        return visitedCountFrom + visitedCountTo;
+    }
+
+    @Override
+    public void setMaxVisitedNodes(int numberOfNodes) {
+        this.maxVisitedNodes = numberOfNodes;
+    }
+
+    protected boolean isMaxVisitedNodesExceeded() {
+        return maxVisitedNodes < getVisitedNodes();
+    }
+
+    protected void checkAlreadyRun() {
+        if (alreadyRun)
+            throw new IllegalStateException("Create a new instance per call");
+
+        alreadyRun = true;
+    }
+
+    @Override
+    public String getName() {
+        return getClass().getSimpleName();
+    }
+}
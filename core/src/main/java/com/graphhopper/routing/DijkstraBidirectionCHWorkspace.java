@@ -0,0 +1,132 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.ch.NodeBasedCHBidirPathExtractor;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.storage.CHEdgeFilter;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHGraph;
+
+/**
+ * The same search as {@link DijkstraBidirectionCH} and {@link DijkstraBidirectionCHNoSOD}, but it stores the shortest
+ * path trees in a pooled {@link SearchWorkspace}. Only node-based CH is supported.
+ */
+public class DijkstraBidirectionCHWorkspace extends AbstractWorkspaceBidirAlgo {
+    private final RoutingCHGraph graph;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final CHEdgeFilter levelEdgeFilter;
+    private boolean stallOnDemand = true;
+
+    public DijkstraBidirectionCHWorkspace(RoutingCHGraph graph, SearchWorkspacePool workspacePool) {
+        super(TraversalMode.NODE_BASED, workspacePool);
+        if (graph.hasTurnCosts())
+            throw new IllegalStateException("Weightings supporting turn costs cannot be used with node-based traversal mode");
+        this.graph = graph;
+        outEdgeExplorer = graph.createOutEdgeExplorer();
+        inEdgeExplorer = graph.createInEdgeExplorer();
+        levelEdgeFilter = new AbstractBidirCHAlgo.CHLevelEdgeFilter(graph);
+    }
+
+    /**
+     * Enables the stall-on-demand of {@link DijkstraBidirectionCH}, which is used by default.
+     */
+    public DijkstraBidirectionCHWorkspace setStallOnDemand(boolean stallOnDemand) {
+        this.stallOnDemand = stallOnDemand;
+        return this;
+    }
+
+    @Override
+    protected int getTraversalIdCount() {
+        return graph.getNodes();
+    }
+
+    @Override
+    protected boolean finished() {
+        // we need to finish BOTH searches for CH!
+        if (finishedFrom && finishedTo)
+            return true;
+
+        return currFrom >= bestWeight && currTo >= bestWeight;
+    }
+
+    @Override
+    void fillEdges(SearchWorkspace.Tree tree, int id, int node, int incEdge, double weight, int restrictedEdge, boolean reverse) {
+        RoutingCHEdgeIterator iter = (reverse ? inEdgeExplorer : outEdgeExplorer).setBaseNode(node);
+        while (iter.next()) {
+            if (iter.getEdge() == incEdge || !levelEdgeFilter.accept(iter))
+                continue;
+
+            final double newWeight = iter.getWeight(reverse) + weight;
+            if (Double.isInfinite(newWeight))
+                continue;
+            final int adjNode = iter.getAdjNode();
+            if (tree.contains(adjNode) && tree.weights[adjNode] <= newWeight)
+                continue;
+
+            tree.set(adjNode, newWeight, iter.getEdge(), adjNode, id);
+            tree.push(adjNode, newWeight);
+            updateBestPath(adjNode, Double.POSITIVE_INFINITY, reverse);
+        }
+    }
+
+    @Override
+    protected boolean entryCanBeSkipped(SearchWorkspace.Tree tree, int id, boolean reverse) {
+        if (!stallOnDemand)
+            return false;
+        // see DijkstraBidirectionCH#entryIsStallable
+        RoutingCHEdgeIterator iter = (reverse ? outEdgeExplorer : inEdgeExplorer).setBaseNode(id);
+        while (iter.next()) {
+            if (iter.getEdge() == tree.edges[id])
+                continue;
+            int adjNode = iter.getAdjNode();
+            // we have to be careful because of rounded shortcut weights in combination with virtual via nodes, see #1574
+            final double precision = 0.001;
+            if (tree.contains(adjNode) && tree.weights[adjNode] + iter.getWeight(!reverse) - tree.weights[id] < -precision)
+                return true;
+        }
+        return false;
+    }
+
+    @Override
+    protected Path extractPath(SPTEntry fwdEntry, SPTEntry bwdEntry, double weight) {
+        return new NodeBasedCHBidirPathExtractor(graph).extract(fwdEntry, bwdEntry, weight);
+    }
+
+    @Override
+    protected Path createEmptyPath() {
+        return new Path(graph.getBaseGraph());
+    }
+
+    @Override
+    protected BidirRoutingAlgorithm createFallbackAlgo() {
+        return stallOnDemand ? new DijkstraBidirectionCH(graph) : new DijkstraBidirectionCHNoSOD(graph);
+    }
+
+    @Override
+    public String getName() {
+        return stallOnDemand ? "dijkstrabi|ch" : "dijkstrabi|ch|no_sod";
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "|" + graph.getWeighting();
+    }
+}
@@ -0,0 +1,106 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeExplorer;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Parameters;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+
+/**
+ * The same search as {@link DijkstraBidirectionRef}, but it stores the shortest path trees in a pooled
+ * {@link SearchWorkspace}. Node- and edge-based traversal are supported.
+ */
+public class DijkstraBidirectionWorkspace extends AbstractWorkspaceBidirAlgo {
+    protected final Graph graph;
+    protected final Weighting weighting;
+    private final EdgeExplorer edgeExplorer;
+
+    public DijkstraBidirectionWorkspace(Graph graph, Weighting weighting, TraversalMode tMode, SearchWorkspacePool workspacePool) {
+        super(tMode, workspacePool);
+        if (weighting.hasTurnCosts() && !tMode.isEdgeBased())
+            throw new IllegalStateException("Weightings supporting turn costs cannot be used with node-based traversal mode");
+        this.graph = graph;
+        this.weighting = weighting;
+        edgeExplorer = graph.createEdgeExplorer();
+    }
+
+    @Override
+    protected int getTraversalIdCount() {
+        return traversalMode.isEdgeBased() ? 2 * graph.getEdges() : graph.getNodes();
+    }
+
+    @Override
+    void fillEdges(SearchWorkspace.Tree tree, int id, int node, int incEdge, double weight, int restrictedEdge, boolean reverse) {
+        EdgeIterator iter = edgeExplorer.setBaseNode(node);
+        while (iter.next()) {
+            // for edge-based traversal we leave it for TurnWeighting to decide whether or not a u-turn is acceptable,
+            // but for node-based traversal we exclude such a turn for performance reasons already here
+            if (!traversalMode.isEdgeBased() && iter.getEdge() == incEdge)
+                continue;
+            if (restrictedEdge != ANY_EDGE && (reverse ? iter.getOrigEdgeLast() : iter.getOrigEdgeFirst()) != restrictedEdge)
+                continue;
+
+            final double newWeight = GHUtility.calcWeightWithTurnWeightWithAccess(weighting, iter, reverse, incEdge) + weight;
+            if (Double.isInfinite(newWeight))
+                continue;
+            final int traversalId = traversalMode.createTraversalId(iter, reverse);
+            if (tree.contains(traversalId) && tree.weights[traversalId] <= newWeight)
+                continue;
+
+            int adjNode = iter.getAdjNode();
+            tree.set(traversalId, newWeight, iter.getEdge(), adjNode, id);
+            tree.push(traversalId, getKey(newWeight, adjNode, reverse));
+            if (isMeetingPoint(traversalId, reverse)) {
+                // the edge weight is only needed for edge-based traversal
+                double edgeWeight = traversalMode.isEdgeBased() ? weighting.calcEdgeWeight(iter, reverse) : Double.POSITIVE_INFINITY;
+                updateBestPath(traversalId, edgeWeight, reverse);
+            }
+        }
+    }
+
+    @Override
+    protected Path extractPath(SPTEntry fwdEntry, SPTEntry bwdEntry, double weight) {
+        return DefaultBidirPathExtractor.extractPath(graph, weighting, fwdEntry, bwdEntry, weight);
+    }
+
+    @Override
+    protected Path createEmptyPath() {
+        return new Path(graph);
+    }
+
+    @Override
+    protected BidirRoutingAlgorithm createFallbackAlgo() {
+        return new DijkstraBidirectionRef(graph, weighting, traversalMode);
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.DIJKSTRA_BI;
+    }
+
+    @Override
+    public String toString() {
+        return getName() + "|" + weighting;
+    }
+}
@@ -49,7 +49,26 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm {
     private double weightLimit = Double.MAX_VALUE;
 
     public DijkstraOneToMany(Graph graph, Weighting weighting, TraversalMode tMode) {
+        this(graph, weighting, tMode, null);
+    }
+
+    /**
+     * Creates an instance that takes over the arrays of the given, previously used instance if they are large enough
+     * for the given graph. This avoids allocating and filling arrays as large as the graph for every query graph, see
+     * {@link DijkstraOneToManyPool}. The previous instance must not be used afterwards.
+     */
+    public DijkstraOneToMany(Graph graph, Weighting weighting, TraversalMode tMode, DijkstraOneToMany previous) {
         super(graph, weighting, tMode);
+        if (previous != null && previous.weights != null && previous.weights.length >= graph.getNodes()) {
+            // the entries of the previous search are reset by the first call of findEndNode, because doClear is true
+            weights = previous.weights;
+            parents = previous.parents;
+            edgeIds = previous.edgeIds;
+            heap = previous.heap;
+            changedNodes = previous.changedNodes;
+            previous.close();
+            return;
+        }
 
         parents = new int[graph.getNodes()];
         Arrays.fill(parents, EMPTY_PARENT);
@@ -115,6 +134,31 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm {
         return weights[endNode];
     }
 
+    /**
+     * @return the time in milliseconds of the shortest path to the given node, which must have been found by the
+     * current search, e.g. via {@link #findEndNode}. Unlike {@link #calcPath} this does not create a {@link Path}.
+     */
+    public long getTime(int endNode) {
+        long time = 0;
+        for (int node = endNode; EdgeIterator.Edge.isValid(edgeIds[node]); node = parents[node]) {
+            // todo: we do not yet account for turn times here!
+            time += weighting.calcEdgeMillis(graph.getEdgeIteratorState(edgeIds[node], node), false);
+        }
+        return time;
+    }
+
+    /**
+     * @return the distance in meters of the shortest path to the given node, which must have been found by the
+     * current search, e.g. via {@link #findEndNode}. Unlike {@link #calcPath} this does not create a {@link Path}.
+     */
+    public double getDistance(int endNode) {
+        double distance = 0;
+        for (int node = endNode; EdgeIterator.Edge.isValid(edgeIds[node]); node = parents[node]) {
+            distance += graph.getEdgeIteratorState(edgeIds[node], node).getDistance();
+        }
+        return distance;
+    }
+
     public int findEndNode(int from, int to) {
         if (weights.length < 2)
             return NOT_FOUND;
@@ -143,7 +187,7 @@ public class DijkstraOneToMany extends AbstractRoutingAlgorithm {
         } else {
             // Cached! Re-use existing data structures
             int parentNode = parents[to];
-            if (parentNode != EMPTY_PARENT && weights[to] <= weights[currNode])
+            if ((parentNode != EMPTY_PARENT || to == from) && weights[to] <= weights[currNode])
                 return to;
 
             if (heap.isEmpty() || isMaxVisitedNodesExceeded())
@@ -0,0 +1,66 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Keeps the arrays of a few {@link DijkstraOneToMany} instances between requests. Every instance needs arrays as large
+ * as the graph, so allocating them for every request is expensive for big graphs. Instances are handed to one thread
+ * at a time and at most maxIdle instances are kept when they are released.
+ */
+public class DijkstraOneToManyPool {
+    private final int maxIdle;
+    private final Deque<DijkstraOneToMany> idle = new ArrayDeque<>();
+
+    public DijkstraOneToManyPool(int maxIdle) {
+        if (maxIdle < 0)
+            throw new IllegalArgumentException("maxIdle must not be negative but was " + maxIdle);
+        this.maxIdle = maxIdle;
+    }
+
+    /**
+     * Creates a node-based DijkstraOneToMany for the given graph, which should be passed to {@link #release} once
+     * it is no longer used.
+     */
+    public DijkstraOneToMany acquire(Graph graph, Weighting weighting) {
+        DijkstraOneToMany previous;
+        synchronized (idle) {
+            previous = idle.pollFirst();
+        }
+        return new DijkstraOneToMany(graph, weighting, TraversalMode.NODE_BASED, previous);
+    }
+
+    public void release(DijkstraOneToMany algo) {
+        synchronized (idle) {
+            if (idle.size() < maxIdle)
+                idle.addFirst(algo);
+        }
+    }
+
+    int getIdle() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+}
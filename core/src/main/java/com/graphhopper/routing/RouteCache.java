@@ -0,0 +1,149 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.PMap;
+
+import java.util.*;
+import java.util.function.LongSupplier;
+
+/**
+ * Caches the responses of {@link Router}. The key consists of the snapped points and all other parameters of the
+ * request, so requests with different coordinates share a response if they snap to the same location, e.g. the same
+ * junction. If the
+ * cache is full the least recently used response is removed and responses expire after a fixed time. The cache must
+ * be cleared if the graph changes.
+ * <p>
+ * The cache keeps a snapshot of the paths and hints of a response and every hit gets a new {@link GHResponse}, so a
+ * caller may add paths or hints to it. The {@link ResponsePath}s themselves are shared by all hits and must not be
+ * modified. The debug information is not cached because it describes a single request.
+ */
+public class RouteCache {
+    private final int maxEntries;
+    private final long ttlMillis;
+    private final LongSupplier clock;
+    private final LinkedHashMap<String, Entry> entries;
+    private long hits;
+    private long misses;
+
+    public RouteCache(int maxEntries, long ttlMillis) {
+        this(maxEntries, ttlMillis, System::currentTimeMillis);
+    }
+
+    RouteCache(int maxEntries, long ttlMillis, LongSupplier clock) {
+        if (maxEntries < 1)
+            throw new IllegalArgumentException("maxEntries must be positive but was " + maxEntries);
+        if (ttlMillis < 1)
+            throw new IllegalArgumentException("ttlMillis must be positive but was " + ttlMillis);
+        this.maxEntries = maxEntries;
+        this.ttlMillis = ttlMillis;
+        this.clock = clock;
+        this.entries = new LinkedHashMap<String, Entry>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<String, Entry> eldest) {
+                return size() > RouteCache.this.maxEntries;
+            }
+        };
+    }
+
+    /**
+     * Creates the key of a request after its points were snapped. The snap of a point is identified by the closest
+     * edge and the position on it, so the key does not depend on the exact coordinates of the request.
+     */
+    public static String createKey(GHRequest request, List<Snap> snaps) {
+        StringBuilder sb = new StringBuilder();
+        sb.append(request.getProfile()).append('|').append(request.getAlgorithm()).append('|').append(request.getLocale())
+                .append('|').append(request.getHeadings()).append('|').append(request.getCurbsides())
+                .append('|').append(request.getPathDetails()).append('|').append(request.getCustomModel())
+                .append('|').append(new TreeMap<>(request.getHints().toMap()));
+        for (Snap snap : snaps) {
+            EdgeIteratorState edge = snap.getClosestEdge();
+            sb.append('|').append(edge.getEdge()).append(',').append(edge.getBaseNode())
+                    .append(',').append(snap.getWayIndex()).append(',').append(snap.getSnappedPosition())
+                    .append(',').append(snap.getSnappedPoint());
+        }
+        return sb.toString();
+    }
+
+    /**
+     * @return a new response with the cached paths and hints or null if there is none or it expired
+     */
+    public GHResponse get(String key) {
+        Entry entry;
+        synchronized (this) {
+            entry = entries.get(key);
+            if (entry != null && clock.getAsLong() - entry.created >= ttlMillis) {
+                entries.remove(key);
+                entry = null;
+            }
+            if (entry == null) {
+                misses++;
+                return null;
+            }
+            hits++;
+        }
+        GHResponse response = new GHResponse();
+        for (ResponsePath path : entry.paths)
+            response.add(path);
+        response.getHints().putAll(entry.hints);
+        return response;
+    }
+
+    /**
+     * Caches the paths and hints of the given response. Later changes of the response do not change the cached entry.
+     */
+    public void put(String key, GHResponse response) {
+        Entry entry = new Entry(new ArrayList<>(response.getAll()), new PMap(response.getHints()), clock.getAsLong());
+        synchronized (this) {
+            entries.put(key, entry);
+        }
+    }
+
+    public synchronized void clear() {
+        entries.clear();
+    }
+
+    public synchronized int size() {
+        return entries.size();
+    }
+
+    public synchronized long getHits() {
+        return hits;
+    }
+
+    public synchronized long getMisses() {
+        return misses;
+    }
+
+    private static class Entry {
+        final List<ResponsePath> paths;
+        final PMap hints;
+        final long created;
+
+        Entry(List<ResponsePath> paths, PMap hints, long created) {
+            this.paths = paths;
+            this.hints = hints;
+            this.created = created;
+        }
+    }
+}
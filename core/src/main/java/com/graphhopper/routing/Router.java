@@ -67,11 +67,36 @@ public class Router {
     private final Map<String, LandmarkStorage> landmarks;
     private final boolean chEnabled;
     private final boolean lmEnabled;
+    private final SearchWorkspacePool workspacePool;
+    private final RouteCache routeCache;
 
     public Router(GraphHopperStorage ghStorage, LocationIndex locationIndex,
                   Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
                   TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
                   Map<String, CHGraph> chGraphs, Map<String, LandmarkStorage> landmarks) {
+        this(ghStorage, locationIndex, profilesByName, pathDetailsBuilderFactory, translationMap, routerConfig,
+                weightingFactory, chGraphs, landmarks, null);
+    }
+
+    public Router(GraphHopperStorage ghStorage, LocationIndex locationIndex,
+                  Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
+                  TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
+                  Map<String, CHGraph> chGraphs, Map<String, LandmarkStorage> landmarks, SearchWorkspacePool workspacePool) {
+        this(ghStorage, locationIndex, profilesByName, pathDetailsBuilderFactory, translationMap, routerConfig,
+                weightingFactory, chGraphs, landmarks, workspacePool, null);
+    }
+
+    /**
+     * @param workspacePool if not null the bidirectional algorithms use the workspaces of this pool, see
+     *                      {@link RouterConfig#setSearchWorkspaces}
+     * @param routeCache    if not null the responses of via and alternative route requests are cached, see
+     *                      {@link RouterConfig#setRouteCacheSize}
+     */
+    public Router(GraphHopperStorage ghStorage, LocationIndex locationIndex,
+                  Map<String, Profile> profilesByName, PathDetailsBuilderFactory pathDetailsBuilderFactory,
+                  TranslationMap translationMap, RouterConfig routerConfig, WeightingFactory weightingFactory,
+                  Map<String, CHGraph> chGraphs, Map<String, LandmarkStorage> landmarks, SearchWorkspacePool workspacePool,
+                  RouteCache routeCache) {
         this.ghStorage = ghStorage;
         this.encodingManager = ghStorage.getEncodingManager();
         this.locationIndex = locationIndex;
@@ -89,6 +114,8 @@ public class Router {
         // CHGraphs that were not built yet (and possibly no CH profiles were configured).
         this.chEnabled = !chGraphs.isEmpty();
         this.lmEnabled = !landmarks.isEmpty();
+        this.workspacePool = workspacePool;
+        this.routeCache = routeCache;
 
         for (String profile : profilesByName.keySet()) {
             if (!encodingManager.hasEncodedValue(Subnetwork.key(profile)))
@@ -97,6 +124,14 @@ public class Router {
     }
 
     public GHResponse route(GHRequest request) {
+        return route(request, null);
+    }
+
+    /**
+     * @param snapCache if not null the snaps of the points are shared with all other requests using this cache, see
+     *                  {@link SnapCache}
+     */
+    public GHResponse route(GHRequest request, SnapCache snapCache) {
         try {
             checkNoLegacyParameters(request);
             checkAtLeastOnePoint(request);
@@ -115,9 +150,9 @@ public class Router {
                     throw new IllegalArgumentException("algorithm=round_trip only works with a flexible algorithm");
                 return routeRoundTrip(request, (FlexSolver) solver);
             } else if (ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm())) {
-                return routeAlt(request, solver);
+                return routeAlt(request, solver, snapCache);
             } else {
-                return routeVia(request, solver);
+                return routeVia(request, solver, snapCache);
             }
         } catch (MultiplePointsNotFoundException ex) {
             GHResponse ghRsp = new GHResponse();
@@ -186,11 +221,11 @@ public class Router {
         final boolean disableCH = getDisableCH(request.getHints());
         final boolean disableLM = getDisableLM(request.getHints());
         if (chEnabled && !disableCH) {
-            return new CHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs);
+            return new CHSolver(request, profilesByName, routerConfig, encodingManager, chGraphs, workspacePool);
         } else if (lmEnabled && !disableLM) {
-            return new LMSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, ghStorage, locationIndex, landmarks);
+            return new LMSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, ghStorage, locationIndex, landmarks, workspacePool);
         } else {
-            return new FlexSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, ghStorage, locationIndex);
+            return new FlexSolver(request, profilesByName, routerConfig, encodingManager, weightingFactory, ghStorage, locationIndex, workspacePool);
         }
     }
 
@@ -214,13 +249,18 @@ public class Router {
         return ghRsp;
     }
 
-    protected GHResponse routeAlt(GHRequest request, Solver solver) {
+    protected GHResponse routeAlt(GHRequest request, Solver solver, SnapCache snapCache) {
         if (request.getPoints().size() > 2)
             throw new IllegalArgumentException("Currently alternative routes work only with start and end point. You tried to use: " + request.getPoints().size() + " points");
-        GHResponse ghRsp = new GHResponse();
         StopWatch sw = new StopWatch().start();
-        List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.getSnapFilter(), locationIndex, request.getSnapPreventions(), request.getPointHints());
-        ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        List<Snap> snaps = lookup(request, solver, snapCache);
+        String idLookupInfo = "idLookup:" + sw.stop().getSeconds() + "s";
+        String cacheKey = routeCache == null ? null : RouteCache.createKey(request, snaps);
+        GHResponse cached = cacheKey == null ? null : getCachedResponse(cacheKey, idLookupInfo);
+        if (cached != null)
+            return cached;
+        GHResponse ghRsp = new GHResponse();
+        ghRsp.addDebugInfo(idLookupInfo);
         QueryGraph queryGraph = QueryGraph.create(ghStorage, snaps);
         PathCalculator pathCalculator = solver.createPathCalculator(queryGraph);
         boolean passThrough = getPassThrough(request.getHints());
@@ -243,14 +283,21 @@ public class Router {
         }
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
+        if (cacheKey != null)
+            routeCache.put(cacheKey, ghRsp);
         return ghRsp;
     }
 
-    protected GHResponse routeVia(GHRequest request, Solver solver) {
-        GHResponse ghRsp = new GHResponse();
+    protected GHResponse routeVia(GHRequest request, Solver solver, SnapCache snapCache) {
         StopWatch sw = new StopWatch().start();
-        List<Snap> snaps = ViaRouting.lookup(encodingManager, request.getPoints(), solver.getSnapFilter(), locationIndex, request.getSnapPreventions(), request.getPointHints());
-        ghRsp.addDebugInfo("idLookup:" + sw.stop().getSeconds() + "s");
+        List<Snap> snaps = lookup(request, solver, snapCache);
+        String idLookupInfo = "idLookup:" + sw.stop().getSeconds() + "s";
+        String cacheKey = routeCache == null ? null : RouteCache.createKey(request, snaps);
+        GHResponse cached = cacheKey == null ? null : getCachedResponse(cacheKey, idLookupInfo);
+        if (cached != null)
+            return cached;
+        GHResponse ghRsp = new GHResponse();
+        ghRsp.addDebugInfo(idLookupInfo);
         // (base) query graph used to resolve headings, curbsides etc. this is not necessarily the same thing as
         // the (possibly implementation specific) query graph used by PathCalculator
         QueryGraph queryGraph = QueryGraph.create(ghStorage, snaps);
@@ -268,9 +315,34 @@ public class Router {
         ghRsp.add(responsePath);
         ghRsp.getHints().putObject("visited_nodes.sum", result.visitedNodes);
         ghRsp.getHints().putObject("visited_nodes.average", (float) result.visitedNodes / (snaps.size() - 1));
+        if (cacheKey != null)
+            routeCache.put(cacheKey, ghRsp);
         return ghRsp;
     }
 
+    /**
+     * @return a new response with the cached paths or null. Its debug information and visited nodes describe the
+     * current request and not the one that created the cached response.
+     */
+    private GHResponse getCachedResponse(String cacheKey, String idLookupInfo) {
+        GHResponse cached = routeCache.get(cacheKey);
+        if (cached == null)
+            return null;
+        cached.addDebugInfo(idLookupInfo);
+        cached.addDebugInfo("routeCache:hit");
+        cached.getHints().putObject("visited_nodes.sum", 0);
+        cached.getHints().putObject("visited_nodes.average", 0f);
+        return cached;
+    }
+
+    private List<Snap> lookup(GHRequest request, Solver solver, SnapCache snapCache) {
+        // the snap filter only depends on the profile if the weighting is not changed by the request
+        if (snapCache == null || request.getCustomModel() != null || request.getHints().has(BLOCK_AREA))
+            return ViaRouting.lookup(encodingManager, request.getPoints(), solver.getSnapFilter(), locationIndex, request.getSnapPreventions(), request.getPointHints());
+        return ViaRouting.lookup(encodingManager, request.getPoints(), solver.getSnapFilter(), locationIndex, request.getSnapPreventions(),
+                request.getPointHints(), snapCache, request.getProfile() + "|" + request.getSnapPreventions());
+    }
+
     private PathMerger createPathMerger(GHRequest request, Weighting weighting, Graph graph) {
         boolean enableInstructions = request.getHints().getBool(Parameters.Routing.INSTRUCTIONS, encodingManager.isEnableInstructions());
         boolean calcPoints = request.getHints().getBool(Parameters.Routing.CALC_POINTS, routerConfig.isCalcPoints());
@@ -403,10 +475,13 @@ public class Router {
 
     private static class CHSolver extends Solver {
         private final Map<String, RoutingCHGraph> chGraphs;
+        private final SearchWorkspacePool workspacePool;
 
-        CHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup, Map<String, RoutingCHGraph> chGraphs) {
+        CHSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup,
+                 Map<String, RoutingCHGraph> chGraphs, SearchWorkspacePool workspacePool) {
             super(request, profilesByName, routerConfig, lookup);
             this.chGraphs = chGraphs;
+            this.workspacePool = workspacePool;
         }
 
         @Override
@@ -424,6 +499,9 @@ public class Router {
             if (request.getCustomModel() != null)
                 throw new IllegalArgumentException("The 'custom_model' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`.");
 
+            if (request.getHints().has(DEPARTURE_TIME))
+                throw new IllegalArgumentException("The '" + DEPARTURE_TIME + "' parameter is currently not supported for speed mode, you need to disable speed mode with `ch.disable=true`.");
+
             if (ROUND_TRIP.equalsIgnoreCase(request.getAlgorithm()))
                 throw new IllegalArgumentException("algorithm=round_trip cannot be used with CH");
         }
@@ -444,7 +522,7 @@ public class Router {
             PMap opts = new PMap(request.getHints());
             opts.putObject(ALGORITHM, request.getAlgorithm());
             opts.putObject(MAX_VISITED_NODES, getMaxVisitedNodes(request.getHints()));
-            return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph), opts);
+            return new CHPathCalculator(new CHRoutingAlgorithmFactory(getRoutingCHGraph(profile.getName()), queryGraph, workspacePool), opts);
         }
 
         private RoutingCHGraph getRoutingCHGraph(String profileName) {
@@ -462,20 +540,32 @@ public class Router {
         private final WeightingFactory weightingFactory;
         private final GraphHopperStorage ghStorage;
         private final LocationIndex locationIndex;
+        protected final SearchWorkspacePool workspacePool;
+        // the departure in milliseconds since midnight or -1 if the request has no departure time
+        protected long departureMillisOfDay = -1;
 
         FlexSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig,
-                   EncodedValueLookup lookup, WeightingFactory weightingFactory, GraphHopperStorage ghStorage, LocationIndex locationIndex) {
+                   EncodedValueLookup lookup, WeightingFactory weightingFactory, GraphHopperStorage ghStorage, LocationIndex locationIndex,
+                   SearchWorkspacePool workspacePool) {
             super(request, profilesByName, routerConfig, lookup);
             this.routerConfig = routerConfig;
             this.weightingFactory = weightingFactory;
             this.ghStorage = ghStorage;
             this.locationIndex = locationIndex;
+            this.workspacePool = workspacePool;
         }
 
         @Override
         protected void checkRequest() {
             super.checkRequest();
             checkNonChMaxWaypointDistance(request.getPoints());
+            if (request.getHints().has(DEPARTURE_TIME)) {
+                if (ghStorage.getSpeedProfileStorage() == null)
+                    throw new IllegalArgumentException("The '" + DEPARTURE_TIME + "' parameter can only be used if the graph contains speed profiles, see graph.speed_profiles.file");
+                if (ALT_ROUTE.equalsIgnoreCase(request.getAlgorithm()))
+                    throw new IllegalArgumentException("The '" + DEPARTURE_TIME + "' parameter cannot be used with algorithm=" + ALT_ROUTE);
+                departureMillisOfDay = TimeDependentRoutingAlgorithmFactory.parseDepartureTime(request.getHints().getString(DEPARTURE_TIME, ""));
+            }
         }
 
         @Override
@@ -493,8 +583,19 @@ public class Router {
 
         @Override
         protected FlexiblePathCalculator createPathCalculator(QueryGraph queryGraph) {
-            RoutingAlgorithmFactory algorithmFactory = new RoutingAlgorithmFactorySimple();
-            return new FlexiblePathCalculator(queryGraph, algorithmFactory, weighting, getAlgoOpts());
+            if (departureMillisOfDay < 0)
+                return new FlexiblePathCalculator(queryGraph, new RoutingAlgorithmFactorySimple(workspacePool), weighting, getAlgoOpts());
+
+            final TimeDependentRoutingAlgorithmFactory algorithmFactory = new TimeDependentRoutingAlgorithmFactory(ghStorage.getSpeedProfileStorage(), departureMillisOfDay);
+            return new FlexiblePathCalculator(queryGraph, algorithmFactory, weighting, getAlgoOpts()) {
+                @Override
+                public List<Path> calcPaths(int from, int to, EdgeRestrictions edgeRestrictions) {
+                    List<Path> paths = super.calcPaths(from, to, edgeRestrictions);
+                    // the next leg departs when this leg arrives
+                    algorithmFactory.addTravelTime(paths.get(0).getTime());
+                    return paths;
+                }
+            };
         }
 
         AlgorithmOptions getAlgoOpts() {
@@ -537,20 +638,25 @@ public class Router {
         private final Map<String, LandmarkStorage> landmarks;
 
         LMSolver(GHRequest request, Map<String, Profile> profilesByName, RouterConfig routerConfig, EncodedValueLookup lookup,
-                 WeightingFactory weightingFactory, GraphHopperStorage ghStorage, LocationIndex locationIndex, Map<String, LandmarkStorage> landmarks) {
-            super(request, profilesByName, routerConfig, lookup, weightingFactory, ghStorage, locationIndex);
+                 WeightingFactory weightingFactory, GraphHopperStorage ghStorage, LocationIndex locationIndex, Map<String, LandmarkStorage> landmarks,
+                 SearchWorkspacePool workspacePool) {
+            super(request, profilesByName, routerConfig, lookup, weightingFactory, ghStorage, locationIndex, workspacePool);
             this.landmarks = landmarks;
         }
 
         @Override
         protected FlexiblePathCalculator createPathCalculator(QueryGraph queryGraph) {
+            // the landmark weights do not take the departure time into account
+            if (departureMillisOfDay >= 0)
+                return super.createPathCalculator(queryGraph);
             // for now do not allow mixing CH&LM #1082,#1889
             LandmarkStorage landmarkStorage = landmarks.get(profile.getName());
             if (landmarkStorage == null)
                 throw new IllegalArgumentException("Cannot find LM preparation for the requested profile: '" + profile.getName() + "'" +
                         "\nYou can try disabling LM using " + Parameters.Landmark.DISABLE + "=true" +
                         "\navailable LM profiles: " + landmarks.keySet());
-            RoutingAlgorithmFactory routingAlgorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount());
+            RoutingAlgorithmFactory routingAlgorithmFactory = new LMRoutingAlgorithmFactory(landmarkStorage).setDefaultActiveLandmarks(routerConfig.getActiveLandmarkCount()).
+                    setSearchWorkspacePool(workspacePool);
             return new FlexiblePathCalculator(queryGraph, routingAlgorithmFactory, weighting, getAlgoOpts());
         }
     }
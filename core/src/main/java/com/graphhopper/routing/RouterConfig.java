@@ -29,6 +29,9 @@ public class RouterConfig {
     private boolean simplifyResponse = true;
     private double elevationWayPointMaxDistance = Double.MAX_VALUE;
     private int activeLandmarkCount = 8;
+    private int searchWorkspaces = 0;
+    private int routeCacheSize = 0;
+    private long routeCacheTTLMillis = 300_000;
 
     public int getMaxVisitedNodes() {
         return maxVisitedNodes;
@@ -96,4 +99,40 @@ public class RouterConfig {
     public void setElevationWayPointMaxDistance(double elevationWayPointMaxDistance) {
         this.elevationWayPointMaxDistance = elevationWayPointMaxDistance;
     }
+
+    public int getSearchWorkspaces() {
+        return searchWorkspaces;
+    }
+
+    /**
+     * The maximum number of {@link SearchWorkspace}s, which are kept between requests. If this is larger than zero
+     * the bidirectional algorithms use these workspaces instead of allocating their shortest path trees for every
+     * search. Every workspace needs memory proportional to the graph size, so a good value is the number of concurrent
+     * requests. If all workspaces are in use a search allocates its shortest path trees like without workspaces.
+     */
+    public void setSearchWorkspaces(int searchWorkspaces) {
+        this.searchWorkspaces = searchWorkspaces;
+    }
+
+    public int getRouteCacheSize() {
+        return routeCacheSize;
+    }
+
+    /**
+     * The maximum number of responses kept by the {@link RouteCache}. The default is 0, which disables the cache.
+     */
+    public void setRouteCacheSize(int routeCacheSize) {
+        this.routeCacheSize = routeCacheSize;
+    }
+
+    public long getRouteCacheTTLMillis() {
+        return routeCacheTTLMillis;
+    }
+
+    /**
+     * The time after which a response of the {@link RouteCache} expires.
+     */
+    public void setRouteCacheTTLMillis(long routeCacheTTLMillis) {
+        this.routeCacheTTLMillis = routeCacheTTLMillis;
+    }
 }
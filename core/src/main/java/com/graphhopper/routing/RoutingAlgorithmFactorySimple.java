@@ -37,16 +37,37 @@ import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
  * @author Peter Karich
  */
 public class RoutingAlgorithmFactorySimple implements RoutingAlgorithmFactory {
+    private final SearchWorkspacePool workspacePool;
+
+    public RoutingAlgorithmFactorySimple() {
+        this(null);
+    }
+
+    /**
+     * @param workspacePool if not null the bidirectional algorithms use the workspaces of this pool instead of
+     *                      allocating their shortest path trees for every search
+     */
+    public RoutingAlgorithmFactorySimple(SearchWorkspacePool workspacePool) {
+        this.workspacePool = workspacePool;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
         RoutingAlgorithm ra;
         String algoStr = opts.getAlgorithm();
         Weighting weighting = g.wrapWeighting(w);
         if (DIJKSTRA_BI.equalsIgnoreCase(algoStr)) {
-            ra = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
+            if (workspacePool != null)
+                ra = new DijkstraBidirectionWorkspace(g, weighting, opts.getTraversalMode(), workspacePool);
+            else
+                ra = new DijkstraBidirectionRef(g, weighting, opts.getTraversalMode());
         } else if (DIJKSTRA.equalsIgnoreCase(algoStr)) {
             ra = new Dijkstra(g, weighting, opts.getTraversalMode());
 
+        } else if ((ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) && workspacePool != null) {
+            ra = new AStarBidirectionWorkspace(g, weighting, opts.getTraversalMode(), workspacePool).
+                    setApproximation(getApproximation(ASTAR_BI, opts.getHints(), weighting, g.getNodeAccess()));
+
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             AStarBidirection aStarBi = new AStarBidirection(g, weighting,
                     opts.getTraversalMode());
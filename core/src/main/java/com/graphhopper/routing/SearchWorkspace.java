@@ -0,0 +1,105 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.DoubleMinHeapWithUpdate;
+
+import java.util.Arrays;
+
+/**
+ * The shortest path trees and priority queues of a bidirectional search stored in primitive arrays that are indexed
+ * by the traversal id, i.e. the node for node-based and the edge key for edge-based traversal. Instead of clearing the
+ * arrays for every search an entry is only valid if its version equals the version of the current search, so a
+ * workspace can be reused for many searches without allocating anything per search.
+ *
+ * @see SearchWorkspacePool
+ */
+public class SearchWorkspace {
+    final Tree fwd = new Tree();
+    final Tree bwd = new Tree();
+    private int capacity;
+
+    /**
+     * Prepares this workspace for a new search with traversal ids in [0, size)
+     */
+    void init(int size) {
+        if (size > capacity) {
+            // the query graph adds a few virtual nodes and edges for every request, so we reserve some space to
+            // prevent allocating new arrays for every slightly larger query graph
+            capacity = size + Math.max(1024, size >> 7);
+            fwd.allocate(capacity);
+            bwd.allocate(capacity);
+        }
+        fwd.nextVersion();
+        bwd.nextVersion();
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    static final class Tree {
+        double[] weights;
+        int[] edges;
+        int[] nodes;
+        // the traversal id of the parent entry or -1 if the parent is the root of the tree
+        int[] parents;
+        private int[] versions;
+        private int version;
+        // the keys are doubles like the weights, otherwise close weights could be polled in the wrong order
+        DoubleMinHeapWithUpdate heap;
+
+        private void allocate(int capacity) {
+            weights = new double[capacity];
+            edges = new int[capacity];
+            nodes = new int[capacity];
+            parents = new int[capacity];
+            versions = new int[capacity];
+            version = 0;
+            heap = new DoubleMinHeapWithUpdate(capacity);
+        }
+
+        private void nextVersion() {
+            if (version == Integer.MAX_VALUE) {
+                Arrays.fill(versions, 0);
+                version = 0;
+            }
+            version++;
+            heap.clear();
+        }
+
+        boolean contains(int id) {
+            return versions[id] == version;
+        }
+
+        void set(int id, double weight, int edge, int node, int parent) {
+            versions[id] = version;
+            weights[id] = weight;
+            edges[id] = edge;
+            nodes[id] = node;
+            parents[id] = parent;
+        }
+
+        void push(int id, double key) {
+            if (heap.contains(id))
+                heap.update(id, key);
+            else
+                heap.push(id, key);
+        }
+    }
+}
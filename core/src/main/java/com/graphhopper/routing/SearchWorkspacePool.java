@@ -0,0 +1,71 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import java.util.ArrayDeque;
+import java.util.Deque;
+
+/**
+ * Keeps a limited number of {@link SearchWorkspace}s between requests. The arrays of a workspace are as large as the
+ * graph, so unlike a thread local this pool limits the memory to maxWorkspaces workspaces, no matter how many threads
+ * the server uses. Workspaces are handed to one search at a time. If all of them are in use no further workspace is
+ * created and the search has to use the map-based algorithm instead, see {@link AbstractWorkspaceBidirAlgo}.
+ */
+public class SearchWorkspacePool {
+    private final int maxWorkspaces;
+    private final Deque<SearchWorkspace> idle = new ArrayDeque<>();
+    private int created;
+
+    public SearchWorkspacePool(int maxWorkspaces) {
+        if (maxWorkspaces < 0)
+            throw new IllegalArgumentException("maxWorkspaces must not be negative but was " + maxWorkspaces);
+        this.maxWorkspaces = maxWorkspaces;
+    }
+
+    /**
+     * @return a workspace for traversal ids in [0, size) that must be passed to {@link #release} after the search or
+     * null if all workspaces are in use
+     */
+    public SearchWorkspace acquire(int size) {
+        SearchWorkspace workspace;
+        synchronized (idle) {
+            workspace = idle.pollFirst();
+            if (workspace == null) {
+                if (created == maxWorkspaces)
+                    return null;
+                created++;
+            }
+        }
+        if (workspace == null)
+            workspace = new SearchWorkspace();
+        workspace.init(size);
+        return workspace;
+    }
+
+    public void release(SearchWorkspace workspace) {
+        synchronized (idle) {
+            idle.addFirst(workspace);
+        }
+    }
+
+    int getIdle() {
+        synchronized (idle) {
+            return idle.size();
+        }
+    }
+}
@@ -0,0 +1,49 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.storage.index.Snap;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Shares the snaps of equal points between many requests, e.g. the requests of a batch, so every distinct point is
+ * looked up in the location index only once. Every request gets its own copy of the snap as the query graph modifies
+ * it. The cache can be used by multiple threads at the same time, but it is not bounded and should only be kept as
+ * long as the requests that use it.
+ */
+public class SnapCache {
+    private final Map<String, Snap> snaps = new ConcurrentHashMap<>();
+
+    /**
+     * @return a copy of the snap for the given key, which is looked up via the specified supplier if it is not yet
+     * cached
+     */
+    public Snap get(String key, Supplier<Snap> lookup) {
+        return snaps.computeIfAbsent(key, k -> lookup.get()).copy();
+    }
+
+    /**
+     * @return the number of distinct points that were looked up
+     */
+    public int size() {
+        return snaps.size();
+    }
+}
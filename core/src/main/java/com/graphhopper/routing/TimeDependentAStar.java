@@ -0,0 +1,188 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.AStar.AStarEntry;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.SpeedProfileStorage;
+import com.graphhopper.util.*;
+
+import java.util.PriorityQueue;
+
+/**
+ * A* that minimizes the arrival time for a given departure time. The time of an edge is calculated from the speed of
+ * its {@link SpeedProfileStorage speed profile} at the time the edge is entered. Edges without profile or without
+ * data for this time use {@link Weighting#calcEdgeMillis}, the weighting is also used to decide which edges and turns
+ * are accessible. The weight of the labels is the travel time in milliseconds, so the resulting path has the
+ * time-dependent travel time as time and weight.
+ * <p>
+ * The estimate to the goal is the beeline distance travelled at the maximum speed, see {@link #setMaxSpeed}. Without
+ * maximum speed the algorithm behaves like Dijkstra. Like for all label-setting algorithms the result is only optimal
+ * if leaving later never means arriving earlier, which approximately holds for historic speeds.
+ */
+public class TimeDependentAStar extends AbstractRoutingAlgorithm {
+    private final SpeedProfileStorage speedProfiles;
+    private final long departureMillisOfDay;
+    private final int baseEdges;
+    private final GHIntObjectHashMap<AStarEntry> fromMap;
+    private final PriorityQueue<AStarEntry> fromHeap;
+    private AStarEntry currEdge;
+    private int visitedNodes;
+    private int to = -1;
+    private double maxSpeed;
+
+    /**
+     * @param departureMillisOfDay the time of the departure in milliseconds since midnight
+     */
+    public TimeDependentAStar(Graph graph, Weighting weighting, TraversalMode tMode, SpeedProfileStorage speedProfiles,
+                              long departureMillisOfDay) {
+        super(graph, weighting, tMode);
+        this.speedProfiles = speedProfiles;
+        this.departureMillisOfDay = departureMillisOfDay;
+        this.baseEdges = graph.getBaseGraph().getEdges();
+        int size = Math.min(Math.max(200, graph.getNodes() / 10), 2000);
+        fromMap = new GHIntObjectHashMap<>();
+        fromHeap = new PriorityQueue<>(size);
+        setMaxSpeed(Math.max(speedProfiles.getMaxSpeed(), weighting.getFlagEncoder().getMaxSpeed()));
+    }
+
+    /**
+     * @param maxSpeed an upper bound of the speeds of all edges in km/h, or 0 to disable the estimate to the goal
+     */
+    public TimeDependentAStar setMaxSpeed(double maxSpeed) {
+        if (maxSpeed < 0)
+            throw new IllegalArgumentException("maxSpeed must not be negative but was " + maxSpeed);
+        this.maxSpeed = maxSpeed;
+        return this;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        checkAlreadyRun();
+        this.to = to;
+        currEdge = new AStarEntry(EdgeIterator.NO_EDGE, from, approximate(from), 0);
+        if (!traversalMode.isEdgeBased()) {
+            fromMap.put(from, currEdge);
+        }
+        runAlgo();
+        return extractPath();
+    }
+
+    private void runAlgo() {
+        while (true) {
+            visitedNodes++;
+            if (isMaxVisitedNodesExceeded() || finished())
+                break;
+
+            int currNode = currEdge.adjNode;
+            EdgeIterator iter = edgeExplorer.setBaseNode(currNode);
+            while (iter.next()) {
+                if (!accept(iter, currEdge.edge))
+                    continue;
+
+                double tmpWeight = calcMillis(iter, currEdge.edge, currEdge.weightOfVisitedPath) + currEdge.weightOfVisitedPath;
+                if (Double.isInfinite(tmpWeight))
+                    continue;
+                int traversalId = traversalMode.createTraversalId(iter, false);
+
+                AStarEntry ase = fromMap.get(traversalId);
+                if (ase == null || ase.weightOfVisitedPath > tmpWeight) {
+                    int neighborNode = iter.getAdjNode();
+                    double estimationFullWeight = tmpWeight + approximate(neighborNode);
+                    if (ase == null) {
+                        ase = new AStarEntry(iter.getEdge(), neighborNode, estimationFullWeight, tmpWeight);
+                        fromMap.put(traversalId, ase);
+                    } else {
+                        fromHeap.remove(ase);
+                        ase.edge = iter.getEdge();
+                        ase.weight = estimationFullWeight;
+                        ase.weightOfVisitedPath = tmpWeight;
+                    }
+                    ase.parent = currEdge;
+                    fromHeap.add(ase);
+                }
+            }
+
+            if (fromHeap.isEmpty())
+                break;
+
+            currEdge = fromHeap.poll();
+            if (currEdge == null)
+                throw new AssertionError("Empty edge cannot happen");
+        }
+    }
+
+    /**
+     * @return the time in milliseconds to traverse the specified edge when it is entered after the specified time
+     * since the departure, or infinity if the edge or the turn onto it is not accessible
+     */
+    private double calcMillis(EdgeIteratorState edge, int prevEdge, double millisSinceDeparture) {
+        if (Double.isInfinite(GHUtility.calcWeightWithTurnWeightWithAccess(weighting, edge, false, prevEdge)))
+            return Double.POSITIVE_INFINITY;
+        int speed = speedProfiles.getEdgeSpeed(getOriginalEdge(edge), departureMillisOfDay + (long) millisSinceDeparture);
+        if (speed == 0)
+            return GHUtility.calcMillisWithTurnMillis(weighting, edge, false, prevEdge);
+        long turnMillis = EdgeIterator.Edge.isValid(prevEdge) ? weighting.calcTurnMillis(prevEdge, edge.getBaseNode(), edge.getEdge()) : 0;
+        return Math.round(edge.getDistance() * 3600 / speed) + turnMillis;
+    }
+
+    private int getOriginalEdge(EdgeIteratorState edge) {
+        if (edge.getEdge() < baseEdges)
+            return edge.getEdge();
+        EdgeIteratorState virtualEdge = graph.getEdgeIteratorState(edge.getEdge(), edge.getAdjNode());
+        return GHUtility.getEdgeFromEdgeKey(((VirtualEdgeIteratorState) virtualEdge).getOriginalEdgeKey());
+    }
+
+    private double approximate(int node) {
+        if (maxSpeed == 0)
+            return 0;
+        double distance = DistancePlaneProjection.DIST_PLANE.calcDist(nodeAccess.getLat(node), nodeAccess.getLon(node),
+                nodeAccess.getLat(to), nodeAccess.getLon(to));
+        return distance * 3600 / maxSpeed;
+    }
+
+    @Override
+    protected boolean finished() {
+        return currEdge.adjNode == to;
+    }
+
+    @Override
+    protected Path extractPath() {
+        if (currEdge == null || !finished())
+            return createEmptyPath();
+
+        Path path = PathExtractor.extractPath(graph, weighting, currEdge);
+        path.setTime(Math.round(currEdge.weightOfVisitedPath));
+        path.setWeight(currEdge.weightOfVisitedPath);
+        return path;
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        return Parameters.Algorithms.ASTAR + "|time_dependent";
+    }
+}
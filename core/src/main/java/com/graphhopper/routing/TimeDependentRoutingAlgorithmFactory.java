@@ -0,0 +1,78 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.SpeedProfileStorage;
+import com.graphhopper.util.Helper;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+import java.time.format.DateTimeParseException;
+
+import static com.graphhopper.util.Parameters.Algorithms.*;
+
+/**
+ * Creates {@link TimeDependentAStar} for the specified departure time. The algorithm dijkstra disables the estimate to
+ * the goal, astar and astarbi (the default) use it. Other algorithms are not supported. For a route with via points
+ * the departure has to be moved by the travel time of every leg, see {@link #addTravelTime}.
+ */
+public class TimeDependentRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
+    private final SpeedProfileStorage speedProfiles;
+    private long departureMillisOfDay;
+
+    public TimeDependentRoutingAlgorithmFactory(SpeedProfileStorage speedProfiles, long departureMillisOfDay) {
+        this.speedProfiles = speedProfiles;
+        this.departureMillisOfDay = departureMillisOfDay;
+    }
+
+    /**
+     * Moves the departure of the algorithms created afterwards by the specified time, e.g. to the arrival at the end
+     * of the previous leg
+     */
+    public TimeDependentRoutingAlgorithmFactory addTravelTime(long millis) {
+        departureMillisOfDay += millis;
+        return this;
+    }
+
+    @Override
+    public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
+        String algoStr = opts.getAlgorithm();
+        TimeDependentAStar algo = new TimeDependentAStar(g, g.wrapWeighting(w), opts.getTraversalMode(), speedProfiles, departureMillisOfDay);
+        if (DIJKSTRA.equalsIgnoreCase(algoStr))
+            algo.setMaxSpeed(0);
+        else if (!Helper.isEmpty(algoStr) && !ASTAR.equalsIgnoreCase(algoStr) && !ASTAR_BI.equalsIgnoreCase(algoStr))
+            throw new IllegalArgumentException("Algorithm " + algoStr + " cannot be used with a departure time, use " + ASTAR + " or " + DIJKSTRA);
+        algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+        return algo;
+    }
+
+    /**
+     * @param departureTime the time in the format HH:mm[:ss] or a local date time like 2021-03-01T08:00
+     * @return the time of day in milliseconds since midnight, the date is ignored
+     */
+    public static long parseDepartureTime(String departureTime) {
+        try {
+            LocalTime time = departureTime.contains("T") ? LocalDateTime.parse(departureTime).toLocalTime() : LocalTime.parse(departureTime);
+            return time.toNanoOfDay() / 1_000_000;
+        } catch (DateTimeParseException ex) {
+            throw new IllegalArgumentException("Cannot parse departure time '" + departureTime + "', use e.g. 08:00 or 2021-03-01T08:00");
+        }
+    }
+}
@@ -55,6 +55,16 @@ public class ViaRouting {
      * @throws MultiplePointsNotFoundException in case one or more points could not be resolved
      */
     public static List<Snap> lookup(EncodedValueLookup lookup, List<GHPoint> points, EdgeFilter edgeFilter, LocationIndex locationIndex, List<String> snapPreventions, List<String> pointHints) {
+        return lookup(lookup, points, edgeFilter, locationIndex, snapPreventions, pointHints, null, "");
+    }
+
+    /**
+     * @param snapCache if not null the snaps are shared with all other lookups using the same cache and cache key. The
+     *                  cache key has to identify the edge filter.
+     * @throws MultiplePointsNotFoundException in case one or more points could not be resolved
+     */
+    public static List<Snap> lookup(EncodedValueLookup lookup, List<GHPoint> points, EdgeFilter edgeFilter, LocationIndex locationIndex,
+                                    List<String> snapPreventions, List<String> pointHints, SnapCache snapCache, String cacheKey) {
         if (points.size() < 2)
             throw new IllegalArgumentException("At least 2 points have to be specified, but was:" + points.size());
 
@@ -67,14 +77,11 @@ public class ViaRouting {
         IntArrayList pointsNotFound = new IntArrayList();
         for (int placeIndex = 0; placeIndex < points.size(); placeIndex++) {
             GHPoint point = points.get(placeIndex);
-            Snap snap = null;
-            if (!pointHints.isEmpty())
-                snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
-                        pointHints.get(placeIndex), point, 100));
-            else if (!snapPreventions.isEmpty())
-                snap = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
-            if (snap == null || !snap.isValid())
-                snap = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
+            String pointHint = pointHints.isEmpty() ? null : pointHints.get(placeIndex);
+            Snap snap = snapCache == null
+                    ? lookup(point, pointHint, edgeFilter, strictEdgeFilter, locationIndex, snapPreventions)
+                    : snapCache.get(cacheKey + "|" + pointHint + "|" + point,
+                    () -> lookup(point, pointHint, edgeFilter, strictEdgeFilter, locationIndex, snapPreventions));
             if (!snap.isValid())
                 pointsNotFound.add(placeIndex);
 
@@ -87,6 +94,19 @@ public class ViaRouting {
         return snaps;
     }
 
+    private static Snap lookup(GHPoint point, String pointHint, EdgeFilter edgeFilter, EdgeFilter strictEdgeFilter,
+                               LocationIndex locationIndex, List<String> snapPreventions) {
+        Snap snap = null;
+        if (pointHint != null)
+            snap = locationIndex.findClosest(point.lat, point.lon, new NameSimilarityEdgeFilter(strictEdgeFilter,
+                    pointHint, point, 100));
+        else if (!snapPreventions.isEmpty())
+            snap = locationIndex.findClosest(point.lat, point.lon, strictEdgeFilter);
+        if (snap == null || !snap.isValid())
+            snap = locationIndex.findClosest(point.lat, point.lon, edgeFilter);
+        return snap;
+    }
+
     public static Result calcPaths(List<GHPoint> points, QueryGraph queryGraph, List<Snap> snaps, Weighting weighting, PathCalculator pathCalculator, List<String> curbsides, boolean forceCurbsides, List<Double> headings, boolean passThrough) {
         if (!curbsides.isEmpty() && curbsides.size() != points.size())
             throw new IllegalArgumentException("If you pass " + CURBSIDE + ", you need to pass exactly one curbside for every point, empty curbsides will be ignored");
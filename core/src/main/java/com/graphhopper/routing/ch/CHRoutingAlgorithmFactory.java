@@ -36,13 +36,27 @@ import static com.graphhopper.util.Parameters.Routing.MAX_VISITED_NODES;
  */
 public class CHRoutingAlgorithmFactory {
     private final RoutingCHGraph routingCHGraph;
+    private final SearchWorkspacePool workspacePool;
 
     public CHRoutingAlgorithmFactory(RoutingCHGraph routingCHGraph, QueryGraph queryGraph) {
-        this(new QueryRoutingCHGraph(routingCHGraph, queryGraph));
+        this(routingCHGraph, queryGraph, null);
+    }
+
+    /**
+     * @param workspacePool if not null node-based bidirectional Dijkstra uses the workspaces of this pool instead of
+     *                      allocating its shortest path trees for every search
+     */
+    public CHRoutingAlgorithmFactory(RoutingCHGraph routingCHGraph, QueryGraph queryGraph, SearchWorkspacePool workspacePool) {
+        this(new QueryRoutingCHGraph(routingCHGraph, queryGraph), workspacePool);
     }
 
     public CHRoutingAlgorithmFactory(RoutingCHGraph routingCHGraph) {
+        this(routingCHGraph, (SearchWorkspacePool) null);
+    }
+
+    public CHRoutingAlgorithmFactory(RoutingCHGraph routingCHGraph, SearchWorkspacePool workspacePool) {
         this.routingCHGraph = routingCHGraph;
+        this.workspacePool = workspacePool;
     }
 
     public BidirRoutingAlgorithm createAlgo(PMap opts) {
@@ -81,7 +95,9 @@ public class CHRoutingAlgorithmFactory {
             return new AStarBidirectionCH(g)
                     .setApproximation(RoutingAlgorithmFactorySimple.getApproximation(ASTAR_BI, opts, getWeighting(), g.getBaseGraph().getNodeAccess()));
         } else if (DIJKSTRA_BI.equals(algo) || Helper.isEmpty(algo)) {
-            if (opts.getBool("stall_on_demand", true)) {
+            if (workspacePool != null) {
+                return new DijkstraBidirectionCHWorkspace(g, workspacePool).setStallOnDemand(opts.getBool("stall_on_demand", true));
+            } else if (opts.getBool("stall_on_demand", true)) {
                 return new DijkstraBidirectionCH(g);
             } else {
                 return new DijkstraBidirectionCHNoSOD(g);
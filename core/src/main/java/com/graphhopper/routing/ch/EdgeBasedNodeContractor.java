@@ -24,6 +24,8 @@ import com.graphhopper.util.*;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
@@ -41,7 +43,7 @@ import static com.graphhopper.util.Helper.nf;
  *
  * @author easbar
  */
-class EdgeBasedNodeContractor implements NodeContractor {
+class EdgeBasedNodeContractor implements ParallelNodeContractor<EdgeBasedNodeContractor.PendingShortcuts> {
     private static final Logger LOGGER = LoggerFactory.getLogger(EdgeBasedNodeContractor.class);
     private final CHPreparationGraph prepareGraph;
     private PrepareGraphEdgeExplorer inEdgeExplorer;
@@ -92,13 +94,17 @@ class EdgeBasedNodeContractor implements NodeContractor {
 
     @Override
     public void initFromGraph() {
+        initExplorersAndSearcher();
+        hierarchyDepths = new int[prepareGraph.getNodes()];
+    }
+
+    private void initExplorersAndSearcher() {
         inEdgeExplorer = prepareGraph.createInEdgeExplorer();
         outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
         existingShortcutExplorer = prepareGraph.createOutEdgeExplorer();
         sourceNodeOrigInEdgeExplorer = prepareGraph.createInOrigEdgeExplorer();
         targetNodeOrigOutEdgeExplorer = prepareGraph.createOutOrigEdgeExplorer();
         witnessPathSearcher = new EdgeBasedWitnessPathSearcher(prepareGraph, pMap);
-        hierarchyDepths = new int[prepareGraph.getNodes()];
     }
 
     @Override
@@ -139,6 +145,52 @@ class EdgeBasedNodeContractor implements NodeContractor {
         activeStats = addingStats;
         stats().stopWatch.start();
         findAndHandlePrepareShortcuts(node, this::addShortcutsToPrepareGraph);
+        return finishContractingNode(node);
+    }
+
+    @Override
+    public EdgeBasedNodeContractor createWorker(boolean[] ignoredNodes) {
+        EdgeBasedNodeContractor worker = new EdgeBasedNodeContractor(prepareGraph, null, pMap);
+        worker.initExplorersAndSearcher();
+        worker.witnessPathSearcher.setIgnoredNodes(ignoredNodes);
+        // the hierarchy depths are only changed when a node is contracted, so the workers can read them
+        worker.hierarchyDepths = hierarchyDepths;
+        return worker;
+    }
+
+    @Override
+    public void updateWorker(ParallelNodeContractor<PendingShortcuts> worker) {
+        // the workers share all state they need with this contractor
+    }
+
+    @Override
+    public PendingShortcuts createPendingShortcuts() {
+        return new PendingShortcuts();
+    }
+
+    @Override
+    public void findShortcuts(int node, PendingShortcuts shortcuts) {
+        shortcuts.clear();
+        activeStats = addingStats;
+        stats().stopWatch.start();
+        findAndHandlePrepareShortcuts(node, shortcuts::add);
+        stats().stopWatch.stop();
+    }
+
+    /**
+     * Unlike {@link #contractNode(int)} the witness searches for the given shortcuts did not see the shortcuts that
+     * were added for the same node before, so there can be a few more shortcuts.
+     */
+    @Override
+    public IntContainer contractNode(int node, PendingShortcuts shortcuts) {
+        activeStats = addingStats;
+        stats().stopWatch.start();
+        for (int i = 0; i < shortcuts.size(); i++)
+            addShortcutsToPrepareGraph(shortcuts.edgesFrom.get(i), shortcuts.edgesTo.get(i), shortcuts.origEdgeCounts.get(i));
+        return finishContractingNode(node);
+    }
+
+    private IntContainer finishContractingNode(int node) {
         insertShortcuts(node);
         IntContainer neighbors = prepareGraph.disconnect(node);
         updateHierarchyDepthsOfNeighbors(node, neighbors);
@@ -401,6 +453,32 @@ class EdgeBasedNodeContractor implements NodeContractor {
         return activeStats;
     }
 
+    /**
+     * The shortcuts found for a single node. Every shortcut is given by the entries of the witness path searcher, which
+     * are not reused by later searches.
+     */
+    static class PendingShortcuts {
+        private final List<PrepareCHEntry> edgesFrom = new ArrayList<>();
+        private final List<PrepareCHEntry> edgesTo = new ArrayList<>();
+        private final IntArrayList origEdgeCounts = new IntArrayList();
+
+        int size() {
+            return origEdgeCounts.size();
+        }
+
+        void clear() {
+            edgesFrom.clear();
+            edgesTo.clear();
+            origEdgeCounts.elementsCount = 0;
+        }
+
+        private void add(PrepareCHEntry edgeFrom, PrepareCHEntry edgeTo, int origEdgeCount) {
+            edgesFrom.add(edgeFrom);
+            edgesTo.add(edgeTo);
+            origEdgeCounts.add(origEdgeCount);
+        }
+    }
+
     @FunctionalInterface
     private interface PrepareShortcutHandler {
         void handleShortcut(PrepareCHEntry edgeFrom, PrepareCHEntry edgeTo, int origEdgeCount);
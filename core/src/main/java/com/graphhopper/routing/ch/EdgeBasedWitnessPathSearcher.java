@@ -70,6 +70,7 @@ public class EdgeBasedWitnessPathSearcher {
 
     // general parameters affecting the number of found witnesses and the search time
     private final Params params = new Params();
+    private boolean[] ignoredNodes;
 
     // variables of the current search
     private int sourceEdge;
@@ -147,6 +148,14 @@ public class EdgeBasedWitnessPathSearcher {
         return dijkstraHeap.getSize();
     }
 
+    /**
+     * The search will skip all nodes that are flagged in the given array, except the center node. The array is read,
+     * but never modified by this class.
+     */
+    public void setIgnoredNodes(boolean[] ignoredNodes) {
+        this.ignoredNodes = ignoredNodes;
+    }
+
     /**
      * Runs a witness path search for a given target edge. Results of previous searches (the shortest path tree) are
      * reused and the previous search is extended if necessary. Note that you need to call
@@ -214,6 +223,8 @@ public class EdgeBasedWitnessPathSearcher {
             final int fromNode = getAdjNode(currKey);
             PrepareGraphEdgeIterator iter = outEdgeExplorer.setBaseNode(fromNode);
             while (iter.next()) {
+                if (isIgnored(iter.getAdjNode()))
+                    continue;
                 double edgeWeight = iter.getWeight() + calcTurnWeight(GHUtility.getEdgeFromEdgeKey(currKey),
                         iter.getBaseNode(), GHUtility.getEdgeFromEdgeKey(iter.getOrigEdgeKeyFirst()));
                 double weight = edgeWeight + weights[currKey];
@@ -343,6 +354,8 @@ public class EdgeBasedWitnessPathSearcher {
     private void setInitialEntries(int sourceNode, int sourceEdge, int centerNode) {
         PrepareGraphEdgeIterator outIter = outEdgeExplorer.setBaseNode(sourceNode);
         while (outIter.next()) {
+            if (isIgnored(outIter.getAdjNode()))
+                continue;
             double turnWeight = calcTurnWeight(sourceEdge, sourceNode, GHUtility.getEdgeFromEdgeKey(outIter.getOrigEdgeKeyFirst()));
             if (isInfinite(turnWeight)) {
                 continue;
@@ -474,6 +487,10 @@ public class EdgeBasedWitnessPathSearcher {
         return new PrepareCHEntry(prepareEdges[edgeKey], edgeKey, getAdjNode(edgeKey), weights[edgeKey]);
     }
 
+    private boolean isIgnored(int node) {
+        return ignoredNodes != null && node != centerNode && ignoredNodes[node];
+    }
+
     private double calcTurnWeight(int inEdge, int viaNode, int outEdge) {
         return prepareGraph.getTurnWeight(inEdge, viaNode, outEdge);
     }
@@ -0,0 +1,333 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntIntHashMap;
+import com.carrotsearch.hppc.LongArrayList;
+import com.graphhopper.apache.commons.collections.IntFloatBinaryHeap;
+import com.graphhopper.coll.GHIntHashSet;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.RoutingCHEdgeExplorer;
+import com.graphhopper.storage.RoutingCHEdgeIterator;
+import com.graphhopper.storage.RoutingCHEdgeIteratorState;
+import com.graphhopper.storage.RoutingCHGraph;
+
+import java.util.Arrays;
+
+import static com.graphhopper.util.EdgeIterator.NO_EDGE;
+
+/**
+ * Calculates the weights, distances and times between many source and many target nodes of a node-based
+ * {@link RoutingCHGraph} using the bucket-based approach described in 'Computing Many-to-Many Shortest Paths Using
+ * Highway Hierarchies' by Knopp et al.:
+ * <p>
+ * First we run one backward upward search per target and store the weight of every settled node in a 'bucket' of this
+ * node. Then we run one forward upward search per source and for every settled node we scan its bucket to update the
+ * tentative weights to all targets. Distances and times are calculated by unpacking the shortcuts on the two search
+ * trees that meet at the best meeting node, but no {@link com.graphhopper.routing.Path} objects are created and the
+ * distance and time of every search tree entry is calculated at most once.
+ */
+public class ManyToManyCH {
+    private static final int NO_ENTRY = -1;
+    private final RoutingCHGraph graph;
+    private final Weighting weighting;
+    private final RoutingCHEdgeExplorer inEdgeExplorer;
+    private final RoutingCHEdgeExplorer outEdgeExplorer;
+    private final ShortcutUnpacker shortcutUnpacker;
+    private final int maxNodes;
+    private boolean calcDistances = true;
+    private boolean calcTimes = true;
+    private int visitedNodes;
+
+    // the backward search trees of all targets, the entries settled at a node are linked via bucketNext
+    private final SearchTree bwdTree = new SearchTree();
+    private final IntArrayList bucketTarget = new IntArrayList();
+    private final IntArrayList bucketNext = new IntArrayList();
+    private final IntIntHashMap bucketHeads = new IntIntHashMap();
+    // the forward search tree of the current source
+    private final SearchTree fwdTree = new SearchTree();
+
+    // used for the upward searches and reset for each search
+    private final IntFloatBinaryHeap heap = new IntFloatBinaryHeap(1000);
+    private final IntIntHashMap entriesByNode = new IntIntHashMap();
+    private final GHIntHashSet settledNodes = new GHIntHashSet();
+    private final IntArrayList settledEntries = new IntArrayList();
+    private final IntArrayList pathEntries = new IntArrayList();
+
+    // these are set by the shortcut unpacker's visitor
+    private double unpackedDistance;
+    private long unpackedTime;
+
+    public ManyToManyCH(RoutingCHGraph graph) {
+        if (graph.isEdgeBased())
+            throw new IllegalArgumentException("Many-to-many calculation is currently only supported for node-based CH graphs");
+        this.graph = graph;
+        this.weighting = graph.getWeighting();
+        this.inEdgeExplorer = graph.createInEdgeExplorer();
+        this.outEdgeExplorer = graph.createOutEdgeExplorer();
+        this.maxNodes = graph.getBaseGraph().getBaseGraph().getNodes();
+        this.shortcutUnpacker = new ShortcutUnpacker(graph, (edge, reverse, prevOrNextEdgeId) -> {
+            if (calcDistances)
+                unpackedDistance += edge.getDistance();
+            if (calcTimes)
+                unpackedTime += weighting.calcEdgeMillis(edge, reverse);
+        }, false);
+    }
+
+    /**
+     * Disabling distance and/or time calculation speeds up the calculation, if only weights are needed no shortcuts
+     * need to be unpacked at all.
+     */
+    public ManyToManyCH setCalcDistances(boolean calcDistances) {
+        this.calcDistances = calcDistances;
+        return this;
+    }
+
+    public ManyToManyCH setCalcTimes(boolean calcTimes) {
+        this.calcTimes = calcTimes;
+        return this;
+    }
+
+    /**
+     * @return the total number of nodes settled by all the forward and backward searches of the last calculation
+     */
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    /**
+     * @param sources the source nodes, might contain duplicates and virtual nodes of a query graph
+     * @param targets the target nodes, might contain duplicates and virtual nodes of a query graph
+     */
+    public Result calcMatrix(int[] sources, int[] targets) {
+        visitedNodes = 0;
+        Result result = new Result(sources.length, targets.length);
+        bwdTree.clear();
+        bucketTarget.elementsCount = 0;
+        bucketNext.elementsCount = 0;
+        bucketHeads.clear();
+        for (int t = 0; t < targets.length; t++) {
+            runUpwardSearch(bwdTree, targets[t], true);
+            for (int i = 0; i < settledEntries.size(); i++) {
+                int entry = settledEntries.get(i);
+                int node = bwdTree.node.get(entry);
+                // bucket entries are indexed exactly like the entries of the backward search tree
+                ensureBucketCapacity(entry);
+                bucketTarget.set(entry, t);
+                bucketNext.set(entry, bucketHeads.getOrDefault(node, NO_ENTRY));
+                bucketHeads.put(node, entry);
+            }
+        }
+
+        int[] meetingFwd = new int[targets.length];
+        int[] meetingBwd = new int[targets.length];
+        for (int s = 0; s < sources.length; s++) {
+            fwdTree.clear();
+            Arrays.fill(meetingFwd, NO_ENTRY);
+            Arrays.fill(meetingBwd, NO_ENTRY);
+            double[] weights = result.weights[s];
+            runUpwardSearch(fwdTree, sources[s], false);
+            for (int i = 0; i < settledEntries.size(); i++) {
+                int fwdEntry = settledEntries.get(i);
+                double fwdWeight = fwdTree.weight.get(fwdEntry);
+                int bucketEntry = bucketHeads.getOrDefault(fwdTree.node.get(fwdEntry), NO_ENTRY);
+                while (bucketEntry != NO_ENTRY) {
+                    int t = bucketTarget.get(bucketEntry);
+                    double weight = fwdWeight + bwdTree.weight.get(bucketEntry);
+                    if (weight < weights[t]) {
+                        weights[t] = weight;
+                        meetingFwd[t] = fwdEntry;
+                        meetingBwd[t] = bucketEntry;
+                    }
+                    bucketEntry = bucketNext.get(bucketEntry);
+                }
+            }
+            if (!calcDistances && !calcTimes)
+                continue;
+            for (int t = 0; t < targets.length; t++) {
+                if (meetingFwd[t] == NO_ENTRY)
+                    continue;
+                unpackUntilRoot(fwdTree, meetingFwd[t], false);
+                unpackUntilRoot(bwdTree, meetingBwd[t], true);
+                result.distances[s][t] = fwdTree.distance.get(meetingFwd[t]) + bwdTree.distance.get(meetingBwd[t]);
+                result.times[s][t] = fwdTree.time.get(meetingFwd[t]) + bwdTree.time.get(meetingBwd[t]);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Runs a full (i.e. not stopped early) dijkstra search that only follows edges leading to higher level nodes and
+     * appends the resulting shortest path tree to the given search tree. The settled entries are stored in
+     * {@link #settledEntries} afterwards.
+     */
+    private void runUpwardSearch(SearchTree tree, int root, boolean reverse) {
+        heap.clear();
+        entriesByNode.clear();
+        settledNodes.clear();
+        settledEntries.elementsCount = 0;
+        RoutingCHEdgeExplorer explorer = reverse ? inEdgeExplorer : outEdgeExplorer;
+
+        int rootEntry = tree.add(root, NO_EDGE, NO_ENTRY, 0);
+        entriesByNode.put(root, rootEntry);
+        heap.insert(0, rootEntry);
+        while (!heap.isEmpty()) {
+            int currEntry = heap.poll();
+            int currNode = tree.node.get(currEntry);
+            // we do not update heap entries, but insert a new one whenever we find a better weight, so we need to
+            // skip the outdated ones
+            if (entriesByNode.get(currNode) != currEntry || !settledNodes.add(currNode))
+                continue;
+            settledEntries.add(currEntry);
+            visitedNodes++;
+            double currWeight = tree.weight.get(currEntry);
+            int currEdge = tree.edge.get(currEntry);
+            RoutingCHEdgeIterator iter = explorer.setBaseNode(currNode);
+            while (iter.next()) {
+                // for node-based traversal u-turns are never useful
+                if (iter.getEdge() == currEdge || !isUpward(iter))
+                    continue;
+                double weight = currWeight + iter.getWeight(reverse);
+                if (Double.isInfinite(weight))
+                    continue;
+                int adjNode = iter.getAdjNode();
+                int adjEntry = entriesByNode.getOrDefault(adjNode, NO_ENTRY);
+                if (adjEntry != NO_ENTRY && tree.weight.get(adjEntry) <= weight)
+                    continue;
+                adjEntry = tree.add(adjNode, iter.getEdge(), currEntry, weight);
+                entriesByNode.put(adjNode, adjEntry);
+                heap.insert(weight, adjEntry);
+            }
+        }
+    }
+
+    private boolean isUpward(RoutingCHEdgeIteratorState edgeState) {
+        int base = edgeState.getBaseNode();
+        int adj = edgeState.getAdjNode();
+        // always accept virtual edges, see #288
+        if (base >= maxNodes || adj >= maxNodes)
+            return true;
+        // shortcuts in the wrong direction are disconnected, so no need to exclude them
+        if (edgeState.isShortcut())
+            return true;
+        return graph.getLevel(base) <= graph.getLevel(adj);
+    }
+
+    /**
+     * Makes sure the distance and time of the given entry and all its parents are calculated
+     */
+    private void unpackUntilRoot(SearchTree tree, int entry, boolean reverse) {
+        // find the first entry on the way to the root that was already unpacked
+        int firstUnpacked = entry;
+        pathEntries.elementsCount = 0;
+        while (firstUnpacked != NO_ENTRY && Double.isNaN(tree.distance.get(firstUnpacked))) {
+            pathEntries.add(firstUnpacked);
+            firstUnpacked = tree.parent.get(firstUnpacked);
+        }
+        double distance = firstUnpacked == NO_ENTRY ? 0 : tree.distance.get(firstUnpacked);
+        long time = firstUnpacked == NO_ENTRY ? 0 : tree.time.get(firstUnpacked);
+        for (int i = pathEntries.size() - 1; i >= 0; i--) {
+            int e = pathEntries.get(i);
+            int edge = tree.edge.get(e);
+            if (edge != NO_EDGE) {
+                unpackedDistance = 0;
+                unpackedTime = 0;
+                if (reverse)
+                    shortcutUnpacker.visitOriginalEdgesBwd(edge, tree.node.get(e), false, NO_EDGE);
+                else
+                    shortcutUnpacker.visitOriginalEdgesFwd(edge, tree.node.get(e), false, NO_EDGE);
+                distance += unpackedDistance;
+                time += unpackedTime;
+            }
+            tree.distance.set(e, distance);
+            tree.time.set(e, time);
+        }
+    }
+
+    private void ensureBucketCapacity(int entry) {
+        while (bucketTarget.size() <= entry) {
+            bucketTarget.add(NO_ENTRY);
+            bucketNext.add(NO_ENTRY);
+        }
+    }
+
+    /**
+     * Shortest path tree(s) stored in parallel primitive arrays. Every entry is identified by its index. Distances and
+     * times are only calculated on demand and are NaN/-1 until then.
+     */
+    private static class SearchTree {
+        final IntArrayList node = new IntArrayList();
+        final IntArrayList edge = new IntArrayList();
+        final IntArrayList parent = new IntArrayList();
+        final DoubleArrayList weight = new DoubleArrayList();
+        final DoubleArrayList distance = new DoubleArrayList();
+        final LongArrayList time = new LongArrayList();
+
+        int add(int node, int edge, int parent, double weight) {
+            this.node.add(node);
+            this.edge.add(edge);
+            this.parent.add(parent);
+            this.weight.add(weight);
+            this.distance.add(Double.NaN);
+            this.time.add(-1);
+            return this.node.size() - 1;
+        }
+
+        void clear() {
+            node.elementsCount = 0;
+            edge.elementsCount = 0;
+            parent.elementsCount = 0;
+            weight.elementsCount = 0;
+            distance.elementsCount = 0;
+            time.elementsCount = 0;
+        }
+    }
+
+    public static class Result {
+        /**
+         * weights[s][t] is the weight of the shortest path from source s to target t, or infinity if there is no path
+         */
+        public final double[][] weights;
+        /**
+         * the distance in meters of the shortest paths, or infinity if there is no path or distances were not calculated
+         */
+        public final double[][] distances;
+        /**
+         * the time in milliseconds of the shortest paths, or Long.MAX_VALUE if there is no path or times were not
+         * calculated
+         */
+        public final long[][] times;
+
+        Result(int sources, int targets) {
+            weights = new double[sources][targets];
+            distances = new double[sources][targets];
+            times = new long[sources][targets];
+            for (int s = 0; s < sources; s++) {
+                Arrays.fill(weights[s], Double.POSITIVE_INFINITY);
+                Arrays.fill(distances[s], Double.POSITIVE_INFINITY);
+                Arrays.fill(times[s], Long.MAX_VALUE);
+            }
+        }
+
+        public boolean isConnected(int source, int target) {
+            return !Double.isInfinite(weights[source][target]);
+        }
+    }
+}
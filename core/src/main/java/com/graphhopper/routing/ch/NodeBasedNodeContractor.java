@@ -17,6 +17,8 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.DoubleArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.graphhopper.util.PMap;
 import com.graphhopper.util.StopWatch;
@@ -27,9 +29,10 @@ import static com.graphhopper.routing.ch.CHParameters.EDGE_DIFFERENCE_WEIGHT;
 import static com.graphhopper.routing.ch.CHParameters.ORIGINAL_EDGE_COUNT_WEIGHT;
 import static com.graphhopper.util.Helper.nf;
 
-class NodeBasedNodeContractor implements NodeContractor {
+class NodeBasedNodeContractor implements ParallelNodeContractor<NodeBasedNodeContractor.PendingShortcuts> {
     private final CHPreparationGraph prepareGraph;
     private final Params params = new Params();
+    private final PMap pMap;
     private ShortcutHandler shortcutHandler;
     private PrepareGraphEdgeExplorer inEdgeExplorer;
     private PrepareGraphEdgeExplorer outEdgeExplorer;
@@ -47,6 +50,7 @@ class NodeBasedNodeContractor implements NodeContractor {
 
     NodeBasedNodeContractor(CHPreparationGraph prepareGraph, ShortcutHandler shortcutHandler, PMap pMap) {
         this.prepareGraph = prepareGraph;
+        this.pMap = pMap;
         extractParams(pMap);
         this.shortcutHandler = shortcutHandler;
     }
@@ -119,6 +123,46 @@ class NodeBasedNodeContractor implements NodeContractor {
     @Override
     public IntContainer contractNode(int node) {
         long degree = findAndHandleShortcuts(node, this::addOrUpdateShortcut);
+        return finishContractingNode(node, degree);
+    }
+
+    @Override
+    public NodeBasedNodeContractor createWorker(boolean[] ignoredNodes) {
+        NodeBasedNodeContractor worker = new NodeBasedNodeContractor(prepareGraph, null, pMap);
+        worker.initFromGraph();
+        worker.witnessPathSearcher.setIgnoredNodes(ignoredNodes);
+        worker.meanDegree = meanDegree;
+        return worker;
+    }
+
+    @Override
+    public void updateWorker(ParallelNodeContractor<PendingShortcuts> worker) {
+        ((NodeBasedNodeContractor) worker).meanDegree = meanDegree;
+    }
+
+    @Override
+    public PendingShortcuts createPendingShortcuts() {
+        return new PendingShortcuts();
+    }
+
+    @Override
+    public void findShortcuts(int node, PendingShortcuts shortcuts) {
+        shortcuts.clear();
+        shortcuts.degree = findAndHandleShortcuts(node, shortcuts::add);
+    }
+
+    @Override
+    public IntContainer contractNode(int node, PendingShortcuts shortcuts) {
+        for (int i = 0; i < shortcuts.size(); i++) {
+            int offset = i * PendingShortcuts.INTS_PER_SHORTCUT;
+            IntArrayList ints = shortcuts.ints;
+            addOrUpdateShortcut(ints.get(offset), ints.get(offset + 1), shortcuts.weights.get(i),
+                    ints.get(offset + 2), ints.get(offset + 3), ints.get(offset + 4), ints.get(offset + 5));
+        }
+        return finishContractingNode(node, shortcuts.degree);
+    }
+
+    private IntContainer finishContractingNode(int node, long degree) {
         insertShortcuts(node);
         // put weight factor on meanDegree instead of taking the average => meanDegree is more stable
         meanDegree = (meanDegree * 2 + degree) / 3;
@@ -280,6 +324,33 @@ class NodeBasedNodeContractor implements NodeContractor {
                             int incomingEdge, int inOrigEdgeCount);
     }
 
+    /**
+     * The shortcuts found for a single node, kept in primitive lists so they can be re-used for every node.
+     */
+    static class PendingShortcuts {
+        private static final int INTS_PER_SHORTCUT = 6;
+        private final IntArrayList ints = new IntArrayList();
+        private final DoubleArrayList weights = new DoubleArrayList();
+        private long degree;
+
+        int size() {
+            return weights.size();
+        }
+
+        void clear() {
+            ints.elementsCount = 0;
+            weights.elementsCount = 0;
+            degree = 0;
+        }
+
+        private void add(int fromNode, int toNode, double weight, int outgoingEdge, int outOrigEdgeCount,
+                         int incomingEdge, int inOrigEdgeCount) {
+            ints.add(fromNode, toNode, outgoingEdge, outOrigEdgeCount);
+            ints.add(incomingEdge, inOrigEdgeCount);
+            weights.add(weight);
+        }
+    }
+
     public static class Params {
         // default values were optimized for Unterfranken
         private float edgeDifferenceWeight = 10;
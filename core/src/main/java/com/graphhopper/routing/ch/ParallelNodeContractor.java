@@ -0,0 +1,59 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.carrotsearch.hppc.IntContainer;
+
+/**
+ * A node contractor that can find the shortcuts of several independent nodes in parallel. The shortcuts are found by
+ * workers that share the prepare graph with this contractor, and are then added to the graph by this contractor one
+ * node after another.
+ *
+ * @param <S> the shortcuts that were found for a single node
+ */
+interface ParallelNodeContractor<S> extends NodeContractor {
+    /**
+     * Creates a contractor that shares the prepare graph with this one, but uses its own explorers and witness path
+     * searcher, which skips all nodes that are flagged in the given array. Workers must only be used to calculate
+     * priorities and to find shortcuts, i.e. in parallel to other read-only operations, but never while the prepare
+     * graph is changed.
+     */
+    ParallelNodeContractor<S> createWorker(boolean[] ignoredNodes);
+
+    /**
+     * Passes the state of this contractor that is needed to calculate priorities and to find shortcuts to the given
+     * worker. This is called before the workers are used.
+     */
+    void updateWorker(ParallelNodeContractor<S> worker);
+
+    S createPendingShortcuts();
+
+    /**
+     * Finds the shortcuts that are required to contract the given node, but does not change the graph, see
+     * {@link #contractNode(int, Object)}.
+     */
+    void findShortcuts(int node, S shortcuts);
+
+    /**
+     * Contracts the given node using shortcuts that were previously found by {@link #findShortcuts}, possibly by a
+     * different worker. The shortcuts are still valid as long as the neighborhood of the node did not change since.
+     *
+     * @return the set of nodes adjacent to this node (before contraction)
+     */
+    IntContainer contractNode(int node, S shortcuts);
+}
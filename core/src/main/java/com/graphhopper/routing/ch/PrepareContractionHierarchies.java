@@ -17,6 +17,8 @@
  */
 package com.graphhopper.routing.ch;
 
+import com.carrotsearch.hppc.FloatArrayList;
+import com.carrotsearch.hppc.IntArrayList;
 import com.carrotsearch.hppc.IntContainer;
 import com.carrotsearch.hppc.cursors.IntCursor;
 import com.graphhopper.coll.MinHeapWithUpdate;
@@ -30,8 +32,12 @@ import com.graphhopper.util.StopWatch;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Locale;
 import java.util.Random;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static com.graphhopper.routing.ch.CHParameters.*;
 import static com.graphhopper.util.Helper.getMemInfo;
@@ -51,6 +57,7 @@ import static com.graphhopper.util.Helper.nf;
  * @author Peter Karich
  */
 public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
+    private static final int BATCH_SIZE_PER_THREAD = 32;
     private final Logger logger = LoggerFactory.getLogger(getClass());
     private final CHConfig chConfig;
     private final CHGraph chGraph;
@@ -70,6 +77,12 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private MinHeapWithUpdate sortedNodes;
     private PMap pMap = new PMap();
     private int checkCounter;
+    private int contractionThreads = 1;
+    private int contractionBatchSize = 0;
+    private CHPreparationGraph prepareGraph;
+    // only used for parallel node contraction
+    private Workers<?> workers;
+    private long workerDijkstraCount;
 
     public static PrepareContractionHierarchies fromGraphHopperStorage(GraphHopperStorage ghStorage, CHConfig chConfig) {
         return new PrepareContractionHierarchies(ghStorage, chConfig);
@@ -98,6 +111,34 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         params.setNeighborUpdatePercentage(pMap.getInt(NEIGHBOR_UPDATES, params.getNeighborUpdatePercentage()));
         params.setNodesContractedPercentage(pMap.getInt(CONTRACTED_NODES, params.getNodesContractedPercentage()));
         params.setLogMessagesPercentage(pMap.getInt(LOG_MESSAGES, params.getLogMessagesPercentage()));
+        setContractionThreads(pMap.getInt(CONTRACTION_THREADS, contractionThreads));
+        setContractionBatchSize(pMap.getInt(CONTRACTION_BATCH_SIZE, contractionBatchSize));
+        return this;
+    }
+
+    /**
+     * Sets the number of threads used to contract the nodes of this graph. With more than one thread independent
+     * nodes are contracted in batches, see {@link #contractNodesInParallel}. This is only supported when no fixed node
+     * ordering is used, otherwise the nodes are contracted sequentially.
+     */
+    public PrepareContractionHierarchies setContractionThreads(int contractionThreads) {
+        if (contractionThreads < 1)
+            throw new IllegalArgumentException(CONTRACTION_THREADS + " must be positive, but was " + contractionThreads);
+        this.contractionThreads = contractionThreads;
+        return this;
+    }
+
+    /**
+     * Sets the maximum number of nodes that are contracted in parallel. By default this number grows with the number
+     * of threads, which also means that the resulting contraction hierarchy depends on the number of threads. Setting
+     * a fixed batch size yields the same node ordering and shortcuts for any number of threads (larger than one).
+     *
+     * @param contractionBatchSize the maximum batch size or 0 to derive it from the number of threads
+     */
+    public PrepareContractionHierarchies setContractionBatchSize(int contractionBatchSize) {
+        if (contractionBatchSize < 0)
+            throw new IllegalArgumentException(CONTRACTION_BATCH_SIZE + " must not be negative, but was " + contractionBatchSize);
+        this.contractionBatchSize = contractionBatchSize;
         return this;
     }
 
@@ -143,6 +184,8 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         setMaxLevelOnAllNodes();
         if (nodeOrderingProvider != null) {
             contractNodesUsingFixedNodeOrdering();
+        } else if (contractionThreads > 1) {
+            contractNodesInParallel((ParallelNodeContractor<?>) nodeContractor);
         } else {
             contractNodesUsingHeuristicNodeOrdering();
         }
@@ -157,7 +200,6 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         // not simply prepare contraction hierarchies, but instead it also serves as some kind of 'container' to give
         // access to the preparations in the GraphHopper class. If this was not so we could make this a lot cleaner here,
         // declare variables final and would not need all these close() methods...
-        CHPreparationGraph prepareGraph;
         if (chConfig.getTraversalMode().isEdgeBased()) {
             TurnCostStorage turnCostStorage = chGraph.getBaseGraph().getTurnCostStorage();
             if (turnCostStorage == null) {
@@ -195,6 +237,19 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private void updatePrioritiesOfRemainingNodes() {
         periodicUpdateSW.start();
         sortedNodes.clear();
+        if (workers != null) {
+            IntArrayList remainingNodes = new IntArrayList();
+            for (int node = 0; node < nodes; node++) {
+                if (!isContracted(node))
+                    remainingNodes.add(node);
+            }
+            float[] priorities = new float[remainingNodes.size()];
+            workers.run(remainingNodes.size(), (worker, i) -> priorities[i] = worker.calculatePriority(remainingNodes.get(i)));
+            for (int i = 0; i < remainingNodes.size(); i++)
+                sortedNodes.push(remainingNodes.get(i), priorities[i]);
+            periodicUpdateSW.stop();
+            return;
+        }
         for (int node = 0; node < nodes; node++) {
             if (isContracted(node))
                 continue;
@@ -310,6 +365,116 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         _close();
     }
 
+    /**
+     * Works like {@link #contractNodesUsingHeuristicNodeOrdering()}, but in each round we poll a batch of nodes with
+     * low priority that are independent, i.e. no two of them are adjacent or share a neighbor. The witness searches
+     * for a batch node skip all other nodes of the batch, so the shortcuts of all batch nodes can be searched in
+     * parallel (each thread uses its own witness path searcher) and they remain valid while the other batch nodes are
+     * contracted. The shortcuts are then inserted sequentially in the order the nodes were polled, so the result
+     * does not depend on thread timing. Periodic and neighbor updates of the node priorities are calculated in parallel
+     * as well, lazy updates are not used.
+     */
+    private <S> void contractNodesInParallel(ParallelNodeContractor<S> contractor) {
+        boolean[] batchNodes = new boolean[nodes];
+        Workers<S> pool = new Workers<>(contractor, batchNodes, contractionThreads);
+        workers = pool;
+        try {
+            StopWatch sw = new StopWatch().start();
+            logger.info("Building initial queue of nodes to be contracted: {} nodes, {} threads, {}", nodes, contractionThreads, getMemInfo());
+            updatePrioritiesOfRemainingNodes();
+            logger.info("Finished building queue, took: {}s, {}", sw.stop().getSeconds(), getMemInfo());
+            nodeContractor.prepareContraction();
+            final int initSize = sortedNodes.size();
+            final int batchSize = contractionBatchSize > 0 ? contractionBatchSize : BATCH_SIZE_PER_THREAD * contractionThreads;
+            int level = 0;
+            checkCounter = 0;
+            final long logSize = params.getLogMessagesPercentage() == 0
+                    ? Long.MAX_VALUE
+                    : Math.round(Math.max(10, initSize * (params.getLogMessagesPercentage() / 100d)));
+            final long periodicUpdatesCount = params.getPeriodicUpdatesPercentage() == 0
+                    ? Long.MAX_VALUE
+                    : Math.round(Math.max(10, initSize * (params.getPeriodicUpdatesPercentage() / 100d)));
+            long nextPeriodicUpdate = periodicUpdatesCount;
+            long nextLog = 0;
+            int updateCounter = 0;
+            final long nodesToAvoidContract = Math.round(initSize * ((100 - params.getNodesContractedPercentage()) / 100d));
+            final boolean neighborUpdate = (params.getNeighborUpdatePercentage() != 0);
+
+            IndependentNodeSelector selector = new IndependentNodeSelector(batchNodes);
+            IntArrayList batch = new IntArrayList(batchSize);
+            List<S> shortcuts = new ArrayList<>(batchSize);
+            for (int i = 0; i < batchSize; i++)
+                shortcuts.add(contractor.createPendingShortcuts());
+            IntArrayList updateNodes = new IntArrayList();
+            FloatArrayList updatePriorities = new FloatArrayList();
+            while (!sortedNodes.isEmpty()) {
+                stopIfInterrupted();
+                if (checkCounter >= nextPeriodicUpdate) {
+                    updatePrioritiesOfRemainingNodes();
+                    updateCounter++;
+                    nextPeriodicUpdate += periodicUpdatesCount;
+                    if (sortedNodes.isEmpty())
+                        throw new IllegalStateException("Cannot prepare as no unprepared nodes where found. Called preparation twice?");
+                }
+
+                if (checkCounter >= nextLog) {
+                    logHeuristicStats(updateCounter);
+                    nextLog += logSize;
+                }
+
+                selector.pollIndependentNodes(batch, batchSize, nodesToAvoidContract);
+                checkCounter += batch.size();
+
+                contractionSW.start();
+                pool.run(batch.size(), (worker, i) -> worker.findShortcuts(batch.get(i), shortcuts.get(i)));
+                updateNodes.clear();
+                for (int i = 0; i < batch.size(); i++) {
+                    int node = batch.get(i);
+                    chGraph.setLevel(node, level);
+                    level++;
+                    IntContainer neighbors = contractor.contractNode(node, shortcuts.get(i));
+                    batchNodes[node] = false;
+                    for (IntCursor neighbor : neighbors) {
+                        if (neighborUpdate && rand.nextInt(100) < params.getNeighborUpdatePercentage())
+                            updateNodes.add(neighbor.value);
+                    }
+                }
+                contractionSW.stop();
+
+                if (sortedNodes.size() < nodesToAvoidContract)
+                    // skipped nodes are already set to maxLevel
+                    break;
+
+                // batch nodes never share a neighbor, so every node is updated at most once
+                neighborUpdateSW.start();
+                updatePriorities.resize(updateNodes.size());
+                pool.run(updateNodes.size(), (worker, i) -> updatePriorities.set(i, worker.calculatePriority(updateNodes.get(i))));
+                for (int i = 0; i < updateNodes.size(); i++)
+                    sortedNodes.update(updateNodes.get(i), updatePriorities.get(i));
+                neighborUpdateSW.stop();
+            }
+
+            nodeContractor.finishContraction();
+
+            logHeuristicStats(updateCounter);
+
+            logger.info(
+                    "new shortcuts: " + nf(nodeContractor.getAddedShortcutsCount())
+                            + ", initSize:" + nf(initSize)
+                            + ", " + chConfig.getWeighting()
+                            + ", threads:" + contractionThreads
+                            + ", batch size:" + batchSize
+                            + ", periodic:" + params.getPeriodicUpdatesPercentage()
+                            + ", neighbor:" + params.getNeighborUpdatePercentage()
+                            + ", " + getTimesAsString()
+                            + ", " + Helper.getMemInfo());
+        } finally {
+            workerDijkstraCount += pool.shutdown();
+            workers = null;
+        }
+        _close();
+    }
+
     private void contractNodesUsingFixedNodeOrdering() {
         nodeContractor.prepareContraction();
         final int nodesToContract = nodeOrderingProvider.getNumNodes();
@@ -376,7 +541,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     }
 
     public long getDijkstraCount() {
-        return nodeContractor.getDijkstraCount();
+        return nodeContractor.getDijkstraCount() + workerDijkstraCount;
     }
 
     public long getShortcuts() {
@@ -435,6 +600,7 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
     private void _close() {
         nodeContractor.close();
         sortedNodes = null;
+        prepareGraph = null;
     }
 
     void close() {
@@ -443,6 +609,145 @@ public class PrepareContractionHierarchies extends AbstractAlgoPreparation {
         cg.close();
     }
 
+    @FunctionalInterface
+    private interface WorkerTask<S> {
+        void run(ParallelNodeContractor<S> worker, int index);
+    }
+
+    /**
+     * The workers of the parallel node contraction, one per thread.
+     */
+    private static class Workers<S> {
+        private final ParallelNodeContractor<S> contractor;
+        private final List<ParallelNodeContractor<S>> workers;
+        private final ExecutorService executor;
+
+        Workers(ParallelNodeContractor<S> contractor, boolean[] ignoredNodes, int threads) {
+            this.contractor = contractor;
+            workers = new ArrayList<>(threads);
+            for (int i = 0; i < threads; i++)
+                workers.add(contractor.createWorker(ignoredNodes));
+            executor = Executors.newFixedThreadPool(threads);
+        }
+
+        /**
+         * Runs the given task for all indices in [0, size) using one worker per thread and waits until all are done.
+         */
+        void run(int size, WorkerTask<S> task) {
+            for (ParallelNodeContractor<S> worker : workers)
+                contractor.updateWorker(worker);
+            if (size <= 1) {
+                for (int i = 0; i < size; i++)
+                    task.run(workers.get(0), i);
+                return;
+            }
+            AtomicInteger nextIndex = new AtomicInteger();
+            List<Callable<Object>> tasks = new ArrayList<>(workers.size());
+            for (ParallelNodeContractor<S> worker : workers) {
+                tasks.add(() -> {
+                    for (int i = nextIndex.getAndIncrement(); i < size; i = nextIndex.getAndIncrement())
+                        task.run(worker, i);
+                    return null;
+                });
+            }
+            try {
+                for (Future<Object> future : executor.invokeAll(tasks))
+                    future.get();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new RuntimeException("Thread was interrupted", e);
+            } catch (ExecutionException e) {
+                if (e.getCause() instanceof RuntimeException)
+                    throw (RuntimeException) e.getCause();
+                throw new RuntimeException(e.getCause());
+            }
+        }
+
+        /**
+         * Stops the threads of the workers.
+         *
+         * @return the number of witness searches of all workers
+         */
+        long shutdown() {
+            executor.shutdownNow();
+            long dijkstraCount = 0;
+            for (ParallelNodeContractor<S> worker : workers)
+                dijkstraCount += worker.getDijkstraCount();
+            return dijkstraCount;
+        }
+    }
+
+    /**
+     * Polls nodes from the queue and selects those that are neither adjacent to nor share a neighbor with a node that
+     * was selected before. Nodes that are not independent are put back into the queue with their current priority.
+     */
+    private class IndependentNodeSelector {
+        private final boolean[] batchNodes;
+        private final PrepareGraphEdgeExplorer outEdgeExplorer;
+        private final PrepareGraphEdgeExplorer inEdgeExplorer;
+        // a node is blocked if blockedRounds[node] == round, i.e. we do not need to reset this array for every batch
+        private final int[] blockedRounds;
+        private final IntArrayList rejectedNodes = new IntArrayList();
+        private final FloatArrayList rejectedPriorities = new FloatArrayList();
+        private int round;
+
+        IndependentNodeSelector(boolean[] batchNodes) {
+            this.batchNodes = batchNodes;
+            outEdgeExplorer = prepareGraph.createOutEdgeExplorer();
+            inEdgeExplorer = prepareGraph.createInEdgeExplorer();
+            blockedRounds = new int[nodes];
+        }
+
+        void pollIndependentNodes(IntArrayList batch, int batchSize, long nodesToAvoidContract) {
+            batch.clear();
+            rejectedNodes.clear();
+            rejectedPriorities.clear();
+            round++;
+            // do not look too far into the queue, otherwise we contract nodes whose priority is much too high
+            int maxPolls = 2 * batchSize;
+            for (int polls = 0; polls < maxPolls && batch.size() < batchSize && !sortedNodes.isEmpty(); polls++) {
+                if (!batch.isEmpty() && sortedNodes.size() + rejectedNodes.size() < nodesToAvoidContract)
+                    break;
+                float priority = sortedNodes.peekValue();
+                int node = sortedNodes.poll();
+                if (isBlocked(node)) {
+                    rejectedNodes.add(node);
+                    rejectedPriorities.add(priority);
+                } else {
+                    block(node);
+                    batchNodes[node] = true;
+                    batch.add(node);
+                }
+            }
+            for (int i = 0; i < rejectedNodes.size(); i++)
+                sortedNodes.push(rejectedNodes.get(i), rejectedPriorities.get(i));
+        }
+
+        private boolean isBlocked(int node) {
+            if (blockedRounds[node] == round)
+                return true;
+            return isAnyNeighborBlocked(outEdgeExplorer.setBaseNode(node)) || isAnyNeighborBlocked(inEdgeExplorer.setBaseNode(node));
+        }
+
+        private boolean isAnyNeighborBlocked(PrepareGraphEdgeIterator iter) {
+            while (iter.next()) {
+                if (blockedRounds[iter.getAdjNode()] == round)
+                    return true;
+            }
+            return false;
+        }
+
+        private void block(int node) {
+            blockedRounds[node] = round;
+            PrepareGraphEdgeIterator iter = outEdgeExplorer.setBaseNode(node);
+            while (iter.next())
+                blockedRounds[iter.getAdjNode()] = round;
+            iter = inEdgeExplorer.setBaseNode(node);
+            while (iter.next())
+                blockedRounds[iter.getAdjNode()] = round;
+        }
+    }
+
     private static class Params {
         /**
          * Specifies after how many contracted nodes a full refresh of the queue of remaining/not contracted nodes
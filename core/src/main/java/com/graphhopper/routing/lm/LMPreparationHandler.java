@@ -52,6 +52,7 @@ public class LMPreparationHandler {
     private final List<LMProfile> lmProfiles = new ArrayList<>();
     private final List<LMConfig> lmConfigs = new ArrayList<>();
     private final Map<String, Double> maximumWeights = new HashMap<>();
+    private final Map<String, Integer> landmarkThreads = new HashMap<>();
     private int minNodes = -1;
     private final List<String> lmSuggestionsLocations = new ArrayList<>(5);
     private int preparationThreads;
@@ -112,10 +113,12 @@ public class LMPreparationHandler {
     public LMPreparationHandler setLMProfiles(Collection<LMProfile> lmProfiles) {
         this.lmProfiles.clear();
         this.maximumWeights.clear();
+        this.landmarkThreads.clear();
         for (LMProfile profile : lmProfiles) {
             if (profile.usesOtherPreparation())
                 continue;
             maximumWeights.put(profile.getProfile(), profile.getMaximumLMWeight());
+            landmarkThreads.put(profile.getProfile(), profile.getLandmarkThreads());
         }
         this.lmProfiles.addAll(lmProfiles);
         return this;
@@ -254,6 +257,7 @@ public class LMPreparationHandler {
                     lmConfig, landmarkCount).
                     setLandmarkSuggestions(lmSuggestions).
                     setMaximumWeight(maximumWeight).
+                    setLandmarkThreads(landmarkThreads.getOrDefault(lmConfig.getName(), 1)).
                     setLogDetails(logDetails);
             if (minNodes > 1)
                 tmpPrepareLM.setMinimumNodes(minNodes);
@@ -31,6 +31,7 @@ import static com.graphhopper.util.Parameters.Algorithms.AltRoute.*;
 public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
     private final LandmarkStorage lms;
     private int defaultActiveLandmarks;
+    private SearchWorkspacePool workspacePool;
 
     public LMRoutingAlgorithmFactory(LandmarkStorage lms) {
         this.lms = lms;
@@ -42,6 +43,15 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
         return this;
     }
 
+    /**
+     * @param workspacePool if not null bidirectional A* uses the workspaces of this pool instead of allocating its
+     *                      shortest path trees for every search
+     */
+    public LMRoutingAlgorithmFactory setSearchWorkspacePool(SearchWorkspacePool workspacePool) {
+        this.workspacePool = workspacePool;
+        return this;
+    }
+
     @Override
     public RoutingAlgorithm createAlgo(Graph g, Weighting w, AlgorithmOptions opts) {
         if (!lms.isInitialized())
@@ -57,6 +67,12 @@ public class LMRoutingAlgorithmFactory implements RoutingAlgorithmFactory {
             return algo;
         } else if (ASTAR_BI.equalsIgnoreCase(algoStr) || Helper.isEmpty(algoStr)) {
             double epsilon = opts.getHints().getDouble(Parameters.Algorithms.AStarBi.EPSILON, 1);
+            if (workspacePool != null) {
+                AStarBidirectionWorkspace algo = new AStarBidirectionWorkspace(g, weighting, opts.getTraversalMode(), workspacePool);
+                algo.setApproximation(getApproximator(g, activeLM, epsilon));
+                algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
+                return algo;
+            }
             AStarBidirection algo = new AStarBidirection(g, weighting, opts.getTraversalMode());
             algo.setApproximation(getApproximator(g, activeLM, epsilon));
             algo.setMaxVisitedNodes(opts.getMaxVisitedNodes());
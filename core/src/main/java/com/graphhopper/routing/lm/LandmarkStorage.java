@@ -50,6 +50,7 @@ import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 
 import java.util.*;
+import java.util.concurrent.*;
 import java.util.concurrent.atomic.AtomicBoolean;
 import java.util.concurrent.atomic.AtomicInteger;
 
@@ -96,6 +97,8 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
     private List<LandmarkSuggestion> landmarkSuggestions = Collections.emptyList();
     private SpatialRuleLookup ruleLookup;
     private boolean logDetails = false;
+    private int landmarkThreads = 1;
+    private ExecutorService landmarkThreadPool;
     /**
      * 'to' and 'from' fit into 32 bit => 16 bit for each of them => 65536
      */
@@ -171,6 +174,22 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         this.logDetails = logDetails;
     }
 
+    /**
+     * Sets the number of threads used to calculate the weights from and to the landmarks of a subnetwork. Every
+     * landmark is explored by a single thread, so there is no point in using more threads than landmarks. Note that
+     * every thread needs memory for its own shortest path tree.
+     */
+    public LandmarkStorage setLandmarkThreads(int landmarkThreads) {
+        if (landmarkThreads < 1)
+            throw new IllegalArgumentException("landmark threads must be at least 1 but was " + landmarkThreads);
+        this.landmarkThreads = landmarkThreads;
+        return this;
+    }
+
+    public int getLandmarkThreads() {
+        return landmarkThreads;
+    }
+
     /**
      * This method forces the landmark preparation to skip the landmark search and uses the specified landmark list instead.
      * Useful for manual tuning of larger areas to safe import time or improve quality.
@@ -290,32 +309,16 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         if (logDetails)
             LOGGER.info("init landmarks for subnetworks with node count greater than " + minimumNodes + " with factor:" + factor + additionalInfo);
 
-        int nodes = 0;
-        for (IntArrayList subnetworkIds : graphComponents.getComponents()) {
-            nodes += subnetworkIds.size();
-            if (subnetworkIds.size() < minimumNodes)
-                continue;
-            if (factor <= 0)
-                throw new IllegalStateException("factor wasn't initialized " + factor + ", subnetworks:"
-                        + graphComponents.getComponents().size() + ", minimumNodes:" + minimumNodes + ", current size:" + subnetworkIds.size());
-
-            int index = subnetworkIds.size() - 1;
-            // ensure start node is reachable from both sides and no subnetwork is associated
-            for (; index >= 0; index--) {
-                int nextStartNode = subnetworkIds.get(index);
-                if (subnetworks[nextStartNode] == UNSET_SUBNETWORK) {
-                    if (logDetails) {
-                        GHPoint p = createPoint(graph, nextStartNode);
-                        LOGGER.info("start node: " + nextStartNode + " (" + p + ") subnetwork " + index + ", subnetwork size: " + subnetworkIds.size()
-                                + ", " + Helper.getMemInfo() + ((ruleLookup == null) ? "" : " area:" + ruleLookup.lookupRules(p.lat, p.lon).getRules()));
-                    }
-
-                    if (createLandmarksForSubnetwork(nextStartNode, subnetworks, accessFilter))
-                        break;
-                }
+        if (landmarkThreads > 1)
+            landmarkThreadPool = Executors.newFixedThreadPool(Math.min(landmarkThreads, landmarks));
+        int nodes;
+        try {
+            nodes = createLandmarksForSubnetworks(graphComponents, subnetworks, accessFilter);
+        } finally {
+            if (landmarkThreadPool != null) {
+                landmarkThreadPool.shutdownNow();
+                landmarkThreadPool = null;
             }
-            if (index < 0)
-                LOGGER.warn("next start node not found in big enough network of size " + subnetworkIds.size() + ", first element is " + subnetworkIds.get(0) + ", " + createPoint(graph, subnetworkIds.get(0)));
         }
 
         int subnetworkCount = landmarkIDs.size();
@@ -349,6 +352,44 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         initialized = true;
     }
 
+    /**
+     * Creates the landmarks for all subnetworks that are big enough.
+     *
+     * @return the number of nodes of all subnetworks
+     */
+    private int createLandmarksForSubnetworks(ConnectedComponents graphComponents, byte[] subnetworks, EdgeFilter accessFilter) {
+        int nodes = 0;
+        for (IntArrayList subnetworkIds : graphComponents.getComponents()) {
+
+            nodes += subnetworkIds.size();
+            if (subnetworkIds.size() < minimumNodes)
+                continue;
+            if (factor <= 0)
+                throw new IllegalStateException("factor wasn't initialized " + factor + ", subnetworks:"
+                        + graphComponents.getComponents().size() + ", minimumNodes:" + minimumNodes + ", current size:" + subnetworkIds.size());
+
+            int index = subnetworkIds.size() - 1;
+            // ensure start node is reachable from both sides and no subnetwork is associated
+            for (; index >= 0; index--) {
+                int nextStartNode = subnetworkIds.get(index);
+                if (subnetworks[nextStartNode] == UNSET_SUBNETWORK) {
+                    if (logDetails) {
+                        GHPoint p = createPoint(graph, nextStartNode);
+                        LOGGER.info("start node: " + nextStartNode + " (" + p + ") subnetwork " + index + ", subnetwork size: " + subnetworkIds.size()
+                                + ", " + Helper.getMemInfo() + ((ruleLookup == null) ? "" : " area:" + ruleLookup.lookupRules(p.lat, p.lon).getRules()));
+                    }
+
+                    if (createLandmarksForSubnetwork(nextStartNode, subnetworks, accessFilter))
+                        break;
+                }
+            }
+            if (index < 0)
+                LOGGER.warn("next start node not found in big enough network of size " + subnetworkIds.size() + ", first element is " + subnetworkIds.get(0) + ", " + createPoint(graph, subnetworkIds.get(0)));
+        }
+
+        return nodes;
+    }
+
     /**
      * This method returns the maximum weight for the graph starting from the landmarks
      */
@@ -443,35 +484,18 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         }
 
         // 2) calculate weights for all landmarks -> 'from' and 'to' weight
-        for (int lmIdx = 0; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
-            if (Thread.currentThread().isInterrupted()) {
-                throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
-            }
-            int lmNodeId = tmpLandmarkNodeIds[lmIdx];
-            LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
-
-            // set subnetwork id to all explored nodes, but do this only for the first landmark
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
-            }
-
-            explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
-            explorer.setStartNode(lmNodeId);
-            explorer.runAlgo();
-            explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
-
-            if (lmIdx == 0) {
-                if (explorer.setSubnetworks(subnetworks, subnetworkId))
-                    return false;
+        // the first landmark also sets the subnetwork id of all explored nodes, which might fail
+        if (!calcLandmarkWeights(0, tmpLandmarkNodeIds[0], accessFilter, subnetworks, subnetworkId))
+            return false;
+        if (landmarkThreadPool == null) {
+            for (int lmIdx = 1; lmIdx < tmpLandmarkNodeIds.length; lmIdx++) {
+                calcLandmarkWeights(lmIdx, tmpLandmarkNodeIds[lmIdx], accessFilter, null, subnetworkId);
+                if (logDetails && lmIdx % logOffset == 0)
+                    LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                            + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
             }
-
-            if (logDetails && lmIdx % logOffset == 0)
-                LOGGER.info("Set landmarks weights [" + weighting + "]. "
-                        + "Progress " + (int) (100.0 * lmIdx / tmpLandmarkNodeIds.length) + "%");
+        } else {
+            calcLandmarkWeightsInParallel(tmpLandmarkNodeIds, accessFilter, logOffset);
         }
 
         // TODO set weight to SHORT_MAX if entry has either no 'from' or no 'to' entry
@@ -479,6 +503,62 @@ public class LandmarkStorage implements Storable<LandmarkStorage> {
         return true;
     }
 
+    /**
+     * Explores the graph from and to the given landmark and stores the weights in the column of this landmark.
+     *
+     * @param subnetworks if not null the subnetwork id is set for all explored nodes
+     * @return false if the subnetwork id of an explored node was already set to a different subnetwork
+     */
+    private boolean calcLandmarkWeights(int lmIdx, int lmNodeId, EdgeFilter accessFilter, byte[] subnetworks, int subnetworkId) {
+        if (Thread.currentThread().isInterrupted()) {
+            throw new RuntimeException("Thread was interrupted for landmark " + lmIdx);
+        }
+        LandmarkExplorer explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, false);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, FROM_OFFSET);
+        if (subnetworks != null && explorer.setSubnetworks(subnetworks, subnetworkId))
+            return false;
+
+        explorer = new LandmarkExplorer(graph, this, weighting, traversalMode, accessFilter, true);
+        explorer.setStartNode(lmNodeId);
+        explorer.runAlgo();
+        explorer.initLandmarkWeights(lmIdx, lmNodeId, LM_ROW_LENGTH, TO_OFFSET);
+        return subnetworks == null || !explorer.setSubnetworks(subnetworks, subnetworkId);
+    }
+
+    /**
+     * Calculates the weights of all but the first landmark concurrently. Every landmark has its own column in
+     * landmarkWeightDA and both directions of a landmark are handled by the same task, so no two threads ever write
+     * to the same bytes (or ints) of the DataAccess, which already has its final capacity at this point.
+     */
+    private void calcLandmarkWeightsInParallel(int[] landmarkNodeIds, EdgeFilter accessFilter, int logOffset) {
+        AtomicInteger finishedLandmarks = new AtomicInteger(1);
+        List<Callable<Object>> tasks = new ArrayList<>(landmarkNodeIds.length - 1);
+        for (int lmIdx = 1; lmIdx < landmarkNodeIds.length; lmIdx++) {
+            final int tmpLmIdx = lmIdx;
+            tasks.add(() -> {
+                calcLandmarkWeights(tmpLmIdx, landmarkNodeIds[tmpLmIdx], accessFilter, null, UNSET_SUBNETWORK);
+                int finished = finishedLandmarks.incrementAndGet();
+                if (logDetails && finished % logOffset == 0)
+                    LOGGER.info("Set landmarks weights [" + weighting + "]. "
+                            + "Progress " + (int) (100.0 * finished / landmarkNodeIds.length) + "%");
+                return null;
+            });
+        }
+        try {
+            for (Future<Object> future : landmarkThreadPool.invokeAll(tasks))
+                future.get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new RuntimeException("Thread was interrupted while calculating landmark weights", e);
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof RuntimeException)
+                throw (RuntimeException) e.getCause();
+            throw new RuntimeException(e.getCause());
+        }
+    }
+
     /**
      * This method specifies the polygons which should be used to split the world wide area to improve performance and
      * quality in this scenario.
@@ -17,6 +17,10 @@
  */
 package com.graphhopper.storage;
 
+import com.carrotsearch.hppc.sorting.IndirectSort;
+import com.graphhopper.coll.GHBitSet;
+import com.graphhopper.coll.GHBitSetImpl;
+import com.graphhopper.geohash.HilbertCurve;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.EdgeFilter;
@@ -65,6 +69,11 @@ class BaseGraph implements Graph {
     private final DataAccess wayGeometry;
     private final Directory dir;
     private final InternalGraphEventListener listener;
+    private final int segmentSize;
+    // node offsets | edgeKey, adjNode | edgeKey, adjNode | ...
+    // can be null if the read-optimized adjacency layout is not enabled, see setCSRAdjacency
+    private DataAccess csrAdjacency;
+    private boolean csrAdjacencyReady;
     /**
      * interval [0,n)
      */
@@ -101,6 +110,7 @@ class BaseGraph implements Graph {
         this.nodes = dir.find("nodes", DAType.getPreferredInt(dir.getDefaultType()));
         this.edges = dir.find("edges", DAType.getPreferredInt(dir.getDefaultType()));
         this.listener = listener;
+        this.segmentSize = segmentSize;
         this.bounds = BBox.createInverse(withElevation);
         this.nodeAccess = new GHNodeAccess(this, withElevation);
         if (withTurnCosts) {
@@ -117,6 +127,93 @@ class BaseGraph implements Graph {
         return edgeId < edgeCount && edgeId >= 0;
     }
 
+    /**
+     * Enables a read-optimized adjacency layout: when the graph gets frozen the edges of every node are written into
+     * one contiguous block (compressed sparse row) together with their adjacent node, so that iterating the edges of
+     * a node no longer needs to follow the linked list that is scattered over the whole edges storage. Edge IDs are
+     * not changed, i.e. all data referring to edges stays valid.
+     */
+    void setCSRAdjacency(boolean enable) {
+        checkNotInitialized();
+        if (!enable) {
+            csrAdjacency = null;
+            return;
+        }
+        if (csrAdjacency == null) {
+            csrAdjacency = dir.find("csr_adjacency", DAType.getPreferredInt(dir.getDefaultType()));
+            if (segmentSize >= 0)
+                csrAdjacency.setSegmentSize(segmentSize);
+        }
+    }
+
+    boolean isCSRAdjacencyEnabled() {
+        return csrAdjacency != null;
+    }
+
+    /**
+     * @return true if the edges are iterated using the contiguous adjacency layout
+     */
+    boolean isCSRAdjacencyReady() {
+        return csrAdjacencyReady;
+    }
+
+    /**
+     * Writes the edges of every node into the adjacency storage. The order of the edges per node is the same as the
+     * one of the linked list such that the iteration order does not change.
+     */
+    void buildCSRAdjacency() {
+        long entries = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            for (int edge = getEdgeRef(node); EdgeIterator.Edge.isValid(edge); ) {
+                entries++;
+                long edgePointer = toPointer(edge);
+                edge = getNodeA(edgePointer) == node ? getLinkA(edgePointer) : getLinkB(edgePointer);
+            }
+        }
+        if (entries > Integer.MAX_VALUE)
+            throw new IllegalStateException("Too many edge entries for the adjacency layout: " + entries);
+
+        long entriesStart = (nodeCount + 1L) * 4;
+        csrAdjacency.create(100);
+        csrAdjacency.ensureCapacity(entriesStart + entries * 8);
+        int offset = 0;
+        for (int node = 0; node < nodeCount; node++) {
+            csrAdjacency.setInt(node * 4L, offset);
+            for (int edge = getEdgeRef(node); EdgeIterator.Edge.isValid(edge); offset++) {
+                long edgePointer = toPointer(edge);
+                boolean baseNodeIsNodeA = getNodeA(edgePointer) == node;
+                long pointer = entriesStart + offset * 8L;
+                csrAdjacency.setInt(pointer, GHUtility.createEdgeKey(edge, !baseNodeIsNodeA));
+                csrAdjacency.setInt(pointer + 4, baseNodeIsNodeA ? getNodeB(edgePointer) : getNodeA(edgePointer));
+                edge = baseNodeIsNodeA ? getLinkA(edgePointer) : getLinkB(edgePointer);
+            }
+        }
+        csrAdjacency.setInt(nodeCount * 4L, offset);
+        csrAdjacency.setHeader(0, nodeCount);
+        csrAdjacency.setHeader(4, offset);
+        csrAdjacencyReady = true;
+    }
+
+    private void loadCSRAdjacency() {
+        if (!csrAdjacency.loadExisting()) {
+            // graph was frozen without the adjacency layout
+            buildCSRAdjacency();
+            return;
+        }
+        if (csrAdjacency.getHeader(0) != nodeCount)
+            throw new IllegalStateException("Cannot load adjacency, node count does not match: "
+                    + csrAdjacency.getHeader(0) + " vs. " + nodeCount + ". Corrupt file or directory? " + dir);
+        csrAdjacencyReady = true;
+    }
+
+    /**
+     * @return the pointer to the first adjacency entry of the given node, the entries of this node end where the
+     * entries of node + 1 start
+     */
+    private long getCSRPointer(int node) {
+        return (nodeCount + 1L) * 4 + csrAdjacency.getInt(node * 4L) * 8L;
+    }
+
     private void setEdgeRef(long nodeId, int edgeId) {
         nodes.setInt(nodeId * nodeEntryBytes + N_EDGE_REF, edgeId);
     }
@@ -355,6 +452,10 @@ class BaseGraph implements Graph {
         if (isFrozen())
             throw new IllegalStateException("base graph already frozen");
 
+        if (isCSRAdjacencyEnabled())
+            buildCSRAdjacency();
+        if (supportsTurnCosts())
+            turnCostStorage.sortEntries();
         frozen = true;
         listener.freeze();
     }
@@ -454,6 +555,8 @@ class BaseGraph implements Graph {
         if (supportsTurnCosts()) {
             turnCostStorage.flush();
         }
+        if (csrAdjacencyReady)
+            csrAdjacency.flush();
     }
 
     public void close() {
@@ -466,11 +569,14 @@ class BaseGraph implements Graph {
         if (supportsTurnCosts()) {
             turnCostStorage.close();
         }
+        if (csrAdjacencyReady)
+            csrAdjacency.close();
     }
 
     long getCapacity() {
         return edges.getCapacity() + nodes.getCapacity() + stringIndex.getCapacity()
-                + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0);
+                + wayGeometry.getCapacity() + (supportsTurnCosts() ? turnCostStorage.getCapacity() : 0)
+                + (csrAdjacencyReady ? csrAdjacency.getCapacity() : 0);
     }
 
     long getMaxGeoRef() {
@@ -504,6 +610,9 @@ class BaseGraph implements Graph {
         loadNodesHeader();
         loadEdgesHeader();
         loadWayGeometryHeader();
+
+        if (isCSRAdjacencyEnabled() && frozen)
+            loadCSRAdjacency();
     }
 
     /**
@@ -562,6 +671,103 @@ class BaseGraph implements Graph {
         return newEdgeId;
     }
 
+    /**
+     * Renumbers the nodes along a Hilbert curve and the edges in the order of their nodes, such that nodes and edges
+     * that are close in space are also stored close to each other. This is done in place, which also works for
+     * memory mapped storage. Turn cost entries are updated and way geometries and names stay attached to their edges.
+     * Everything else that refers to node or edge IDs (e.g. the location index or CH and LM preparations) has to be
+     * created afterwards.
+     *
+     * @return the new ID of every edge, indexed by its old ID
+     */
+    int[] sortAlongHilbertCurve() {
+        checkInitialized();
+        if (isFrozen())
+            throw new IllegalStateException("Cannot sort the graph after it was frozen");
+        if (nodeCount == 0)
+            return new int[0];
+
+        HilbertCurve curve = new HilbertCurve(31, bounds);
+        final long[] nodeKeys = new long[nodeCount];
+        for (int node = 0; node < nodeCount; node++) {
+            nodeKeys[node] = curve.encode(nodeAccess.getLat(node), nodeAccess.getLon(node));
+        }
+        int[] newToOldNodes = IndirectSort.mergesort(0, nodeCount, (a, b) -> Long.compare(nodeKeys[a], nodeKeys[b]));
+        int[] oldToNewNodes = invert(newToOldNodes);
+
+        final long[] edgeKeys = new long[edgeCount];
+        for (int edge = 0; edge < edgeCount; edge++) {
+            long edgePointer = toPointer(edge);
+            int nodeA = oldToNewNodes[getNodeA(edgePointer)];
+            int nodeB = oldToNewNodes[getNodeB(edgePointer)];
+            edgeKeys[edge] = ((long) Math.min(nodeA, nodeB) << 32) | Math.max(nodeA, nodeB);
+        }
+        int[] newToOldEdges = IndirectSort.mergesort(0, edgeCount, (a, b) -> Long.compare(edgeKeys[a], edgeKeys[b]));
+        int[] oldToNewEdges = invert(newToOldEdges);
+
+        permute(nodes, nodeEntryBytes, newToOldNodes);
+        permute(edges, edgeEntryBytes, newToOldEdges);
+        for (int node = 0; node < nodeCount; node++) {
+            setEdgeRef(node, EdgeIterator.NO_EDGE);
+        }
+        // the edges are linked again in the new order, the other properties have been moved together with the edge
+        for (int edge = 0; edge < edgeCount; edge++) {
+            long edgePointer = toPointer(edge);
+            internalEdgeAdd(edge, oldToNewNodes[getNodeA(edgePointer)], oldToNewNodes[getNodeB(edgePointer)]);
+        }
+        if (supportsTurnCosts())
+            turnCostStorage.renumberEdges(oldToNewEdges);
+        return oldToNewEdges;
+    }
+
+    private static int[] invert(int[] permutation) {
+        int[] inverse = new int[permutation.length];
+        for (int i = 0; i < permutation.length; i++) {
+            inverse[permutation[i]] = i;
+        }
+        return inverse;
+    }
+
+    /**
+     * Moves the entry at newToOld[i] to position i by following the cycles of the permutation, so only the space for
+     * a single entry is needed.
+     */
+    private static void permute(DataAccess da, int entryBytes, int[] newToOld) {
+        int ints = entryBytes / 4;
+        int[] first = new int[ints];
+        GHBitSet done = new GHBitSetImpl(newToOld.length);
+        for (int start = 0; start < newToOld.length; start++) {
+            if (done.contains(start))
+                continue;
+            readInts(da, (long) start * entryBytes, first);
+            int pos = start;
+            while (true) {
+                done.add(pos);
+                int src = newToOld[pos];
+                if (src == start) {
+                    writeInts(da, (long) pos * entryBytes, first);
+                    break;
+                }
+                for (int i = 0; i < ints; i++) {
+                    da.setInt((long) pos * entryBytes + i * 4, da.getInt((long) src * entryBytes + i * 4));
+                }
+                pos = src;
+            }
+        }
+    }
+
+    private static void readInts(DataAccess da, long pointer, int[] values) {
+        for (int i = 0; i < values.length; i++) {
+            values[i] = da.getInt(pointer + i * 4);
+        }
+    }
+
+    private static void writeInts(DataAccess da, long pointer, int[] values) {
+        for (int i = 0; i < values.length; i++) {
+            da.setInt(pointer + i * 4, values[i]);
+        }
+    }
+
     /**
      * Writes plain edge information to the edges index
      */
@@ -682,6 +888,10 @@ class BaseGraph implements Graph {
         if (supportsTurnCosts()) {
             turnCostStorage.copyTo(clonedG.turnCostStorage);
         }
+
+        // the adjacency layout is not copied but rebuilt as it might be disabled for one of the graphs
+        if (clonedG.isCSRAdjacencyEnabled() && clonedG.isFrozen())
+            clonedG.buildCSRAdjacency();
     }
 
     @Override
@@ -901,6 +1111,9 @@ class BaseGraph implements Graph {
     protected static class EdgeIteratorImpl extends EdgeIteratorStateImpl implements EdgeExplorer, EdgeIterator {
         final EdgeFilter filter;
         int nextEdgeId;
+        // only used if the adjacency layout of the base graph is ready
+        boolean csr;
+        long csrPointer, csrEndPointer;
 
         public EdgeIteratorImpl(BaseGraph baseGraph, EdgeFilter filter) {
             super(baseGraph);
@@ -912,15 +1125,30 @@ class BaseGraph implements Graph {
 
         @Override
         public EdgeIterator setBaseNode(int baseNode) {
-            nextEdgeId = edgeId = baseGraph.getEdgeRef(baseNode);
-            this.baseNode = baseNode;
+            reset(baseNode);
             return this;
         }
 
+        final void reset(int baseNode) {
+            this.baseNode = baseNode;
+            csr = baseGraph.csrAdjacencyReady;
+            if (csr) {
+                nextEdgeId = edgeId = EdgeIterator.NO_EDGE;
+                csrPointer = baseGraph.getCSRPointer(baseNode);
+                csrEndPointer = baseGraph.getCSRPointer(baseNode + 1);
+            } else {
+                nextEdgeId = edgeId = baseGraph.getEdgeRef(baseNode);
+            }
+        }
+
+        final boolean hasNextEdge() {
+            return csr ? csrPointer < csrEndPointer : EdgeIterator.Edge.isValid(nextEdgeId);
+        }
+
         @Override
         public final boolean next() {
             while (true) {
-                if (!EdgeIterator.Edge.isValid(nextEdgeId))
+                if (!hasNextEdge())
                     return false;
                 goToNext();
                 if (filter.accept(this)) {
@@ -930,6 +1158,16 @@ class BaseGraph implements Graph {
         }
 
         void goToNext() {
+            if (csr) {
+                int edgeKey = baseGraph.csrAdjacency.getInt(csrPointer);
+                adjNode = baseGraph.csrAdjacency.getInt(csrPointer + 4);
+                csrPointer += 8;
+                edgeId = GHUtility.getEdgeFromEdgeKey(edgeKey);
+                edgePointer = baseGraph.toPointer(edgeId);
+                reverse = (edgeKey & 1) == 1;
+                freshFlags = false;
+                return;
+            }
             edgePointer = baseGraph.toPointer(nextEdgeId);
             edgeId = nextEdgeId;
             int nodeA = baseGraph.getNodeA(edgePointer);
@@ -515,8 +515,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
         public final CHEdgeIterator setBaseNode(int baseNode) {
             assert baseIterator.baseGraph.isFrozen() : "Traversing CHGraph is only possible if BaseGraph is frozen";
 
-            baseIterator.nextEdgeId = baseIterator.edgeId = baseGraph.getEdgeRef(baseNode);
-            baseIterator.baseNode = baseNode;
+            baseIterator.reset(baseNode);
 
             nextEdgeId = edgeId = CHGraphImpl.this.getEdgeRef(baseNode);
             return this;
@@ -543,7 +542,7 @@ public class CHGraphImpl implements CHGraph, Storable<CHGraph> {
             }
 
             while (true) {
-                if (!EdgeIterator.Edge.isValid(baseIterator.nextEdgeId))
+                if (!baseIterator.hasNextEdge())
                     return false;
                 baseIterator.goToNext();
                 // we update edgeId even when iterating base edges
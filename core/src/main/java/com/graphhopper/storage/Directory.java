@@ -52,6 +52,12 @@ public interface Directory {
      */
     void remove(DataAccess da);
 
+    /**
+     * Releases the resources of the specified object and removes it from the directory without removing its backing
+     * file, i.e. it can be loaded again later.
+     */
+    void close(DataAccess da);
+
     /**
      * @return the default type of a newly created DataAccess object
      */
@@ -41,6 +41,7 @@ public class GraphBuilder {
     private boolean turnCosts;
     private long bytes = 100;
     private int segmentSize = -1;
+    private boolean csrAdjacency;
     private List<String> chConfigStrings = new ArrayList<>();
     private List<CHConfig> chConfigs = new ArrayList<>();
 
@@ -112,6 +113,15 @@ public class GraphBuilder {
         return this;
     }
 
+    /**
+     * Stores the edges of every node contiguously after the graph was frozen, see
+     * {@link GraphHopperStorage#setCSRAdjacency(boolean)}
+     */
+    public GraphBuilder setCSRAdjacency(boolean csrAdjacency) {
+        this.csrAdjacency = csrAdjacency;
+        return this;
+    }
+
     /**
      * Default graph is a {@link GraphHopperStorage} with an in memory directory and disabled storing on flush.
      * Afterwards you'll need to call {@link GraphHopperStorage#create} to have a usable object. Better use
@@ -119,6 +129,7 @@ public class GraphBuilder {
      */
     public GraphHopperStorage build() {
         GraphHopperStorage ghStorage = new GraphHopperStorage(dir, encodingManager, elevation, turnCosts, segmentSize);
+        ghStorage.setCSRAdjacency(csrAdjacency);
         addCHProfilesFromStrings(ghStorage.getTurnCostStorage());
         ghStorage.addCHGraphs(chConfigs);
         return ghStorage;
@@ -48,6 +48,7 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
     // same flush order etc
     private final Collection<CHGraphImpl> chGraphs;
     private final int segmentSize;
+    private SpeedProfileStorage speedProfileStorage;
 
     public GraphHopperStorage(Directory dir, EncodingManager encodingManager, boolean withElevation) {
         this(dir, encodingManager, withElevation, false);
@@ -84,6 +85,36 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
         chGraphs = new ArrayList<>();
     }
 
+    /**
+     * Enables the read-optimized adjacency layout of the base graph that is created when calling {@link #freeze()}.
+     * You need to call this method before calling {@link #create(long)} or {@link #loadExisting()}.
+     */
+    public GraphHopperStorage setCSRAdjacency(boolean enable) {
+        baseGraph.setCSRAdjacency(enable);
+        return this;
+    }
+
+    public boolean isCSRAdjacency() {
+        return baseGraph.isCSRAdjacencyEnabled();
+    }
+
+    /**
+     * Enables the storage of time-dependent speeds for every edge, see {@link SpeedProfileStorage}. You need to call
+     * this method before calling {@link #create(long)} or {@link #loadExisting()}.
+     */
+    public GraphHopperStorage setSpeedProfiles(boolean enable) {
+        baseGraph.checkNotInitialized();
+        speedProfileStorage = enable ? new SpeedProfileStorage(dir) : null;
+        return this;
+    }
+
+    /**
+     * @return the speed profiles of the edges or null if they are not enabled
+     */
+    public SpeedProfileStorage getSpeedProfileStorage() {
+        return speedProfileStorage;
+    }
+
     /**
      * Adds a {@link CHGraph} for the given {@link CHConfig}. You need to call this method before calling {@link #create(long)}
      * or {@link #loadExisting()}.
@@ -199,6 +230,9 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
         properties.putCurrentVersions();
 
         baseGraph.create(initSize);
+        if (speedProfileStorage != null)
+            speedProfileStorage.create(initSize);
+        properties.put("graph.speed_profiles", speedProfileStorage != null);
 
         for (CHGraphImpl cg : chGraphs) {
             cg.create(byteCount);
@@ -255,6 +289,9 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
 
             checkIfConfiguredAndLoadedWeightingsCompatible();
 
+            if (speedProfileStorage != null && (!"true".equals(properties.get("graph.speed_profiles")) || !speedProfileStorage.loadExisting()))
+                throw new IllegalStateException("Speed profiles are enabled but the loaded graph has none. Change configuration to match the graph or delete " + dir.getLocation());
+
             for (CHGraphImpl cg : chGraphs) {
                 if (!cg.loadExisting())
                     throw new IllegalStateException("Cannot load " + cg);
@@ -289,6 +326,8 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
         }
 
         baseGraph.flush();
+        if (speedProfileStorage != null)
+            speedProfileStorage.flush();
         properties.flush();
     }
 
@@ -296,6 +335,8 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
     public void close() {
         properties.close();
         baseGraph.close();
+        if (speedProfileStorage != null)
+            speedProfileStorage.close();
 
         for (CHGraphImpl cg : chGraphs) {
             if (!cg.isClosed())
@@ -311,6 +352,8 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
     @Override
     public long getCapacity() {
         long cnt = baseGraph.getCapacity() + properties.getCapacity();
+        if (speedProfileStorage != null)
+            cnt += speedProfileStorage.getCapacity();
 
         for (CHGraphImpl cg : chGraphs) {
             cnt += cg.getCapacity();
@@ -318,6 +361,17 @@ public final class GraphHopperStorage implements GraphStorage, Graph {
         return cnt;
     }
 
+    /**
+     * Renumbers nodes and edges of the base graph such that they are stored in a spatially local order, see
+     * {@link BaseGraph#sortAlongHilbertCurve()}. This is only possible before the graph is frozen and all data
+     * referring to node or edge IDs (except turn costs and speed profiles) must be created afterwards.
+     */
+    public void sortAlongHilbertCurve() {
+        int[] oldToNewEdges = baseGraph.sortAlongHilbertCurve();
+        if (speedProfileStorage != null)
+            speedProfileStorage.renumberEdges(oldToNewEdges);
+    }
+
     /**
      * Avoid that edges and nodes of the base graph are further modified. Necessary as hook for e.g.
      * ch graphs on top to initialize themselves
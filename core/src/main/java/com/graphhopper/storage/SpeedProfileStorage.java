@@ -0,0 +1,205 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import java.nio.ByteBuffer;
+import java.util.HashMap;
+import java.util.Map;
+
+/**
+ * Stores historic speeds for every edge, e.g. derived from traffic data. A speed profile contains one speed in km/h
+ * for every quarter of an hour of a day. Equal profiles are stored only once and edges only store the ID of their
+ * profile, so every edge needs 2 bytes and every distinct profile {@link #BUCKETS} bytes. Profile IDs start at 1,
+ * an edge without profile has the ID 0 and a speed of 0 in a profile means that there is no data for this quarter
+ * of an hour. The profile of an edge is used for both directions.
+ */
+public class SpeedProfileStorage implements Storable<SpeedProfileStorage> {
+    public static final int BUCKETS = 96;
+    public static final long BUCKET_MILLIS = 15 * 60 * 1000;
+    public static final int MAX_SPEED = 255;
+    // the profile ID is stored as unsigned short
+    static final int MAX_PROFILES = 0xFFFF;
+    private static final int BYTES_PER_EDGE = 2;
+    private final DataAccess profiles;
+    private final DataAccess edgeProfiles;
+    private final Map<ByteBuffer, Integer> profileIds = new HashMap<>();
+    private int profileCount;
+    private int maxSpeed;
+
+    public SpeedProfileStorage(Directory dir) {
+        profiles = dir.find("speed_profiles");
+        edgeProfiles = dir.find("speed_profile_edges");
+    }
+
+    /**
+     * Adds the specified speed profile or returns the ID of an equal profile that was added before.
+     *
+     * @param speeds the speeds in km/h for every quarter of an hour starting at midnight, 0 means no data
+     * @return the ID of the profile, which is at least 1
+     */
+    public int addProfile(int[] speeds) {
+        if (speeds.length != BUCKETS)
+            throw new IllegalArgumentException("A speed profile needs " + BUCKETS + " speeds but got " + speeds.length);
+        byte[] bytes = new byte[BUCKETS];
+        for (int i = 0; i < BUCKETS; i++) {
+            if (speeds[i] < 0 || speeds[i] > MAX_SPEED)
+                throw new IllegalArgumentException("Speed must be in [0, " + MAX_SPEED + "] but was " + speeds[i] + " at index " + i);
+            bytes[i] = (byte) speeds[i];
+        }
+        if (profileIds.size() < profileCount)
+            fillProfileIds();
+
+        Integer existing = profileIds.get(ByteBuffer.wrap(bytes));
+        if (existing != null)
+            return existing;
+        if (profileCount >= MAX_PROFILES)
+            throw new IllegalStateException("Number of speed profiles is limited to " + MAX_PROFILES);
+
+        profiles.ensureCapacity((long) (profileCount + 1) * BUCKETS);
+        profiles.setBytes((long) profileCount * BUCKETS, bytes, BUCKETS);
+        profileCount++;
+        profileIds.put(ByteBuffer.wrap(bytes), profileCount);
+        for (int speed : speeds) {
+            maxSpeed = Math.max(maxSpeed, speed);
+        }
+        return profileCount;
+    }
+
+    private void fillProfileIds() {
+        for (int profile = 1; profile <= profileCount; profile++) {
+            byte[] bytes = new byte[BUCKETS];
+            profiles.getBytes((long) (profile - 1) * BUCKETS, bytes, BUCKETS);
+            profileIds.put(ByteBuffer.wrap(bytes), profile);
+        }
+    }
+
+    public int getProfileCount() {
+        return profileCount;
+    }
+
+    /**
+     * @return the maximum speed of all profiles in km/h
+     */
+    public int getMaxSpeed() {
+        return maxSpeed;
+    }
+
+    /**
+     * @return the speed in km/h of the specified profile for the specified quarter of an hour or 0 if there is no data
+     */
+    public int getSpeed(int profile, int bucket) {
+        if (profile < 1 || profile > profileCount)
+            throw new IllegalArgumentException("Speed profile " + profile + " does not exist, count: " + profileCount);
+        if (bucket < 0 || bucket >= BUCKETS)
+            throw new IllegalArgumentException("Bucket must be in [0, " + BUCKETS + ") but was " + bucket);
+        return profiles.getByte((long) (profile - 1) * BUCKETS + bucket) & 0xFF;
+    }
+
+    public void setEdgeProfile(int edge, int profile) {
+        if (profile < 0 || profile > profileCount)
+            throw new IllegalArgumentException("Speed profile " + profile + " does not exist, count: " + profileCount);
+        long pointer = (long) edge * BYTES_PER_EDGE;
+        edgeProfiles.ensureCapacity(pointer + BYTES_PER_EDGE);
+        edgeProfiles.setShort(pointer, (short) profile);
+    }
+
+    /**
+     * @return the ID of the speed profile of the specified edge or 0 if it has none
+     */
+    public int getEdgeProfile(int edge) {
+        long pointer = (long) edge * BYTES_PER_EDGE;
+        if (pointer + BYTES_PER_EDGE > edgeProfiles.getCapacity())
+            return 0;
+        return edgeProfiles.getShort(pointer) & 0xFFFF;
+    }
+
+    /**
+     * @return the speed in km/h of the specified edge at the specified time or 0 if there is no data
+     */
+    public int getEdgeSpeed(int edge, long millisOfDay) {
+        int profile = getEdgeProfile(edge);
+        return profile == 0 ? 0 : getSpeed(profile, getBucket(millisOfDay));
+    }
+
+    /**
+     * @return the quarter of an hour of the day for the specified time in milliseconds since midnight. Times after
+     * the end of the day continue at the beginning of the day.
+     */
+    public static int getBucket(long millisOfDay) {
+        return (int) Math.floorMod(millisOfDay / BUCKET_MILLIS, (long) BUCKETS);
+    }
+
+    /**
+     * Moves the profile IDs of the edges after the edges of the graph were renumbered.
+     */
+    void renumberEdges(int[] oldToNewEdges) {
+        int[] oldProfiles = new int[oldToNewEdges.length];
+        for (int edge = 0; edge < oldToNewEdges.length; edge++) {
+            oldProfiles[edge] = getEdgeProfile(edge);
+        }
+        for (int edge = 0; edge < oldToNewEdges.length; edge++) {
+            if (oldProfiles[edge] != 0 || getEdgeProfile(oldToNewEdges[edge]) != 0)
+                setEdgeProfile(oldToNewEdges[edge], oldProfiles[edge]);
+        }
+    }
+
+    @Override
+    public SpeedProfileStorage create(long byteCount) {
+        profiles.create(BUCKETS * 100);
+        edgeProfiles.create(Math.max(byteCount, 100));
+        return this;
+    }
+
+    @Override
+    public boolean loadExisting() {
+        if (!profiles.loadExisting() || !edgeProfiles.loadExisting())
+            return false;
+        profileCount = profiles.getHeader(0);
+        maxSpeed = profiles.getHeader(4);
+        return true;
+    }
+
+    @Override
+    public void flush() {
+        profiles.setHeader(0, profileCount);
+        profiles.setHeader(4, maxSpeed);
+        profiles.flush();
+        edgeProfiles.flush();
+    }
+
+    @Override
+    public void close() {
+        profiles.close();
+        edgeProfiles.close();
+    }
+
+    @Override
+    public boolean isClosed() {
+        return profiles.isClosed();
+    }
+
+    @Override
+    public long getCapacity() {
+        return profiles.getCapacity() + edgeProfiles.getCapacity();
+    }
+
+    @Override
+    public String toString() {
+        return "speed_profiles";
+    }
+}
@@ -30,6 +30,10 @@ import com.graphhopper.util.EdgeIterator;
  * <p>
  * In practice, the IntRefs are used to store generalized travel costs per turn relation per vehicle type.
  * In practice, we only store 0 or infinity. (Can turn, or cannot turn.)
+ * <p>
+ * While the graph is built the entries of every via node form a linked list. When the graph is frozen the entries are
+ * sorted by via node, from edge and to edge, see {@link #sortEntries()}. Afterwards the entries of every via node are
+ * stored contiguously and a lookup is a binary search within this range instead of following the linked list.
  *
  * @author Karl Hübner
  * @author Peter Karich
@@ -43,11 +47,14 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
     private static final int TC_TO = 4;
     private static final int TC_FLAGS = 8;
     private static final int TC_NEXT = 12;
+    // in the sorted layout the last int of an entry stores the via node, the next entry is implicitly the following one
+    private static final int TC_VIA = 12;
     private static final int BYTES_PER_ENTRY = 16;
 
     private BaseGraph baseGraph;
     private DataAccess turnCosts;
     private int turnCostsCount;
+    private boolean sorted;
 
     public TurnCostStorage(BaseGraph baseGraph, DataAccess turnCosts) {
         this.baseGraph = baseGraph;
@@ -68,6 +75,7 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
     public void flush() {
         turnCosts.setHeader(0, BYTES_PER_ENTRY);
         turnCosts.setHeader(1 * 4, turnCostsCount);
+        turnCosts.setHeader(2 * 4, sorted ? 1 : 0);
         turnCosts.flush();
     }
 
@@ -90,6 +98,7 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
             throw new IllegalStateException("Number of bytes per turn cost entry does not match the current configuration: " + turnCosts.getHeader(0) + " vs. " + BYTES_PER_ENTRY);
         }
         turnCostsCount = turnCosts.getHeader(4);
+        sorted = turnCosts.getHeader(2 * 4) == 1;
         return true;
     }
 
@@ -106,6 +115,16 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
     }
 
     private void merge(IntsRef tcFlags, int fromEdge, int viaNode, int toEdge) {
+        if (sorted) {
+            int index = findSortedEntry(fromEdge, viaNode, toEdge);
+            if (index != NO_TURN_ENTRY) {
+                long costsIdx = (long) index * BYTES_PER_ENTRY + TC_FLAGS;
+                turnCosts.setInt(costsIdx, turnCosts.getInt(costsIdx) | tcFlags.ints[0]);
+                return;
+            }
+            // a new entry does not fit into the sorted layout
+            restoreLinkedLists();
+        }
         int newEntryIndex = turnCostsCount;
         ensureTurnCostIndex(newEntryIndex);
         boolean oldEntryFound = false;
@@ -183,6 +202,11 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
     }
 
     private void readFlags(IntsRef tcFlags, int fromEdge, int viaNode, int toEdge) {
+        if (sorted) {
+            int index = findSortedEntry(fromEdge, viaNode, toEdge);
+            tcFlags.ints[0] = index == NO_TURN_ENTRY ? EMPTY_FLAGS : turnCosts.getInt((long) index * BYTES_PER_ENTRY + TC_FLAGS);
+            return;
+        }
         int turnCostIndex = baseGraph.getNodeAccess().getTurnCostIndex(viaNode);
         int i = 0;
         for (; i < 1000; i++) {
@@ -208,13 +232,136 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
         tcFlags.ints[0] = EMPTY_FLAGS;
     }
 
+    /**
+     * @return the index of the entry in the sorted layout or NO_TURN_ENTRY if there is no such entry
+     */
+    private int findSortedEntry(int fromEdge, int viaNode, int toEdge) {
+        int low = baseGraph.getNodeAccess().getTurnCostIndex(viaNode);
+        if (low == NO_TURN_ENTRY)
+            return NO_TURN_ENTRY;
+        // most via nodes have only a few entries, so instead of searching all remaining entries we first double the
+        // search window until it contains the searched entry
+        int high = low;
+        for (int step = 1; high < turnCostsCount && compareSortedEntry(high, fromEdge, viaNode, toEdge) < 0; step <<= 1) {
+            low = high + 1;
+            high += step;
+        }
+        high = Math.min(high, turnCostsCount - 1);
+        while (low <= high) {
+            int mid = (low + high) >>> 1;
+            int cmp = compareSortedEntry(mid, fromEdge, viaNode, toEdge);
+            if (cmp < 0)
+                low = mid + 1;
+            else if (cmp > 0)
+                high = mid - 1;
+            else
+                return mid;
+        }
+        return NO_TURN_ENTRY;
+    }
+
+    /**
+     * Compares the entry with the specified turn relation. Only entries of this or later via nodes are compared.
+     */
+    private int compareSortedEntry(int index, int fromEdge, int viaNode, int toEdge) {
+        long pointer = (long) index * BYTES_PER_ENTRY;
+        if (turnCosts.getInt(pointer + TC_VIA) != viaNode)
+            return 1;
+        int cmp = Integer.compare(turnCosts.getInt(pointer + TC_FROM), fromEdge);
+        return cmp != 0 ? cmp : Integer.compare(turnCosts.getInt(pointer + TC_TO), toEdge);
+    }
+
+    /**
+     * Rewrites all entries such that they are sorted by via node, from edge and to edge. The entries of a via node
+     * are then stored contiguously and can be found with a binary search, see {@link #findSortedEntry}. This is
+     * done when the graph is frozen.
+     */
+    void sortEntries() {
+        if (sorted)
+            return;
+        int[] fromEdges = new int[turnCostsCount];
+        int[] toEdges = new int[turnCostsCount];
+        int[] flags = new int[turnCostsCount];
+        int[] viaNodes = new int[turnCostsCount];
+        int count = 0;
+        // the linked lists are already ordered by via node, so only the entries of every via node need to be sorted
+        for (int node = 0; node < baseGraph.getNodes(); node++) {
+            int start = count;
+            for (int index = baseGraph.getNodeAccess().getTurnCostIndex(node); index != NO_TURN_ENTRY; count++) {
+                long pointer = (long) index * BYTES_PER_ENTRY;
+                fromEdges[count] = turnCosts.getInt(pointer + TC_FROM);
+                toEdges[count] = turnCosts.getInt(pointer + TC_TO);
+                flags[count] = turnCosts.getInt(pointer + TC_FLAGS);
+                viaNodes[count] = node;
+                index = turnCosts.getInt(pointer + TC_NEXT);
+            }
+            if (count == start)
+                continue;
+            baseGraph.getNodeAccess().setTurnCostIndex(node, start);
+            // there are only a few entries per via node, so insertion sort is fine
+            for (int i = start + 1; i < count; i++) {
+                int from = fromEdges[i], to = toEdges[i], flag = flags[i];
+                int j = i - 1;
+                for (; j >= start && (fromEdges[j] > from || fromEdges[j] == from && toEdges[j] > to); j--) {
+                    fromEdges[j + 1] = fromEdges[j];
+                    toEdges[j + 1] = toEdges[j];
+                    flags[j + 1] = flags[j];
+                }
+                fromEdges[j + 1] = from;
+                toEdges[j + 1] = to;
+                flags[j + 1] = flag;
+            }
+        }
+        if (count != turnCostsCount)
+            throw new IllegalStateException("Turn cost entries are not reachable from their via node: " + count + " vs. " + turnCostsCount);
+
+        for (int i = 0; i < turnCostsCount; i++) {
+            long pointer = (long) i * BYTES_PER_ENTRY;
+            turnCosts.setInt(pointer + TC_FROM, fromEdges[i]);
+            turnCosts.setInt(pointer + TC_TO, toEdges[i]);
+            turnCosts.setInt(pointer + TC_FLAGS, flags[i]);
+            turnCosts.setInt(pointer + TC_VIA, viaNodes[i]);
+        }
+        sorted = true;
+    }
+
+    /**
+     * Converts the sorted layout back to linked lists, which is necessary to add new entries.
+     */
+    private void restoreLinkedLists() {
+        for (int i = 0; i < turnCostsCount; i++) {
+            long pointer = (long) i * BYTES_PER_ENTRY;
+            boolean hasNext = i + 1 < turnCostsCount && turnCosts.getInt(pointer + TC_VIA) == turnCosts.getInt(pointer + BYTES_PER_ENTRY + TC_VIA);
+            turnCosts.setInt(pointer + TC_NEXT, hasNext ? i + 1 : NO_TURN_ENTRY);
+        }
+        sorted = false;
+    }
+
+    boolean isSorted() {
+        return sorted;
+    }
+
     private void ensureTurnCostIndex(int nodeIndex) {
         turnCosts.ensureCapacity(((long) nodeIndex + 4) * BYTES_PER_ENTRY);
     }
 
+    /**
+     * Updates the from and to edges of all entries after the edges of the graph were renumbered. The via nodes do
+     * not need to be changed, because the entry index is stored together with the node.
+     */
+    void renumberEdges(int[] oldToNewEdges) {
+        if (sorted)
+            throw new IllegalStateException("Cannot renumber the edges after the turn cost entries were sorted");
+        for (long pointer = 0; pointer < (long) turnCostsCount * BYTES_PER_ENTRY; pointer += BYTES_PER_ENTRY) {
+            turnCosts.setInt(pointer + TC_FROM, oldToNewEdges[turnCosts.getInt(pointer + TC_FROM)]);
+            turnCosts.setInt(pointer + TC_TO, oldToNewEdges[turnCosts.getInt(pointer + TC_TO)]);
+        }
+    }
+
     public TurnCostStorage copyTo(TurnCostStorage turnCostStorage) {
         turnCosts.copyTo(turnCostStorage.turnCosts);
         turnCostStorage.turnCostsCount = turnCostsCount;
+        turnCostStorage.sorted = sorted;
         return turnCostStorage;
     }
 
@@ -284,6 +431,12 @@ public class TurnCostStorage implements Storable<TurnCostStorage> {
 
         @Override
         public boolean next() {
+            if (sorted) {
+                if (++turnCostIndex >= turnCostsCount)
+                    return false;
+                viaNode = turnCosts.getInt(turnCostPtr() + TC_VIA);
+                return true;
+            }
             boolean gotNextTci = nextTci();
             if (!gotNextTci) {
                 turnCostIndex = NO_TURN_ENTRY;
@@ -0,0 +1,252 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage.index;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.carrotsearch.hppc.IntHashSet;
+import com.graphhopper.routing.ev.EnumEncodedValue;
+import com.graphhopper.routing.ev.RoadClass;
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.storage.DAType;
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.*;
+import com.graphhopper.util.shapes.BBox;
+
+import java.util.EnumSet;
+import java.util.Set;
+
+/**
+ * A small spatial index of the simplified geometries of the major roads, which makes it possible to show the road
+ * network at low zoom levels without looking at every edge. Only edges with a road class of
+ * {@link #ROAD_CLASSES} are stored. Their geometry is simplified once when the index is prepared and the roads
+ * are assigned to the cells of a regular grid covering the bounds of the graph.
+ * <p>
+ * The index is stored in two DataAccess objects, so it has to be prepared only once after the import.
+ */
+public class MajorRoadIndex {
+    public static final Set<RoadClass> ROAD_CLASSES = EnumSet.of(RoadClass.MOTORWAY, RoadClass.TRUNK, RoadClass.PRIMARY);
+    private static final int MAGIC_INT = Integer.MAX_VALUE / 87_172;
+    // the grid has at most MAX_CELLS x MAX_CELLS cells
+    private static final int MAX_CELLS = 256;
+    private static final double MIN_CELL_SIZE = 0.1;
+    private final Graph graph;
+    private final EnumEncodedValue<RoadClass> roadClassEnc;
+    // for every cell the start of its list of road pointers followed by these lists
+    private final DataAccess cells;
+    // for every road the edge, the road class, the number of points and the points
+    private final DataAccess roads;
+    private double maxDeviation = 50;
+    private int cellSizeInt;
+    private int minLatInt;
+    private int minLonInt;
+    private int rows;
+    private int cols;
+    private int roadCount;
+    private boolean initialized;
+
+    public MajorRoadIndex(Graph graph, EnumEncodedValue<RoadClass> roadClassEnc, Directory dir) {
+        this.graph = graph;
+        this.roadClassEnc = roadClassEnc;
+        DAType type = DAType.getPreferredInt(dir.getDefaultType());
+        cells = dir.find("major_roads_cells", type);
+        roads = dir.find("major_roads", type);
+    }
+
+    /**
+     * @param maxDeviation the maximum distance in meter between the simplified and the original geometry
+     */
+    public MajorRoadIndex setMaxDeviation(double maxDeviation) {
+        this.maxDeviation = maxDeviation;
+        return this;
+    }
+
+    public boolean loadExisting() {
+        if (initialized)
+            throw new IllegalStateException("Call loadExisting only once");
+        if (!cells.loadExisting() || !roads.loadExisting())
+            return false;
+        if (cells.getHeader(0) != MAGIC_INT)
+            throw new IllegalStateException("incorrect major road index version, expected:" + MAGIC_INT);
+        if (cells.getHeader(4) != checksum())
+            throw new IllegalStateException("major road index was opened with incorrect graph: "
+                    + cells.getHeader(4) + " vs. " + checksum());
+        rows = cells.getHeader(2 * 4);
+        cols = cells.getHeader(3 * 4);
+        cellSizeInt = cells.getHeader(4 * 4);
+        minLatInt = cells.getHeader(5 * 4);
+        minLonInt = cells.getHeader(6 * 4);
+        roadCount = cells.getHeader(7 * 4);
+        initialized = true;
+        return true;
+    }
+
+    public MajorRoadIndex prepareIndex() {
+        if (initialized)
+            throw new IllegalStateException("Call prepareIndex only once");
+        BBox bounds = graph.getBounds();
+        if (!bounds.isValid())
+            bounds = new BBox(-10.0, 10.0, -10.0, 10.0);
+        double cellSize = Math.max(MIN_CELL_SIZE, Math.max(bounds.maxLat - bounds.minLat, bounds.maxLon - bounds.minLon) / MAX_CELLS);
+        cellSizeInt = Helper.degreeToInt(cellSize);
+        minLatInt = Helper.degreeToInt(bounds.minLat);
+        minLonInt = Helper.degreeToInt(bounds.minLon);
+        rows = Math.max(1, (int) Math.ceil((bounds.maxLat - bounds.minLat) / cellSize));
+        cols = Math.max(1, (int) Math.ceil((bounds.maxLon - bounds.minLon) / cellSize));
+
+        IntArrayList[] roadsPerCell = new IntArrayList[rows * cols];
+        DouglasPeucker simplifier = new DouglasPeucker().setMaxDistance(maxDeviation);
+        roads.create(64 * 1024);
+        long intPointer = 0;
+        AllEdgesIterator edge = graph.getAllEdges();
+        while (edge.next()) {
+            RoadClass roadClass = edge.get(roadClassEnc);
+            if (!ROAD_CLASSES.contains(roadClass))
+                continue;
+            PointList points = edge.fetchWayGeometry(FetchMode.ALL);
+            simplifier.simplify(points);
+            if (intPointer + 3 + 2L * points.size() > Integer.MAX_VALUE)
+                throw new IllegalStateException("Too many major roads for the major road index");
+
+            roads.ensureCapacity((intPointer + 3 + 2L * points.size()) * 4);
+            roads.setInt(intPointer * 4, edge.getEdge());
+            roads.setInt((intPointer + 1) * 4, roadClass.ordinal());
+            roads.setInt((intPointer + 2) * 4, points.size());
+            BBox roadBounds = BBox.createInverse(false);
+            for (int i = 0; i < points.size(); i++) {
+                roads.setInt((intPointer + 3 + 2 * i) * 4, Helper.degreeToInt(points.getLat(i)));
+                roads.setInt((intPointer + 4 + 2 * i) * 4, Helper.degreeToInt(points.getLon(i)));
+                roadBounds.update(points.getLat(i), points.getLon(i));
+            }
+            // a road is added to every cell its bounds overlap
+            int minRow = getRow(roadBounds.minLat), maxRow = getRow(roadBounds.maxLat);
+            int minCol = getCol(roadBounds.minLon), maxCol = getCol(roadBounds.maxLon);
+            for (int row = minRow; row <= maxRow; row++) {
+                for (int col = minCol; col <= maxCol; col++) {
+                    int cell = row * cols + col;
+                    if (roadsPerCell[cell] == null)
+                        roadsPerCell[cell] = new IntArrayList(4);
+                    roadsPerCell[cell].add((int) intPointer);
+                }
+            }
+            intPointer += 3 + 2L * points.size();
+            roadCount++;
+        }
+
+        cells.create(64 * 1024);
+        long cellPointer = rows * cols + 1;
+        for (int cell = 0; cell < roadsPerCell.length; cell++) {
+            cells.ensureCapacity((cellPointer + 1) * 4);
+            cells.setInt(cell * 4L, (int) cellPointer);
+            if (roadsPerCell[cell] == null)
+                continue;
+            cells.ensureCapacity((cellPointer + roadsPerCell[cell].size()) * 4);
+            for (int i = 0; i < roadsPerCell[cell].size(); i++, cellPointer++) {
+                cells.setInt(cellPointer * 4, roadsPerCell[cell].get(i));
+            }
+        }
+        cells.setInt((long) rows * cols * 4, (int) cellPointer);
+        initialized = true;
+        return this;
+    }
+
+    /**
+     * Calls the visitor for every road of the specified road classes that is stored in a cell overlapping the bbox.
+     * Every road is visited only once.
+     */
+    public void query(BBox queryBBox, Set<RoadClass> roadClasses, RoadVisitor visitor) {
+        if (!initialized)
+            throw new IllegalStateException("Call loadExisting or prepareIndex before querying");
+        int minRow = getRow(queryBBox.minLat), maxRow = getRow(queryBBox.maxLat);
+        int minCol = getCol(queryBBox.minLon), maxCol = getCol(queryBBox.maxLon);
+        IntHashSet visited = new IntHashSet();
+        for (int row = minRow; row <= maxRow; row++) {
+            for (int col = minCol; col <= maxCol; col++) {
+                long cell = (long) row * cols + col;
+                int start = cells.getInt(cell * 4);
+                int end = cells.getInt((cell + 1) * 4);
+                for (int i = start; i < end; i++) {
+                    int roadPointer = cells.getInt((long) i * 4);
+                    RoadClass roadClass = RoadClass.values()[roads.getInt((roadPointer + 1L) * 4)];
+                    if (!roadClasses.contains(roadClass) || !visited.add(roadPointer))
+                        continue;
+                    int size = roads.getInt((roadPointer + 2L) * 4);
+                    PointList points = new PointList(size, false);
+                    for (int p = 0; p < size; p++) {
+                        points.add(Helper.intToDegree(roads.getInt((roadPointer + 3L + 2 * p) * 4)),
+                                Helper.intToDegree(roads.getInt((roadPointer + 4L + 2 * p) * 4)));
+                    }
+                    visitor.onRoad(roads.getInt((long) roadPointer * 4), roadClass, points);
+                }
+            }
+        }
+    }
+
+    private int getRow(double lat) {
+        int row = (int) ((Helper.degreeToInt(lat) - (long) minLatInt) / cellSizeInt);
+        return Math.max(0, Math.min(rows - 1, row));
+    }
+
+    private int getCol(double lon) {
+        int col = (int) ((Helper.degreeToInt(lon) - (long) minLonInt) / cellSizeInt);
+        return Math.max(0, Math.min(cols - 1, col));
+    }
+
+    int checksum() {
+        return graph.getNodes() ^ graph.getEdges();
+    }
+
+    public int getRoadCount() {
+        return roadCount;
+    }
+
+    public void flush() {
+        cells.setHeader(0, MAGIC_INT);
+        cells.setHeader(4, checksum());
+        cells.setHeader(2 * 4, rows);
+        cells.setHeader(3 * 4, cols);
+        cells.setHeader(4 * 4, cellSizeInt);
+        cells.setHeader(5 * 4, minLatInt);
+        cells.setHeader(6 * 4, minLonInt);
+        cells.setHeader(7 * 4, roadCount);
+        cells.flush();
+        roads.flush();
+    }
+
+    public void close() {
+        cells.close();
+        roads.close();
+    }
+
+    public boolean isClosed() {
+        return cells.isClosed() && roads.isClosed();
+    }
+
+    public long getCapacity() {
+        return cells.getCapacity() + roads.getCapacity();
+    }
+
+    public interface RoadVisitor {
+        /**
+         * @param edge   the id of the edge the road was created from
+         * @param points the simplified geometry of the edge
+         */
+        void onRoad(int edge, RoadClass roadClass, PointList points);
+    }
+}
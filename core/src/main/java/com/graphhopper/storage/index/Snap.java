@@ -51,6 +51,22 @@ public class Snap {
         queryPoint = new GHPoint(queryLat, queryLon);
     }
 
+    /**
+     * @return a new snap with the same values, which can be modified, e.g. by a {@link QueryGraph}, without changing
+     * this snap
+     */
+    public Snap copy() {
+        Snap snap = new Snap(queryPoint.lat, queryPoint.lon);
+        snap.queryDistance = queryDistance;
+        snap.wayIndex = wayIndex;
+        snap.closestNode = closestNode;
+        // the edge state caches its flags lazily, so copies that are used by different threads must not share it
+        snap.closestEdge = closestEdge == null ? null : closestEdge.detach(false);
+        snap.snappedPoint = snappedPoint;
+        snap.snappedPosition = snappedPosition;
+        return snap;
+    }
+
     /**
      * Returns the closest matching node. This is either a tower node of the base graph
      * or a virtual node (see also {@link QueryGraph#create(Graph, List)}).
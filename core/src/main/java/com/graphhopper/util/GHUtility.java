@@ -471,6 +471,7 @@ public class GHUtility {
                 .withTurnCosts(store.getTurnCostStorage() != null)
                 .set3D(is3D)
                 .setDir(outdir)
+                .setCSRAdjacency(store.isCSRAdjacency())
                 .setCHConfigs(store.getCHConfigs())
                 .create();
     }
@@ -25,6 +25,7 @@ import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.ElevationProvider;
 import com.graphhopper.reader.dem.SRTMProvider;
 import com.graphhopper.reader.dem.SkadiProvider;
+import com.graphhopper.routing.SnapCache;
 import com.graphhopper.routing.ev.Subnetwork;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.util.parsers.OSMMaxSpeedParser;
@@ -32,6 +33,7 @@ import com.graphhopper.routing.util.parsers.OSMRoadEnvironmentParser;
 import com.graphhopper.routing.weighting.Weighting;
 import com.graphhopper.routing.weighting.custom.CustomProfile;
 import com.graphhopper.storage.IntsRef;
+import com.graphhopper.storage.SpeedProfileStorage;
 import com.graphhopper.storage.index.LocationIndexTree;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
@@ -54,8 +56,12 @@ import org.locationtech.jts.geom.Coordinate;
 import org.locationtech.jts.geom.GeometryFactory;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
 
 import static com.graphhopper.util.Parameters.Algorithms.*;
 import static com.graphhopper.util.Parameters.Curbsides.*;
@@ -237,14 +243,15 @@ public class GraphHopperTest {
         assertEquals("make a U-turn onto Avenue Princesse Grace", il.get(1).getTurnDescription(tr));
     }
 
-    private void testImportCloseAndLoad(boolean ch, boolean lm, boolean sort, boolean custom) {
+    private void testImportCloseAndLoad(boolean ch, boolean lm, boolean sort, boolean custom, boolean csr) {
         final String vehicle = "foot";
         final String profileName = "profile";
         GraphHopper hopper = new GraphHopper().
                 setGraphHopperLocation(GH_LOCATION).
                 setOSMFile(MONACO).
                 setStoreOnFlush(true).
-                setSortGraph(sort);
+                setSortGraph(sort).
+                setCSRAdjacency(csr);
 
         Profile profile = new Profile(profileName).setVehicle(vehicle).setWeighting("shortest");
         if (custom) {
@@ -274,7 +281,8 @@ public class GraphHopperTest {
                 setGraphHopperLocation(GH_LOCATION).
                 setOSMFile(MONACO).
                 setProfiles(profile).
-                setStoreOnFlush(true);
+                setStoreOnFlush(true).
+                setCSRAdjacency(csr);
         if (ch) {
             hopper.getCHPreparationHandler()
                     .setCHProfiles(new CHProfile(profileName));
@@ -338,33 +346,43 @@ public class GraphHopperTest {
 
     @Test
     public void testImportThenLoadCH() {
-        testImportCloseAndLoad(true, false, false, false);
+        testImportCloseAndLoad(true, false, false, false, false);
     }
 
     @Test
     public void testImportThenLoadLM() {
-        testImportCloseAndLoad(false, true, false, false);
+        testImportCloseAndLoad(false, true, false, false, false);
     }
 
     @Test
     public void testImportThenLoadCHLM() {
-        testImportCloseAndLoad(true, true, false, false);
+        testImportCloseAndLoad(true, true, false, false, false);
     }
 
     @Test
     public void testImportThenLoadCHLMAndSort() {
-        testImportCloseAndLoad(true, true, true, false);
+        testImportCloseAndLoad(true, true, true, false, false);
+    }
+
+    @Test
+    public void testImportThenLoadCHLMAndCSRAdjacency() {
+        testImportCloseAndLoad(true, true, false, false, true);
+    }
+
+    @Test
+    public void testImportThenLoadFlexibleAndCSRAdjacency() {
+        testImportCloseAndLoad(false, false, false, false, true);
     }
 
     @Test
     public void testImportThenLoadFlexible() {
-        testImportCloseAndLoad(false, false, false, false);
+        testImportCloseAndLoad(false, false, false, false, false);
     }
 
     @Test
     public void testImportWithCHANDCustomProfile() {
         // we cannot unload geometry as it might be required in CustomWeighting when using in_area_xy in condition
-        testImportCloseAndLoad(true, false, false, true);
+        testImportCloseAndLoad(true, false, false, true, false);
     }
 
     @Test
@@ -1047,8 +1065,9 @@ public class GraphHopperTest {
         assertEquals(26.5, pointList.getEle(5), .1);
     }
 
-    @Test
-    public void testSRTMWithTunnelInterpolation() {
+    @ParameterizedTest
+    @ValueSource(ints = {1, 4})
+    public void testSRTMWithTunnelInterpolation(int elevationThreads) {
         final String profile = "profile";
         final String vehicle = "foot";
         final String weighting = "shortest";
@@ -1058,6 +1077,7 @@ public class GraphHopperTest {
                 setOSMFile(MONACO).
                 setProfiles(new Profile(profile).setVehicle(vehicle).setWeighting(weighting),
                         new Profile("car").setVehicle("foot").setWeighting(weighting)).
+                setElevationThreads(elevationThreads).
                 setStoreOnFlush(true);
 
         hopper.setElevationProvider(new SRTMProvider(DIR));
@@ -1589,6 +1609,187 @@ public class GraphHopperTest {
         assertEquals(46.0, w.calcTurnWeight(5, 6, 5));
     }
 
+    @Test
+    public void testSearchWorkspaces() {
+        final String profile = "car_profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.getLMPreparationHandler().setLMProfiles(new LMProfile(profile));
+        hopper.getRouterConfig().setSearchWorkspaces(1);
+        hopper.importOrLoad();
+
+        // unidirectional dijkstra does not use the workspaces
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile).setAlgorithm(DIJKSTRA);
+        req.putHint(CH.DISABLE, true);
+        req.putHint(Landmark.DISABLE, true);
+        ResponsePath refPath = hopper.route(req).getBest();
+
+        // every request reuses the workspace of the previous one
+        for (int i = 0; i < 2; i++) {
+            for (String mode : asList("ch", "lm", DIJKSTRA_BI, ASTAR_BI)) {
+                req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile);
+                req.putHint(CH.DISABLE, !mode.equals("ch"));
+                req.putHint(Landmark.DISABLE, !mode.equals("lm"));
+                if (!mode.equals("ch") && !mode.equals("lm"))
+                    req.setAlgorithm(mode);
+                GHResponse rsp = hopper.route(req);
+                assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+                assertEquals(refPath.getDistance(), rsp.getBest().getDistance(), 1.e-3, mode);
+                assertEquals(refPath.getTime(), rsp.getBest().getTime(), 10, mode);
+                assertEquals(refPath.getPoints(), rsp.getBest().getPoints(), mode);
+            }
+        }
+    }
+
+    @Test
+    public void testRouteCache() {
+        final String profile = "car_profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest")).
+                setStoreOnFlush(true);
+        hopper.getRouterConfig().setRouteCacheSize(10);
+        hopper.importOrLoad();
+
+        GHResponse rsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile));
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        GHResponse cachedRsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile));
+        // every hit is a new response with the cached path
+        assertNotSame(rsp, cachedRsp);
+        assertSame(rsp.getBest(), cachedRsp.getBest());
+        assertEquals(0, cachedRsp.getHints().getInt("visited_nodes.sum", -1));
+        assertTrue(cachedRsp.getDebugInfo().contains("routeCache:hit"), cachedRsp.getDebugInfo());
+        cachedRsp.getAll().clear();
+        assertSame(rsp.getBest(), hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile)).getBest());
+
+        // other parameters lead to a new path
+        GHRequest req = new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile);
+        req.putHint("instructions", false);
+        GHResponse otherRsp = hopper.route(req);
+        assertNotSame(rsp.getBest(), otherRsp.getBest());
+        assertEquals(rsp.getBest().getDistance(), otherRsp.getBest().getDistance(), 1.e-3);
+        assertNotSame(rsp.getBest(), hopper.route(new GHRequest(43.727687, 7.418737, 43.74, 7.43).setProfile(profile)).getBest());
+        hopper.close();
+
+        // the cache is not kept when the graph is loaded again
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest"));
+        hopper.getRouterConfig().setRouteCacheSize(10);
+        hopper.importOrLoad();
+        GHResponse loadedRsp = hopper.route(new GHRequest(43.727687, 7.418737, 43.74958, 7.436566).setProfile(profile));
+        assertNotSame(rsp.getBest(), loadedRsp.getBest());
+        assertEquals(rsp.getBest().getDistance(), loadedRsp.getBest().getDistance(), 0.1);
+        hopper.close();
+    }
+
+    @Test
+    public void testRouteWithSnapCache() {
+        final String profile = "car_profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile(MONACO).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest")).
+                setStoreOnFlush(true);
+        hopper.getCHPreparationHandler().setCHProfiles(new CHProfile(profile));
+        hopper.importOrLoad();
+
+        List<GHPoint> points = asList(new GHPoint(43.727687, 7.418737), new GHPoint(43.74958, 7.436566), new GHPoint(43.739213, 7.427806));
+        List<GHRequest> requests = new ArrayList<>();
+        for (GHPoint from : points)
+            for (GHPoint to : points)
+                if (from != to)
+                    requests.add(new GHRequest(from, to).setProfile(profile));
+        // a request that changes the weighting does not use the cache
+        GHRequest blockAreaRequest = new GHRequest(points.get(0), points.get(1)).setProfile(profile);
+        blockAreaRequest.putHint(CH.DISABLE, true);
+        blockAreaRequest.putHint(Routing.BLOCK_AREA, "43.7392,7.4278,10");
+        requests.add(blockAreaRequest);
+
+        SnapCache snapCache = new SnapCache();
+        List<GHResponse> responses = requests.parallelStream().map(req -> hopper.route(req, snapCache)).collect(Collectors.toList());
+        assertEquals(points.size(), snapCache.size());
+        for (int i = 0; i < requests.size(); i++) {
+            GHResponse expected = hopper.route(requests.get(i));
+            assertFalse(responses.get(i).hasErrors(), responses.get(i).getErrors().toString());
+            assertEquals(expected.getBest().getDistance(), responses.get(i).getBest().getDistance(), 1.e-6);
+            assertEquals(expected.getBest().getPoints(), responses.get(i).getBest().getPoints());
+        }
+    }
+
+    @Test
+    public void testSpeedProfiles() throws IOException {
+        // way 10 is a road from 51.2492152,9.4317166 via 52,9 to 51.2,9.4
+        StringBuilder csv = new StringBuilder("# osm_way_id,speeds\n10");
+        for (int i = 0; i < SpeedProfileStorage.BUCKETS; i++) {
+            // 07:00 - 09:00
+            csv.append(',').append(i >= 28 && i < 36 ? 20 : 100);
+        }
+        new File(GH_LOCATION).mkdirs();
+        File speedProfilesFile = new File(GH_LOCATION, "speed_profiles.csv");
+        Files.write(speedProfilesFile.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+
+        final String profile = "car_profile";
+        GraphHopper hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setOSMFile("src/test/resources/com/graphhopper/reader/osm/test-osm.xml").
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest")).
+                setSpeedProfilesFile(speedProfilesFile.getPath()).
+                setSortGraph(true).
+                setMinNetworkSize(0).
+                setStoreOnFlush(true);
+        hopper.importOrLoad();
+
+        GHRequest req = new GHRequest(51.2492152, 9.4317166, 51.2, 9.4).setProfile(profile);
+        req.putHint(Routing.DEPARTURE_TIME, "03:00");
+        GHResponse night = hopper.route(req);
+        assertFalse(night.hasErrors(), night.getErrors().toString());
+        double distance = night.getBest().getDistance();
+        assertEquals(distance * 3600 / 100, night.getBest().getTime(), 10);
+
+        // the first edge is entered at rush hour, the second one 4.4 hours later
+        req.putHint(Routing.DEPARTURE_TIME, "2021-03-01T08:00");
+        GHResponse rushHour = hopper.route(req);
+        assertFalse(rushHour.hasErrors(), rushHour.getErrors().toString());
+        assertEquals(distance, rushHour.getBest().getDistance(), 1.e-6);
+        assertEquals(88643 * 3600 / 20 + 93147 * 3600 / 100, rushHour.getBest().getTime(), 100);
+
+        // the via point is reached at 07:23, so the second leg starts at rush hour
+        GHRequest viaReq = new GHRequest(asList(new GHPoint(51.2492152, 9.4317166), new GHPoint(52, 9), new GHPoint(51.2, 9.4))).
+                setProfile(profile);
+        viaReq.putHint(Routing.DEPARTURE_TIME, "06:30");
+        GHResponse via = hopper.route(viaReq);
+        assertFalse(via.hasErrors(), via.getErrors().toString());
+        assertEquals(88643 * 3600 / 100 + 93147 * 3600 / 20, via.getBest().getTime(), 100);
+
+        req.putHint(Routing.DEPARTURE_TIME, "8 am");
+        assertTrue(hopper.route(req).getErrors().get(0).getMessage().startsWith("Cannot parse departure time"));
+        hopper.close();
+
+        // the speed profiles are loaded together with the graph
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest")).
+                setSpeedProfilesFile(speedProfilesFile.getPath());
+        hopper.importOrLoad();
+        req.putHint(Routing.DEPARTURE_TIME, "08:00");
+        assertEquals(rushHour.getBest().getTime(), hopper.route(req).getBest().getTime());
+        hopper.close();
+
+        // without speed profiles the departure time cannot be used
+        hopper = new GraphHopper().
+                setGraphHopperLocation(GH_LOCATION).
+                setProfiles(new Profile(profile).setVehicle("car").setWeighting("fastest"));
+        hopper.importOrLoad();
+        assertTrue(hopper.route(req).getErrors().get(0).getMessage().contains("speed profiles"));
+        hopper.close();
+    }
+
     @Test
     public void testPreparedProfileNotAvailable() {
         final String profile1 = "fast_profile";
@@ -0,0 +1,94 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.coll;
+
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.RAMDirectory;
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DeltaEncodedLongIntMapTest {
+    @Test
+    public void testPutAndGet() {
+        DeltaEncodedLongIntMap map = new DeltaEncodedLongIntMap(new RAMDirectory(), "map", -1, 3);
+        assertEquals(-1, map.get(10));
+        assertEquals(-1, map.put(10, 1));
+        assertEquals(-1, map.put(5, 2));
+        assertEquals(1, map.put(10, 3));
+        assertEquals(-1, map.put(Long.MAX_VALUE, 4));
+        assertEquals(-1, map.put(-Long.MAX_VALUE, 5));
+        assertEquals(-1, map.put(7, 6));
+        assertEquals(5, map.getSize());
+
+        assertEquals(3, map.get(10));
+        assertEquals(2, map.get(5));
+        assertEquals(4, map.get(Long.MAX_VALUE));
+        assertEquals(5, map.get(-Long.MAX_VALUE));
+        assertEquals(6, map.get(7));
+        assertEquals(-1, map.get(6));
+        assertEquals(-1, map.get(Long.MIN_VALUE));
+
+        // update a value that is already stored in a run
+        assertEquals(4, map.put(Long.MAX_VALUE, 8));
+        assertEquals(8, map.get(Long.MAX_VALUE));
+        assertEquals(5, map.getSize());
+    }
+
+    @Test
+    public void testRandom() {
+        long seed = System.nanoTime();
+        Random rand = new Random(seed);
+        Directory dir = new RAMDirectory();
+        DeltaEncodedLongIntMap map = new DeltaEncodedLongIntMap(dir, "map", -1, 100);
+        Map<Long, Integer> reference = new HashMap<>();
+        for (int i = 0; i < 20_000; i++) {
+            // mostly dense ids like in OSM files, but some far away
+            long key = rand.nextInt(10) == 0 ? rand.nextLong() : rand.nextInt(50_000);
+            int value = rand.nextInt(1000);
+            Integer oldValue = reference.put(key, value);
+            assertEquals(oldValue == null ? -1 : oldValue, map.put(key, value), "seed: " + seed);
+        }
+        assertEquals(reference.size(), map.getSize());
+        // the runs are merged like a binary counter
+        assertTrue(map.getRuns() <= 10, "runs: " + map.getRuns());
+        checkContent(reference, map, rand, "seed: " + seed);
+
+        map.optimize();
+        assertEquals(1, map.getRuns());
+        checkContent(reference, map, rand, "seed: " + seed);
+
+        map.clear();
+        assertTrue(dir.getAll().isEmpty());
+    }
+
+    private void checkContent(Map<Long, Integer> reference, LongIntMap map, Random rand, String msg) {
+        for (Map.Entry<Long, Integer> entry : reference.entrySet()) {
+            assertEquals((int) entry.getValue(), map.get(entry.getKey()), msg);
+        }
+        for (int i = 0; i < 1000; i++) {
+            long key = rand.nextLong();
+            if (!reference.containsKey(key))
+                assertEquals(-1, map.get(key), msg);
+        }
+    }
+}
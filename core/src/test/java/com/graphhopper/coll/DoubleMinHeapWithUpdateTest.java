@@ -0,0 +1,116 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.coll;
+
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DoubleMinHeapWithUpdateTest implements BinaryHeapTestInterface {
+
+    private DoubleMinHeapWithUpdate heap;
+
+    @Override
+    public void create(int capacity) {
+        heap = new DoubleMinHeapWithUpdate(capacity);
+    }
+
+    @Override
+    public int size() {
+        return heap.size();
+    }
+
+    @Override
+    public boolean isEmpty() {
+        return heap.isEmpty();
+    }
+
+    @Override
+    public void push(int id, float val) {
+        heap.push(id, val);
+    }
+
+    @Override
+    public int peekId() {
+        return heap.peekId();
+    }
+
+    @Override
+    public float peekVal() {
+        return (float) heap.peekValue();
+    }
+
+    @Override
+    public void update(int id, float val) {
+        heap.update(id, val);
+    }
+
+    @Override
+    public int poll() {
+        return heap.poll();
+    }
+
+    @Override
+    public void clear() {
+        heap.clear();
+    }
+
+    @Test
+    public void outOfRange() {
+        assertThrows(IllegalArgumentException.class, () -> new DoubleMinHeapWithUpdate(4).push(4, 1.2));
+        assertThrows(IllegalArgumentException.class, () -> new DoubleMinHeapWithUpdate(4).push(-1, 1.2));
+    }
+
+    @Test
+    void ensureCapacity() {
+        create(2);
+        heap.push(1, 3.0);
+        heap.push(0, 2.0);
+        heap.ensureCapacity(5);
+        assertFalse(heap.contains(4));
+        heap.push(4, 1.0);
+        heap.push(2, 4.0);
+        heap.update(1, 0.5);
+        assertEquals(1, heap.poll());
+        assertEquals(4, heap.poll());
+        assertEquals(0, heap.poll());
+        assertEquals(2, heap.poll());
+        assertTrue(heap.isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> heap.push(5, 1.2));
+    }
+
+    @Test
+    void valuesThatAreEqualAsFloat() {
+        // these values cannot be distinguished with float precision
+        double base = 1_000_000;
+        assertEquals((float) base, (float) (base + 0.01));
+        create(4);
+        heap.push(0, base + 0.03);
+        heap.push(1, base + 0.01);
+        heap.push(2, base + 0.02);
+        heap.push(3, base + 0.04);
+        heap.update(3, base);
+        assertEquals(base, heap.peekValue());
+        assertEquals(3, heap.poll());
+        assertEquals(1, heap.poll());
+        assertEquals(2, heap.poll());
+        assertEquals(0, heap.poll());
+        assertTrue(heap.isEmpty());
+    }
+}
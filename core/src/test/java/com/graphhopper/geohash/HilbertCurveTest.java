@@ -0,0 +1,75 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.geohash;
+
+import com.graphhopper.util.shapes.BBox;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class HilbertCurveTest {
+    @Test
+    public void testFirstOrder() {
+        HilbertCurve curve = new HilbertCurve(1, new BBox(0, 2, 0, 2));
+        // x is the longitude and y is the latitude
+        assertEquals(0, curve.encodeCell(0, 0));
+        assertEquals(1, curve.encodeCell(0, 1));
+        assertEquals(2, curve.encodeCell(1, 1));
+        assertEquals(3, curve.encodeCell(1, 0));
+
+        assertEquals(0, curve.encode(0.5, 0.5));
+        assertEquals(1, curve.encode(1.5, 0.5));
+        assertEquals(2, curve.encode(1.5, 1.5));
+        assertEquals(3, curve.encode(0.5, 1.5));
+    }
+
+    @Test
+    public void testConsecutiveCellsAreAdjacent() {
+        int bits = 5;
+        int cells = 1 << bits;
+        HilbertCurve curve = new HilbertCurve(bits, new BBox(0, 1, 0, 1));
+        int[] xs = new int[cells * cells];
+        int[] ys = new int[cells * cells];
+        boolean[] used = new boolean[cells * cells];
+        for (int x = 0; x < cells; x++) {
+            for (int y = 0; y < cells; y++) {
+                int key = (int) curve.encodeCell(x, y);
+                assertFalse(used[key], "key " + key + " used twice");
+                used[key] = true;
+                xs[key] = x;
+                ys[key] = y;
+            }
+        }
+        for (int key = 1; key < cells * cells; key++) {
+            assertEquals(1, Math.abs(xs[key] - xs[key - 1]) + Math.abs(ys[key] - ys[key - 1]), "key " + key);
+        }
+    }
+
+    @Test
+    public void testOutsideOfBounds() {
+        HilbertCurve curve = new HilbertCurve(31, new BBox(-180, 180, -90, 90));
+        assertEquals(curve.encode(-90, -180), curve.encode(-91, -181));
+        assertEquals(curve.encode(90, 180), curve.encode(91, 181));
+        assertTrue(curve.encode(90, 180) < 1L << 62);
+
+        // all points are mapped to the same key if the bounds are empty
+        curve = new HilbertCurve(16, new BBox(1, 1, 2, 2));
+        assertEquals(0, curve.encode(2, 1));
+        assertThrows(IllegalArgumentException.class, () -> new HilbertCurve(32, new BBox(1, 1, 2, 2)));
+    }
+}
@@ -0,0 +1,185 @@
+package com.graphhopper.isochrone.algorithm;
+
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.TurnCostProvider;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ArrayShortestPathTreeTest {
+
+    private final EncodingManager encodingManager = EncodingManager.create("car");
+    private final FlagEncoder carEncoder = encodingManager.getEncoder("car");
+    private GraphHopperStorage graph;
+
+    @BeforeEach
+    public void setUp() {
+        graph = new GraphHopperStorage(new RAMDirectory(), encodingManager, false);
+        graph.create(1000);
+
+        //         8
+        //        /
+        // 0-1-2-3
+        // |/|/ /|
+        // 4-5-- |
+        // |/ \--7
+        // 6----/
+        GHUtility.setSpeed(10, true, false, carEncoder, ((Graph) graph).edge(0, 1).setDistance(70));
+        GHUtility.setSpeed(20, true, false, carEncoder, ((Graph) graph).edge(0, 4).setDistance(50));
+
+        GHUtility.setSpeed(10, true, true, carEncoder, ((Graph) graph).edge(1, 4).setDistance(70));
+        GHUtility.setSpeed(10, true, true, carEncoder, ((Graph) graph).edge(1, 5).setDistance(70));
+        GHUtility.setSpeed(10, true, true, carEncoder, ((Graph) graph).edge(1, 2).setDistance(200));
+
+        GHUtility.setSpeed(10, true, false, carEncoder, ((Graph) graph).edge(5, 2).setDistance(50));
+        GHUtility.setSpeed(10, true, false, carEncoder, ((Graph) graph).edge(2, 3).setDistance(50));
+
+        GHUtility.setSpeed(20, true, false, carEncoder, ((Graph) graph).edge(5, 3).setDistance(110));
+        GHUtility.setSpeed(10, true, false, carEncoder, ((Graph) graph).edge(3, 7).setDistance(70));
+
+        GHUtility.setSpeed(20, true, false, carEncoder, ((Graph) graph).edge(4, 6).setDistance(50));
+        GHUtility.setSpeed(10, true, false, carEncoder, ((Graph) graph).edge(5, 4).setDistance(70));
+
+        GHUtility.setSpeed(10, true, false, carEncoder, ((Graph) graph).edge(5, 6).setDistance(70));
+        GHUtility.setSpeed(20, true, false, carEncoder, ((Graph) graph).edge(7, 5).setDistance(50));
+
+        GHUtility.setSpeed(20, true, true, carEncoder, ((Graph) graph).edge(6, 7).setDistance(50));
+        GHUtility.setSpeed(20, true, true, carEncoder, ((Graph) graph).edge(3, 8).setDistance(25));
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.close();
+    }
+
+    private static String toString(int node, int edge, long time, double distance, String parent) {
+        return node + ":" + edge + ", time: " + time + ", distance: " + distance + ", parent: " + parent;
+    }
+
+    private List<String> searchWithShortestPathTree(Weighting weighting, TraversalMode traversalMode, boolean distanceLimit, double limit, int from) {
+        ShortestPathTree tree = new ShortestPathTree(graph, weighting, false, traversalMode);
+        if (distanceLimit)
+            tree.setDistanceLimit(limit);
+        else
+            tree.setTimeLimit(limit);
+        List<String> result = new ArrayList<>();
+        tree.search(from, l -> result.add(toString(l.node, l.edge, l.time, l.distance, l.parent == null ? "" : l.parent.node + ":" + l.parent.edge)));
+        return result;
+    }
+
+    private List<String> searchWithArrayShortestPathTree(Weighting weighting, TraversalMode traversalMode, boolean distanceLimit, double limit, int from) {
+        ArrayShortestPathTree tree = new ArrayShortestPathTree(graph, weighting, false, traversalMode);
+        if (distanceLimit)
+            tree.setDistanceLimit(limit);
+        else
+            tree.setTimeLimit(limit);
+        List<String> result = new ArrayList<>();
+        ArrayShortestPathTree.Cursor cursor = tree.search(from);
+        double prevWeight = 0;
+        while (cursor.next()) {
+            assertTrue(cursor.getWeight() >= prevWeight, "labels must be settled in the order of their weight");
+            prevWeight = cursor.getWeight();
+            result.add(toString(cursor.getNode(), cursor.getEdge(), cursor.getTime(), cursor.getDistance(),
+                    cursor.hasParent() ? cursor.getParentNode() + ":" + cursor.getParentEdge() : ""));
+        }
+        assertFalse(cursor.next());
+        assertEquals(result.size(), tree.getVisitedNodes());
+        return result;
+    }
+
+    private void assertSameTree(Weighting weighting, TraversalMode traversalMode, boolean distanceLimit, double limit, int from) {
+        List<String> expected = searchWithShortestPathTree(weighting, traversalMode, distanceLimit, limit, from);
+        List<String> actual = searchWithArrayShortestPathTree(weighting, traversalMode, distanceLimit, limit, from);
+        // labels with the same weight can be settled in a different order
+        expected.sort(String::compareTo);
+        actual.sort(String::compareTo);
+        assertEquals(expected, actual);
+    }
+
+    @Test
+    public void testTimeLimit() {
+        FastestWeighting weighting = new FastestWeighting(carEncoder, new PMap());
+        List<String> result = searchWithArrayShortestPathTree(weighting, TraversalMode.NODE_BASED, false, 25_000, 0);
+        assertEquals(3, result.size());
+        assertEquals(toString(0, -1, 0, 0, ""), result.get(0));
+        assertEquals(toString(4, 1, 9000, 50, "0:-1"), result.get(1));
+        assertEquals(toString(6, 9, 18000, 100, "4:1"), result.get(2));
+        for (double limit : new double[]{25_000, 26_000, 60_000, Double.MAX_VALUE}) {
+            assertSameTree(weighting, TraversalMode.NODE_BASED, false, limit, 0);
+        }
+    }
+
+    @Test
+    public void testDistanceLimit() {
+        FastestWeighting weighting = new FastestWeighting(carEncoder, new PMap());
+        assertEquals(6, searchWithArrayShortestPathTree(weighting, TraversalMode.NODE_BASED, true, 110, 5).size());
+        assertSameTree(weighting, TraversalMode.NODE_BASED, true, 110, 5);
+    }
+
+    @Test
+    public void testEdgeBased() {
+        for (TurnCostProvider turnCostProvider : new TurnCostProvider[]{TurnCostProvider.NO_TURN_COST_PROVIDER,
+                ShortestPathTreeTest.FORBIDDEN_UTURNS, new TimeBasedUTurnCost(80_000), new TimeBasedUTurnCost(20_000)}) {
+            FastestWeighting weighting = new FastestWeighting(carEncoder, new PMap(), turnCostProvider);
+            assertSameTree(weighting, TraversalMode.EDGE_BASED, false, Double.MAX_VALUE, 0);
+            assertSameTree(weighting, TraversalMode.EDGE_BASED, false, 50_000, 0);
+        }
+    }
+
+    @Test
+    public void testMoreLabelsThanInitialCapacity() {
+        graph.close();
+        graph = new GraphHopperStorage(new RAMDirectory(), encodingManager, false).create(1000);
+        GHUtility.buildRandomGraph(graph, new Random(42), 3000, 2.2, true, true,
+                carEncoder.getAccessEnc(), carEncoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+        FastestWeighting weighting = new FastestWeighting(carEncoder, new PMap());
+        assertTrue(searchWithArrayShortestPathTree(weighting, TraversalMode.EDGE_BASED, false, Double.MAX_VALUE, 0).size() > 1000);
+        assertSameTree(weighting, TraversalMode.NODE_BASED, false, Double.MAX_VALUE, 0);
+        assertSameTree(weighting, TraversalMode.EDGE_BASED, false, Double.MAX_VALUE, 0);
+    }
+
+    @Test
+    public void testSearchOnlyOnce() {
+        ArrayShortestPathTree tree = new ArrayShortestPathTree(graph, new FastestWeighting(carEncoder, new PMap()), false, TraversalMode.NODE_BASED);
+        tree.setTimeLimit(10_000);
+        ArrayShortestPathTree.Cursor cursor = tree.search(0);
+        assertTrue(cursor.next());
+        assertFalse(cursor.hasParent());
+        assertThrows(IllegalStateException.class, cursor::getParentNode);
+        assertThrows(IllegalStateException.class, () -> tree.search(0));
+    }
+
+    private static class TimeBasedUTurnCost implements TurnCostProvider {
+
+        private final int turnMillis;
+
+        public TimeBasedUTurnCost(int turnMillis) {
+            this.turnMillis = turnMillis;
+        }
+
+        @Override
+        public double calcTurnWeight(int inEdge, int viaNode, int outEdge) {
+            return calcTurnMillis(inEdge, viaNode, outEdge) / 1000.0;
+        }
+
+        @Override
+        public long calcTurnMillis(int inEdge, int viaNode, int outEdge) {
+            return inEdge == outEdge ? turnMillis : 0;
+        }
+    }
+}
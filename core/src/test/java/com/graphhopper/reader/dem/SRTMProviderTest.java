@@ -22,9 +22,15 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Disabled;
 import org.junit.jupiter.api.Test;
 
+import java.io.File;
 import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
 
-import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.*;
 
 /**
  * @author Peter Karich
@@ -99,6 +105,46 @@ public class SRTMProviderTest {
         assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
     }
 
+    @Test
+    public void testMaxCachedTiles() {
+        instance = new SRTMProvider("./files/");
+        instance.setMaxCachedTiles(1);
+        // every call needs a different tile than the previous one, so the closed tile has to be loaded again
+        for (int i = 0; i < 2; i++) {
+            assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+            assertEquals(1678, instance.getEle(-28.88316, -71.070557), 1e-1);
+            assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
+        }
+        assertEquals(1, instance.getDirectory().getAll().size());
+        instance.release();
+        assertFalse(new File("./files/dem139191").exists());
+        assertFalse(new File("./files/dem61108").exists());
+        assertThrows(IllegalArgumentException.class, () -> instance.setMaxCachedTiles(0));
+    }
+
+    @Test
+    public void testConcurrentLookups() throws Exception {
+        instance = new SRTMProvider("./files/");
+        instance.setMaxCachedTiles(1);
+        ExecutorService pool = Executors.newFixedThreadPool(4);
+        try {
+            List<Future<Object>> futures = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                futures.add(pool.submit(() -> {
+                    for (int j = 0; j < 100; j++) {
+                        assertEquals(466, instance.getEle(49.968651, 11.574869), 1e-1);
+                        assertEquals(161, instance.getEle(55.8943144, -3), 1e-1);
+                    }
+                    return null;
+                }));
+            }
+            for (Future<Object> future : futures)
+                future.get();
+        } finally {
+            pool.shutdownNow();
+        }
+    }
+
     @Disabled
     @Test
     public void testGetEle() {
@@ -23,6 +23,7 @@ import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.GraphHopperTest;
 import com.graphhopper.config.Profile;
+import com.graphhopper.reader.ReaderNode;
 import com.graphhopper.reader.ReaderRelation;
 import com.graphhopper.reader.ReaderWay;
 import com.graphhopper.reader.dem.ElevationProvider;
@@ -43,7 +44,11 @@ import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
 import java.io.File;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
 import java.util.*;
+import java.util.concurrent.atomic.AtomicInteger;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -445,6 +450,152 @@ public class OSMReaderTest {
         assertFalse(iter.next());
     }
 
+    @Test
+    public void testTagParserThreads() throws IOException {
+        GraphHopperStorage expected = readAndorra(1, false);
+        GraphHopperStorage actual = readAndorra(4, false);
+        assertSameGraph(expected, actual);
+        assertThrows(IllegalArgumentException.class, () -> new OSMReader(actual).setTagParserThreads(0));
+    }
+
+    @Test
+    public void testTagParserThreadsWithOverriddenProcessWay() throws IOException {
+        GraphHopperStorage expected = readAndorra(1, false);
+        GraphHopperStorage actual = createAndorraStorage();
+        AtomicInteger processedWays = new AtomicInteger();
+        // the overridden hook must be called for every way, even if more tag parser threads are requested
+        new OSMReader(actual) {
+            @Override
+            protected void processWay(ReaderWay way) {
+                processedWays.incrementAndGet();
+                super.processWay(way);
+            }
+
+            @Override
+            protected boolean isParallelWayParsingSupported() {
+                return false;
+            }
+        }.setFile(new File("./files/andorra.osm.pbf")).setTagParserThreads(4).readGraph();
+        assertSameGraph(expected, actual);
+        assertTrue(processedWays.get() > 1000, "processed ways: " + processedWays.get());
+    }
+
+    @Test
+    public void testDeltaEncodedNodeMap() throws IOException {
+        GraphHopperStorage expected = readAndorra(1, false);
+        GraphHopperStorage actual = readAndorra(1, true);
+        assertSameGraph(expected, actual);
+        // the temporary DataAccess objects of the map were removed
+        for (DataAccess da : actual.getDirectory().getAll()) {
+            assertFalse(da.getName().startsWith("tmp_osm_node_map"), da.getName());
+        }
+    }
+
+    @Test
+    public void testElevationThreads() throws IOException {
+        GraphHopperStorage expected = readMonacoWithElevation(1);
+        GraphHopperStorage actual = readMonacoWithElevation(4);
+        assertSameGraph(expected, actual);
+        for (int node = 0; node < expected.getNodes(); node++) {
+            assertEquals(expected.getNodeAccess().getEle(node), actual.getNodeAccess().getEle(node), "node " + node);
+        }
+        assertThrows(IllegalArgumentException.class, () -> new OSMReader(actual).setElevationThreads(0));
+    }
+
+    @Test
+    public void testElevationThreadsWithOverriddenProcessNode() throws IOException {
+        GraphHopperStorage expected = readMonacoWithElevation(1);
+        GraphHopperStorage actual = new GraphHopperStorage(new RAMDirectory(), EncodingManager.create("car"), true);
+        AtomicInteger processedNodes = new AtomicInteger();
+        // the overridden hook must be called for every node, even if more elevation threads are requested
+        new OSMReader(actual) {
+            @Override
+            protected void processNode(ReaderNode node) {
+                processedNodes.incrementAndGet();
+                super.processNode(node);
+            }
+
+            @Override
+            protected boolean isParallelElevationLookupSupported() {
+                return false;
+            }
+        }.setFile(new File(GraphHopperTest.DIR + "/monaco.osm.gz"))
+                .setElevationProvider(new SRTMProvider(GraphHopperTest.DIR))
+                .setElevationThreads(4).readGraph();
+        assertSameGraph(expected, actual);
+        assertTrue(processedNodes.get() >= actual.getNodes(), "processed nodes: " + processedNodes.get());
+    }
+
+    @Test
+    public void testSpeedProfiles() throws IOException {
+        StringBuilder csv = new StringBuilder("10");
+        for (int i = 0; i < SpeedProfileStorage.BUCKETS; i++) {
+            csv.append(",30");
+        }
+        File speedProfilesFile = new File(dir, "speed_profiles.csv");
+        Files.write(speedProfilesFile.toPath(), csv.toString().getBytes(StandardCharsets.UTF_8));
+        GraphHopperStorage ghStorage = new GraphHopperStorage(new RAMDirectory(), EncodingManager.create("car"), false)
+                .setSpeedProfiles(true);
+        new OSMReader(ghStorage).setFile(new File(getClass().getResource(file1).getFile()))
+                .setSpeedProfilesFile(speedProfilesFile).readGraph();
+
+        SpeedProfileStorage speedProfiles = ghStorage.getSpeedProfileStorage();
+        assertEquals(1, speedProfiles.getProfileCount());
+        AllEdgesIterator iter = ghStorage.getAllEdges();
+        int edgesWithProfile = 0;
+        while (iter.next()) {
+            if (iter.getName().equals("route 666")) {
+                assertEquals(30, speedProfiles.getEdgeSpeed(iter.getEdge(), 0));
+                edgesWithProfile++;
+            } else {
+                assertEquals(0, speedProfiles.getEdgeProfile(iter.getEdge()), iter.getName());
+            }
+        }
+        assertEquals(2, edgesWithProfile);
+
+        GraphHopperStorage withoutProfiles = new GraphHopperStorage(new RAMDirectory(), EncodingManager.create("car"), false);
+        assertThrows(IllegalStateException.class, () -> new OSMReader(withoutProfiles).setSpeedProfilesFile(speedProfilesFile));
+    }
+
+    private GraphHopperStorage readMonacoWithElevation(int elevationThreads) throws IOException {
+        GraphHopperStorage ghStorage = new GraphHopperStorage(new RAMDirectory(), EncodingManager.create("car"), true);
+        new OSMReader(ghStorage).setFile(new File(GraphHopperTest.DIR + "/monaco.osm.gz"))
+                .setElevationProvider(new SRTMProvider(GraphHopperTest.DIR))
+                .setElevationThreads(elevationThreads).readGraph();
+        return ghStorage;
+    }
+
+    private void assertSameGraph(GraphHopperStorage expected, GraphHopperStorage actual) {
+        assertEquals(expected.getNodes(), actual.getNodes());
+        assertEquals(expected.getEdges(), actual.getEdges());
+        AllEdgesIterator expectedIter = expected.getAllEdges();
+        AllEdgesIterator actualIter = actual.getAllEdges();
+        while (expectedIter.next()) {
+            assertTrue(actualIter.next());
+            String msg = "edge " + expectedIter.getEdge();
+            assertEquals(expectedIter.getBaseNode(), actualIter.getBaseNode(), msg);
+            assertEquals(expectedIter.getAdjNode(), actualIter.getAdjNode(), msg);
+            assertEquals(expectedIter.getDistance(), actualIter.getDistance(), 1.e-6, msg);
+            assertEquals(expectedIter.getFlags(), actualIter.getFlags(), msg);
+            assertEquals(expectedIter.getName(), actualIter.getName(), msg);
+            assertEquals(expectedIter.fetchWayGeometry(FetchMode.ALL), actualIter.fetchWayGeometry(FetchMode.ALL), msg);
+        }
+        assertFalse(actualIter.next());
+    }
+
+    private GraphHopperStorage createAndorraStorage() {
+        EncodingManager manager = new EncodingManager.Builder().add(new CarFlagEncoder(5, 5, 1)).add(new FootFlagEncoder())
+                .add(new BikeFlagEncoder()).add(new OSMMaxWeightParser()).build();
+        return new GraphHopperStorage(new RAMDirectory(), manager, false, true);
+    }
+
+    private GraphHopperStorage readAndorra(int tagParserThreads, boolean deltaEncodedNodeMap) throws IOException {
+        GraphHopperStorage ghStorage = createAndorraStorage();
+        new OSMReader(ghStorage).setFile(new File("./files/andorra.osm.pbf")).setTagParserThreads(tagParserThreads)
+                .setDeltaEncodedNodeMap(deltaEncodedNodeMap).readGraph();
+        return ghStorage;
+    }
+
     @Test
     public void testRelation() {
         EncodingManager manager = EncodingManager.create("bike");
@@ -0,0 +1,70 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.reader.osm;
+
+import com.carrotsearch.hppc.LongIntHashMap;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.SpeedProfileStorage;
+import org.junit.jupiter.api.Test;
+
+import java.io.IOException;
+import java.io.StringReader;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpeedProfileReaderTest {
+
+    private static String createLine(long wayId, int speed, int rushHourSpeed) {
+        StringBuilder sb = new StringBuilder().append(wayId);
+        for (int i = 0; i < SpeedProfileStorage.BUCKETS; i++) {
+            sb.append(',').append(i >= 28 && i < 36 ? rushHourSpeed : speed);
+        }
+        return sb.toString();
+    }
+
+    @Test
+    public void testRead() throws IOException {
+        SpeedProfileStorage storage = new SpeedProfileStorage(new RAMDirectory()).create(100);
+        String csv = "# osm_way_id,speeds\n"
+                + createLine(10, 50, 20) + "\n"
+                + "\n"
+                + createLine(11, 80, 0) + "\n"
+                + " " + createLine(12, 50, 20) + " \n";
+        LongIntHashMap wayProfiles = new SpeedProfileReader(storage).read(new StringReader(csv));
+        assertEquals(3, wayProfiles.size());
+        assertEquals(2, storage.getProfileCount());
+        int profile = wayProfiles.get(10);
+        assertEquals(profile, wayProfiles.get(12));
+        assertEquals(50, storage.getSpeed(profile, 0));
+        assertEquals(20, storage.getSpeed(profile, 30));
+        assertEquals(0, storage.getSpeed(wayProfiles.get(11), 30));
+        assertFalse(wayProfiles.containsKey(13));
+    }
+
+    @Test
+    public void testInvalidLines() {
+        SpeedProfileStorage storage = new SpeedProfileStorage(new RAMDirectory()).create(100);
+        SpeedProfileReader reader = new SpeedProfileReader(storage);
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class,
+                () -> reader.read(new StringReader(createLine(10, 50, 20) + "\n10,50,50")));
+        assertTrue(ex.getMessage().startsWith("Line 2 needs"), ex.getMessage());
+        ex = assertThrows(IllegalArgumentException.class, () -> reader.read(new StringReader(createLine(10, 50, 300))));
+        assertTrue(ex.getMessage().startsWith("Invalid speed profile in line 1"), ex.getMessage());
+        assertThrows(IllegalArgumentException.class, () -> reader.read(new StringReader(createLine(10, 50, 20).replace("10,", "way,"))));
+    }
+}
@@ -175,6 +175,60 @@ public class DijkstraOneToManyTest {
         assertEquals(IntArrayList.from(0, 1, 2), p.calcNodes());
     }
 
+    @Test
+    public void testUseCacheForSourceNode() {
+        GraphHopperStorage graph = createGHStorage();
+        initTestStorage(graph, encoder);
+        DijkstraOneToMany algo = createAlgo(graph);
+        assertTrue(algo.calcPath(0, 7).isFound());
+        Path p = algo.calcPath(0, 0);
+        assertTrue(p.isFound());
+        assertEquals(0, p.getWeight(), 1.e-6);
+        assertEquals(IntArrayList.from(0), p.calcNodes());
+    }
+
+    @Test
+    public void testReuseArrays() {
+        GraphHopperStorage graph = createGHStorage();
+        initTestStorage(graph, encoder);
+        DijkstraOneToManyPool pool = new DijkstraOneToManyPool(1);
+        DijkstraOneToMany algo = pool.acquire(graph, defaultWeighting);
+        assertEquals(IntArrayList.from(0, 4, 5, 7), algo.calcPath(0, 7).calcNodes());
+        pool.release(algo);
+        pool.release(createAlgo(graph));
+        assertEquals(1, pool.getIdle());
+
+        // the arrays still contain the search from node 0, but the results must be the same as for a new instance
+        DijkstraOneToMany reused = pool.acquire(graph, defaultWeighting);
+        assertEquals(0, pool.getIdle());
+        for (int from = 0; from < graph.getNodes(); from++) {
+            reused.clear();
+            DijkstraOneToMany fresh = createAlgo(graph);
+            for (int to = 0; to < graph.getNodes(); to++) {
+                Path expected = fresh.calcPath(from, to);
+                Path actual = reused.calcPath(from, to);
+                assertEquals(expected.isFound(), actual.isFound(), from + "->" + to);
+                assertEquals(expected.getWeight(), actual.getWeight(), 1.e-6, from + "->" + to);
+                assertEquals(expected.calcNodes(), actual.calcNodes(), from + "->" + to);
+            }
+        }
+    }
+
+    @Test
+    public void testWeightTimeAndDistanceWithoutPath() {
+        GraphHopperStorage graph = createGHStorage();
+        initTestStorage(graph, encoder);
+        DijkstraOneToMany algo = createAlgo(graph);
+        for (int to = 0; to < graph.getNodes(); to++) {
+            Path expected = createAlgo(graph).calcPath(0, to);
+            int node = algo.findEndNode(0, to);
+            assertEquals(to, node);
+            assertEquals(expected.getWeight(), algo.getWeight(node), 1.e-6, "0->" + to);
+            assertEquals(expected.getTime(), algo.getTime(node), "0->" + to);
+            assertEquals(expected.getDistance(), algo.getDistance(node), 1.e-6, "0->" + to);
+        }
+    }
+
     private GraphHopperStorage createGHStorage() {
         return new GraphBuilder(encodingManager).create();
     }
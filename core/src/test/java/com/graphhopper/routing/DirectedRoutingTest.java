@@ -82,6 +82,7 @@ public class DirectedRoutingTest {
         private final int maxTurnCosts;
         private final Weighting weighting;
         private final EncodingManager encodingManager;
+        private final SearchWorkspacePool workspacePool = new SearchWorkspacePool(1);
         private RoutingCHGraph routingCHGraph;
         private PrepareLandmarks lm;
 
@@ -150,6 +151,8 @@ public class DirectedRoutingTest {
                             : new CHRoutingAlgorithmFactory(routingCHGraph);
                     return algoFactory.createAlgo(new PMap().putObject(ALGORITHM, ASTAR_BI));
                 }
+                case WORKSPACE_ASTAR:
+                    return new AStarBidirectionWorkspace(graph, graph.wrapWeighting(weighting), TraversalMode.EDGE_BASED, workspacePool);
                 case LM:
                     return (BidirRoutingAlgorithm) lm.getRoutingAlgorithmFactory().createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR_BI).setTraversalMode(TraversalMode.EDGE_BASED));
                 default:
@@ -169,11 +172,13 @@ public class DirectedRoutingTest {
                     new Fixture(Algo.ASTAR, INFINITE_U_TURN_COSTS, false, false),
                     new Fixture(Algo.CH_ASTAR, INFINITE_U_TURN_COSTS, true, false),
                     new Fixture(Algo.CH_DIJKSTRA, INFINITE_U_TURN_COSTS, true, false),
+                    new Fixture(Algo.WORKSPACE_ASTAR, INFINITE_U_TURN_COSTS, false, false),
                     // todo: LM+directed still fails sometimes, #1971,
 //                  new Fixture(Algo.LM, INFINITE_U_TURN_COSTS, false, true),
                     new Fixture(Algo.ASTAR, 40, false, false),
                     new Fixture(Algo.CH_ASTAR, 40, true, false),
-                    new Fixture(Algo.CH_DIJKSTRA, 40, true, false)
+                    new Fixture(Algo.CH_DIJKSTRA, 40, true, false),
+                    new Fixture(Algo.WORKSPACE_ASTAR, 40, false, false)
                     // todo: LM+directed still fails sometimes, #1971,
 //                  new Fixture(Algo.LM, 40, false, true),
             ).map(Arguments::of);
@@ -191,7 +196,8 @@ public class DirectedRoutingTest {
         ASTAR,
         CH_ASTAR,
         CH_DIJKSTRA,
-        LM
+        LM,
+        WORKSPACE_ASTAR
     }
 
     @ParameterizedTest
@@ -87,7 +87,14 @@ public class RandomizedRoutingTest {
                     () -> new Fixture(Algo.CH_DIJKSTRA, true, false, EDGE_BASED),
                     () -> new Fixture(Algo.LM_UNIDIR, false, true, EDGE_BASED),
                     () -> new Fixture(Algo.LM_BIDIR, false, true, EDGE_BASED),
-                    () -> new Fixture(Algo.PERFECT_ASTAR, false, false, NODE_BASED)
+                    () -> new Fixture(Algo.PERFECT_ASTAR, false, false, NODE_BASED),
+                    () -> new Fixture(Algo.WORKSPACE_DIJKSTRA, false, false, NODE_BASED),
+                    () -> new Fixture(Algo.WORKSPACE_ASTAR, false, false, NODE_BASED),
+                    () -> new Fixture(Algo.WORKSPACE_CH_DIJKSTRA, true, false, NODE_BASED),
+                    () -> new Fixture(Algo.WORKSPACE_LM, false, true, NODE_BASED),
+                    () -> new Fixture(Algo.WORKSPACE_DIJKSTRA, false, false, EDGE_BASED),
+                    () -> new Fixture(Algo.WORKSPACE_ASTAR, false, false, EDGE_BASED),
+                    () -> new Fixture(Algo.WORKSPACE_LM, false, true, EDGE_BASED)
             ).map(Arguments::of);
         }
     }
@@ -106,6 +113,8 @@ public class RandomizedRoutingTest {
         private final int maxTurnCosts;
         private final Weighting weighting;
         private final EncodingManager encodingManager;
+        // the same workspace is used for all queries of a fixture
+        private final SearchWorkspacePool workspacePool = new SearchWorkspacePool(1);
         private RoutingCHGraph routingCHGraph;
         private PrepareLandmarks lm;
 
@@ -185,6 +194,19 @@ public class RandomizedRoutingTest {
                     perfectAStarBi.setApproximation(new PerfectApproximator(graph, weighting, traversalMode, false));
                     return perfectAStarBi;
                 }
+                case WORKSPACE_DIJKSTRA:
+                    return new DijkstraBidirectionWorkspace(graph, graph.wrapWeighting(weighting), traversalMode, workspacePool);
+                case WORKSPACE_ASTAR:
+                    return new AStarBidirectionWorkspace(graph, graph.wrapWeighting(weighting), traversalMode, workspacePool);
+                case WORKSPACE_CH_DIJKSTRA: {
+                    CHRoutingAlgorithmFactory algoFactory = graph instanceof QueryGraph
+                            ? new CHRoutingAlgorithmFactory(routingCHGraph, (QueryGraph) graph, workspacePool)
+                            : new CHRoutingAlgorithmFactory(routingCHGraph, workspacePool);
+                    return algoFactory.createAlgo(new PMap().putObject(ALGORITHM, DIJKSTRA_BI));
+                }
+                case WORKSPACE_LM:
+                    return lm.getRoutingAlgorithmFactory().setSearchWorkspacePool(workspacePool)
+                            .createAlgo(graph, weighting, new AlgorithmOptions().setAlgorithm(ASTAR_BI).setTraversalMode(traversalMode));
                 default:
                     throw new IllegalArgumentException("unknown algo " + algo);
             }
@@ -280,7 +302,11 @@ public class RandomizedRoutingTest {
         CH_DIJKSTRA,
         LM_BIDIR,
         LM_UNIDIR,
-        PERFECT_ASTAR
+        PERFECT_ASTAR,
+        WORKSPACE_DIJKSTRA,
+        WORKSPACE_ASTAR,
+        WORKSPACE_CH_DIJKSTRA,
+        WORKSPACE_LM
     }
 
     private static class RepeatedFixtureProvider implements ArgumentsProvider {
@@ -0,0 +1,109 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class RouteCacheTest {
+
+    @Test
+    public void testLeastRecentlyUsedIsRemoved() {
+        RouteCache cache = new RouteCache(2, 1000);
+        ResponsePath a = new ResponsePath(), b = new ResponsePath(), c = new ResponsePath();
+        cache.put("a", createResponse(a));
+        cache.put("b", createResponse(b));
+        assertSame(a, cache.get("a").getBest());
+        // b is the least recently used entry now
+        cache.put("c", createResponse(c));
+        assertEquals(2, cache.size());
+        assertNull(cache.get("b"));
+        assertSame(a, cache.get("a").getBest());
+        assertSame(c, cache.get("c").getBest());
+        assertEquals(3, cache.getHits());
+        assertEquals(1, cache.getMisses());
+
+        cache.clear();
+        assertEquals(0, cache.size());
+        assertNull(cache.get("a"));
+    }
+
+    @Test
+    public void testExpiry() {
+        AtomicLong time = new AtomicLong();
+        RouteCache cache = new RouteCache(10, 100, time::get);
+        ResponsePath path = new ResponsePath();
+        cache.put("a", createResponse(path));
+        time.set(99);
+        assertSame(path, cache.get("a").getBest());
+        time.set(100);
+        assertNull(cache.get("a"));
+        assertEquals(0, cache.size());
+
+        // putting a response again restarts its time
+        cache.put("a", createResponse(path));
+        time.set(150);
+        assertSame(path, cache.get("a").getBest());
+    }
+
+    @Test
+    public void testChangedResponsesDoNotChangeTheCache() {
+        RouteCache cache = new RouteCache(10, 1000);
+        ResponsePath path = new ResponsePath();
+        GHResponse rsp = createResponse(path);
+        rsp.addDebugInfo("idLookup:1s");
+        cache.put("a", rsp);
+        // changing the response after it was cached
+        rsp.add(new ResponsePath());
+        rsp.getHints().putObject("visited_nodes.sum", 5);
+
+        GHResponse hit = cache.get("a");
+        assertNotSame(rsp, hit);
+        assertEquals(1, hit.getAll().size());
+        assertEquals(10, hit.getHints().getInt("visited_nodes.sum", -1));
+        // the debug information belongs to the request that created the response
+        assertEquals("", hit.getDebugInfo());
+        // changing a hit
+        hit.add(new ResponsePath());
+        hit.getHints().putObject("visited_nodes.sum", 7);
+
+        GHResponse nextHit = cache.get("a");
+        assertNotSame(hit, nextHit);
+        assertEquals(1, nextHit.getAll().size());
+        assertSame(path, nextHit.getBest());
+        assertEquals(10, nextHit.getHints().getInt("visited_nodes.sum", -1));
+    }
+
+    private static GHResponse createResponse(ResponsePath path) {
+        GHResponse rsp = new GHResponse();
+        rsp.add(path);
+        rsp.getHints().putObject("visited_nodes.sum", 10);
+        return rsp;
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new RouteCache(0, 1000));
+        assertThrows(IllegalArgumentException.class, () -> new RouteCache(10, 0));
+    }
+}
@@ -0,0 +1,111 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.storage.GraphBuilder;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.Test;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SearchWorkspacePoolTest {
+
+    @Test
+    public void testVersions() {
+        SearchWorkspacePool pool = new SearchWorkspacePool(1);
+        SearchWorkspace workspace = pool.acquire(10);
+        int capacity = workspace.getCapacity();
+        assertTrue(capacity >= 10);
+        workspace.fwd.set(3, 1.5, 7, 3, -1);
+        workspace.fwd.push(3, 1.5);
+        assertTrue(workspace.fwd.contains(3));
+        assertFalse(workspace.bwd.contains(3));
+        pool.release(workspace);
+        assertEquals(1, pool.getIdle());
+
+        // the entries of the previous search are invalid without clearing the arrays
+        assertSame(workspace, pool.acquire(5));
+        assertEquals(0, pool.getIdle());
+        assertFalse(workspace.fwd.contains(3));
+        assertTrue(workspace.fwd.heap.isEmpty());
+        assertEquals(capacity, workspace.getCapacity());
+
+        // no second workspace is created while the first one is in use
+        assertNull(pool.acquire(5));
+        pool.release(workspace);
+        assertEquals(1, pool.getIdle());
+
+        // a larger graph needs larger arrays
+        assertSame(workspace, pool.acquire(capacity + 1));
+        assertTrue(workspace.getCapacity() > capacity);
+    }
+
+    @Test
+    public void testFallbackIfAllWorkspacesAreInUse() {
+        CarFlagEncoder encoder = new CarFlagEncoder();
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create(encoder)).create();
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(1, 2).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 2).setDistance(300));
+        graph.freeze();
+        SearchWorkspacePool pool = new SearchWorkspacePool(1);
+        FastestWeighting weighting = new FastestWeighting(encoder);
+        SearchWorkspace workspace = pool.acquire(graph.getNodes());
+        // the only workspace is in use, so the searches use the map-based algorithms
+        DijkstraBidirectionWorkspace dijkstra = new DijkstraBidirectionWorkspace(graph, weighting, TraversalMode.NODE_BASED, pool);
+        assertEquals(200, dijkstra.calcPath(0, 2).getDistance(), 1.e-6);
+        assertTrue(dijkstra.getVisitedNodes() > 0);
+        AStarBidirectionWorkspace aStar = new AStarBidirectionWorkspace(graph, weighting, TraversalMode.EDGE_BASED, pool);
+        assertEquals(300, aStar.calcPath(2, 0).getDistance(), 1.e-6);
+        assertEquals(0, pool.getIdle());
+
+        pool.release(workspace);
+        assertEquals(200, new DijkstraBidirectionWorkspace(graph, weighting, TraversalMode.NODE_BASED, pool).calcPath(0, 2).getDistance(), 1.e-6);
+        assertEquals(1, pool.getIdle());
+    }
+
+    @Test
+    public void testWorkspaceIsReleased() {
+        CarFlagEncoder encoder = new CarFlagEncoder();
+        GraphHopperStorage graph = new GraphBuilder(EncodingManager.create(encoder)).create();
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(1, 2).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 2).setDistance(300));
+        graph.freeze();
+        SearchWorkspacePool pool = new SearchWorkspacePool(2);
+        FastestWeighting weighting = new FastestWeighting(encoder);
+        for (int i = 0; i < 3; i++) {
+            Path path = new DijkstraBidirectionWorkspace(graph, weighting, TraversalMode.NODE_BASED, pool).calcPath(0, 2);
+            assertEquals(200, path.getDistance(), 1.e-6);
+            assertEquals(1, pool.getIdle());
+            path = new AStarBidirectionWorkspace(graph, weighting, TraversalMode.EDGE_BASED, pool).calcPath(2, 0);
+            assertEquals(300, path.getDistance(), 1.e-6);
+            assertEquals(1, pool.getIdle());
+        }
+
+        BidirRoutingAlgorithm algo = new DijkstraBidirectionWorkspace(graph, weighting, TraversalMode.NODE_BASED, pool);
+        algo.calcPath(1, 1);
+        assertThrows(IllegalStateException.class, () -> algo.calcPath(0, 1));
+        assertEquals(1, pool.getIdle());
+    }
+}
@@ -0,0 +1,170 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.AccessFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.storage.SpeedProfileStorage;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Parameters;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.Arrays;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class TimeDependentAStarTest {
+    private static final long HOUR = 3600_000;
+    private FlagEncoder encoder;
+    private GraphHopperStorage graph;
+    private SpeedProfileStorage speedProfiles;
+    private Weighting weighting;
+    private int rushHourProfile;
+
+    @BeforeEach
+    public void setUp() {
+        EncodingManager em = EncodingManager.create("car");
+        encoder = em.getEncoder("car");
+        graph = new GraphHopperStorage(new RAMDirectory(), em, false).setSpeedProfiles(true).create(100);
+        speedProfiles = graph.getSpeedProfileStorage();
+        weighting = new FastestWeighting(encoder);
+        int[] speeds = new int[SpeedProfileStorage.BUCKETS];
+        Arrays.fill(speeds, 100);
+        // 07:00 - 09:00
+        Arrays.fill(speeds, 28, 36, 20);
+        rushHourProfile = speedProfiles.addProfile(speeds);
+    }
+
+    private Path calcPath(int from, int to, long departure, String algorithm) {
+        AlgorithmOptions opts = new AlgorithmOptions().setAlgorithm(algorithm).setTraversalMode(TraversalMode.NODE_BASED);
+        return new TimeDependentRoutingAlgorithmFactory(speedProfiles, departure).createAlgo(graph, weighting, opts).calcPath(from, to);
+    }
+
+    //   1
+    //  / \
+    // 0   3
+    //  \ /
+    //   2
+    private void initDiamond() {
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 50.000, 10.000);
+        na.setNode(1, 50.001, 10.001);
+        na.setNode(2, 49.999, 10.001);
+        na.setNode(3, 50.000, 10.002);
+        // the road via 1 is a fast but congested road, the road via 2 is longer but its speed does not change
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(10_000));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 3).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 2).setDistance(12_000));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(2, 3).setDistance(100));
+        speedProfiles.setEdgeProfile(0, rushHourProfile);
+    }
+
+    @Test
+    public void testDepartureTimeChangesRoute() {
+        initDiamond();
+        for (String algorithm : Arrays.asList(Parameters.Algorithms.ASTAR, Parameters.Algorithms.DIJKSTRA, "")) {
+            Path night = calcPath(0, 3, 3 * HOUR, algorithm);
+            assertEquals(IntArrayList.from(0, 1, 3), night.calcNodes(), algorithm);
+            // 10km with 100km/h and 100m with 60km/h
+            assertEquals(360_000 + 6_000, night.getTime(), algorithm);
+            assertEquals(night.getTime(), night.getWeight(), 1.e-6, algorithm);
+
+            Path rushHour = calcPath(0, 3, 8 * HOUR, algorithm);
+            assertEquals(IntArrayList.from(0, 2, 3), rushHour.calcNodes(), algorithm);
+            assertEquals(720_000 + 6_000, rushHour.getTime(), algorithm);
+        }
+    }
+
+    @Test
+    public void testSpeedAtArrivalTime() {
+        NodeAccess na = graph.getNodeAccess();
+        na.setNode(0, 50.00, 10.0);
+        na.setNode(1, 50.01, 10.0);
+        na.setNode(2, 50.02, 10.0);
+        double distance = DistanceCalcEarth.DIST_EARTH.calcDist(50.00, 10.0, 50.01, 10.0);
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(distance));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(distance));
+        speedProfiles.setEdgeProfile(0, rushHourProfile);
+        speedProfiles.setEdgeProfile(1, rushHourProfile);
+        long fast = Math.round(distance * 3600 / 100);
+        long slow = Math.round(distance * 3600 / 20);
+
+        assertEquals(2 * fast, calcPath(0, 2, 6 * HOUR, Parameters.Algorithms.ASTAR).getTime());
+        // the second edge is entered after 07:00
+        assertEquals(fast + slow, calcPath(0, 2, 7 * HOUR - fast / 2, Parameters.Algorithms.ASTAR).getTime());
+        assertEquals(2 * slow, calcPath(0, 2, 8 * HOUR, Parameters.Algorithms.ASTAR).getTime());
+        // the departure continues on the next day
+        assertEquals(2 * slow, calcPath(0, 2, 32 * HOUR, Parameters.Algorithms.ASTAR).getTime());
+
+        // virtual edges use the profile of their original edge
+        LocationIndexTree index = new LocationIndexTree(graph, new RAMDirectory());
+        index.prepareIndex();
+        Snap snap = index.findClosest(50.005, 10.0, AccessFilter.allEdges(encoder.getAccessEnc()));
+        QueryGraph queryGraph = QueryGraph.create(graph, snap);
+        AlgorithmOptions opts = new AlgorithmOptions().setAlgorithm(Parameters.Algorithms.ASTAR).setTraversalMode(TraversalMode.NODE_BASED);
+        Path path = new TimeDependentRoutingAlgorithmFactory(speedProfiles, 8 * HOUR).createAlgo(queryGraph, weighting, opts)
+                .calcPath(snap.getClosestNode(), 2);
+        assertEquals(slow + slow / 2, path.getTime(), 2);
+    }
+
+    @Test
+    public void testWithoutProfileUsesWeighting() {
+        initDiamond();
+        speedProfiles.setEdgeProfile(0, 0);
+        Path path = calcPath(0, 3, 8 * HOUR, Parameters.Algorithms.ASTAR);
+        assertEquals(IntArrayList.from(0, 1, 3), path.calcNodes());
+        assertEquals(600_000 + 6_000, path.getTime());
+    }
+
+    @Test
+    public void testBlockedEdge() {
+        initDiamond();
+        GHUtility.getEdge(graph, 0, 2).set(encoder.getAccessEnc(), false, false);
+        Path path = calcPath(0, 3, 8 * HOUR, Parameters.Algorithms.ASTAR);
+        assertEquals(IntArrayList.from(0, 1, 3), path.calcNodes());
+        assertEquals(1_800_000 + 6_000, path.getTime());
+    }
+
+    @Test
+    public void testUnsupportedAlgorithm() {
+        initDiamond();
+        AlgorithmOptions opts = new AlgorithmOptions().setAlgorithm(Parameters.Algorithms.ALT_ROUTE).setTraversalMode(TraversalMode.NODE_BASED);
+        assertThrows(IllegalArgumentException.class, () -> new TimeDependentRoutingAlgorithmFactory(speedProfiles, 0).createAlgo(graph, weighting, opts));
+    }
+
+    @Test
+    public void testParseDepartureTime() {
+        assertEquals(8 * HOUR, TimeDependentRoutingAlgorithmFactory.parseDepartureTime("08:00"));
+        assertEquals(8 * HOUR + 30 * 60_000 + 15_000, TimeDependentRoutingAlgorithmFactory.parseDepartureTime("08:30:15"));
+        assertEquals(17 * HOUR, TimeDependentRoutingAlgorithmFactory.parseDepartureTime("2021-03-01T17:00"));
+        assertThrows(IllegalArgumentException.class, () -> TimeDependentRoutingAlgorithmFactory.parseDepartureTime("8 am"));
+    }
+}
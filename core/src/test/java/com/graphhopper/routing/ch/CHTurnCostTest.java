@@ -1149,6 +1149,27 @@ public class CHTurnCostTest {
         automaticCompareCHWithDijkstra(100);
     }
 
+    /**
+     * same as {@link #testFindPath_heuristic_compareWithDijkstra()}, but contracting independent nodes in parallel
+     */
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3, 4, 5, 6, 7, 8, 9, 10})
+    public void testFindPath_parallelContraction_compareWithDijkstra(long seed) {
+        GHUtility.buildRandomGraph(graph, new Random(seed), 100, 2.5, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.9, 0.8);
+        GHUtility.addRandomTurnCosts(graph, seed, encodingManager, encoder, maxCost, turnCostStorage);
+        graph.freeze();
+        checkStrict = false;
+        PrepareContractionHierarchies ch = PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig)
+                .setParams(new PMap().putObject(CONTRACTION_THREADS, 4).putObject(CONTRACTION_BATCH_SIZE, 8));
+        ch.doWork();
+        chGraph = graph.getRoutingCHGraph(chConfig.getName());
+        Random rnd = new Random(seed);
+        for (int i = 0; i < 100; ++i) {
+            compareCHQueryWithDijkstra(rnd.nextInt(graph.getNodes()), rnd.nextInt(graph.getNodes()));
+        }
+    }
+
     private int nextCost(Random rnd) {
         // choose bound above max cost such that turn restrictions are likely
         return rnd.nextInt(3 * maxCost);
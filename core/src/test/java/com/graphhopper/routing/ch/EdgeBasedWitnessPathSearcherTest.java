@@ -126,6 +126,37 @@ public class EdgeBasedWitnessPathSearcherTest {
         assertNull(result);
     }
 
+    @Test
+    public void test_witness_ignoredNodes() {
+        // 0 -> 1 -> 2 -> 3 -> 4
+        //       \       /
+        //        \> 5 >/
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(0, 1).setDistance(1));
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(1, 2).setDistance(1));
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(2, 3).setDistance(2));
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(3, 4).setDistance(1));
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(1, 5).setDistance(1));
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(5, 3).setDistance(1));
+        graph.freeze();
+        setMaxLevelOnAllNodes();
+        EdgeBasedWitnessPathSearcher finder = createFinder();
+        boolean[] ignoredNodes = new boolean[graph.getNodes()];
+        finder.setIgnoredNodes(ignoredNodes);
+        // the center node is never ignored
+        ignoredNodes[2] = true;
+        finder.initSearch(2, 1, 0);
+        assertNull(finder.runSearch(3, 3));
+
+        // without the witness via node 5 we need a shortcut
+        ignoredNodes[5] = true;
+        finder.initSearch(2, 1, 0);
+        PrepareCHEntry result = finder.runSearch(3, 3);
+        PrepareCHEntry expected = new ExpectedResultBuilder(3, 2, 4, 3.0)
+                .withParent(2, 1, 2, 1.0)
+                .build(2);
+        assertFinderResult(expected, result);
+    }
+
     private EdgeBasedWitnessPathSearcher createFinder() {
         CHPreparationGraph.TurnCostFunction turnCostFunction = CHPreparationGraph.buildTurnCostFunctionFromTurnCostStorage(graph, weighting);
         CHPreparationGraph prepareGraph = CHPreparationGraph.edgeBased(graph.getNodes(), graph.getEdges(), turnCostFunction);
@@ -0,0 +1,134 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.routing.ch;
+
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.storage.*;
+import com.graphhopper.storage.index.LocationIndexTree;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.Test;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.GHUtility.createRandomSnaps;
+import static org.junit.jupiter.api.Assertions.*;
+
+class ManyToManyCHTest {
+    private final CarFlagEncoder encoder = new CarFlagEncoder();
+    private final EncodingManager encodingManager = EncodingManager.create(encoder);
+    private final FastestWeighting weighting = new FastestWeighting(encoder);
+    private final CHConfig chConfig = CHConfig.nodeBased("car", weighting);
+    private final GraphHopperStorage graph = new GraphBuilder(encodingManager).setCHConfigs(chConfig).create();
+
+    @Test
+    void simpleMatrix() {
+        // 0 - 1 - 2 - 3
+        //     |       |
+        //     4 ----- 5   6 (disconnected)
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(200));
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(2, 3).setDistance(300));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 4).setDistance(400));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(4, 5).setDistance(500));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(5, 3).setDistance(600));
+        graph.getNodeAccess().setNode(6, 0, 0);
+        prepareCH();
+
+        RoutingCHGraph chGraph = graph.getRoutingCHGraph(chConfig.getName());
+        ManyToManyCH.Result result = new ManyToManyCH(chGraph).calcMatrix(new int[]{0, 3, 6}, new int[]{3, 0, 0, 6});
+        assertEquals(600, result.distances[0][0], 1.e-6);
+        assertEquals(36_000, result.times[0][0]);
+        assertEquals(0, result.distances[0][1], 1.e-6);
+        assertEquals(0, result.distances[0][2], 1.e-6);
+        // 3->2 is a one-way in the wrong direction so we need to take the detour
+        assertEquals(1600, result.distances[1][1], 1.e-6);
+        assertEquals(0, result.distances[2][3], 1.e-6);
+        assertEquals(0, result.weights[2][3], 1.e-6);
+        assertFalse(result.isConnected(0, 3));
+        assertFalse(result.isConnected(2, 0));
+        assertEquals(Long.MAX_VALUE, result.times[2][0]);
+    }
+
+    @Test
+    void weightsOnly() {
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(100));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(200));
+        prepareCH();
+        ManyToManyCH.Result result = new ManyToManyCH(graph.getRoutingCHGraph(chConfig.getName()))
+                .setCalcDistances(false)
+                .setCalcTimes(false)
+                .calcMatrix(new int[]{0}, new int[]{2});
+        assertTrue(result.isConnected(0, 0));
+        assertTrue(Double.isInfinite(result.distances[0][0]));
+        assertEquals(Long.MAX_VALUE, result.times[0][0]);
+    }
+
+    @Test
+    void random() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.5, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0);
+        LocationIndexTree locationIndex = new LocationIndexTree(graph, new RAMDirectory());
+        locationIndex.prepareIndex();
+        prepareCH();
+        RoutingCHGraph chGraph = graph.getRoutingCHGraph(chConfig.getName());
+
+        for (int rep = 0; rep < 5; rep++) {
+            List<Snap> snaps = createRandomSnaps(graph.getBounds(), locationIndex, rnd, 10, false, EdgeFilter.ALL_EDGES);
+            QueryGraph queryGraph = QueryGraph.create(graph, snaps);
+            QueryRoutingCHGraph queryCHGraph = new QueryRoutingCHGraph(chGraph, queryGraph);
+            int[] sources = new int[15];
+            int[] targets = new int[12];
+            for (int i = 0; i < sources.length; i++)
+                sources[i] = rnd.nextInt(queryGraph.getNodes());
+            for (int i = 0; i < targets.length; i++)
+                targets[i] = rnd.nextInt(queryGraph.getNodes());
+
+            ManyToManyCH.Result result = new ManyToManyCH(queryCHGraph).calcMatrix(sources, targets);
+            for (int s = 0; s < sources.length; s++) {
+                for (int t = 0; t < targets.length; t++) {
+                    RoutingAlgorithm algo = new CHRoutingAlgorithmFactory(queryCHGraph).createAlgo(new PMap());
+                    Path path = algo.calcPath(sources[s], targets[t]);
+                    String msg = "seed: " + seed + ", " + sources[s] + "->" + targets[t];
+                    assertEquals(path.isFound(), result.isConnected(s, t), msg);
+                    if (!path.isFound())
+                        continue;
+                    assertEquals(path.getWeight(), result.weights[s][t], 1.e-2, msg);
+                    assertEquals(path.getDistance(), result.distances[s][t], 1.e-1, msg);
+                    assertEquals(path.getTime(), result.times[s][t], 50, msg);
+                }
+            }
+        }
+    }
+
+    private void prepareCH() {
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+    }
+}
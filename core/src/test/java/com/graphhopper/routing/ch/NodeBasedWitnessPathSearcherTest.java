@@ -98,6 +98,28 @@ class NodeBasedWitnessPathSearcherTest {
         assertNotEquals(1, endNode);
     }
 
+    @Test
+    public void testShortestPathIgnoredNodes() {
+        createExampleGraph();
+        CHPreparationGraph prepareGraph = CHPreparationGraph.nodeBased(graph.getNodes(), graph.getEdges());
+        CHPreparationGraph.buildFromGraph(prepareGraph, graph, weighting);
+        NodeBasedWitnessPathSearcher algo = new NodeBasedWitnessPathSearcher(prepareGraph);
+        boolean[] ignoredNodes = new boolean[graph.getNodes()];
+        algo.setIgnoredNodes(ignoredNodes);
+
+        setMaxLevelOnAllNodes();
+
+        algo.ignoreNode(3);
+        algo.setWeightLimit(10);
+        int nodeEntry = algo.findEndNode(4, 2);
+        assertEquals(4, algo.getWeight(nodeEntry), 1e-5);
+
+        // the only remaining path goes via node 0
+        ignoredNodes[0] = true;
+        algo.clear();
+        assertEquals(-1, algo.findEndNode(4, 2));
+    }
+
     private void createExampleGraph() {
         //5-1-----2
         //   \ __/|
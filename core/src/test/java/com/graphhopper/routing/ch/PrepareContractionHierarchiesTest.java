@@ -32,6 +32,8 @@ import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.*;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.util.*;
 
@@ -566,6 +568,71 @@ public class PrepareContractionHierarchiesTest {
         assertTrue(timeMotorCycle < 0.5 * timeCar, "reusing node ordering should speed up ch contraction");
     }
 
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3})
+    public void testParallelContraction(long seed) {
+        int numNodes = 2_000;
+        GraphHopperStorage ghStorage = createGHStorage();
+        GHUtility.buildRandomGraph(ghStorage, new Random(seed), numNodes, 1.3, true, true,
+                carEncoder.getAccessEnc(), carEncoder.getAverageSpeedEnc(), null, 0.7, 0.9, 0.8);
+        PrepareContractionHierarchies pch = createPrepareContractionHierarchies(ghStorage)
+                .setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 4));
+        pch.doWork();
+        assertTrue(pch.getShortcuts() > 0);
+        RoutingCHGraph chGraph = ghStorage.getRoutingCHGraph(chConfig.getName());
+        Random rnd = new Random(seed);
+        for (int i = 0; i < 100; ++i) {
+            int from = rnd.nextInt(numNodes);
+            int to = rnd.nextInt(numNodes);
+            Path refPath = new Dijkstra(ghStorage, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            Path path = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap()).calcPath(from, to);
+            String msg = "seed: " + seed + ", " + from + "->" + to;
+            assertEquals(refPath.isFound(), path.isFound(), msg);
+            assertEquals(refPath.getWeight(), path.getWeight(), 1.e-1, msg);
+        }
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {1, 2, 3})
+    public void testParallelContractionWithFixedBatchSizeIsReproducible(long seed) {
+        List<String> result = null;
+        for (int threads : new int[]{2, 3, 8}) {
+            GraphHopperStorage ghStorage = createGHStorage();
+            GHUtility.buildRandomGraph(ghStorage, new Random(seed), 1_000, 1.3, true, true,
+                    carEncoder.getAccessEnc(), carEncoder.getAverageSpeedEnc(), null, 0.7, 0.9, 0.8);
+            createPrepareContractionHierarchies(ghStorage).setParams(new PMap()
+                    .putObject(CHParameters.CONTRACTION_THREADS, threads)
+                    .putObject(CHParameters.CONTRACTION_BATCH_SIZE, 50)).doWork();
+            List<String> contraction = describeContraction(ghStorage);
+            if (result == null)
+                result = contraction;
+            else
+                assertEquals(result, contraction, "seed: " + seed + ", threads: " + threads);
+        }
+    }
+
+    @Test
+    public void testInvalidContractionThreads() {
+        initExampleGraph(g, carEncoder);
+        PrepareContractionHierarchies pch = createPrepareContractionHierarchies(g);
+        assertThrows(IllegalArgumentException.class, () -> pch.setParams(new PMap().putObject(CHParameters.CONTRACTION_THREADS, 0)));
+        assertThrows(IllegalArgumentException.class, () -> pch.setParams(new PMap().putObject(CHParameters.CONTRACTION_BATCH_SIZE, -1)));
+    }
+
+    private List<String> describeContraction(GraphHopperStorage ghStorage) {
+        CHGraph chGraph = ghStorage.getCHGraph(chConfig.getName());
+        List<String> result = new ArrayList<>();
+        for (int node = 0; node < chGraph.getNodes(); node++)
+            result.add("level " + node + ": " + chGraph.getLevel(node));
+        RoutingCHGraph routingCHGraph = ghStorage.getRoutingCHGraph(chConfig.getName());
+        for (int edge = chGraph.getOriginalEdges(); edge < chGraph.getEdges(); edge++) {
+            RoutingCHEdgeIteratorState shortcut = routingCHGraph.getEdgeIteratorState(edge, Integer.MIN_VALUE);
+            result.add(shortcut.getBaseNode() + "-" + shortcut.getAdjNode() + ", skipped: " + shortcut.getSkippedEdge1() + "|"
+                    + shortcut.getSkippedEdge2() + ", weight: " + shortcut.getWeight(false));
+        }
+        return result;
+    }
+
     private void checkPath(GraphHopperStorage g, CHConfig c, int expShortcuts, double expDistance, IntIndexedContainer expNodes, int[] nodeOrdering) {
         RoutingCHGraph lg = g.getRoutingCHGraph(c.getName());
         PrepareContractionHierarchies prepare = createPrepareContractionHierarchies(g, c);
@@ -44,6 +44,23 @@ public class LMPreparationHandlerTest {
         assertEquals(0.3, handler.getPreparations().get(1).getLandmarkStorage().getFactor(), .1);
     }
 
+    @Test
+    public void landmarkThreads() {
+        LMPreparationHandler handler = new LMPreparationHandler();
+        handler.setLMProfiles(
+                new LMProfile("conf1").setLandmarkThreads(4),
+                new LMProfile("conf2")
+        );
+        FlagEncoder car = new CarFlagEncoder();
+        EncodingManager em = EncodingManager.create(car);
+        handler
+                .addLMConfig(new LMConfig("conf1", new FastestWeighting(car)))
+                .addLMConfig(new LMConfig("conf2", new ShortestWeighting(car)));
+        handler.createPreparations(new GraphHopperStorage(new RAMDirectory(), em, false), null);
+        assertEquals(4, handler.getPreparations().get(0).getLandmarkStorage().getLandmarkThreads());
+        assertEquals(1, handler.getPreparations().get(1).getLandmarkStorage().getLandmarkThreads());
+    }
+
     @Test
     public void testPrepareWeightingNo() {
         GraphHopperConfig ghConfig = new GraphHopperConfig();
@@ -45,6 +45,7 @@ import org.locationtech.jts.geom.Polygon;
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.List;
+import java.util.Random;
 
 import static org.junit.jupiter.api.Assertions.*;
 
@@ -228,6 +229,33 @@ public class LandmarkStorageTest {
         assertEquals("[3, 2]", Arrays.toString(storage.getLandmarks(2)));
     }
 
+    @Test
+    public void testParallelLandmarkWeights() {
+        long seed = System.nanoTime();
+        GHUtility.buildRandomGraph(graph, new Random(seed), 500, 2.2, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), 60d, 0.8, 0.8, 0.8);
+        Weighting weighting = new FastestWeighting(encoder);
+        LandmarkStorage sequential = new LandmarkStorage(graph, new RAMDirectory(), new LMConfig("car", weighting), 8);
+        sequential.setMinimumNodes(2);
+        sequential.createLandmarks();
+        LandmarkStorage parallel = new LandmarkStorage(graph, new RAMDirectory(), new LMConfig("car", weighting), 8).
+                setLandmarkThreads(3);
+        parallel.setMinimumNodes(2);
+        parallel.createLandmarks();
+
+        assertEquals(sequential.getSubnetworksWithLandmarks(), parallel.getSubnetworksWithLandmarks());
+        for (int subnetwork = 1; subnetwork < sequential.getSubnetworksWithLandmarks(); subnetwork++)
+            assertArrayEquals(sequential.getLandmarks(subnetwork), parallel.getLandmarks(subnetwork), "seed: " + seed);
+        for (int node = 0; node < graph.getNodes(); node++) {
+            for (int lmIdx = 0; lmIdx < 8; lmIdx++) {
+                String msg = "seed: " + seed + ", node: " + node + ", landmark: " + lmIdx;
+                assertEquals(sequential.getFromWeight(lmIdx, node), parallel.getFromWeight(lmIdx, node), msg);
+                assertEquals(sequential.getToWeight(lmIdx, node), parallel.getToWeight(lmIdx, node), msg);
+            }
+        }
+        assertThrows(IllegalArgumentException.class, () -> parallel.setLandmarkThreads(0));
+    }
+
     @Test
     public void testWithBorderBlocking() {
         RoutingAlgorithmTest.initBiGraph(graph, encoder);
@@ -0,0 +1,184 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.Dijkstra;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.RoutingAlgorithm;
+import com.graphhopper.routing.ch.CHRoutingAlgorithmFactory;
+import com.graphhopper.routing.ch.PrepareContractionHierarchies;
+import com.graphhopper.routing.util.AccessFilter;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.util.*;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+class CSRAdjacencyTest {
+    private final String location = "./target/graphstorage/csr";
+    private final CarFlagEncoder encoder = new CarFlagEncoder();
+    private final EncodingManager encodingManager = EncodingManager.create(encoder);
+
+    @AfterEach
+    void tearDown() {
+        Helper.removeDir(new File(location));
+    }
+
+    @Test
+    void sameIterationOrderAsLinkedList() {
+        long seed = System.nanoTime();
+        GraphHopperStorage linkedList = createRandomGraph(new GraphBuilder(encodingManager), seed);
+        GraphHopperStorage csr = createRandomGraph(new GraphBuilder(encodingManager).setCSRAdjacency(true), seed);
+        assertFalse(((BaseGraph) csr.getBaseGraph()).isCSRAdjacencyReady());
+        linkedList.freeze();
+        csr.freeze();
+        assertFalse(((BaseGraph) linkedList.getBaseGraph()).isCSRAdjacencyReady());
+        assertTrue(((BaseGraph) csr.getBaseGraph()).isCSRAdjacencyReady());
+        assertSameAdjacency(linkedList, csr, "seed: " + seed);
+    }
+
+    @Test
+    void selfLoopAndDetach() {
+        GraphHopperStorage graph = new GraphBuilder(encodingManager).setCSRAdjacency(true).create();
+        GHUtility.setSpeed(60, true, false, encoder, graph.edge(0, 1).setDistance(10));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 1).setDistance(20));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(2, 1).setDistance(30));
+        graph.freeze();
+
+        EdgeIterator iter = graph.createEdgeExplorer().setBaseNode(1);
+        assertThrows(IllegalStateException.class, () -> iter.detach(false));
+        assertTrue(iter.next());
+        assertEquals(2, iter.getEdge());
+        assertEquals(2, iter.getAdjNode());
+        assertEquals(GHUtility.createEdgeKey(2, true), iter.getEdgeKey());
+        EdgeIteratorState detached = iter.detach(false);
+        assertTrue(iter.next());
+        assertEquals(1, iter.getEdge());
+        assertEquals(1, iter.getAdjNode());
+        assertTrue(iter.next());
+        assertEquals(0, iter.getEdge());
+        assertEquals(0, iter.getAdjNode());
+        assertFalse(iter.get(encoder.getAccessEnc()));
+        assertTrue(iter.getReverse(encoder.getAccessEnc()));
+        assertFalse(iter.next());
+        assertEquals(2, detached.getEdge());
+        assertEquals(30, detached.getDistance(), 1.e-6);
+
+        assertEquals(1, GHUtility.count(graph.createEdgeExplorer(AccessFilter.outEdges(encoder.getAccessEnc())).setBaseNode(0)));
+        assertEquals(0, GHUtility.count(graph.createEdgeExplorer(AccessFilter.inEdges(encoder.getAccessEnc())).setBaseNode(0)));
+        assertEquals(0, GHUtility.count(graph.createEdgeExplorer().setBaseNode(3)));
+    }
+
+    @Test
+    void saveAndLoad() {
+        long seed = System.nanoTime();
+        GraphHopperStorage graph = createRandomGraph(new GraphBuilder(encodingManager).setCSRAdjacency(true).setRAM(location, true), seed);
+        graph.freeze();
+        graph.flush();
+        graph.close();
+        assertTrue(new File(location, "csr_adjacency").exists());
+
+        GraphHopperStorage linkedList = createRandomGraph(new GraphBuilder(encodingManager), seed);
+        graph = new GraphBuilder(encodingManager).setCSRAdjacency(true).setMMap(location).build();
+        assertTrue(graph.loadExisting());
+        assertTrue(((BaseGraph) graph.getBaseGraph()).isCSRAdjacencyReady());
+        assertSameAdjacency(linkedList, graph, "seed: " + seed);
+        graph.close();
+
+        // loading a frozen graph without the adjacency layout is possible as well
+        graph = new GraphBuilder(encodingManager).setMMap(location).build();
+        assertTrue(graph.loadExisting());
+        assertFalse(((BaseGraph) graph.getBaseGraph()).isCSRAdjacencyReady());
+        assertSameAdjacency(linkedList, graph, "seed: " + seed);
+        graph.close();
+    }
+
+    @Test
+    void buildWhenLoadingFrozenGraphWithoutAdjacency() {
+        long seed = System.nanoTime();
+        GraphHopperStorage graph = createRandomGraph(new GraphBuilder(encodingManager).setRAM(location, true), seed);
+        graph.freeze();
+        graph.flush();
+        graph.close();
+
+        GraphHopperStorage linkedList = createRandomGraph(new GraphBuilder(encodingManager), seed);
+        graph = new GraphBuilder(encodingManager).setCSRAdjacency(true).setRAM(location, true).build();
+        assertTrue(graph.loadExisting());
+        assertTrue(((BaseGraph) graph.getBaseGraph()).isCSRAdjacencyReady());
+        assertSameAdjacency(linkedList, graph, "seed: " + seed);
+        graph.close();
+    }
+
+    @Test
+    void contractionHierarchies() {
+        long seed = System.nanoTime();
+        FastestWeighting weighting = new FastestWeighting(encoder);
+        CHConfig chConfig = CHConfig.nodeBased("car", weighting);
+        GraphHopperStorage graph = createRandomGraph(new GraphBuilder(encodingManager).setCSRAdjacency(true).setCHConfigs(chConfig), seed);
+        graph.freeze();
+        PrepareContractionHierarchies.fromGraphHopperStorage(graph, chConfig).doWork();
+        RoutingCHGraph chGraph = graph.getRoutingCHGraph(chConfig.getName());
+
+        Random rnd = new Random(seed);
+        for (int i = 0; i < 50; i++) {
+            int from = rnd.nextInt(graph.getNodes());
+            int to = rnd.nextInt(graph.getNodes());
+            Path refPath = new Dijkstra(graph, weighting, TraversalMode.NODE_BASED).calcPath(from, to);
+            RoutingAlgorithm algo = new CHRoutingAlgorithmFactory(chGraph).createAlgo(new PMap());
+            Path path = algo.calcPath(from, to);
+            String msg = "seed: " + seed + ", " + from + "->" + to;
+            assertEquals(refPath.isFound(), path.isFound(), msg);
+            assertEquals(refPath.getWeight(), path.getWeight(), 1.e-2, msg);
+        }
+    }
+
+    private GraphHopperStorage createRandomGraph(GraphBuilder builder, long seed) {
+        GraphHopperStorage graph = builder.create();
+        GHUtility.buildRandomGraph(graph, new Random(seed), 100, 2.5, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0);
+        return graph;
+    }
+
+    private void assertSameAdjacency(Graph expected, Graph actual, String msg) {
+        assertEquals(expected.getNodes(), actual.getNodes(), msg);
+        EdgeExplorer expectedExplorer = expected.createEdgeExplorer();
+        EdgeExplorer actualExplorer = actual.createEdgeExplorer();
+        for (int node = 0; node < expected.getNodes(); node++) {
+            assertEquals(toList(expectedExplorer.setBaseNode(node)), toList(actualExplorer.setBaseNode(node)), msg + ", node: " + node);
+        }
+    }
+
+    private List<String> toList(EdgeIterator iter) {
+        List<String> result = new ArrayList<>();
+        while (iter.next()) {
+            result.add(iter.getEdge() + ":" + iter.getBaseNode() + "-" + iter.getAdjNode() + ", key: " + iter.getEdgeKey()
+                    + ", dist: " + iter.getDistance() + ", access: " + iter.get(encoder.getAccessEnc()) + "|"
+                    + iter.getReverse(encoder.getAccessEnc()) + ", geo: " + iter.fetchWayGeometry(FetchMode.ALL));
+        }
+        return result;
+    }
+}
@@ -20,6 +20,10 @@ package com.graphhopper.storage;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.CHProfile;
 import com.graphhopper.config.Profile;
+import com.graphhopper.geohash.HilbertCurve;
+import com.graphhopper.routing.ev.DecimalEncodedValue;
+import com.graphhopper.routing.ev.TurnCost;
+import com.graphhopper.routing.util.AllEdgesIterator;
 import com.graphhopper.routing.util.BikeFlagEncoder;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.util.*;
@@ -28,8 +32,7 @@ import org.junit.jupiter.api.Test;
 
 import java.io.File;
 import java.io.IOException;
-import java.util.Arrays;
-import java.util.Collections;
+import java.util.*;
 
 import static com.graphhopper.util.EdgeIteratorState.REVERSE_STATE;
 import static com.graphhopper.util.FetchMode.*;
@@ -323,6 +326,96 @@ public class GraphHopperStorageTest extends AbstractGraphStorageTester {
         assertEdge(g.getEdgeIteratorStateForKey(1), 0, 0, false, 0, 0);
     }
 
+    @Test
+    public void testSortAlongHilbertCurve() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        graph = createGHStorage();
+        GHUtility.buildRandomGraph(graph, rnd, 200, 2.2, true, true, carAccessEnc, carAvSpeedEnc, null, 0.7, 0.8, 0.8);
+        AllEdgesIterator allEdges = graph.getAllEdges();
+        while (allEdges.next()) {
+            if (rnd.nextDouble() < 0.3)
+                allEdges.setWayGeometry(Helper.createPointList(rnd.nextDouble(), rnd.nextDouble())).setName("street" + allEdges.getEdge());
+        }
+        if (hasTurnCosts(graph))
+            GHUtility.addRandomTurnCosts(graph, seed, encodingManager, carEncoder, 10, graph.getTurnCostStorage());
+
+        List<String> edges = describeEdges(graph);
+        List<String> adjacency = describeAdjacency(graph);
+        List<String> turnCosts = describeTurnCosts(graph);
+        graph.sortAlongHilbertCurve();
+        String msg = "seed: " + seed;
+        assertEquals(edges, describeEdges(graph), msg);
+        assertEquals(adjacency, describeAdjacency(graph), msg);
+        assertEquals(turnCosts, describeTurnCosts(graph), msg);
+
+        HilbertCurve curve = new HilbertCurve(31, graph.getBounds());
+        NodeAccess na = graph.getNodeAccess();
+        for (int node = 1; node < graph.getNodes(); node++) {
+            assertTrue(curve.encode(na.getLat(node - 1), na.getLon(node - 1)) <= curve.encode(na.getLat(node), na.getLon(node)), msg);
+        }
+        int prevMinNode = -1;
+        allEdges = graph.getAllEdges();
+        while (allEdges.next()) {
+            int minNode = Math.min(allEdges.getBaseNode(), allEdges.getAdjNode());
+            assertTrue(prevMinNode <= minNode, msg);
+            prevMinNode = minNode;
+        }
+    }
+
+    private static String describeNode(Graph graph, int node) {
+        return graph.getNodeAccess().getLat(node) + "," + graph.getNodeAccess().getLon(node);
+    }
+
+    private String describeEdge(Graph graph, EdgeIteratorState edge) {
+        return describeNode(graph, edge.getBaseNode()) + "->" + describeNode(graph, edge.getAdjNode())
+                + ", dist: " + edge.getDistance() + ", flags: " + edge.getFlags() + ", name: " + edge.getName()
+                + ", geo: " + edge.fetchWayGeometry(FetchMode.ALL);
+    }
+
+    private List<String> describeEdges(Graph graph) {
+        List<String> result = new ArrayList<>();
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            result.add(describeEdge(graph, iter));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private List<String> describeAdjacency(Graph graph) {
+        List<String> result = new ArrayList<>();
+        EdgeExplorer explorer = graph.createEdgeExplorer(carOutFilter);
+        for (int node = 0; node < graph.getNodes(); node++) {
+            EdgeIterator iter = explorer.setBaseNode(node);
+            while (iter.next()) {
+                result.add(describeEdge(graph, iter));
+            }
+        }
+        Collections.sort(result);
+        return result;
+    }
+
+    private boolean hasTurnCosts(Graph graph) {
+        return graph.getTurnCostStorage() != null && encodingManager.hasEncodedValue(TurnCost.key(carEncoder.toString()));
+    }
+
+    private List<String> describeTurnCosts(Graph graph) {
+        List<String> result = new ArrayList<>();
+        if (!hasTurnCosts(graph))
+            return result;
+        DecimalEncodedValue turnCostEnc = encodingManager.getDecimalEncodedValue(TurnCost.key(carEncoder.toString()));
+        TurnCostStorage.TurnRelationIterator iter = graph.getTurnCostStorage().getAllTurnRelations();
+        while (iter.next()) {
+            result.add(describeEdge(graph, graph.getEdgeIteratorState(iter.getFromEdge(), iter.getViaNode()))
+                    + " via " + describeNode(graph, iter.getViaNode()) + " to "
+                    + describeEdge(graph, graph.getEdgeIteratorState(iter.getToEdge(), Integer.MIN_VALUE))
+                    + ": " + iter.getCost(turnCostEnc));
+        }
+        Collections.sort(result);
+        return result;
+    }
+
     private void assertEdge(EdgeIteratorState edge, int base, int adj, boolean reverse, int edgeId, int key) {
         assertEquals(base, edge.getBaseNode());
         assertEquals(adj, edge.getAdjNode());
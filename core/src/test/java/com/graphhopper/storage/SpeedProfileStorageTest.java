@@ -0,0 +1,193 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage;
+
+import com.graphhopper.routing.util.AllEdgesIterator;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class SpeedProfileStorageTest {
+    private static final String location = "./target/tmp-speed-profiles";
+
+    @BeforeEach
+    @AfterEach
+    public void cleanUp() {
+        Helper.removeDir(new File(location));
+    }
+
+    private static int[] createSpeeds(int defaultSpeed, int rushHourSpeed) {
+        int[] speeds = new int[SpeedProfileStorage.BUCKETS];
+        Arrays.fill(speeds, defaultSpeed);
+        // 07:00 - 09:00
+        Arrays.fill(speeds, 28, 36, rushHourSpeed);
+        return speeds;
+    }
+
+    @Test
+    public void testProfiles() {
+        SpeedProfileStorage storage = new SpeedProfileStorage(new RAMDirectory()).create(100);
+        int profile1 = storage.addProfile(createSpeeds(50, 20));
+        int profile2 = storage.addProfile(createSpeeds(100, 0));
+        assertEquals(1, profile1);
+        assertEquals(2, profile2);
+        // equal profiles are stored only once
+        assertEquals(profile1, storage.addProfile(createSpeeds(50, 20)));
+        assertEquals(2, storage.getProfileCount());
+        assertEquals(100, storage.getMaxSpeed());
+
+        assertEquals(50, storage.getSpeed(profile1, 0));
+        assertEquals(20, storage.getSpeed(profile1, 28));
+        assertEquals(50, storage.getSpeed(profile1, 36));
+        assertEquals(0, storage.getSpeed(profile2, 30));
+        assertThrows(IllegalArgumentException.class, () -> storage.getSpeed(3, 0));
+        assertThrows(IllegalArgumentException.class, () -> storage.getSpeed(profile1, SpeedProfileStorage.BUCKETS));
+        assertThrows(IllegalArgumentException.class, () -> storage.addProfile(new int[10]));
+        assertThrows(IllegalArgumentException.class, () -> storage.addProfile(createSpeeds(256, 20)));
+    }
+
+    @Test
+    public void testEdgeProfiles() {
+        SpeedProfileStorage storage = new SpeedProfileStorage(new RAMDirectory()).create(10);
+        int profile = storage.addProfile(createSpeeds(50, 20));
+        storage.setEdgeProfile(3, profile);
+        storage.setEdgeProfile(10_000, profile);
+        assertEquals(profile, storage.getEdgeProfile(3));
+        assertEquals(profile, storage.getEdgeProfile(10_000));
+        assertEquals(0, storage.getEdgeProfile(4));
+        assertEquals(0, storage.getEdgeProfile(1_000_000));
+        assertThrows(IllegalArgumentException.class, () -> storage.setEdgeProfile(5, 2));
+
+        assertEquals(50, storage.getEdgeSpeed(3, 0));
+        assertEquals(20, storage.getEdgeSpeed(3, 8 * 3600_000));
+        assertEquals(50, storage.getEdgeSpeed(3, 9 * 3600_000));
+        // the next day
+        assertEquals(20, storage.getEdgeSpeed(3, 32 * 3600_000));
+        assertEquals(0, storage.getEdgeSpeed(4, 8 * 3600_000));
+    }
+
+    @Test
+    public void testGetBucket() {
+        assertEquals(0, SpeedProfileStorage.getBucket(0));
+        assertEquals(0, SpeedProfileStorage.getBucket(SpeedProfileStorage.BUCKET_MILLIS - 1));
+        assertEquals(1, SpeedProfileStorage.getBucket(SpeedProfileStorage.BUCKET_MILLIS));
+        assertEquals(95, SpeedProfileStorage.getBucket(24 * 3600_000 - 1));
+        assertEquals(0, SpeedProfileStorage.getBucket(24 * 3600_000));
+    }
+
+    @Test
+    public void testFlushAndLoad() {
+        SpeedProfileStorage storage = new SpeedProfileStorage(new RAMDirectory(location, true).create()).create(100);
+        int profile1 = storage.addProfile(createSpeeds(50, 20));
+        int profile2 = storage.addProfile(createSpeeds(80, 60));
+        storage.setEdgeProfile(0, profile2);
+        storage.setEdgeProfile(7, profile1);
+        storage.flush();
+        storage.close();
+
+        SpeedProfileStorage loaded = new SpeedProfileStorage(new RAMDirectory(location, true));
+        assertTrue(loaded.loadExisting());
+        assertEquals(2, loaded.getProfileCount());
+        assertEquals(80, loaded.getMaxSpeed());
+        assertEquals(profile2, loaded.getEdgeProfile(0));
+        assertEquals(profile1, loaded.getEdgeProfile(7));
+        assertEquals(60, loaded.getEdgeSpeed(0, 8 * 3600_000));
+        // the loaded profiles are still deduplicated
+        assertEquals(profile1, loaded.addProfile(createSpeeds(50, 20)));
+        assertEquals(3, loaded.addProfile(createSpeeds(10, 10)));
+    }
+
+    @Test
+    public void testGraphHopperStorage() {
+        GraphHopperStorage graph = new GraphHopperStorage(new RAMDirectory(location, true), EncodingManager.create("car"), false)
+                .setSpeedProfiles(true).create(100);
+        graph.edge(0, 1).setDistance(10);
+        int profile = graph.getSpeedProfileStorage().addProfile(createSpeeds(50, 20));
+        graph.getSpeedProfileStorage().setEdgeProfile(0, profile);
+        assertEquals("true", graph.getProperties().get("graph.speed_profiles"));
+        graph.flush();
+        graph.close();
+
+        GraphHopperStorage loaded = new GraphHopperStorage(new RAMDirectory(location, true), EncodingManager.create("car"), false)
+                .setSpeedProfiles(true);
+        assertTrue(loaded.loadExisting());
+        assertEquals(profile, loaded.getSpeedProfileStorage().getEdgeProfile(0));
+        loaded.close();
+
+        // the profiles are ignored if they are not enabled
+        GraphHopperStorage withoutProfiles = new GraphHopperStorage(new RAMDirectory(location, true), EncodingManager.create("car"), false);
+        assertTrue(withoutProfiles.loadExisting());
+        assertNull(withoutProfiles.getSpeedProfileStorage());
+        withoutProfiles.close();
+    }
+
+    @Test
+    public void testLoadGraphWithoutProfiles() {
+        GraphHopperStorage graph = new GraphHopperStorage(new RAMDirectory(location, true), EncodingManager.create("car"), false).create(100);
+        graph.flush();
+        graph.close();
+
+        GraphHopperStorage loaded = new GraphHopperStorage(new RAMDirectory(location, true), EncodingManager.create("car"), false)
+                .setSpeedProfiles(true);
+        assertThrows(IllegalStateException.class, loaded::loadExisting);
+    }
+
+    @Test
+    public void testSortAlongHilbertCurve() {
+        long seed = System.nanoTime();
+        Random rnd = new Random(seed);
+        EncodingManager em = EncodingManager.create("car");
+        GraphHopperStorage graph = new GraphHopperStorage(new RAMDirectory(), em, false).setSpeedProfiles(true).create(100);
+        GHUtility.buildRandomGraph(graph, rnd, 100, 2.2, true, true, em.getEncoder("car").getAccessEnc(),
+                em.getEncoder("car").getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+        SpeedProfileStorage storage = graph.getSpeedProfileStorage();
+        int[] profiles = {storage.addProfile(createSpeeds(50, 20)), storage.addProfile(createSpeeds(30, 10))};
+        // the nodes are renumbered too, so we identify the edges by their coordinates
+        Map<String, Integer> expected = new HashMap<>();
+        NodeAccess na = graph.getNodeAccess();
+        AllEdgesIterator iter = graph.getAllEdges();
+        while (iter.next()) {
+            int profile = rnd.nextInt(3) == 0 ? 0 : profiles[rnd.nextInt(2)];
+            storage.setEdgeProfile(iter.getEdge(), profile);
+            expected.put(describe(na, iter), profile);
+        }
+
+        graph.sortAlongHilbertCurve();
+        iter = graph.getAllEdges();
+        while (iter.next()) {
+            assertEquals(expected.get(describe(na, iter)), storage.getEdgeProfile(iter.getEdge()), "seed: " + seed);
+        }
+    }
+
+    private static String describe(NodeAccess na, EdgeIteratorState edge) {
+        return na.getLat(edge.getBaseNode()) + "," + na.getLon(edge.getBaseNode()) + "-"
+                + na.getLat(edge.getAdjNode()) + "," + na.getLon(edge.getAdjNode()) + "-" + edge.getDistance();
+    }
+}
@@ -28,14 +28,10 @@ import com.graphhopper.util.GHUtility;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 
-import java.util.Arrays;
-import java.util.HashSet;
-import java.util.List;
-import java.util.Set;
+import java.util.*;
 
 import static com.graphhopper.util.GHUtility.getEdge;
-import static org.junit.jupiter.api.Assertions.assertEquals;
-import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.*;
 
 public class TurnCostStorageTest {
 
@@ -151,6 +147,71 @@ public class TurnCostStorageTest {
         assertEquals(expectedTurnRelations, allTurnRelations);
     }
 
+    @Test
+    public void testSortedEntries() {
+        GraphHopperStorage g = new GraphBuilder(manager).create();
+        Random rnd = new Random(42);
+        GHUtility.buildRandomGraph(g, rnd, 50, 2.2, true, true, manager.getEncoder("car").getAccessEnc(), manager.getEncoder("car").getAverageSpeedEnc(), 60.0, 0.8, 0.8, 0.8);
+        TurnCostStorage turnCostStorage = g.getTurnCostStorage();
+        DecimalEncodedValue carEnc = manager.getDecimalEncodedValue(TurnCost.key("car"));
+        DecimalEncodedValue bikeEnc = manager.getDecimalEncodedValue(TurnCost.key("bike"));
+        // add the turn costs in random order
+        List<int[]> relations = new ArrayList<>();
+        for (int i = 0; i < 300; i++) {
+            int from = rnd.nextInt(g.getEdges());
+            int to = rnd.nextInt(g.getEdges());
+            int via = g.getEdgeIteratorState(from, Integer.MIN_VALUE).getBaseNode();
+            relations.add(new int[]{from, via, to});
+            turnCostStorage.set(rnd.nextBoolean() ? carEnc : bikeEnc, from, via, to, rnd.nextInt(3));
+        }
+        Map<List<Integer>, List<Double>> expected = new HashMap<>();
+        for (int[] r : relations)
+            expected.put(Arrays.asList(r[0], r[1], r[2]), Arrays.asList(turnCostStorage.get(carEnc, r[0], r[1], r[2]), turnCostStorage.get(bikeEnc, r[0], r[1], r[2])));
+
+        assertFalse(turnCostStorage.isSorted());
+        g.freeze();
+        assertTrue(turnCostStorage.isSorted());
+        assertEquals(expected, allCosts(turnCostStorage, carEnc, bikeEnc));
+        for (int[] r : relations) {
+            List<Double> costs = expected.get(Arrays.asList(r[0], r[1], r[2]));
+            assertEquals(costs.get(0), turnCostStorage.get(carEnc, r[0], r[1], r[2]), 0);
+            assertEquals(costs.get(1), turnCostStorage.get(bikeEnc, r[0], r[1], r[2]), 0);
+            // turn relations that do not exist
+            assertEquals(0, turnCostStorage.get(carEnc, r[0], r[1], g.getEdges()), 0);
+            assertEquals(0, turnCostStorage.get(carEnc, r[2], r[1], r[0] + g.getEdges()), 0);
+        }
+
+        // changing the costs of an existing turn relation keeps the sorted layout, the bits are merged so we pick one
+        // without bike costs
+        int[] r = relations.stream().filter(rel -> expected.get(Arrays.asList(rel[0], rel[1], rel[2])).get(1) == 0).findFirst().get();
+        turnCostStorage.set(bikeEnc, r[0], r[1], r[2], 2);
+        assertTrue(turnCostStorage.isSorted());
+        assertEquals(2, turnCostStorage.get(bikeEnc, r[0], r[1], r[2]), 0);
+        expected.put(Arrays.asList(r[0], r[1], r[2]), Arrays.asList(turnCostStorage.get(carEnc, r[0], r[1], r[2]), 2.0));
+
+        // adding a new turn relation is still possible
+        int via = g.getEdgeIteratorState(1, Integer.MIN_VALUE).getBaseNode();
+        turnCostStorage.set(carEnc, 1, via, g.getEdges() - 1, 1);
+        assertFalse(turnCostStorage.isSorted());
+        expected.put(Arrays.asList(1, via, g.getEdges() - 1), Arrays.asList(1.0, 0.0));
+        assertEquals(expected, allCosts(turnCostStorage, carEnc, bikeEnc));
+        for (int[] rel : relations) {
+            List<Double> costs = expected.get(Arrays.asList(rel[0], rel[1], rel[2]));
+            assertEquals(costs.get(0), turnCostStorage.get(carEnc, rel[0], rel[1], rel[2]), 0);
+            assertEquals(costs.get(1), turnCostStorage.get(bikeEnc, rel[0], rel[1], rel[2]), 0);
+        }
+    }
+
+    private static Map<List<Integer>, List<Double>> allCosts(TurnCostStorage turnCostStorage, DecimalEncodedValue carEnc, DecimalEncodedValue bikeEnc) {
+        Map<List<Integer>, List<Double>> result = new HashMap<>();
+        TurnCostStorage.TurnRelationIterator iterator = turnCostStorage.getAllTurnRelations();
+        while (iterator.next()) {
+            List<Integer> key = Arrays.asList(iterator.getFromEdge(), iterator.getViaNode(), iterator.getToEdge());
+            assertNull(result.put(key, Arrays.asList(iterator.getCost(carEnc), iterator.getCost(bikeEnc))), "duplicate entry " + key);
+        }
+        return result;
+    }
+
     @Test
     public void testIterateEmptyStore() {
         GraphHopperStorage g = new GraphBuilder(manager).create();
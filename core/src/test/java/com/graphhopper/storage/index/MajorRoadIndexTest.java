@@ -0,0 +1,128 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.storage.index;
+
+import com.graphhopper.routing.ev.EnumEncodedValue;
+import com.graphhopper.routing.ev.RoadClass;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.NodeAccess;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PointList;
+import com.graphhopper.util.shapes.BBox;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MajorRoadIndexTest {
+    private static final String location = "./target/tmp-major-roads";
+    private EncodingManager em;
+    private EnumEncodedValue<RoadClass> roadClassEnc;
+    private GraphHopperStorage graph;
+
+    @BeforeEach
+    public void setUp() {
+        Helper.removeDir(new File(location));
+        em = EncodingManager.create(new CarFlagEncoder());
+        roadClassEnc = em.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        graph = new GraphHopperStorage(new RAMDirectory(location, true), em, false).create(100);
+        NodeAccess na = graph.getNodeAccess();
+        // a motorway crossing the whole area, a trunk in the north and a primary and a residential road in the south
+        na.setNode(0, 50.0, 10.0);
+        na.setNode(1, 50.0, 15.0);
+        na.setNode(2, 54.0, 10.0);
+        na.setNode(3, 54.0, 11.0);
+        na.setNode(4, 46.0, 14.0);
+        na.setNode(5, 46.0, 15.0);
+        na.setNode(6, 46.0, 10.0);
+        graph.edge(0, 1).setDistance(350_000).set(roadClassEnc, RoadClass.MOTORWAY);
+        graph.edge(2, 3).setDistance(70_000).set(roadClassEnc, RoadClass.TRUNK);
+        graph.edge(4, 5).setDistance(75_000).set(roadClassEnc, RoadClass.PRIMARY);
+        graph.edge(4, 6).setDistance(300_000).set(roadClassEnc, RoadClass.RESIDENTIAL);
+        // the pillar node deviates less than the maximum deviation and is removed
+        PointList pillars = new PointList();
+        pillars.add(50.0001, 12.5);
+        graph.getEdgeIteratorState(0, 1).setWayGeometry(pillars);
+        graph.flush();
+    }
+
+    @AfterEach
+    public void tearDown() {
+        graph.close();
+        Helper.removeDir(new File(location));
+    }
+
+    @Test
+    public void testQuery() {
+        MajorRoadIndex index = new MajorRoadIndex(graph, roadClassEnc, graph.getDirectory()).prepareIndex();
+        assertEquals(3, index.getRoadCount());
+
+        Map<Integer, PointList> roads = query(index, new BBox(9, 16, 45, 55), MajorRoadIndex.ROAD_CLASSES);
+        assertEquals(3, roads.size());
+        assertEquals(2, roads.get(0).size());
+        assertEquals(50.0, roads.get(0).getLat(1), 1.e-6);
+        assertEquals(15.0, roads.get(0).getLon(1), 1.e-6);
+
+        assertEquals(setOf(0, 1), query(index, new BBox(9, 16, 45, 55), EnumSet.of(RoadClass.MOTORWAY, RoadClass.TRUNK)).keySet());
+        assertEquals(setOf(0, 1), query(index, new BBox(10, 11, 49, 55), MajorRoadIndex.ROAD_CLASSES).keySet());
+        assertEquals(setOf(2), query(index, new BBox(14.2, 14.8, 45.5, 46.5), MajorRoadIndex.ROAD_CLASSES).keySet());
+        // the residential road is not included
+        assertEquals(setOf(), query(index, new BBox(11, 12, 45.5, 46.5), MajorRoadIndex.ROAD_CLASSES).keySet());
+    }
+
+    @Test
+    public void testLoadExisting() {
+        MajorRoadIndex index = new MajorRoadIndex(graph, roadClassEnc, graph.getDirectory());
+        assertFalse(index.loadExisting());
+        index.prepareIndex();
+        index.flush();
+        index.close();
+        assertTrue(index.isClosed());
+
+        index = new MajorRoadIndex(graph, roadClassEnc, new RAMDirectory(location, true));
+        assertTrue(index.loadExisting());
+        assertEquals(3, index.getRoadCount());
+        assertEquals(setOf(0, 1), query(index, new BBox(10, 11, 49, 55), MajorRoadIndex.ROAD_CLASSES).keySet());
+        index.close();
+
+        // the index does not match a different graph
+        graph.edge(5, 6).setDistance(100);
+        MajorRoadIndex otherIndex = new MajorRoadIndex(graph, roadClassEnc, new RAMDirectory(location, true));
+        assertThrows(IllegalStateException.class, otherIndex::loadExisting);
+    }
+
+    private static Set<Integer> setOf(Integer... values) {
+        return new HashSet<>(Arrays.asList(values));
+    }
+
+    private static Map<Integer, PointList> query(MajorRoadIndex index, BBox bbox, Set<RoadClass> roadClasses) {
+        Map<Integer, PointList> roads = new HashMap<>();
+        index.query(bbox, roadClasses, (edge, roadClass, points) -> {
+            assertTrue(roadClasses.contains(roadClass));
+            assertNull(roads.put(edge, points), "every road must be visited only once");
+        });
+        return roads;
+    }
+}
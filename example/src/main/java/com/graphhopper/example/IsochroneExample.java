@@ -2,15 +2,13 @@ package com.graphhopper.example;
 
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
-import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.isochrone.algorithm.ArrayShortestPathTree;
 import com.graphhopper.routing.ev.Subnetwork;
 import com.graphhopper.routing.querygraph.QueryGraph;
 import com.graphhopper.routing.util.*;
 import com.graphhopper.routing.weighting.FastestWeighting;
 import com.graphhopper.storage.index.Snap;
 
-import java.util.concurrent.atomic.AtomicInteger;
-
 public class IsochroneExample {
     public static void main(String[] args) {
         String relDir = args.length == 1 ? args[0] : "";
@@ -25,18 +23,18 @@ public class IsochroneExample {
         QueryGraph queryGraph = QueryGraph.create(hopper.getGraphHopperStorage(), snap);
 
         // run the isochrone calculation
-        ShortestPathTree tree = new ShortestPathTree(queryGraph, weighting, false, TraversalMode.NODE_BASED);
+        ArrayShortestPathTree tree = new ArrayShortestPathTree(queryGraph, weighting, false, TraversalMode.NODE_BASED);
         // find all nodes that are within a radius of 120s
         tree.setTimeLimit(120_000);
 
-        AtomicInteger counter = new AtomicInteger(0);
-        // you need to specify a callback to define what should be done
-        tree.search(snap.getClosestNode(), label -> {
-            // see IsoLabel.java for more properties
-            // System.out.println("node: " + label.node + ", time: " + label.time + ", distance: " + label.distance);
-            counter.incrementAndGet();
-        });
-        assert counter.get() > 200;
+        int counter = 0;
+        // every call of next() settles the next node, see ArrayShortestPathTree.Cursor for more properties
+        ArrayShortestPathTree.Cursor label = tree.search(snap.getClosestNode());
+        while (label.next()) {
+            // System.out.println("node: " + label.getNode() + ", time: " + label.getTime() + ", distance: " + label.getDistance());
+            counter++;
+        }
+        assert counter > 200;
     }
 
     /**
@@ -0,0 +1,300 @@
+/**
+ * Copyright (C) 2015-2016, BMW Car IT GmbH and BMW AG
+ * Author: Stefan Holder (stefan.holder@bmw.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bmw.hmm;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Variant of {@link ViterbiAlgorithm} that works with primitive arrays instead of maps. The state
+ * candidates of a time step are referenced by their index 0, ..., n-1 within this time step, so
+ * neither the states nor transition objects need to be hashed and no probability is boxed.
+ *
+ * <p>The emission log probabilities of a time step with n candidates are passed as an array of
+ * length n. The transition log probabilities from the m candidates of the previous time step are
+ * passed as an array of length m*n, where the transition from candidate i of the previous time step
+ * to candidate j of the current time step is stored at index i*n + j. Missing transitions must
+ * have a log probability of {@link Double#NEGATIVE_INFINITY}.
+ *
+ * <p>The results are the same as the ones of {@link ViterbiAlgorithm} for candidates with the same
+ * order. Unlike {@link ViterbiAlgorithm} the back pointers of all time steps are kept as int
+ * arrays, i.e. the memory is O(t*n) for t time steps. But a transition descriptor is only kept as
+ * long as its candidate is part of the most likely sequence of a candidate of the last time step.
+ * All other descriptors cannot be part of the result anymore and are dropped after every time
+ * step, so usually only the descriptors of few candidates per time step are kept.
+ *
+ * @param <D> the transition descriptor type. Pass {@link Object} if transition descriptors are not
+ * needed.
+ */
+public class IndexedViterbiAlgorithm<D> {
+
+    /**
+     * For every time step after the first and for every candidate the index of the previous
+     * candidate in the most likely sequence or -1 if the candidate has zero probability.
+     */
+    private final List<int[]> backPointers = new ArrayList<>();
+
+    /**
+     * For every time step after the first and for every candidate the descriptor of the transition
+     * of its back pointer or null if it was dropped, see {@link #dropUnusedDescriptors()}.
+     */
+    private final List<Object[]> transitionDescriptors = new ArrayList<>();
+
+    /**
+     * For every time step after the first the number of candidates that were part of the most
+     * likely sequence of a candidate of the last time step during the last
+     * {@link #dropUnusedDescriptors()}. These candidates only become fewer over time.
+     */
+    private int[] usedCounts = new int[16];
+    private boolean[] used = new boolean[0];
+    private boolean[] prevUsed = new boolean[0];
+
+    /**
+     * The log probability of the most likely sequence ending in the candidate with the same index,
+     * see {@link ViterbiAlgorithm}. Only the first messageSize entries are used.
+     */
+    private double[] message;
+    private int messageSize;
+    private double[] newMessage = new double[0];
+    private int initialCount;
+
+    private boolean started = false;
+    private boolean isBroken = false;
+
+    /**
+     * Lets the HMM computation start at the first observation and uses the emission probabilities
+     * as the initial state probabilities.
+     *
+     * @throws IllegalStateException if this method has already been called
+     */
+    public void startWithInitialObservation(double[] emissionLogProbabilities) {
+        if (started) {
+            throw new IllegalStateException("Initial probabilities have already been set.");
+        }
+        started = true;
+        isBroken = hmmBreak(emissionLogProbabilities, emissionLogProbabilities.length);
+        if (isBroken) return;
+
+        message = emissionLogProbabilities.clone();
+        messageSize = message.length;
+        initialCount = messageSize;
+    }
+
+    /**
+     * Processes the next time step. Must not be called if the HMM is broken.
+     *
+     * @param emissionLogProbabilities Emission log probabilities for each of the n candidates.
+     * @param transitionLogProbabilities Transition log probabilities from each of the m candidates
+     * of the previous time step to each candidate, i.e. an array of length m*n, see above.
+     * @param transitionDescriptors Optional descriptors of the transitions with the same layout as
+     * the transition log probabilities or null.
+     *
+     * @throws IllegalArgumentException if the length of an array does not match
+     * @throws IllegalStateException if {@link #startWithInitialObservation(double[])} has not been
+     * called before or if this method is called after an HMM break has occurred
+     */
+    public void nextStep(double[] emissionLogProbabilities, double[] transitionLogProbabilities,
+            D[] transitionDescriptors) {
+        if (!started) {
+            throw new IllegalStateException("startWithInitialObservation() must be called first.");
+        }
+        if (isBroken) {
+            throw new IllegalStateException("Method must not be called after an HMM break.");
+        }
+        final int prevCount = messageSize;
+        final int count = emissionLogProbabilities.length;
+        if (transitionLogProbabilities.length != prevCount * count) {
+            throw new IllegalArgumentException("Expected " + prevCount + "*" + count
+                    + " transition probabilities but got " + transitionLogProbabilities.length);
+        }
+        if (transitionDescriptors != null
+                && transitionDescriptors.length != transitionLogProbabilities.length) {
+            throw new IllegalArgumentException("Expected " + transitionLogProbabilities.length
+                    + " transition descriptors but got " + transitionDescriptors.length);
+        }
+
+        if (newMessage.length < count) {
+            newMessage = new double[Math.max(count, 2 * newMessage.length)];
+        }
+        final int[] backPointer = new int[count];
+        final Object[] descriptors = transitionDescriptors == null ? null : new Object[count];
+        for (int cur = 0; cur < count; cur++) {
+            double maxLogProbability = Double.NEGATIVE_INFINITY;
+            int maxPrev = -1;
+            for (int prev = 0, index = cur; prev < prevCount; prev++, index += count) {
+                final double logProbability = message[prev] + transitionLogProbabilities[index];
+                if (logProbability > maxLogProbability) {
+                    maxLogProbability = logProbability;
+                    maxPrev = prev;
+                }
+            }
+            newMessage[cur] = maxLogProbability + emissionLogProbabilities[cur];
+            backPointer[cur] = maxPrev;
+            if (descriptors != null && maxPrev >= 0) {
+                descriptors[cur] = transitionDescriptors[maxPrev * count + cur];
+            }
+        }
+
+        isBroken = hmmBreak(newMessage, count);
+        if (isBroken) return;
+
+        // swap the buffers, the old message is overwritten in the next step
+        final double[] tmp = message;
+        message = newMessage;
+        newMessage = tmp;
+        messageSize = count;
+        backPointers.add(backPointer);
+        this.transitionDescriptors.add(descriptors);
+        if (usedCounts.length < backPointers.size()) {
+            usedCounts = Arrays.copyOf(usedCounts, 2 * usedCounts.length);
+        }
+        usedCounts[backPointers.size() - 1] = -1;
+        dropUnusedDescriptors();
+    }
+
+    /**
+     * Follows the back pointers of all candidates of the last time step with a non-zero
+     * probability and drops the descriptors of all other candidates. Only these candidates can be
+     * part of the most likely sequence, no matter which time steps follow. As the candidates of a
+     * time step that are still used only become fewer, the sweep stops at the first time step
+     * where they did not change.
+     */
+    private void dropUnusedDescriptors() {
+        if (used.length < messageSize) {
+            used = new boolean[Math.max(messageSize, 2 * used.length)];
+        }
+        int usedCount = 0;
+        for (int i = 0; i < messageSize; i++) {
+            used[i] = message[i] != Double.NEGATIVE_INFINITY;
+            if (used[i]) usedCount++;
+        }
+        for (int step = backPointers.size() - 1; step >= 0; step--) {
+            // the back pointers and descriptors of this index belong to the candidates of time step
+            // step + 1, the candidates of time step step are marked in prevUsed
+            if (usedCounts[step] == usedCount) {
+                break;
+            }
+            usedCounts[step] = usedCount;
+            final int[] backPointer = backPointers.get(step);
+            final Object[] descriptors = transitionDescriptors.get(step);
+            final int prevCount = step == 0 ? initialCount : backPointers.get(step - 1).length;
+            if (prevUsed.length < prevCount) {
+                prevUsed = new boolean[Math.max(prevCount, 2 * prevUsed.length)];
+            }
+            Arrays.fill(prevUsed, 0, prevCount, false);
+            usedCount = 0;
+            for (int cur = 0; cur < backPointer.length; cur++) {
+                if (!used[cur]) {
+                    if (descriptors != null) descriptors[cur] = null;
+                } else if (!prevUsed[backPointer[cur]]) {
+                    prevUsed[backPointer[cur]] = true;
+                    usedCount++;
+                }
+            }
+            final boolean[] tmp = used;
+            used = prevUsed;
+            prevUsed = tmp;
+        }
+    }
+
+    /**
+     * See {@link #nextStep(double[], double[], Object[])}
+     */
+    public void nextStep(double[] emissionLogProbabilities, double[] transitionLogProbabilities) {
+        nextStep(emissionLogProbabilities, transitionLogProbabilities, null);
+    }
+
+    /**
+     * Returns the indexes of the candidates of the most likely sequence for all time steps. If an
+     * HMM break occurred in the last time step t, then the most likely sequence up to t-1 is
+     * returned. See also {@link #isBroken()}.
+     */
+    public int[] computeMostLikelySequence() {
+        if (message == null) {
+            // no time steps or the initial observation caused an HMM break
+            return new int[0];
+        }
+        final int[] result = new int[backPointers.size() + 1];
+        int state = mostLikelyState();
+        for (int timeStep = backPointers.size(); timeStep > 0; timeStep--) {
+            result[timeStep] = state;
+            state = backPointers.get(timeStep - 1)[state];
+        }
+        result[0] = state;
+        return result;
+    }
+
+    /**
+     * Returns the descriptor of the transition into the specified candidate of the most likely
+     * sequence ending in this candidate or null for the first time step or if no descriptors were
+     * passed. The descriptor is only kept if the candidate is part of the most likely sequence of a
+     * candidate of the last time step, e.g. for all candidates of
+     * {@link #computeMostLikelySequence()}. Otherwise null is returned as well.
+     */
+    @SuppressWarnings("unchecked")
+    public D getTransitionDescriptor(int timeStep, int candidate) {
+        if (timeStep == 0) {
+            return null;
+        }
+        final Object[] descriptors = transitionDescriptors.get(timeStep - 1);
+        return descriptors == null ? null : (D) descriptors[candidate];
+    }
+
+    /**
+     * Returns whether an HMM occurred in the last time step.
+     *
+     * An HMM break means that the probability of all states equals zero.
+     */
+    public boolean isBroken() {
+        return isBroken;
+    }
+
+    /**
+     * Returns the current forward message, i.e. the log probability of the most likely sequence
+     * ending in each candidate of the last time step.
+     */
+    public double[] getMessage() {
+        return message == null ? new double[0] : Arrays.copyOf(message, messageSize);
+    }
+
+    private static boolean hmmBreak(double[] message, int size) {
+        for (int i = 0; i < size; i++) {
+            if (message[i] != Double.NEGATIVE_INFINITY) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Retrieves the first candidate of the current forward message with maximum probability.
+     */
+    private int mostLikelyState() {
+        int result = -1;
+        double maxLogProbability = Double.NEGATIVE_INFINITY;
+        for (int i = 0; i < messageSize; i++) {
+            if (message[i] > maxLogProbability) {
+                result = i;
+                maxLogProbability = message[i];
+            }
+        }
+        assert result >= 0; // Otherwise an HMM break would have occurred.
+        return result;
+    }
+}
@@ -20,6 +20,7 @@ package com.bmw.hmm;
 import java.util.ArrayList;
 import java.util.Collection;
 import java.util.Collections;
+import java.util.IdentityHashMap;
 import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
@@ -49,7 +50,9 @@ import java.util.Map;
  * This implementation exploits this fact by letting the Java garbage collector
  * take care of unreachable back pointers. If back pointers converge to a single path after a
  * constant number of time steps, only O(t) back pointers and transition descriptors need to be
- * stored in memory.
+ * stored in memory. With {@link #pollFinalizedSequence(int)} the converged part of the most likely
+ * sequence can be retrieved and released while processing the observations, which keeps the memory
+ * bounded even for endless observation sequences.
  *
  * @param <S> the state type
  * @param <O> the observation type
@@ -105,6 +108,12 @@ public class ViterbiAlgorithm<S, O, D> {
      */
     private Map<S, ExtendedState<S, O, D>> lastExtendedStates;
 
+    /**
+     * The newest state that was returned by {@link #pollFinalizedSequence(int)}. Back pointer chains
+     * end here.
+     */
+    private ExtendedState<S, O, D> lastFinalizedState;
+
     private Collection<S> prevCandidates;
 
     /**
@@ -255,6 +264,83 @@ public class ViterbiAlgorithm<S, O, D> {
         }
     }
 
+    /**
+     * Returns the part of the most likely sequence that cannot change anymore by future time
+     * steps, because the back pointers of all state candidates of the current time step lead to it.
+     * The returned part is released and neither returned again by this method nor by
+     * {@link #computeMostLikelySequence()}. Concatenating all returned parts and the result of
+     * {@link #computeMostLikelySequence()} yields the most likely sequence.
+     *
+     * @param maxPendingTimeSteps if more time steps than this are not finalized after the back
+     * pointers converged, the oldest of them are finalized with the states of the currently most
+     * likely sequence and all state candidates that contradict them get zero probability. This
+     * bounds the number of time steps kept in memory at the price of a possibly suboptimal
+     * sequence. Pass {@link Integer#MAX_VALUE} to only return converged time steps.
+     */
+    public List<SequenceState<S, O, D>> pollFinalizedSequence(int maxPendingTimeSteps) {
+        if (maxPendingTimeSteps < 0) {
+            throw new IllegalArgumentException("maxPendingTimeSteps must not be negative: "
+                    + maxPendingTimeSteps);
+        }
+        final List<SequenceState<S, O, D>> result = new ArrayList<>();
+        if (message == null) {
+            return result;
+        }
+
+        // Back pointer chain of the most likely state from the current to the oldest pending time step
+        final List<ExtendedState<S, O, D>> chain = new ArrayList<>();
+        final Map<ExtendedState<S, O, D>, Integer> chainIndex = new IdentityHashMap<>();
+        for (ExtendedState<S, O, D> es = lastExtendedStates.get(mostLikelyState());
+                es != null && es != lastFinalizedState; es = es.backPointer) {
+            chainIndex.put(es, chain.size());
+            chain.add(es);
+        }
+
+        // For every candidate find the newest time step where its back pointers join the chain.
+        // The oldest of these time steps and all time steps before are the same for all candidates.
+        final Map<S, Integer> joinIndexes = new LinkedHashMap<>();
+        int convergedIndex = 0;
+        for (Map.Entry<S, ExtendedState<S, O, D>> entry : lastExtendedStates.entrySet()) {
+            int joinIndex = chain.size();
+            for (ExtendedState<S, O, D> es = entry.getValue();
+                    es != null && es != lastFinalizedState; es = es.backPointer) {
+                final Integer index = chainIndex.get(es);
+                if (index != null) {
+                    joinIndex = index;
+                    break;
+                }
+            }
+            joinIndexes.put(entry.getKey(), joinIndex);
+            convergedIndex = Math.max(convergedIndex, joinIndex);
+        }
+
+        if (convergedIndex > maxPendingTimeSteps) {
+            convergedIndex = maxPendingTimeSteps;
+            // Drop all candidates that do not lead to the forcibly finalized states. The message is
+            // copied since it might be part of the message history.
+            message = new LinkedHashMap<>(message);
+            for (Map.Entry<S, Integer> entry : joinIndexes.entrySet()) {
+                if (entry.getValue() > convergedIndex) {
+                    message.put(entry.getKey(), Double.NEGATIVE_INFINITY);
+                    lastExtendedStates.remove(entry.getKey());
+                }
+            }
+        }
+
+        if (convergedIndex == chain.size()) {
+            return result;
+        }
+        for (int i = chain.size() - 1; i >= convergedIndex; i--) {
+            final ExtendedState<S, O, D> es = chain.get(i);
+            result.add(new SequenceState<>(es.state, es.observation, es.transitionDescriptor));
+        }
+        // Release the finalized part of the chain
+        lastFinalizedState = chain.get(convergedIndex);
+        lastFinalizedState.backPointer = null;
+        lastFinalizedState.transitionDescriptor = null;
+        return result;
+    }
+
     /**
      * Returns whether an HMM occurred in the last time step.
      *
@@ -427,7 +513,7 @@ public class ViterbiAlgorithm<S, O, D> {
         // Retrieve most likely state sequence in reverse order
         final List<SequenceState<S, O, D>> result = new ArrayList<>();
         ExtendedState<S, O, D> es = lastExtendedStates.get(lastState);
-        while(es != null) {
+        while(es != null && es != lastFinalizedState) {
             final SequenceState<S, O, D> ss = new SequenceState<>(es.state, es.observation,
                     es.transitionDescriptor);
             result.add(ss);
@@ -0,0 +1,214 @@
+/**
+ * Copyright (C) 2015-2016, BMW Car IT GmbH and BMW AG
+ * Author: Stefan Holder (stefan.holder@bmw.de)
+ *
+ * Licensed under the Apache License, Version 2.0 (the "License");
+ * you may not use this file except in compliance with the License.
+ * You may obtain a copy of the License at
+ *
+ *    http://www.apache.org/licenses/LICENSE-2.0
+ *
+ * Unless required by applicable law or agreed to in writing, software
+ * distributed under the License is distributed on an "AS IS" BASIS,
+ * WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ * See the License for the specific language governing permissions and
+ * limitations under the License.
+ */
+
+package com.bmw.hmm;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.*;
+
+import static java.lang.Math.log;
+import static org.junit.jupiter.api.Assertions.*;
+
+public class IndexedViterbiAlgorithmTest {
+
+    private static final double DELTA = 1e-8;
+    private static final double ZERO = Double.NEGATIVE_INFINITY;
+
+    /**
+     * The umbrella example of {@link ViterbiAlgorithmTest#testComputeMostLikelySequence()} with
+     * rain as candidate 0 and sun as candidate 1.
+     */
+    @Test
+    public void testComputeMostLikelySequence() {
+        final double[] umbrella = {log(0.9), log(0.2)};
+        final double[] noUmbrella = {log(0.1), log(0.8)};
+        final double[] transitions = {log(0.7), log(0.3), log(0.3), log(0.7)};
+        final String[] descriptors = {"R2R", "R2S", "S2R", "S2S"};
+
+        final IndexedViterbiAlgorithm<String> viterbi = new IndexedViterbiAlgorithm<>();
+        viterbi.startWithInitialObservation(umbrella);
+        viterbi.nextStep(umbrella, transitions, descriptors);
+        viterbi.nextStep(noUmbrella, transitions, descriptors);
+        viterbi.nextStep(umbrella, transitions, descriptors);
+
+        assertArrayEquals(new int[]{0, 0, 1, 0}, viterbi.computeMostLikelySequence());
+        assertNull(viterbi.getTransitionDescriptor(0, 0));
+        assertEquals("R2R", viterbi.getTransitionDescriptor(1, 0));
+        assertEquals("R2S", viterbi.getTransitionDescriptor(2, 1));
+        assertEquals("S2R", viterbi.getTransitionDescriptor(3, 0));
+        assertFalse(viterbi.isBroken());
+
+        final double[] message = viterbi.getMessage();
+        assertEquals(2, message.length);
+        assertEquals(0.0367416, Math.exp(message[0]), DELTA);
+        assertEquals(0.0190512, Math.exp(message[1]), DELTA);
+    }
+
+    @Test
+    public void testUnusedDescriptorsAreDropped() {
+        final IndexedViterbiAlgorithm<String> viterbi = new IndexedViterbiAlgorithm<>();
+        viterbi.startWithInitialObservation(new double[]{log(0.5), log(0.5)});
+        viterbi.nextStep(new double[]{log(0.5), log(0.5)},
+                new double[]{log(0.9), log(0.2), log(0.1), log(0.8)},
+                new String[]{"0to0", "0to1", "1to0", "1to1"});
+        assertEquals("0to0", viterbi.getTransitionDescriptor(1, 0));
+        assertEquals("1to1", viterbi.getTransitionDescriptor(1, 1));
+
+        // candidate 1 has no successor, so it cannot be part of the most likely sequence anymore
+        viterbi.nextStep(new double[]{log(0.5)}, new double[]{log(0.5), ZERO}, new String[]{"0to0", null});
+        assertEquals("0to0", viterbi.getTransitionDescriptor(1, 0));
+        assertNull(viterbi.getTransitionDescriptor(1, 1));
+        viterbi.nextStep(new double[]{log(0.5), log(0.5)}, new double[]{log(0.5), log(0.5)},
+                new String[]{"0to0", "0to1"});
+        assertArrayEquals(new int[]{0, 0, 0, 0}, viterbi.computeMostLikelySequence());
+        assertEquals("0to0", viterbi.getTransitionDescriptor(1, 0));
+        assertEquals("0to0", viterbi.getTransitionDescriptor(2, 0));
+        assertEquals("0to0", viterbi.getTransitionDescriptor(3, 0));
+        assertEquals("0to1", viterbi.getTransitionDescriptor(3, 1));
+    }
+
+    @Test
+    public void testEmptySequence() {
+        final IndexedViterbiAlgorithm<String> viterbi = new IndexedViterbiAlgorithm<>();
+        assertEquals(0, viterbi.computeMostLikelySequence().length);
+        assertFalse(viterbi.isBroken());
+    }
+
+    @Test
+    public void testBreakAtInitialMessage() {
+        final IndexedViterbiAlgorithm<String> viterbi = new IndexedViterbiAlgorithm<>();
+        viterbi.startWithInitialObservation(new double[]{ZERO, ZERO});
+        assertTrue(viterbi.isBroken());
+        assertEquals(0, viterbi.computeMostLikelySequence().length);
+    }
+
+    @Test
+    public void testBreakAtSecondTransition() {
+        final IndexedViterbiAlgorithm<String> viterbi = new IndexedViterbiAlgorithm<>();
+        viterbi.startWithInitialObservation(new double[]{log(0.9)});
+        viterbi.nextStep(new double[]{log(0.9)}, new double[]{log(0.5)});
+        assertFalse(viterbi.isBroken());
+        viterbi.nextStep(new double[]{log(0.9), log(0.5)}, new double[]{ZERO, ZERO});
+        assertTrue(viterbi.isBroken());
+        // the sequence before the break is returned
+        assertArrayEquals(new int[]{0, 0}, viterbi.computeMostLikelySequence());
+        try {
+            viterbi.nextStep(new double[]{log(0.9)}, new double[]{log(0.5)});
+            fail();
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        final IndexedViterbiAlgorithm<String> viterbi = new IndexedViterbiAlgorithm<>();
+        try {
+            viterbi.nextStep(new double[]{0}, new double[]{0});
+            fail();
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        viterbi.startWithInitialObservation(new double[]{log(0.5), log(0.5)});
+        try {
+            viterbi.startWithInitialObservation(new double[]{log(0.5)});
+            fail();
+        } catch (IllegalStateException ex) {
+            // expected
+        }
+        try {
+            viterbi.nextStep(new double[]{0, 0, 0}, new double[4]);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+        try {
+            viterbi.nextStep(new double[]{0, 0}, new double[4], new String[3]);
+            fail();
+        } catch (IllegalArgumentException ex) {
+            // expected
+        }
+    }
+
+    /**
+     * Compares the results with the ones of {@link ViterbiAlgorithm} for random time steps with a
+     * varying number of candidates and missing transitions.
+     */
+    @Test
+    public void testSameResultAsViterbiAlgorithm() {
+        final Random random = new Random(123);
+        for (int run = 0; run < 100; run++) {
+            final ViterbiAlgorithm<Integer, Integer, String> viterbi = new ViterbiAlgorithm<>();
+            final IndexedViterbiAlgorithm<String> indexedViterbi = new IndexedViterbiAlgorithm<>();
+            // the candidates are numbered consecutively, so a candidate is the first candidate of its
+            // time step plus its index
+            final List<Integer> firstCandidates = new ArrayList<>();
+            List<Integer> prevCandidates = null;
+            int stateId = 0;
+            for (int timeStep = 0; timeStep < 20 && !viterbi.isBroken(); timeStep++) {
+                final int count = 1 + random.nextInt(6);
+                final List<Integer> candidates = new ArrayList<>();
+                final Map<Integer, Double> emissions = new HashMap<>();
+                final double[] emissionArray = new double[count];
+                for (int i = 0; i < count; i++) {
+                    candidates.add(stateId++);
+                    emissionArray[i] = log(random.nextDouble());
+                    emissions.put(candidates.get(i), emissionArray[i]);
+                }
+                if (prevCandidates == null) {
+                    viterbi.startWithInitialObservation(timeStep, candidates, emissions);
+                    indexedViterbi.startWithInitialObservation(emissionArray);
+                } else {
+                    final Map<Transition<Integer>, Double> transitions = new HashMap<>();
+                    final Map<Transition<Integer>, String> descriptors = new HashMap<>();
+                    final double[] transitionArray = new double[prevCandidates.size() * count];
+                    final String[] descriptorArray = new String[transitionArray.length];
+                    for (int prev = 0; prev < prevCandidates.size(); prev++) {
+                        for (int cur = 0; cur < count; cur++) {
+                            final int index = prev * count + cur;
+                            transitionArray[index] = ZERO;
+                            if (random.nextInt(5) == 0) {
+                                continue;
+                            }
+                            final Transition<Integer> transition = new Transition<>(prevCandidates.get(prev), candidates.get(cur));
+                            transitionArray[index] = log(random.nextDouble());
+                            descriptorArray[index] = transition.toString();
+                            transitions.put(transition, transitionArray[index]);
+                            descriptors.put(transition, descriptorArray[index]);
+                        }
+                    }
+                    viterbi.nextStep(timeStep, candidates, emissions, transitions, descriptors);
+                    indexedViterbi.nextStep(emissionArray, transitionArray, descriptorArray);
+                    assertEquals(viterbi.isBroken(), indexedViterbi.isBroken());
+                }
+                if (!viterbi.isBroken()) {
+                    prevCandidates = candidates;
+                    firstCandidates.add(candidates.get(0));
+                }
+            }
+
+            final List<SequenceState<Integer, Integer, String>> expected = viterbi.computeMostLikelySequence();
+            final int[] actual = indexedViterbi.computeMostLikelySequence();
+            assertEquals(expected.size(), actual.length);
+            for (int timeStep = 0; timeStep < actual.length; timeStep++) {
+                assertEquals(expected.get(timeStep).state.intValue(), firstCandidates.get(timeStep) + actual[timeStep]);
+                assertEquals(expected.get(timeStep).transitionDescriptor, indexedViterbi.getTransitionDescriptor(timeStep, actual[timeStep]));
+            }
+        }
+    }
+}
@@ -352,4 +352,114 @@ public class ViterbiAlgorithmTest {
         assertEquals(Rain.T, result.get(3).state);
     }
 
-}
\ No newline at end of file
+
+    private ViterbiAlgorithm<Rain, Umbrella, Descriptor> startUmbrellaExample() {
+        final ViterbiAlgorithm<Rain, Umbrella, Descriptor> viterbi = new ViterbiAlgorithm<>(true);
+        viterbi.startWithInitialObservation(Umbrella.T, Arrays.asList(Rain.T, Rain.F),
+                umbrellaEmissionLogProbabilities(Umbrella.T));
+        return viterbi;
+    }
+
+    private void nextUmbrellaStep(ViterbiAlgorithm<Rain, Umbrella, Descriptor> viterbi,
+                                  Umbrella umbrella) {
+        final Map<Transition<Rain>, Double> transitionLogProbabilities = new LinkedHashMap<>();
+        transitionLogProbabilities.put(new Transition<>(Rain.T, Rain.T), log(0.7));
+        transitionLogProbabilities.put(new Transition<>(Rain.T, Rain.F), log(0.3));
+        transitionLogProbabilities.put(new Transition<>(Rain.F, Rain.T), log(0.3));
+        transitionLogProbabilities.put(new Transition<>(Rain.F, Rain.F), log(0.7));
+
+        final Map<Transition<Rain>, Descriptor> transitionDescriptors = new LinkedHashMap<>();
+        transitionDescriptors.put(new Transition<>(Rain.T, Rain.T), Descriptor.R2R);
+        transitionDescriptors.put(new Transition<>(Rain.T, Rain.F), Descriptor.R2S);
+        transitionDescriptors.put(new Transition<>(Rain.F, Rain.T), Descriptor.S2R);
+        transitionDescriptors.put(new Transition<>(Rain.F, Rain.F), Descriptor.S2S);
+
+        viterbi.nextStep(umbrella, Arrays.asList(Rain.T, Rain.F),
+                umbrellaEmissionLogProbabilities(umbrella), transitionLogProbabilities,
+                transitionDescriptors);
+    }
+
+    private Map<Rain, Double> umbrellaEmissionLogProbabilities(Umbrella umbrella) {
+        final Map<Rain, Double> emissionLogProbabilities = new LinkedHashMap<>();
+        emissionLogProbabilities.put(Rain.T, log(umbrella == Umbrella.T ? 0.9 : 0.1));
+        emissionLogProbabilities.put(Rain.F, log(umbrella == Umbrella.T ? 0.2 : 0.8));
+        return emissionLogProbabilities;
+    }
+
+    @Test
+    public void testPollFinalizedSequence() {
+        final ViterbiAlgorithm<Rain, Umbrella, Descriptor> viterbi = startUmbrellaExample();
+        // the first time step is not final as long as both states are possible
+        assertTrue(viterbi.pollFinalizedSequence(Integer.MAX_VALUE).isEmpty());
+
+        // the back pointers of both states lead to rain at the first time step
+        nextUmbrellaStep(viterbi, Umbrella.T);
+        List<SequenceState<Rain, Umbrella, Descriptor>> finalized =
+                viterbi.pollFinalizedSequence(Integer.MAX_VALUE);
+        assertEquals(Collections.singletonList(Rain.T), states(finalized));
+        assertEquals(Umbrella.T, finalized.get(0).observation);
+        assertNull(finalized.get(0).transitionDescriptor);
+        assertTrue(viterbi.pollFinalizedSequence(Integer.MAX_VALUE).isEmpty());
+
+        nextUmbrellaStep(viterbi, Umbrella.F);
+        finalized = viterbi.pollFinalizedSequence(Integer.MAX_VALUE);
+        assertEquals(Collections.singletonList(Rain.T), states(finalized));
+        assertEquals(Descriptor.R2R, finalized.get(0).transitionDescriptor);
+
+        nextUmbrellaStep(viterbi, Umbrella.T);
+        finalized = viterbi.pollFinalizedSequence(Integer.MAX_VALUE);
+        assertEquals(Collections.singletonList(Rain.F), states(finalized));
+        assertEquals(Descriptor.R2S, finalized.get(0).transitionDescriptor);
+
+        // the remaining part of the most likely sequence
+        final List<SequenceState<Rain, Umbrella, Descriptor>> rest =
+                viterbi.computeMostLikelySequence();
+        assertEquals(Collections.singletonList(Rain.T), states(rest));
+        assertEquals(Descriptor.S2R, rest.get(0).transitionDescriptor);
+    }
+
+    @Test
+    public void testPollFinalizedSequenceWithMaxPendingTimeSteps() {
+        final ViterbiAlgorithm<Rain, Umbrella, Descriptor> viterbi = startUmbrellaExample();
+        final List<Rain> states = new ArrayList<>();
+        // nothing is pending, so every time step is finalized immediately
+        states.addAll(states(viterbi.pollFinalizedSequence(0)));
+        assertEquals(Collections.singletonList(Rain.T), states);
+        for (Umbrella umbrella : Arrays.asList(Umbrella.T, Umbrella.F, Umbrella.T)) {
+            nextUmbrellaStep(viterbi, umbrella);
+            final List<SequenceState<Rain, Umbrella, Descriptor>> finalized =
+                    viterbi.pollFinalizedSequence(0);
+            assertEquals(1, finalized.size());
+            states.add(finalized.get(0).state);
+        }
+        assertEquals(Arrays.asList(Rain.T, Rain.T, Rain.F, Rain.T), states);
+        assertTrue(viterbi.computeMostLikelySequence().isEmpty());
+        assertFalse(viterbi.isBroken());
+
+        // dropping candidates does not change the message history
+        final Map<Rain, Double> message = new LinkedHashMap<>();
+        message.put(Rain.T, 0.9);
+        message.put(Rain.F, 0.2);
+        checkMessage(message, viterbi.messageHistory().get(0));
+
+        try {
+            viterbi.pollFinalizedSequence(-1);
+            fail("negative maxPendingTimeSteps must not be accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    @Test
+    public void testPollFinalizedSequenceWithOneCandidate() {
+        final ViterbiAlgorithm<Rain, Umbrella, Descriptor> viterbi = new ViterbiAlgorithm<>();
+        viterbi.startWithInitialObservation(Umbrella.T, Collections.singletonList(Rain.T),
+                umbrellaEmissionLogProbabilities(Umbrella.T));
+        assertEquals(Collections.singletonList(Rain.T),
+                states(viterbi.pollFinalizedSequence(Integer.MAX_VALUE)));
+        nextUmbrellaStep(viterbi, Umbrella.F);
+        // both candidates are possible again
+        assertTrue(viterbi.pollFinalizedSequence(Integer.MAX_VALUE).isEmpty());
+        assertEquals(Collections.singletonList(Rain.F), states(viterbi.computeMostLikelySequence()));
+    }
+
+}
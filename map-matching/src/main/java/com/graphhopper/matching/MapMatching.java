@@ -17,6 +17,7 @@
  */
 package com.graphhopper.matching;
 
+import com.bmw.hmm.IndexedViterbiAlgorithm;
 import com.bmw.hmm.SequenceState;
 import com.bmw.hmm.Transition;
 import com.bmw.hmm.ViterbiAlgorithm;
@@ -61,11 +62,12 @@ import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
  * the distance between GPX entries and map matching candidates as well as the
  * routing distances between consecutive map matching candidates.
  * <p>
- * <p>
  * See http://en.wikipedia.org/wiki/Map_matching and Newson, Paul, and John
  * Krumm. "Hidden Markov map matching through noise and sparseness." Proceedings
  * of the 17th ACM SIGSPATIAL International Conference on Advances in Geographic
  * Information Systems. ACM, 2009.
+ * <p>
+ * An instance is not thread-safe, use one instance per thread.
  *
  * @author Peter Karich
  * @author Michael Zilske
@@ -74,6 +76,15 @@ import static com.graphhopper.util.DistancePlaneProjection.DIST_PLANE;
  */
 public class MapMatching {
 
+    /**
+     * Calculates the transitions with one search per pair of candidates
+     */
+    public static final String POINT_TO_POINT = "point_to_point";
+    /**
+     * Calculates the transitions with one search per candidate of the previous observation, see {@link MultiTargetDijkstra}
+     */
+    public static final String ONE_TO_MANY = "one_to_many";
+
     private final Logger logger = LoggerFactory.getLogger(getClass());
 
     private final Graph graph;
@@ -82,11 +93,14 @@ public class MapMatching {
     private double measurementErrorSigma = 50.0;
     private double transitionProbabilityBeta = 2.0;
     private final int maxVisitedNodes;
+    private final boolean oneToManyTransitions;
     private final DistanceCalc distanceCalc = new DistancePlaneProjection();
     private final Weighting unwrappedWeighting;
-    private Weighting weighting;
     private final BooleanEncodedValue inSubnetworkEnc;
-    private QueryGraph queryGraph;
+    private final EdgeFilter snapFilter;
+    // reused by the candidate search, this is why an instance must not be shared between threads
+    private final IntHashSet seenEdges = new IntHashSet();
+    private final IntHashSet seenNodes = new IntHashSet();
 
     public MapMatching(GraphHopper graphHopper, PMap hints) {
         this.locationIndex = (LocationIndexTree) graphHopper.getLocationIndex();
@@ -144,7 +158,13 @@ public class MapMatching {
         graph = graphHopper.getGraphHopperStorage();
         unwrappedWeighting = graphHopper.createWeighting(profile, hints);
         inSubnetworkEnc = graphHopper.getEncodingManager().getBooleanEncodedValue(Subnetwork.key(profileStr));
+        snapFilter = new DefaultSnapFilter(unwrappedWeighting, inSubnetworkEnc);
         this.maxVisitedNodes = hints.getInt(Parameters.Routing.MAX_VISITED_NODES, Integer.MAX_VALUE);
+
+        String transitionRouting = hints.getString(Parameters.Routing.TRANSITION_ROUTING, POINT_TO_POINT);
+        if (!POINT_TO_POINT.equals(transitionRouting) && !ONE_TO_MANY.equals(transitionRouting))
+            throw new IllegalArgumentException(Parameters.Routing.TRANSITION_ROUTING + " must be " + POINT_TO_POINT + " or " + ONE_TO_MANY + " but was: " + transitionRouting);
+        oneToManyTransitions = ONE_TO_MANY.equals(transitionRouting);
     }
 
     /**
@@ -163,6 +183,16 @@ public class MapMatching {
         this.measurementErrorSigma = measurementErrorSigma;
     }
 
+    /**
+     * Creates a session that matches the observations one after another, see {@link MapMatchingSession}.
+     *
+     * @param maxPendingObservations the maximum number of observations whose match is not final yet, more pending
+     *                               observations are finalized with the currently most likely sequence
+     */
+    public MapMatchingSession createSession(int maxPendingObservations) {
+        return new MapMatchingSession(this, maxPendingObservations);
+    }
+
     public MatchResult match(List<Observation> observations) {
         List<Observation> filteredObservations = filterObservations(observations);
 
@@ -173,15 +203,15 @@ public class MapMatching {
 
         // Create the query graph, containing split edges so that all the places where an observation might have happened
         // are a node. This modifies the Snap objects and puts the new node numbers into them.
-        queryGraph = QueryGraph.create(graph, snapsPerObservation.stream().flatMap(Collection::stream).collect(Collectors.toList()));
-        weighting = queryGraph.wrapWeighting(unwrappedWeighting);
+        QueryGraph queryGraph = createQueryGraph(snapsPerObservation.stream().flatMap(Collection::stream).collect(Collectors.toList()));
+        Weighting weighting = queryGraph.wrapWeighting(unwrappedWeighting);
 
         // Creates candidates from the Snaps of all observations (a candidate is basically a
         // Snap + direction).
-        List<ObservationWithCandidateStates> timeSteps = createTimeSteps(filteredObservations, snapsPerObservation);
+        List<ObservationWithCandidateStates> timeSteps = createTimeSteps(queryGraph, filteredObservations, snapsPerObservation);
 
         // Compute the most likely sequence of map matching candidates:
-        List<SequenceState<State, Observation, Path>> seq = computeViterbiSequence(timeSteps);
+        List<SequenceState<State, Observation, Path>> seq = computeViterbiSequence(queryGraph, weighting, timeSteps);
 
         List<EdgeIteratorState> path = seq.stream().filter(s1 -> s1.transitionDescriptor != null).flatMap(s1 -> s1.transitionDescriptor.calcEdges().stream()).collect(Collectors.toList());
 
@@ -205,9 +235,7 @@ public class MapMatching {
         int last = observations.size() - 1;
         for (int i = 0; i <= last; i++) {
             Observation observation = observations.get(i);
-            if (i == 0 || i == last || distanceCalc.calcDist(
-                    prevEntry.getPoint().getLat(), prevEntry.getPoint().getLon(),
-                    observation.getPoint().getLat(), observation.getPoint().getLon()) > 2 * measurementErrorSigma) {
+            if (i == 0 || i == last || !isTooClose(prevEntry, observation)) {
                 filtered.add(observation);
                 prevEntry = observation;
             } else {
@@ -217,6 +245,14 @@ public class MapMatching {
         return filtered;
     }
 
+    /**
+     * @return true if the observation is too close to the previous one to be used for map matching
+     */
+    boolean isTooClose(Observation prevObservation, Observation observation) {
+        return distanceCalc.calcDist(prevObservation.getPoint().getLat(), prevObservation.getPoint().getLon(),
+                observation.getPoint().getLat(), observation.getPoint().getLon()) <= 2 * measurementErrorSigma;
+    }
+
     public List<Snap> findCandidateSnaps(final double queryLat, final double queryLon) {
         double rLon = (measurementErrorSigma * 360.0 / DistanceCalcEarth.DIST_EARTH.calcCircumference(queryLat));
         double rLat = measurementErrorSigma / DistanceCalcEarth.METERS_PER_DEGREE;
@@ -232,13 +268,12 @@ public class MapMatching {
     }
 
     private List<Snap> findCandidateSnapsInBBox(double queryLat, double queryLon, BBox queryShape) {
-        EdgeFilter edgeFilter = new DefaultSnapFilter(unwrappedWeighting, inSubnetworkEnc);
         List<Snap> snaps = new ArrayList<>();
-        IntHashSet seenEdges = new IntHashSet();
-        IntHashSet seenNodes = new IntHashSet();
+        seenEdges.clear();
+        seenNodes.clear();
         locationIndex.query(queryShape, edgeId -> {
             EdgeIteratorState edge = graph.getEdgeIteratorStateForKey(edgeId * 2);
-            if (seenEdges.add(edgeId) && edgeFilter.accept(edge)) {
+            if (seenEdges.add(edgeId) && snapFilter.accept(edge)) {
                 Snap snap = new Snap(queryLat, queryLon);
                 locationIndex.traverseEdge(queryLat, queryLon, edge, (node, normedDist, wayIndex, pos) -> {
                     if (normedDist < snap.getQueryDistance()) {
@@ -262,12 +297,27 @@ public class MapMatching {
         return snaps;
     }
 
+    Graph getGraph() {
+        return graph;
+    }
+
+    /**
+     * @return the weighting of the profile, it has to be wrapped for a query graph
+     */
+    Weighting getWeighting() {
+        return unwrappedWeighting;
+    }
+
+    QueryGraph createQueryGraph(List<Snap> snaps) {
+        return QueryGraph.create(graph, snaps);
+    }
+
     /**
      * Creates TimeSteps with candidates for the GPX entries but does not create emission or
      * transition probabilities. Creates directed candidates for virtual nodes and undirected
      * candidates for real nodes.
      */
-    private List<ObservationWithCandidateStates> createTimeSteps(List<Observation> filteredObservations, List<Collection<Snap>> splitsPerObservation) {
+    List<ObservationWithCandidateStates> createTimeSteps(QueryGraph queryGraph, List<Observation> filteredObservations, List<? extends Collection<Snap>> splitsPerObservation) {
         if (splitsPerObservation.size() != filteredObservations.size()) {
             throw new IllegalArgumentException(
                     "filteredGPXEntries and queriesPerEntry must have same size.");
@@ -313,54 +363,113 @@ public class MapMatching {
     }
 
     /**
-     * Computes the most likely state sequence for the observations.
+     * Computes the most likely state sequence for the observations. The candidates are referenced by their index
+     * within the time step, so no maps of states and transitions are needed, see {@link IndexedViterbiAlgorithm}.
      */
-    private List<SequenceState<State, Observation, Path>> computeViterbiSequence(List<ObservationWithCandidateStates> timeSteps) {
+    private List<SequenceState<State, Observation, Path>> computeViterbiSequence(QueryGraph queryGraph, Weighting weighting, List<ObservationWithCandidateStates> timeSteps) {
+        final IndexedViterbiAlgorithm<Path> viterbi = new IndexedViterbiAlgorithm<>();
         final HmmProbabilities probabilities = new HmmProbabilities(measurementErrorSigma, transitionProbabilityBeta);
-        final ViterbiAlgorithm<State, Observation, Path> viterbi = new ViterbiAlgorithm<>();
 
         int timeStepCounter = 0;
         ObservationWithCandidateStates prevTimeStep = null;
         for (ObservationWithCandidateStates timeStep : timeSteps) {
-            final Map<State, Double> emissionLogProbabilities = new HashMap<>();
-            Map<Transition<State>, Double> transitionLogProbabilities = new HashMap<>();
-            Map<Transition<State>, Path> roadPaths = new HashMap<>();
-            for (State candidate : timeStep.candidates) {
-                // distance from observation to road in meters
-                final double distance = candidate.getSnap().getQueryDistance();
-                emissionLogProbabilities.put(candidate, probabilities.emissionLogProbability(distance));
-            }
-
+            double[] emissionLogProbabilities = calcEmissionLogProbabilities(probabilities, timeStep);
             if (prevTimeStep == null) {
-                viterbi.startWithInitialObservation(timeStep.observation, timeStep.candidates, emissionLogProbabilities);
+                viterbi.startWithInitialObservation(emissionLogProbabilities);
             } else {
-                final double linearDistance = distanceCalc.calcDist(prevTimeStep.observation.getPoint().lat,
-                        prevTimeStep.observation.getPoint().lon, timeStep.observation.getPoint().lat, timeStep.observation.getPoint().lon);
-
-                for (State from : prevTimeStep.candidates) {
-                    for (State to : timeStep.candidates) {
-                        final Path path = createRouter().calcPath(from.getSnap().getClosestNode(), to.getSnap().getClosestNode(), from.isOnDirectedEdge() ? from.getOutgoingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE, to.isOnDirectedEdge() ? to.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE);
-                        if (path.isFound()) {
-                            double transitionLogProbability = probabilities.transitionLogProbability(path.getDistance(), linearDistance);
-                            Transition<State> transition = new Transition<>(from, to);
-                            roadPaths.put(transition, path);
-                            transitionLogProbabilities.put(transition, transitionLogProbability);
-                        }
-                    }
-                }
-                viterbi.nextStep(timeStep.observation, timeStep.candidates,
-                        emissionLogProbabilities, transitionLogProbabilities,
-                        roadPaths);
+                double[] transitionLogProbabilities = new double[prevTimeStep.candidates.size() * timeStep.candidates.size()];
+                Path[] paths = new Path[transitionLogProbabilities.length];
+                calcTransitions(queryGraph, weighting, probabilities, prevTimeStep, timeStep, transitionLogProbabilities, paths);
+                viterbi.nextStep(emissionLogProbabilities, transitionLogProbabilities, paths);
             }
             if (viterbi.isBroken()) {
                 fail(timeStepCounter, prevTimeStep, timeStep);
             }
-
             timeStepCounter++;
             prevTimeStep = timeStep;
         }
 
-        return viterbi.computeMostLikelySequence();
+        int[] candidates = viterbi.computeMostLikelySequence();
+        List<SequenceState<State, Observation, Path>> seq = new ArrayList<>(candidates.length);
+        for (int i = 0; i < candidates.length; i++) {
+            ObservationWithCandidateStates timeStep = timeSteps.get(i);
+            seq.add(new SequenceState<>(timeStep.candidates.get(candidates[i]), timeStep.observation, viterbi.getTransitionDescriptor(i, candidates[i])));
+        }
+        return seq;
+    }
+
+    /**
+     * Calculates the emission and transition probabilities of the time step and adds it to the Viterbi algorithm.
+     *
+     * @param prevTimeStep the previous time step with candidates in the specified query graph or null for the first
+     *                     time step
+     * @param prevStates   the candidates of the previous time step as they are known to the Viterbi algorithm, in the
+     *                     same order as the candidates of prevTimeStep
+     * @see ViterbiAlgorithm#isBroken()
+     */
+    void addTimeStep(ViterbiAlgorithm<State, Observation, Path> viterbi, QueryGraph queryGraph, Weighting weighting,
+                     ObservationWithCandidateStates prevTimeStep, List<State> prevStates, ObservationWithCandidateStates timeStep) {
+        final HmmProbabilities probabilities = new HmmProbabilities(measurementErrorSigma, transitionProbabilityBeta);
+        final double[] emissions = calcEmissionLogProbabilities(probabilities, timeStep);
+        final Map<State, Double> emissionLogProbabilities = new HashMap<>();
+        for (int i = 0; i < emissions.length; i++) {
+            emissionLogProbabilities.put(timeStep.candidates.get(i), emissions[i]);
+        }
+
+        if (prevTimeStep == null) {
+            viterbi.startWithInitialObservation(timeStep.observation, timeStep.candidates, emissionLogProbabilities);
+        } else {
+            double[] transitions = new double[prevTimeStep.candidates.size() * timeStep.candidates.size()];
+            Path[] paths = new Path[transitions.length];
+            calcTransitions(queryGraph, weighting, probabilities, prevTimeStep, timeStep, transitions, paths);
+            Map<Transition<State>, Double> transitionLogProbabilities = new HashMap<>();
+            Map<Transition<State>, Path> roadPaths = new HashMap<>();
+            for (int i = 0; i < transitions.length; i++) {
+                if (paths[i] != null) {
+                    State from = prevStates.get(i / timeStep.candidates.size());
+                    Transition<State> transition = new Transition<>(from, timeStep.candidates.get(i % timeStep.candidates.size()));
+                    roadPaths.put(transition, paths[i]);
+                    transitionLogProbabilities.put(transition, transitions[i]);
+                }
+            }
+            viterbi.nextStep(timeStep.observation, timeStep.candidates,
+                    emissionLogProbabilities, transitionLogProbabilities,
+                    roadPaths);
+        }
+    }
+
+    private static double[] calcEmissionLogProbabilities(HmmProbabilities probabilities, ObservationWithCandidateStates timeStep) {
+        double[] emissionLogProbabilities = new double[timeStep.candidates.size()];
+        for (int i = 0; i < emissionLogProbabilities.length; i++) {
+            // distance from observation to road in meters
+            final double distance = timeStep.candidates.get(i).getSnap().getQueryDistance();
+            emissionLogProbabilities[i] = probabilities.emissionLogProbability(distance);
+        }
+        return emissionLogProbabilities;
+    }
+
+    /**
+     * Calculates the transitions from every candidate of the previous time step to every candidate of the time step.
+     * The transition from the i-th to the j-th candidate is stored at index i * timeStep.candidates.size() + j, missing
+     * transitions have a log probability of -infinity and no path.
+     */
+    private void calcTransitions(QueryGraph queryGraph, Weighting weighting, HmmProbabilities probabilities,
+                                 ObservationWithCandidateStates prevTimeStep, ObservationWithCandidateStates timeStep,
+                                 double[] transitionLogProbabilities, Path[] paths) {
+        final double linearDistance = distanceCalc.calcDist(prevTimeStep.observation.getPoint().lat,
+                prevTimeStep.observation.getPoint().lon, timeStep.observation.getPoint().lat, timeStep.observation.getPoint().lon);
+        int index = 0;
+        for (State from : prevTimeStep.candidates) {
+            for (Path path : calcTransitionPaths(queryGraph, weighting, from, timeStep.candidates, linearDistance)) {
+                if (path.isFound()) {
+                    transitionLogProbabilities[index] = probabilities.transitionLogProbability(path.getDistance(), linearDistance);
+                    paths[index] = path;
+                } else {
+                    transitionLogProbabilities[index] = Double.NEGATIVE_INFINITY;
+                }
+                index++;
+            }
+        }
     }
 
     private void fail(int timeStepCounter, ObservationWithCandidateStates prevTimeStep, ObservationWithCandidateStates timeStep) {
@@ -378,10 +487,41 @@ public class MapMatching {
                 + likelyReasonStr + "observation:" + timeStep.observation + ", "
                 + timeStep.candidates.size() + " candidates: "
                 + getSnappedCandidates(timeStep.candidates)
-                + ". If a match is expected consider increasing max_visited_nodes.");
+                + ". If a match is expected consider increasing max_visited_nodes"
+                + (oneToManyTransitions ? " or using " + Parameters.Routing.TRANSITION_ROUTING + "=" + POINT_TO_POINT + " which does not limit the distance of the transitions." : "."));
+    }
+
+    /**
+     * @return the paths from the specified candidate to all candidates of the next observation
+     */
+    private List<Path> calcTransitionPaths(QueryGraph queryGraph, Weighting weighting, State from, Collection<State> candidates, double linearDistance) {
+        int fromOutEdge = from.isOnDirectedEdge() ? from.getOutgoingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE;
+        if (oneToManyTransitions) {
+            int[] toNodes = new int[candidates.size()];
+            int[] toInEdges = new int[candidates.size()];
+            int i = 0;
+            for (State to : candidates) {
+                toNodes[i] = to.getSnap().getClosestNode();
+                toInEdges[i] = to.isOnDirectedEdge() ? to.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE;
+                i++;
+            }
+            MultiTargetDijkstra algo = new MultiTargetDijkstra(queryGraph, weighting, TraversalMode.EDGE_BASED);
+            algo.setMaxVisitedNodes(maxVisitedNodes);
+            // much longer paths get a negligible transition probability: allow detours up to twice the linear distance
+            // plus some slack for the distances between the observations and the candidates
+            algo.setMaxDistance(2 * linearDistance + 4 * measurementErrorSigma);
+            return algo.calcPaths(from.getSnap().getClosestNode(), fromOutEdge, toNodes, toInEdges);
+        }
+
+        List<Path> paths = new ArrayList<>(candidates.size());
+        for (State to : candidates) {
+            paths.add(createRouter(queryGraph, weighting).calcPath(from.getSnap().getClosestNode(), to.getSnap().getClosestNode(), fromOutEdge,
+                    to.isOnDirectedEdge() ? to.getIncomingVirtualEdge().getEdge() : EdgeIterator.ANY_EDGE));
+        }
+        return paths;
     }
 
-    private BidirRoutingAlgorithm createRouter() {
+    private BidirRoutingAlgorithm createRouter(QueryGraph queryGraph, Weighting weighting) {
         BidirRoutingAlgorithm router;
         if (landmarks != null) {
             AStarBidirection algo = new AStarBidirection(queryGraph, weighting, TraversalMode.EDGE_BASED) {
@@ -408,60 +548,114 @@ public class MapMatching {
     }
 
     private List<EdgeMatch> prepareEdgeMatches(List<SequenceState<State, Observation, Path>> seq) {
-        // This creates a list of directed edges (EdgeIteratorState instances turned the right way),
-        // each associated with 0 or more of the observations.
-        // These directed edges are edges of the real street graph, where nodes are intersections.
-        // So in _this_ representation, the path that you get when you just look at the edges goes from
-        // an intersection to an intersection.
-
-        // Implementation note: We have to look at both states _and_ transitions, since we can have e.g. just one state,
-        // or two states with a transition that is an empty path (observations snapped to the same node in the query graph),
-        // but these states still happen on an edge, and for this representation, we want to have that edge.
-        // (Whereas in the ResponsePath representation, we would just see an empty path.)
-
-        // Note that the result can be empty, even when the input is not. Observations can be on nodes as well as on
-        // edges, and when all observations are on the same node, we get no edge at all.
-        // But apart from that corner case, all observations that go in here are also in the result.
-
-        // (Consider totally forbidding candidate states to be snapped to a point, and make them all be on directed
-        // edges, then that corner case goes away.)
-        List<EdgeMatch> edgeMatches = new ArrayList<>();
-        List<State> states = new ArrayList<>();
-        EdgeIteratorState currentDirectedRealEdge = null;
+        EdgeMatchCollector collector = new EdgeMatchCollector(graph);
         for (SequenceState<State, Observation, Path> transitionAndState : seq) {
+            collector.add(transitionAndState);
+        }
+        return collector.finish();
+    }
+
+    /**
+     * Converts the most likely sequence into edge matches. The sequence can be added in several parts, e.g. while it
+     * is finalized by a {@link MapMatchingSession}, and the transitions can be calculated in different query graphs.
+     */
+    static class EdgeMatchCollector {
+        private final Graph graph;
+        private List<EdgeMatch> edgeMatches = new ArrayList<>();
+        private List<State> states = new ArrayList<>();
+        private EdgeIteratorState currentDirectedRealEdge;
+
+        EdgeMatchCollector(Graph graph) {
+            this.graph = graph;
+        }
+
+        void add(SequenceState<State, Observation, Path> transitionAndState) {
+            // This creates a list of directed edges (EdgeIteratorState instances turned the right way),
+            // each associated with 0 or more of the observations.
+            // These directed edges are edges of the real street graph, where nodes are intersections.
+            // So in _this_ representation, the path that you get when you just look at the edges goes from
+            // an intersection to an intersection.
+
+            // Implementation note: We have to look at both states _and_ transitions, since we can have e.g. just one state,
+            // or two states with a transition that is an empty path (observations snapped to the same node in the query graph),
+            // but these states still happen on an edge, and for this representation, we want to have that edge.
+            // (Whereas in the ResponsePath representation, we would just see an empty path.)
+
+            // Note that the result can be empty, even when the input is not. Observations can be on nodes as well as on
+            // edges, and when all observations are on the same node, we get no edge at all.
+            // But apart from that corner case, all observations that go in here are also in the result.
+
+            // (Consider totally forbidding candidate states to be snapped to a point, and make them all be on directed
+            // edges, then that corner case goes away.)
+
             // transition (except before the first state)
             if (transitionAndState.transitionDescriptor != null) {
                 for (EdgeIteratorState edge : transitionAndState.transitionDescriptor.calcEdges()) {
-                    EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(edge);
-                    if (currentDirectedRealEdge != null) {
-                        if (!equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
-                            EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
-                            edgeMatches.add(edgeMatch);
-                            states = new ArrayList<>();
-                        }
-                    }
-                    currentDirectedRealEdge = newDirectedRealEdge;
+                    addEdge(resolveToRealEdge(edge));
                 }
             }
             // state
             if (transitionAndState.state.isOnDirectedEdge()) { // as opposed to on a node
-                EdgeIteratorState newDirectedRealEdge = resolveToRealEdge(transitionAndState.state.getOutgoingVirtualEdge());
-                if (currentDirectedRealEdge != null) {
-                    if (!equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
-                        EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
-                        edgeMatches.add(edgeMatch);
-                        states = new ArrayList<>();
-                    }
-                }
-                currentDirectedRealEdge = newDirectedRealEdge;
+                addEdge(resolveToRealEdge(transitionAndState.state.getOutgoingVirtualEdge()));
             }
             states.add(transitionAndState.state);
         }
-        if (currentDirectedRealEdge != null) {
-            EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
-            edgeMatches.add(edgeMatch);
+
+        private void addEdge(EdgeIteratorState newDirectedRealEdge) {
+            if (currentDirectedRealEdge != null) {
+                if (!equalEdges(currentDirectedRealEdge, newDirectedRealEdge)) {
+                    EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
+                    edgeMatches.add(edgeMatch);
+                    states = new ArrayList<>();
+                }
+            }
+            currentDirectedRealEdge = newDirectedRealEdge;
+        }
+
+        /**
+         * @return the edge matches that are complete, i.e. the matches of all edges except the current one, and
+         * removes them from this collector
+         */
+        List<EdgeMatch> poll() {
+            List<EdgeMatch> result = edgeMatches;
+            edgeMatches = new ArrayList<>();
+            return result;
+        }
+
+        /**
+         * Ends the current sequence, so the sequence added next is not connected to it.
+         */
+        void finishSequence() {
+            if (currentDirectedRealEdge != null) {
+                EdgeMatch edgeMatch = new EdgeMatch(currentDirectedRealEdge, states);
+                edgeMatches.add(edgeMatch);
+                currentDirectedRealEdge = null;
+            }
+            states = new ArrayList<>();
+        }
+
+        /**
+         * @return the remaining edge matches including the one of the current edge
+         */
+        List<EdgeMatch> finish() {
+            finishSequence();
+            return poll();
+        }
+
+        private boolean equalEdges(EdgeIteratorState edge1, EdgeIteratorState edge2) {
+            return edge1.getEdge() == edge2.getEdge()
+                    && edge1.getBaseNode() == edge2.getBaseNode()
+                    && edge1.getAdjNode() == edge2.getAdjNode();
+        }
+
+        private EdgeIteratorState resolveToRealEdge(EdgeIteratorState edgeIteratorState) {
+            // the edges of a query graph are virtual if and only if one of their nodes is virtual
+            if (edgeIteratorState instanceof VirtualEdgeIteratorState) {
+                return graph.getEdgeIteratorStateForKey(((VirtualEdgeIteratorState) edgeIteratorState).getOriginalEdgeKey());
+            } else {
+                return edgeIteratorState;
+            }
         }
-        return edgeMatches;
     }
 
     private double gpxLength(List<Observation> gpxList) {
@@ -479,20 +673,6 @@ public class MapMatching {
         }
     }
 
-    private boolean equalEdges(EdgeIteratorState edge1, EdgeIteratorState edge2) {
-        return edge1.getEdge() == edge2.getEdge()
-                && edge1.getBaseNode() == edge2.getBaseNode()
-                && edge1.getAdjNode() == edge2.getAdjNode();
-    }
-
-    private EdgeIteratorState resolveToRealEdge(EdgeIteratorState edgeIteratorState) {
-        if (queryGraph.isVirtualNode(edgeIteratorState.getBaseNode()) || queryGraph.isVirtualNode(edgeIteratorState.getAdjNode())) {
-            return graph.getEdgeIteratorStateForKey(((VirtualEdgeIteratorState) edgeIteratorState).getOriginalEdgeKey());
-        } else {
-            return edgeIteratorState;
-        }
-    }
-
     private String getSnappedCandidates(Collection<State> candidates) {
         String str = "";
         for (State gpxe : candidates) {
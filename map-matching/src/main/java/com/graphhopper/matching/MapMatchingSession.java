@@ -0,0 +1,205 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.bmw.hmm.SequenceState;
+import com.bmw.hmm.ViterbiAlgorithm;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.VirtualEdgeIteratorState;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.index.Snap;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Matches the observations of a trace one after another, e.g. the positions of a vehicle while they are received.
+ * Every observation is processed only once: its candidates are connected to the candidates of the previous
+ * observation in a small query graph and the Viterbi algorithm is advanced by one time step. The edge matches are
+ * returned as soon as they are final, i.e. when the most likely sequences of all current candidates lead to them.
+ * If this does not happen within maxPendingObservations observations the oldest pending observations are finalized
+ * with the currently most likely sequence. So the memory needed by a session is bounded.
+ * <p>
+ * The result is the same as the one of {@link MapMatching#match} as long as the pending observations do not exceed
+ * the limit. But while {@link MapMatching#match} fails if an observation cannot be reached from the previous ones, a
+ * session finalizes the sequence matched so far and starts a new one with this observation, see
+ * {@link #getSequenceBreaks()}. A session is not thread-safe and must not be used after {@link #finish()}.
+ */
+public class MapMatchingSession {
+    private final MapMatching mapMatching;
+    private final int maxPendingObservations;
+    private final MapMatching.EdgeMatchCollector edgeMatches;
+    private final List<Observation> sequenceBreaks = new ArrayList<>();
+    private ViterbiAlgorithm<State, Observation, Path> viterbi = new ViterbiAlgorithm<>();
+    private ObservationWithCandidateStates prevTimeStep;
+    private Observation skippedObservation;
+    private boolean finished;
+
+    MapMatchingSession(MapMatching mapMatching, int maxPendingObservations) {
+        if (maxPendingObservations < 0)
+            throw new IllegalArgumentException("maxPendingObservations must not be negative but was " + maxPendingObservations);
+        this.mapMatching = mapMatching;
+        this.maxPendingObservations = maxPendingObservations;
+        this.edgeMatches = new MapMatching.EdgeMatchCollector(mapMatching.getGraph());
+    }
+
+    /**
+     * @return the edge matches that became final with this observation. If the observation cannot be reached from the
+     * previous ones these are all edge matches of the previous observations.
+     */
+    public List<EdgeMatch> addObservation(Observation observation) {
+        if (finished)
+            throw new IllegalStateException("The session is already finished");
+        if (prevTimeStep != null && mapMatching.isTooClose(prevTimeStep.observation, observation)) {
+            // like MapMatching.match we skip observations close to the previous one unless they end the trace
+            skippedObservation = observation;
+            return Collections.emptyList();
+        }
+        skippedObservation = null;
+        addTimeStep(observation);
+        for (SequenceState<State, Observation, Path> state : viterbi.pollFinalizedSequence(maxPendingObservations)) {
+            edgeMatches.add(state);
+        }
+        return edgeMatches.poll();
+    }
+
+    /**
+     * Ends the trace.
+     *
+     * @return the remaining edge matches
+     */
+    public List<EdgeMatch> finish() {
+        if (finished)
+            throw new IllegalStateException("The session is already finished");
+        finished = true;
+        if (skippedObservation != null)
+            addTimeStep(skippedObservation);
+        for (SequenceState<State, Observation, Path> state : viterbi.computeMostLikelySequence()) {
+            edgeMatches.add(state);
+        }
+        prevTimeStep = null;
+        return edgeMatches.finish();
+    }
+
+    /**
+     * @return the observations that could not be reached from the previous observations. The match starts again at
+     * every such observation, so the edge matches before and after it are not connected. An observation without any
+     * candidates is not matched at all and the match starts again with the next observation. The observations right
+     * before a break that are skipped for being too close to the previous one are not matched either.
+     */
+    public List<Observation> getSequenceBreaks() {
+        return Collections.unmodifiableList(sequenceBreaks);
+    }
+
+    private void addTimeStep(Observation observation) {
+        extendSequence(observation);
+        if (!viterbi.isBroken())
+            return;
+        // finalize the sequence before the break and start a new one with this observation
+        sequenceBreaks.add(observation);
+        for (SequenceState<State, Observation, Path> state : viterbi.computeMostLikelySequence()) {
+            edgeMatches.add(state);
+        }
+        edgeMatches.finishSequence();
+        viterbi = new ViterbiAlgorithm<>();
+        prevTimeStep = null;
+        extendSequence(observation);
+        if (viterbi.isBroken()) {
+            // the observation has no candidates
+            viterbi = new ViterbiAlgorithm<>();
+            prevTimeStep = null;
+        }
+    }
+
+    private void extendSequence(Observation observation) {
+        List<Snap> snaps = mapMatching.findCandidateSnaps(observation.getPoint().lat, observation.getPoint().lon);
+        if (prevTimeStep == null) {
+            QueryGraph queryGraph = mapMatching.createQueryGraph(snaps);
+            ObservationWithCandidateStates timeStep = mapMatching.createTimeSteps(queryGraph,
+                    Collections.singletonList(observation), Collections.singletonList(snaps)).get(0);
+            mapMatching.addTimeStep(viterbi, queryGraph, queryGraph.wrapWeighting(mapMatching.getWeighting()), null, null, timeStep);
+            prevTimeStep = timeStep;
+        } else {
+            // The candidates of the previous observation have to be part of the query graph of this time step. We
+            // snap the previous observation again, as the snaps of its own query graph cannot be reused, and identify
+            // the new candidates with the ones the Viterbi algorithm knows.
+            List<Snap> prevSnaps = mapMatching.findCandidateSnaps(prevTimeStep.observation.getPoint().lat, prevTimeStep.observation.getPoint().lon);
+            List<Snap> allSnaps = new ArrayList<>(prevSnaps.size() + snaps.size());
+            allSnaps.addAll(prevSnaps);
+            allSnaps.addAll(snaps);
+            QueryGraph queryGraph = mapMatching.createQueryGraph(allSnaps);
+            Weighting weighting = queryGraph.wrapWeighting(mapMatching.getWeighting());
+            List<ObservationWithCandidateStates> steps = mapMatching.createTimeSteps(queryGraph,
+                    Arrays.asList(prevTimeStep.observation, observation), Arrays.asList(prevSnaps, snaps));
+            List<State> prevStates = findKnownStates(steps.get(0), prevTimeStep);
+            mapMatching.addTimeStep(viterbi, queryGraph, weighting, steps.get(0), prevStates, steps.get(1));
+            prevTimeStep = steps.get(1);
+        }
+    }
+
+    /**
+     * The snaps of an observation are always found in the same order, so a candidate is identified by the index of
+     * its snap and its direction.
+     *
+     * @return the candidates of the known time step in the order of the candidates of the new time step
+     */
+    private static List<State> findKnownStates(ObservationWithCandidateStates newTimeStep, ObservationWithCandidateStates knownTimeStep) {
+        List<State> newStates = new ArrayList<>(newTimeStep.candidates);
+        List<State> knownStates = new ArrayList<>(knownTimeStep.candidates);
+        if (newStates.size() != knownStates.size())
+            throw new IllegalStateException("The candidates of " + knownTimeStep.observation + " changed: " + knownStates.size() + " vs. " + newStates.size());
+        List<State> result = new ArrayList<>(newStates.size());
+        int snapIndex = -1;
+        Snap prevSnap = null;
+        int knownSnapIndex = -1;
+        Snap prevKnownSnap = null;
+        int[] knownSnapIndexes = new int[knownStates.size()];
+        for (int i = 0; i < knownStates.size(); i++) {
+            if (knownStates.get(i).getSnap() != prevKnownSnap)
+                knownSnapIndex++;
+            prevKnownSnap = knownStates.get(i).getSnap();
+            knownSnapIndexes[i] = knownSnapIndex;
+        }
+        for (State newState : newStates) {
+            if (newState.getSnap() != prevSnap)
+                snapIndex++;
+            prevSnap = newState.getSnap();
+            State match = null;
+            for (int i = 0; i < knownStates.size(); i++) {
+                if (knownSnapIndexes[i] == snapIndex && getDirection(knownStates.get(i)) == getDirection(newState)) {
+                    match = knownStates.get(i);
+                    break;
+                }
+            }
+            if (match == null)
+                throw new IllegalStateException("Cannot find candidate " + newState + " of " + knownTimeStep.observation);
+            result.add(match);
+        }
+        return result;
+    }
+
+    /**
+     * @return the key of the original edge the candidate leaves on or -1 if the candidate is not directed
+     */
+    private static int getDirection(State state) {
+        return state.isOnDirectedEdge() ? ((VirtualEdgeIteratorState) state.getOutgoingVirtualEdge()).getOriginalEdgeKey() : -1;
+    }
+}
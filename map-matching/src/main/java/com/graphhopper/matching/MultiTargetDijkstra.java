@@ -0,0 +1,206 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.carrotsearch.hppc.IntObjectMap;
+import com.graphhopper.coll.GHIntObjectHashMap;
+import com.graphhopper.routing.AbstractRoutingAlgorithm;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.PathExtractor;
+import com.graphhopper.routing.SPTEntry;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.Graph;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.PriorityQueue;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+
+/**
+ * A forward Dijkstra that calculates the paths from one start node to many target nodes in a single search. Map
+ * matching uses it to calculate the transitions from one candidate to all candidates of the next observation. Like
+ * with the bidirectional algorithms the first edge of the paths and the last edge of every path can be restricted.
+ * <p>
+ * The search stops when all targets are found or when the maximum number of visited nodes is exceeded. Every path is
+ * the one with the minimum weight. A path that is longer than the maximum distance is not found, but the search still
+ * explores beyond the maximum distance, because a path with a lower weight to a later node can lead through it.
+ */
+public class MultiTargetDijkstra extends AbstractRoutingAlgorithm {
+    private IntObjectMap<DistanceEntry> bestEntries;
+    private PriorityQueue<DistanceEntry> heap;
+    private DistanceEntry currEntry;
+    private double maxDistance = Double.POSITIVE_INFINITY;
+    private int visitedNodes;
+    private int fromOutEdge = ANY_EDGE;
+    private int[] toNodes;
+    private int[] toInEdges;
+    private DistanceEntry[] targetEntries;
+    private int remainingTargets;
+
+    public MultiTargetDijkstra(Graph graph, Weighting weighting, TraversalMode traversalMode) {
+        super(graph, weighting, traversalMode);
+        initCollections(200);
+    }
+
+    protected void initCollections(int size) {
+        heap = new PriorityQueue<>(size);
+        bestEntries = new GHIntObjectHashMap<>(size);
+    }
+
+    /**
+     * Paths that are longer than the specified distance in meter are not found. This does not limit the search.
+     */
+    public void setMaxDistance(double maxDistance) {
+        this.maxDistance = maxDistance;
+    }
+
+    @Override
+    public Path calcPath(int from, int to) {
+        return calcPaths(from, ANY_EDGE, new int[]{to}, new int[]{ANY_EDGE}).get(0);
+    }
+
+    /**
+     * @param fromOutEdge the first edge of all paths or {@link EdgeIterator#ANY_EDGE}
+     * @param toNodes     the target nodes
+     * @param toInEdges   the last edge of the path to the target node with the same index or
+     *                    {@link EdgeIterator#ANY_EDGE}
+     * @return the paths in the order of the target nodes, a path is not found if its target was not reached
+     */
+    public List<Path> calcPaths(int from, int fromOutEdge, int[] toNodes, int[] toInEdges) {
+        if (toNodes.length != toInEdges.length)
+            throw new IllegalArgumentException("toNodes and toInEdges must have the same size, " + toNodes.length + " vs. " + toInEdges.length);
+        boolean restricted = fromOutEdge != ANY_EDGE;
+        for (int toInEdge : toInEdges)
+            restricted |= toInEdge != ANY_EDGE;
+        if (restricted && !traversalMode.isEdgeBased())
+            throw new IllegalArgumentException("Restricting the start/target edges is only possible for edge-based graph traversal");
+        checkAlreadyRun();
+        this.fromOutEdge = fromOutEdge;
+        this.toNodes = toNodes;
+        this.toInEdges = toInEdges;
+        targetEntries = new DistanceEntry[toNodes.length];
+        remainingTargets = toNodes.length;
+        currEntry = new DistanceEntry(EdgeIterator.NO_EDGE, from, 0, 0);
+        if (!traversalMode.isEdgeBased())
+            bestEntries.put(from, currEntry);
+        runAlgo();
+
+        List<Path> paths = new ArrayList<>(toNodes.length);
+        for (DistanceEntry entry : targetEntries) {
+            // the path with the minimum weight might be too long
+            paths.add(PathExtractor.extractPath(graph, weighting, entry == null || entry.distance > maxDistance ? null : entry));
+        }
+        return paths;
+    }
+
+    private void runAlgo() {
+        while (true) {
+            visitedNodes++;
+            if (isMaxVisitedNodesExceeded() || finished())
+                break;
+            explore();
+
+            if (heap.isEmpty())
+                break;
+
+            currEntry = heap.poll();
+        }
+    }
+
+    private void explore() {
+        boolean isStart = currEntry.edge == EdgeIterator.NO_EDGE;
+        EdgeIterator iter = edgeExplorer.setBaseNode(currEntry.adjNode);
+        while (iter.next()) {
+            if (!accept(iter, currEntry.edge))
+                continue;
+            if (isStart && fromOutEdge != ANY_EDGE && iter.getOrigEdgeFirst() != fromOutEdge)
+                continue;
+
+            double weight = GHUtility.calcWeightWithTurnWeightWithAccess(weighting, iter, false, currEntry.edge) + currEntry.weight;
+            if (Double.isInfinite(weight))
+                continue;
+            double distance = currEntry.distance + iter.getDistance();
+
+            int traversalId = traversalMode.createTraversalId(iter, false);
+            DistanceEntry entry = bestEntries.get(traversalId);
+            if (entry == null) {
+                entry = new DistanceEntry(iter.getEdge(), iter.getAdjNode(), weight, distance);
+                entry.parent = currEntry;
+                bestEntries.put(traversalId, entry);
+                heap.add(entry);
+            } else if (entry.weight > weight) {
+                heap.remove(entry);
+                entry.edge = iter.getEdge();
+                entry.weight = weight;
+                entry.distance = distance;
+                entry.parent = currEntry;
+                heap.add(entry);
+            }
+        }
+    }
+
+    /**
+     * Assigns the settled entry to all targets it reaches.
+     *
+     * @return true if all targets are found
+     */
+    @Override
+    protected boolean finished() {
+        for (int i = 0; i < toNodes.length; i++) {
+            if (targetEntries[i] != null || toNodes[i] != currEntry.adjNode)
+                continue;
+            boolean reached = toInEdges[i] == ANY_EDGE
+                    // an empty path is only possible if the first edge is not restricted
+                    ? currEntry.edge != EdgeIterator.NO_EDGE || fromOutEdge == ANY_EDGE
+                    : currEntry.edge == toInEdges[i];
+            if (reached) {
+                targetEntries[i] = currEntry;
+                remainingTargets--;
+            }
+        }
+        return remainingTargets == 0;
+    }
+
+    @Override
+    protected Path extractPath() {
+        throw new IllegalStateException("call calcPaths instead");
+    }
+
+    @Override
+    public int getVisitedNodes() {
+        return visitedNodes;
+    }
+
+    @Override
+    public String getName() {
+        return "dijkstra_multi_target";
+    }
+
+    private static class DistanceEntry extends SPTEntry {
+        double distance;
+
+        DistanceEntry(int edge, int adjNode, double weight, double distance) {
+            super(edge, adjNode, weight);
+            this.distance = distance;
+        }
+    }
+}
@@ -0,0 +1,222 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.matching;
+
+import com.carrotsearch.hppc.IntArrayList;
+import com.graphhopper.routing.DijkstraBidirectionRef;
+import com.graphhopper.routing.Path;
+import com.graphhopper.routing.util.CarFlagEncoder;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.FlagEncoder;
+import com.graphhopper.routing.util.TraversalMode;
+import com.graphhopper.routing.weighting.DefaultTurnCostProvider;
+import com.graphhopper.routing.weighting.FastestWeighting;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.EdgeIterator;
+import com.graphhopper.util.GHUtility;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.util.List;
+import java.util.Random;
+
+import static com.graphhopper.util.EdgeIterator.ANY_EDGE;
+import static org.junit.jupiter.api.Assertions.*;
+
+/**
+ * Compares the paths of {@link MultiTargetDijkstra} with the ones of
+ * {@link DijkstraBidirectionRef#calcPath(int, int, int, int)} with the same restricted first and last edges.
+ */
+public class MultiTargetDijkstraTest {
+    private int maxTurnCosts;
+    private GraphHopperStorage graph;
+    private FlagEncoder encoder;
+    private EncodingManager encodingManager;
+    private Weighting weighting;
+
+    @BeforeEach
+    public void setup() {
+        maxTurnCosts = 10;
+        encoder = new CarFlagEncoder(5, 5, maxTurnCosts);
+        encodingManager = EncodingManager.create(encoder);
+        graph = new GraphHopperStorage(new RAMDirectory(), encodingManager, false, true).create(1000);
+        weighting = new FastestWeighting(encoder, new DefaultTurnCostProvider(encoder, graph.getTurnCostStorage()));
+    }
+
+    @Test
+    public void restrictedEdges() {
+        // =: costly edge
+        // 0 = 1 - 2 - 3 = 4
+        //  \      |      /
+        //   - 5 - 6 - 7 -
+        int costlySource = GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(5)).getEdge();
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(1));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(2, 3).setDistance(1));
+        int costlyTarget = GHUtility.setSpeed(60, true, true, encoder, graph.edge(3, 4).setDistance(5)).getEdge();
+        int cheapSource = GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 5).setDistance(1)).getEdge();
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(5, 6).setDistance(1));
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(6, 7).setDistance(1));
+        int cheapTarget = GHUtility.setSpeed(60, true, true, encoder, graph.edge(7, 4).setDistance(1)).getEdge();
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(2, 6).setDistance(1));
+
+        // the same target node with different last edges
+        List<Path> paths = calcPaths(0, cheapSource, new int[]{4, 4, 4}, new int[]{cheapTarget, costlyTarget, ANY_EDGE});
+        assertPath(paths.get(0), 4, nodes(0, 5, 6, 7, 4));
+        assertPath(paths.get(1), 9, nodes(0, 5, 6, 2, 3, 4));
+        assertPath(paths.get(2), 4, nodes(0, 5, 6, 7, 4));
+        paths = calcPaths(0, costlySource, new int[]{4, 4, 3}, new int[]{cheapTarget, costlyTarget, ANY_EDGE});
+        assertPath(paths.get(0), 9, nodes(0, 1, 2, 6, 7, 4));
+        assertPath(paths.get(1), 12, nodes(0, 1, 2, 3, 4));
+        assertPath(paths.get(2), 7, nodes(0, 1, 2, 3));
+        // edges that do not exist or do not lead to the target
+        paths = calcPaths(0, 5, new int[]{4, 4}, new int[]{cheapTarget, costlySource});
+        assertFalse(paths.get(0).isFound());
+        assertFalse(paths.get(1).isFound());
+    }
+
+    @Test
+    public void sourceEqualsTarget() {
+        // 0 - 1
+        //  \  |
+        //   - 2
+        int edge01 = GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(1)).getEdge();
+        int edge02 = GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 2).setDistance(1)).getEdge();
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(1));
+        // without a restricted first edge the path is empty
+        assertPath(calcPaths(0, ANY_EDGE, new int[]{0}, new int[]{ANY_EDGE}).get(0), 0, nodes(0));
+        // otherwise we have to drive around
+        List<Path> paths = calcPaths(0, edge01, new int[]{0, 0, 0}, new int[]{ANY_EDGE, edge02, edge01});
+        assertPath(paths.get(0), 3, nodes(0, 1, 2, 0));
+        assertPath(paths.get(1), 3, nodes(0, 1, 2, 0));
+        assertFalse(paths.get(2).isFound());
+        // an empty path does not end with the restricted last edge
+        paths = calcPaths(0, ANY_EDGE, new int[]{0}, new int[]{edge01});
+        assertPath(paths.get(0), 3, nodes(0, 2, 1, 0));
+    }
+
+    @Test
+    public void duplicateTargets() {
+        // 0 - 1 - 2
+        GHUtility.setSpeed(60, true, true, encoder, graph.edge(0, 1).setDistance(1));
+        int edge12 = GHUtility.setSpeed(60, true, true, encoder, graph.edge(1, 2).setDistance(1)).getEdge();
+        List<Path> paths = calcPaths(0, ANY_EDGE, new int[]{2, 1, 2, 2}, new int[]{ANY_EDGE, ANY_EDGE, ANY_EDGE, edge12});
+        assertEquals(4, paths.size());
+        assertPath(paths.get(0), 2, nodes(0, 1, 2));
+        assertPath(paths.get(1), 1, nodes(0, 1));
+        assertPath(paths.get(2), 2, nodes(0, 1, 2));
+        assertPath(paths.get(3), 2, nodes(0, 1, 2));
+    }
+
+    @Test
+    public void maxDistanceDoesNotChangeThePaths() {
+        // the path via 1 is short but slow, the path via 3 is long but fast
+        //   - 1 -
+        //  /     \
+        // 0       2
+        //  \     /
+        //   - 3 -
+        GHUtility.setSpeed(10, true, true, encoder, graph.edge(0, 1).setDistance(1));
+        GHUtility.setSpeed(10, true, true, encoder, graph.edge(1, 2).setDistance(1));
+        GHUtility.setSpeed(120, true, true, encoder, graph.edge(0, 3).setDistance(5));
+        GHUtility.setSpeed(120, true, true, encoder, graph.edge(3, 2).setDistance(5));
+
+        MultiTargetDijkstra algo = new MultiTargetDijkstra(graph, weighting, TraversalMode.EDGE_BASED);
+        algo.setMaxDistance(10);
+        assertPath(algo.calcPaths(0, ANY_EDGE, new int[]{2}, new int[]{ANY_EDGE}).get(0), 10, nodes(0, 3, 2));
+
+        // the fastest path is too long, so there is no path, even though the slow path is short enough
+        algo = new MultiTargetDijkstra(graph, weighting, TraversalMode.EDGE_BASED);
+        algo.setMaxDistance(5);
+        List<Path> paths = algo.calcPaths(0, ANY_EDGE, new int[]{2, 1, 3}, new int[]{ANY_EDGE, ANY_EDGE, ANY_EDGE});
+        assertFalse(paths.get(0).isFound());
+        assertPath(paths.get(1), 1, nodes(0, 1));
+        assertPath(paths.get(2), 5, nodes(0, 3));
+    }
+
+    @ParameterizedTest
+    @ValueSource(longs = {15133347784085L, 1, 2, 3, 4, 5, 6, 7, 8, 9})
+    public void compareWithDijkstraBidirectionRef(long seed) {
+        Random rnd = new Random(seed);
+        int numNodes = 100;
+        GHUtility.buildRandomGraph(graph, rnd, numNodes, 2.2, true, true,
+                encoder.getAccessEnc(), encoder.getAverageSpeedEnc(), null, 0.7, 0.8, 0.8);
+        GHUtility.addRandomTurnCosts(graph, seed, encodingManager, encoder, maxTurnCosts, graph.getTurnCostStorage());
+
+        for (int query = 0; query < 100; query++) {
+            int source = rnd.nextInt(numNodes);
+            int sourceOutEdge = randomAdjacentEdge(rnd, source);
+            int[] targets = new int[1 + rnd.nextInt(6)];
+            int[] targetInEdges = new int[targets.length];
+            for (int i = 0; i < targets.length; i++) {
+                // the same target node can be used several times
+                targets[i] = i > 0 && rnd.nextInt(4) == 0 ? targets[i - 1] : rnd.nextInt(numNodes);
+                targetInEdges[i] = randomAdjacentEdge(rnd, targets[i]);
+            }
+            double maxDistance = rnd.nextBoolean() ? Double.POSITIVE_INFINITY : rnd.nextDouble() * 2000;
+
+            MultiTargetDijkstra algo = new MultiTargetDijkstra(graph, weighting, TraversalMode.EDGE_BASED);
+            algo.setMaxDistance(maxDistance);
+            List<Path> paths = algo.calcPaths(source, sourceOutEdge, targets, targetInEdges);
+            assertEquals(targets.length, paths.size());
+            for (int i = 0; i < targets.length; i++) {
+                Path expected = new DijkstraBidirectionRef(graph, weighting, TraversalMode.EDGE_BASED).
+                        calcPath(source, targets[i], sourceOutEdge, targetInEdges[i]);
+                String msg = "from: " + source + ", out edge: " + sourceOutEdge + ", to: " + targets[i]
+                        + ", in edge: " + targetInEdges[i] + ", max distance: " + maxDistance + ", seed: " + seed;
+                if (paths.get(i).isFound()) {
+                    assertTrue(expected.isFound(), msg);
+                    assertEquals(expected.getWeight(), paths.get(i).getWeight(), 1.e-6, msg);
+                    assertTrue(paths.get(i).getDistance() <= maxDistance, msg);
+                } else {
+                    assertFalse(expected.isFound() && expected.getDistance() < maxDistance - 1.e-6, msg);
+                }
+            }
+        }
+    }
+
+    /**
+     * @return one of the edges of the given node or {@link EdgeIterator#ANY_EDGE}
+     */
+    private int randomAdjacentEdge(Random rnd, int node) {
+        IntArrayList edges = new IntArrayList();
+        EdgeIterator iter = graph.createEdgeExplorer(EdgeFilter.ALL_EDGES).setBaseNode(node);
+        while (iter.next())
+            edges.add(iter.getEdge());
+        int index = rnd.nextInt(edges.size() + 1);
+        return index == edges.size() ? ANY_EDGE : edges.get(index);
+    }
+
+    private List<Path> calcPaths(int source, int sourceOutEdge, int[] targets, int[] targetInEdges) {
+        return new MultiTargetDijkstra(graph, weighting, TraversalMode.EDGE_BASED).calcPaths(source, sourceOutEdge, targets, targetInEdges);
+    }
+
+    private IntArrayList nodes(int... nodes) {
+        return IntArrayList.from(nodes);
+    }
+
+    private void assertPath(Path path, double distance, IntArrayList nodes) {
+        assertTrue(path.isFound(), "expected a path, but no path was found");
+        assertEquals(distance, path.getDistance(), 1.e-6, "unexpected distance");
+        assertEquals(nodes, path.calcNodes(), "unexpected nodes");
+    }
+}
@@ -234,6 +234,12 @@ public class GraphHopperGtfs extends GraphHopper {
                 });
     }
 
+    @Override
+    protected void flush() {
+        super.flush();
+        getGtfsStorage().flush();
+    }
+
     @Override
     public void close() {
         getGtfsStorage().close();
@@ -120,10 +120,10 @@ public class GtfsStorage implements GtfsStorageI {
 	private HTreeMap<Validity, Integer> operatingDayPatterns;
 	private Bind.MapWithModificationListener<FeedIdWithTimezone, Integer> timeZones;
 	private Map<Integer, FeedIdWithTimezone> readableTimeZones;
-	private Map<Integer, byte[]> tripDescriptors;
-	private Map<Integer, Integer> stopSequences;
-
-	private Map<Integer, PlatformDescriptor> platformDescriptorsByEdge;
+	// the maps by edge are accessed during the search and are stored in DataAccess objects keyed by the edge id
+	private final TripDescriptorMap tripDescriptors;
+	private final IntIntDataAccessMap stopSequences;
+	private final PlatformDescriptorMap platformDescriptorsByEdge;
 
 	private Map<String, Map<String, Fare>> faresByFeed;
 	private Map<String, int[]> boardEdgesForTrip;
@@ -139,6 +139,11 @@ public class GtfsStorage implements GtfsStorageI {
 
 	GtfsStorage(Directory dir) {
 		this.dir = dir;
+		this.tripDescriptors = new TripDescriptorMap(new IntIntDataAccessMap(dir.find("pt_trip_descriptors_by_edge")),
+				new IntBytesDataAccessMap(dir.find("pt_trip_descriptors"), dir.find("pt_trip_descriptor_bytes")));
+		this.stopSequences = new IntIntDataAccessMap(dir.find("pt_stop_sequences"));
+		this.platformDescriptorsByEdge = new PlatformDescriptorMap(new IntIntDataAccessMap(dir.find("pt_platforms_by_edge")),
+				new IntBytesDataAccessMap(dir.find("pt_platforms"), dir.find("pt_platform_bytes")));
 	}
 
 	boolean loadExisting() {
@@ -148,6 +153,9 @@ public class GtfsStorage implements GtfsStorageI {
 		}
 		this.data = DBMaker.newFileDB(file).transactionDisable().mmapFileEnable().readOnly().make();
 		init();
+		if (!tripDescriptors.loadExisting() || !stopSequences.loadExisting() || !platformDescriptorsByEdge.loadExisting()) {
+			throw new IllegalStateException("The transit data in " + dir.getLocation() + " was created with an older version. Please remove the graph folder and import again.");
+		}
 		for (String gtfsFeedId : this.gtfsFeedIds) {
 			File dbFile = new File(dir.getLocation() + "/" + gtfsFeedId);
 
@@ -174,6 +182,9 @@ public class GtfsStorage implements GtfsStorageI {
 		}
 		this.data = DBMaker.newFileDB(file).transactionDisable().mmapFileEnable().asyncWriteEnable().make();
 		init();
+		tripDescriptors.create();
+		stopSequences.create();
+		platformDescriptorsByEdge.create();
 	}
 
     private void init() {
@@ -186,12 +197,9 @@ public class GtfsStorage implements GtfsStorageI {
 		}
 		Bind.mapInverse(this.timeZones, readableTimeZones);
 		this.readableTimeZones = Collections.unmodifiableMap(readableTimeZones);
-		this.tripDescriptors = data.getTreeMap("tripDescriptors");
-		this.stopSequences = data.getTreeMap("stopSequences");
 		this.boardEdgesForTrip = data.getHashMap("boardEdgesForTrip");
 		this.leaveEdgesForTrip = data.getHashMap("leaveEdgesForTrip");
 		this.stationNodes = data.getHashMap("stationNodes");
-		this.platformDescriptorsByEdge = data.getHashMap("routes");
 	}
 
 	void loadGtfsFromZipFile(String id, ZipFile zipFile) {
@@ -216,10 +224,19 @@ public class GtfsStorage implements GtfsStorageI {
 		this.gtfsFeeds.forEach((feed_id, feed) -> faresByFeed.put(feed_id, feed.fares));
 	}
 
+	void flush() {
+		tripDescriptors.flush();
+		stopSequences.flush();
+		platformDescriptorsByEdge.flush();
+	}
+
 	public void close() {
 		if (!isClosed) {
 			isClosed = true;
 			data.close();
+			tripDescriptors.close();
+			stopSequences.close();
+			platformDescriptorsByEdge.close();
 			for (GTFSFeed feed : gtfsFeeds.values()) {
 				feed.close();
 			}
@@ -246,6 +263,13 @@ public class GtfsStorage implements GtfsStorageI {
 		return tripDescriptors;
 	}
 
+	/**
+	 * @return the trip descriptor of the given board or alight edge or null. The descriptor is only parsed once.
+	 */
+	GtfsRealtime.TripDescriptor getTripDescriptor(int edge) {
+		return tripDescriptors.getParsed(edge);
+	}
+
 	@Override
 	public Map<Integer, Integer> getStopSequences() {
 		return stopSequences;
@@ -0,0 +1,171 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.graphhopper.storage.DataAccess;
+import com.graphhopper.util.BitUtil;
+
+import java.util.*;
+
+/**
+ * A map from dense, non-negative keys like edge IDs to byte arrays. For every key a pointer into a second DataAccess
+ * is stored, where the length and the bytes of the value follow each other. Consecutive puts of equal values share
+ * the same bytes, which is common because all board and alight edges of a trip have the same trip descriptor.
+ */
+class IntBytesDataAccessMap extends AbstractMap<Integer, byte[]> {
+    // a pointer is stored incremented by one, so that the zeros of unused memory mean that there is no value
+    private static final long NO_VALUE = 0;
+    private static final BitUtil bitUtil = BitUtil.LITTLE;
+    private final DataAccess pointers;
+    private final DataAccess bytes;
+    private int size;
+    private int keyCount;
+    private long bytePointer;
+    private byte[] lastValue;
+    private long lastPointer;
+
+    IntBytesDataAccessMap(DataAccess pointers, DataAccess bytes) {
+        this.pointers = pointers;
+        this.bytes = bytes;
+    }
+
+    void create() {
+        pointers.create(1024);
+        bytes.create(1024);
+    }
+
+    boolean loadExisting() {
+        if (!pointers.loadExisting() || !bytes.loadExisting())
+            return false;
+        size = pointers.getHeader(0);
+        keyCount = pointers.getHeader(4);
+        bytePointer = bitUtil.combineIntsToLong(bytes.getHeader(0), bytes.getHeader(4));
+        return true;
+    }
+
+    void flush() {
+        pointers.setHeader(0, size);
+        pointers.setHeader(4, keyCount);
+        pointers.flush();
+        bytes.setHeader(0, bitUtil.getIntLow(bytePointer));
+        bytes.setHeader(4, bitUtil.getIntHigh(bytePointer));
+        bytes.flush();
+    }
+
+    void close() {
+        pointers.close();
+        bytes.close();
+    }
+
+    private long getPointer(int key) {
+        if (key < 0 || key >= keyCount)
+            return NO_VALUE;
+        return bitUtil.combineIntsToLong(pointers.getInt((long) key * 8), pointers.getInt((long) key * 8 + 4));
+    }
+
+    private byte[] read(long pointer) {
+        int length = bytes.getInt(pointer - 1);
+        byte[] value = new byte[length];
+        bytes.getBytes(pointer - 1 + 4, value, length);
+        return value;
+    }
+
+    @Override
+    public byte[] get(Object key) {
+        if (!(key instanceof Integer))
+            return null;
+        long pointer = getPointer((Integer) key);
+        return pointer == NO_VALUE ? null : read(pointer);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return key instanceof Integer && getPointer((Integer) key) != NO_VALUE;
+    }
+
+    @Override
+    public byte[] put(Integer key, byte[] value) {
+        if (key < 0)
+            throw new IllegalArgumentException("Key must not be negative: " + key);
+        long oldPointer = getPointer(key);
+        long pointer;
+        if (Arrays.equals(value, lastValue)) {
+            pointer = lastPointer;
+        } else {
+            pointer = bytePointer + 1;
+            bytes.ensureCapacity(bytePointer + 4 + value.length);
+            bytes.setInt(bytePointer, value.length);
+            bytes.setBytes(bytePointer + 4, value, value.length);
+            bytePointer += 4 + value.length;
+            lastValue = value.clone();
+            lastPointer = pointer;
+        }
+        pointers.ensureCapacity(((long) key + 1) * 8);
+        pointers.setInt((long) key * 8, bitUtil.getIntLow(pointer));
+        pointers.setInt((long) key * 8 + 4, bitUtil.getIntHigh(pointer));
+        keyCount = Math.max(keyCount, key + 1);
+        if (oldPointer == NO_VALUE) {
+            size++;
+            return null;
+        }
+        return read(oldPointer);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<Integer, byte[]>> entrySet() {
+        return new AbstractSet<Entry<Integer, byte[]>>() {
+            @Override
+            public Iterator<Entry<Integer, byte[]>> iterator() {
+                return new Iterator<Entry<Integer, byte[]>>() {
+                    private int key = nextKey(0);
+
+                    private int nextKey(int from) {
+                        while (from < keyCount && getPointer(from) == NO_VALUE)
+                            from++;
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return key < keyCount;
+                    }
+
+                    @Override
+                    public Entry<Integer, byte[]> next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        Entry<Integer, byte[]> entry = new SimpleImmutableEntry<>(key, read(getPointer(key)));
+                        key = nextKey(key + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
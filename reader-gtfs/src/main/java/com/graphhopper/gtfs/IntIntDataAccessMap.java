@@ -0,0 +1,144 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.graphhopper.storage.DataAccess;
+
+import java.util.*;
+
+/**
+ * A map from dense, non-negative keys like edge IDs to ints, which stores the value of every key at a fixed position
+ * of a DataAccess. A lookup is a single read without hashing or deserialization.
+ */
+class IntIntDataAccessMap extends AbstractMap<Integer, Integer> {
+    // the values are stored with a flipped sign bit, so that the zeros of unused memory mean that there is no value
+    private static final int NO_VALUE = 0;
+    private final DataAccess values;
+    private int size;
+    private int keyCount;
+
+    IntIntDataAccessMap(DataAccess values) {
+        this.values = values;
+    }
+
+    void create() {
+        values.create(1024);
+    }
+
+    boolean loadExisting() {
+        if (!values.loadExisting())
+            return false;
+        size = values.getHeader(0);
+        keyCount = values.getHeader(4);
+        return true;
+    }
+
+    void flush() {
+        values.setHeader(0, size);
+        values.setHeader(4, keyCount);
+        values.flush();
+    }
+
+    void close() {
+        values.close();
+    }
+
+    /**
+     * @return the value of the key or the default value if there is none
+     */
+    int getInt(int key, int defaultValue) {
+        if (key < 0 || key >= keyCount)
+            return defaultValue;
+        int stored = values.getInt((long) key * 4);
+        return stored == NO_VALUE ? defaultValue : stored ^ Integer.MIN_VALUE;
+    }
+
+    @Override
+    public Integer get(Object key) {
+        if (!(key instanceof Integer))
+            return null;
+        int k = (Integer) key;
+        if (k < 0 || k >= keyCount)
+            return null;
+        int stored = values.getInt((long) k * 4);
+        return stored == NO_VALUE ? null : stored ^ Integer.MIN_VALUE;
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return get(key) != null;
+    }
+
+    @Override
+    public Integer put(Integer key, Integer value) {
+        if (key < 0)
+            throw new IllegalArgumentException("Key must not be negative: " + key);
+        if (value == Integer.MIN_VALUE)
+            throw new IllegalArgumentException("Integer.MIN_VALUE cannot be stored");
+        Integer old = get(key);
+        values.ensureCapacity(((long) key + 1) * 4);
+        values.setInt((long) key * 4, value ^ Integer.MIN_VALUE);
+        keyCount = Math.max(keyCount, key + 1);
+        if (old == null)
+            size++;
+        return old;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public Set<Entry<Integer, Integer>> entrySet() {
+        return new AbstractSet<Entry<Integer, Integer>>() {
+            @Override
+            public Iterator<Entry<Integer, Integer>> iterator() {
+                return new Iterator<Entry<Integer, Integer>>() {
+                    private int key = nextKey(0);
+
+                    private int nextKey(int from) {
+                        while (from < keyCount && values.getInt((long) from * 4) == NO_VALUE)
+                            from++;
+                        return from;
+                    }
+
+                    @Override
+                    public boolean hasNext() {
+                        return key < keyCount;
+                    }
+
+                    @Override
+                    public Entry<Integer, Integer> next() {
+                        if (!hasNext())
+                            throw new NoSuchElementException();
+                        Entry<Integer, Integer> entry = new SimpleImmutableEntry<>(key, getInt(key, 0));
+                        key = nextKey(key + 1);
+                        return entry;
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return size;
+            }
+        };
+    }
+}
@@ -0,0 +1,142 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import java.io.*;
+import java.util.*;
+
+/**
+ * The platform descriptors by edge. There are far fewer platforms than edges, so every distinct descriptor is stored
+ * only once and kept deserialized in memory, while the edges only refer to the index of their descriptor.
+ */
+class PlatformDescriptorMap extends AbstractMap<Integer, GtfsStorageI.PlatformDescriptor> {
+    private final IntIntDataAccessMap descriptorIndexByEdge;
+    private final IntBytesDataAccessMap serializedDescriptors;
+    private final List<GtfsStorageI.PlatformDescriptor> descriptors = new ArrayList<>();
+    private final Map<GtfsStorageI.PlatformDescriptor, Integer> descriptorIndices = new HashMap<>();
+
+    PlatformDescriptorMap(IntIntDataAccessMap descriptorIndexByEdge, IntBytesDataAccessMap serializedDescriptors) {
+        this.descriptorIndexByEdge = descriptorIndexByEdge;
+        this.serializedDescriptors = serializedDescriptors;
+    }
+
+    void create() {
+        descriptorIndexByEdge.create();
+        serializedDescriptors.create();
+    }
+
+    boolean loadExisting() {
+        if (!descriptorIndexByEdge.loadExisting() || !serializedDescriptors.loadExisting())
+            return false;
+        for (int i = 0; i < serializedDescriptors.size(); i++) {
+            GtfsStorageI.PlatformDescriptor descriptor = deserialize(serializedDescriptors.get(i));
+            descriptors.add(descriptor);
+            descriptorIndices.put(descriptor, i);
+        }
+        return true;
+    }
+
+    void flush() {
+        descriptorIndexByEdge.flush();
+        serializedDescriptors.flush();
+    }
+
+    void close() {
+        descriptorIndexByEdge.close();
+        serializedDescriptors.close();
+    }
+
+    @Override
+    public GtfsStorageI.PlatformDescriptor get(Object key) {
+        if (!(key instanceof Integer))
+            return null;
+        int index = descriptorIndexByEdge.getInt((Integer) key, -1);
+        return index < 0 ? null : descriptors.get(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return descriptorIndexByEdge.containsKey(key);
+    }
+
+    @Override
+    public GtfsStorageI.PlatformDescriptor put(Integer edge, GtfsStorageI.PlatformDescriptor descriptor) {
+        Integer index = descriptorIndices.get(descriptor);
+        if (index == null) {
+            index = descriptors.size();
+            descriptors.add(descriptor);
+            descriptorIndices.put(descriptor, index);
+            serializedDescriptors.put(index, serialize(descriptor));
+        }
+        Integer oldIndex = descriptorIndexByEdge.put(edge, index);
+        return oldIndex == null ? null : descriptors.get(oldIndex);
+    }
+
+    @Override
+    public int size() {
+        return descriptorIndexByEdge.size();
+    }
+
+    @Override
+    public Set<Entry<Integer, GtfsStorageI.PlatformDescriptor>> entrySet() {
+        return new AbstractSet<Entry<Integer, GtfsStorageI.PlatformDescriptor>>() {
+            @Override
+            public Iterator<Entry<Integer, GtfsStorageI.PlatformDescriptor>> iterator() {
+                Iterator<Entry<Integer, Integer>> iter = descriptorIndexByEdge.entrySet().iterator();
+                return new Iterator<Entry<Integer, GtfsStorageI.PlatformDescriptor>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iter.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Integer, GtfsStorageI.PlatformDescriptor> next() {
+                        Entry<Integer, Integer> entry = iter.next();
+                        return new SimpleImmutableEntry<>(entry.getKey(), descriptors.get(entry.getValue()));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return descriptorIndexByEdge.size();
+            }
+        };
+    }
+
+    private static byte[] serialize(GtfsStorageI.PlatformDescriptor descriptor) {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes)) {
+            out.writeObject(descriptor);
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+        return bytes.toByteArray();
+    }
+
+    private static GtfsStorageI.PlatformDescriptor deserialize(byte[] bytes) {
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes))) {
+            return (GtfsStorageI.PlatformDescriptor) in.readObject();
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        } catch (ClassNotFoundException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
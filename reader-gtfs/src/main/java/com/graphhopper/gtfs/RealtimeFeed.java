@@ -549,8 +549,12 @@ public class RealtimeFeed {
         }).findFirst().orElse(Instant.now());
     }
 
-    public byte[] getTripDescriptor(int edge) {
-        return staticGtfs.getTripDescriptors().getOrDefault(edge, additionalTripDescriptors.get(edge));
+    public GtfsRealtime.TripDescriptor getTripDescriptor(int edge) {
+        GtfsRealtime.TripDescriptor tripDescriptor = staticGtfs.getTripDescriptor(edge);
+        if (tripDescriptor != null)
+            return tripDescriptor;
+        byte[] additionalTripDescriptor = additionalTripDescriptors.get(edge);
+        return additionalTripDescriptor == null ? null : TripDescriptorMap.parse(additionalTripDescriptor);
     }
 
     public int getStopSequence(int edge) {
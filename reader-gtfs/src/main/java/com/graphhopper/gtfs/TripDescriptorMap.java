@@ -0,0 +1,163 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.google.protobuf.InvalidProtocolBufferException;
+import com.google.transit.realtime.GtfsRealtime;
+
+import java.util.*;
+import java.util.concurrent.atomic.AtomicReferenceArray;
+
+/**
+ * The serialized trip descriptors by edge. All board and alight edges of a trip are added one after the other with the
+ * same descriptor, so consecutive equal descriptors are stored only once and the edges only refer to the dense index of
+ * their descriptor. A descriptor is parsed when it is requested via {@link #getParsed} for the first time and then
+ * kept by its index, so it is deserialized only once. {@link #getParsed} can be called concurrently, whereas the
+ * descriptors are added by a single thread during the import.
+ */
+class TripDescriptorMap extends AbstractMap<Integer, byte[]> {
+    private final IntIntDataAccessMap descriptorIndexByEdge;
+    private final IntBytesDataAccessMap serializedDescriptors;
+    // the parsed descriptors by index, an entry is null until it is requested
+    private AtomicReferenceArray<GtfsRealtime.TripDescriptor> parsedDescriptors = new AtomicReferenceArray<>(0);
+    private byte[] lastValue;
+    private int lastIndex = -1;
+
+    TripDescriptorMap(IntIntDataAccessMap descriptorIndexByEdge, IntBytesDataAccessMap serializedDescriptors) {
+        this.descriptorIndexByEdge = descriptorIndexByEdge;
+        this.serializedDescriptors = serializedDescriptors;
+    }
+
+    void create() {
+        descriptorIndexByEdge.create();
+        serializedDescriptors.create();
+    }
+
+    boolean loadExisting() {
+        if (!descriptorIndexByEdge.loadExisting() || !serializedDescriptors.loadExisting())
+            return false;
+        parsedDescriptors = new AtomicReferenceArray<>(serializedDescriptors.size());
+        return true;
+    }
+
+    void flush() {
+        descriptorIndexByEdge.flush();
+        serializedDescriptors.flush();
+    }
+
+    void close() {
+        descriptorIndexByEdge.close();
+        serializedDescriptors.close();
+    }
+
+    /**
+     * @return the parsed trip descriptor of the given edge or null if the edge has none
+     */
+    GtfsRealtime.TripDescriptor getParsed(int edge) {
+        int index = descriptorIndexByEdge.getInt(edge, -1);
+        if (index < 0)
+            return null;
+        AtomicReferenceArray<GtfsRealtime.TripDescriptor> parsed = parsedDescriptors;
+        GtfsRealtime.TripDescriptor descriptor = parsed.get(index);
+        if (descriptor == null) {
+            // if another thread parsed the descriptor in the meantime we return its instance instead
+            parsed.compareAndSet(index, null, parse(serializedDescriptors.get(index)));
+            descriptor = parsed.get(index);
+        }
+        return descriptor;
+    }
+
+    @Override
+    public byte[] get(Object key) {
+        if (!(key instanceof Integer))
+            return null;
+        int index = descriptorIndexByEdge.getInt((Integer) key, -1);
+        return index < 0 ? null : serializedDescriptors.get(index);
+    }
+
+    @Override
+    public boolean containsKey(Object key) {
+        return descriptorIndexByEdge.containsKey(key);
+    }
+
+    @Override
+    public byte[] put(Integer edge, byte[] descriptor) {
+        int index;
+        if (Arrays.equals(descriptor, lastValue)) {
+            index = lastIndex;
+        } else {
+            index = serializedDescriptors.size();
+            serializedDescriptors.put(index, descriptor);
+            if (index >= parsedDescriptors.length())
+                parsedDescriptors = grow(parsedDescriptors);
+            lastValue = descriptor.clone();
+            lastIndex = index;
+        }
+        Integer oldIndex = descriptorIndexByEdge.put(edge, index);
+        return oldIndex == null ? null : serializedDescriptors.get(oldIndex);
+    }
+
+    @Override
+    public int size() {
+        return descriptorIndexByEdge.size();
+    }
+
+    @Override
+    public Set<Entry<Integer, byte[]>> entrySet() {
+        return new AbstractSet<Entry<Integer, byte[]>>() {
+            @Override
+            public Iterator<Entry<Integer, byte[]>> iterator() {
+                Iterator<Entry<Integer, Integer>> iter = descriptorIndexByEdge.entrySet().iterator();
+                return new Iterator<Entry<Integer, byte[]>>() {
+                    @Override
+                    public boolean hasNext() {
+                        return iter.hasNext();
+                    }
+
+                    @Override
+                    public Entry<Integer, byte[]> next() {
+                        Entry<Integer, Integer> entry = iter.next();
+                        return new SimpleImmutableEntry<>(entry.getKey(), serializedDescriptors.get(entry.getValue()));
+                    }
+                };
+            }
+
+            @Override
+            public int size() {
+                return descriptorIndexByEdge.size();
+            }
+        };
+    }
+
+    private static AtomicReferenceArray<GtfsRealtime.TripDescriptor> grow(AtomicReferenceArray<GtfsRealtime.TripDescriptor> array) {
+        AtomicReferenceArray<GtfsRealtime.TripDescriptor> result = new AtomicReferenceArray<>(Math.max(16, 2 * array.length()));
+        for (int i = 0; i < array.length(); i++) {
+            result.set(i, array.get(i));
+        }
+        return result;
+    }
+
+    static GtfsRealtime.TripDescriptor parse(byte[] bytes) {
+        try {
+            return GtfsRealtime.TripDescriptor.parseFrom(bytes);
+        } catch (InvalidProtocolBufferException ex) {
+            throw new IllegalStateException(ex);
+        }
+    }
+}
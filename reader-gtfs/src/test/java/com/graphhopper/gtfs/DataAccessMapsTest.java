@@ -0,0 +1,174 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.gtfs;
+
+import com.google.transit.realtime.GtfsRealtime;
+import com.graphhopper.storage.Directory;
+import com.graphhopper.storage.RAMDirectory;
+import com.graphhopper.util.Helper;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class DataAccessMapsTest {
+    private static final String location = "./target/tmp-pt-maps";
+
+    @BeforeEach
+    @AfterEach
+    public void cleanUp() {
+        Helper.removeDir(new File(location));
+    }
+
+    @Test
+    public void testIntIntMap() {
+        IntIntDataAccessMap map = new IntIntDataAccessMap(new RAMDirectory(location, true).create().find("ints"));
+        map.create();
+        assertNull(map.put(3, 0));
+        assertNull(map.put(1000, -5));
+        assertEquals(0, map.put(3, 7));
+        assertThrows(IllegalArgumentException.class, () -> map.put(-1, 1));
+        assertEquals(2, map.size());
+        assertEquals(7, map.get(3));
+        assertEquals(-5, map.getInt(1000, 42));
+        assertNull(map.get(2));
+        assertNull(map.get(5000));
+        assertEquals(42, map.getInt(4, 42));
+        assertFalse(map.containsKey(0));
+        map.flush();
+        map.close();
+
+        IntIntDataAccessMap loaded = new IntIntDataAccessMap(new RAMDirectory(location, true).find("ints"));
+        assertTrue(loaded.loadExisting());
+        Map<Integer, Integer> expected = new HashMap<>();
+        expected.put(3, 7);
+        expected.put(1000, -5);
+        assertEquals(expected, loaded);
+        assertEquals(expected, new HashMap<>(loaded));
+    }
+
+    @Test
+    public void testIntBytesMap() {
+        Directory dir = new RAMDirectory(location, true).create();
+        IntBytesDataAccessMap map = new IntBytesDataAccessMap(dir.find("pointers"), dir.find("bytes"));
+        map.create();
+        byte[] trip = {1, 2, 3};
+        map.put(10, trip);
+        map.put(11, trip.clone());
+        map.put(2, new byte[0]);
+        assertEquals(3, map.size());
+        assertArrayEquals(trip, map.get(10));
+        assertArrayEquals(trip, map.get(11));
+        assertArrayEquals(new byte[0], map.get(2));
+        assertNull(map.get(3));
+        assertArrayEquals(trip, map.put(11, new byte[]{4}));
+        assertArrayEquals(new byte[]{4}, map.get(11));
+        assertArrayEquals(trip, map.get(10));
+        map.flush();
+        map.close();
+
+        dir = new RAMDirectory(location, true);
+        IntBytesDataAccessMap loaded = new IntBytesDataAccessMap(dir.find("pointers"), dir.find("bytes"));
+        assertTrue(loaded.loadExisting());
+        assertEquals(3, loaded.size());
+        assertArrayEquals(trip, loaded.get(10));
+        assertArrayEquals(new byte[]{4}, loaded.get(11));
+        int count = 0;
+        for (Map.Entry<Integer, byte[]> entry : loaded.entrySet()) {
+            assertArrayEquals(loaded.get(entry.getKey()), entry.getValue());
+            count++;
+        }
+        assertEquals(3, count);
+    }
+
+    @Test
+    public void testPlatformDescriptorMap() {
+        Directory dir = new RAMDirectory(location, true).create();
+        PlatformDescriptorMap map = createPlatformDescriptorMap(dir);
+        map.create();
+        GtfsStorageI.PlatformDescriptor route = GtfsStorageI.PlatformDescriptor.route("feed", "stop", "route");
+        GtfsStorageI.PlatformDescriptor routeType = GtfsStorageI.PlatformDescriptor.routeType("feed", "stop", 3);
+        map.put(0, route);
+        map.put(5, routeType);
+        map.put(6, GtfsStorageI.PlatformDescriptor.route("feed", "stop", "route"));
+        assertEquals(route, map.get(6));
+        assertNull(map.get(1));
+        map.flush();
+        map.close();
+
+        PlatformDescriptorMap loaded = createPlatformDescriptorMap(new RAMDirectory(location, true));
+        assertTrue(loaded.loadExisting());
+        Map<Integer, GtfsStorageI.PlatformDescriptor> expected = new HashMap<>();
+        expected.put(0, route);
+        expected.put(5, routeType);
+        expected.put(6, route);
+        assertEquals(expected, new HashMap<>(loaded));
+        // equal descriptors are shared
+        assertSame(loaded.get(0), loaded.get(6));
+    }
+
+    @Test
+    public void testTripDescriptorMap() {
+        Directory dir = new RAMDirectory(location, true).create();
+        TripDescriptorMap map = createTripDescriptorMap(dir);
+        map.create();
+        GtfsRealtime.TripDescriptor trip1 = GtfsRealtime.TripDescriptor.newBuilder().setTripId("trip1").setStartTime("06:00:00").build();
+        GtfsRealtime.TripDescriptor trip2 = GtfsRealtime.TripDescriptor.newBuilder().setTripId("trip2").build();
+        map.put(3, trip1.toByteArray());
+        map.put(4, trip1.toByteArray());
+        map.put(7, trip2.toByteArray());
+        assertEquals(3, map.size());
+        assertEquals(trip1, map.getParsed(4));
+        assertArrayEquals(trip2.toByteArray(), map.get(7));
+        assertNull(map.getParsed(5));
+        assertNull(map.get(5));
+        map.flush();
+        map.close();
+
+        TripDescriptorMap loaded = createTripDescriptorMap(new RAMDirectory(location, true));
+        assertTrue(loaded.loadExisting());
+        assertEquals(3, loaded.size());
+        assertEquals(trip1, loaded.getParsed(3));
+        assertEquals(trip2, loaded.getParsed(7));
+        // the board and alight edges of a trip share the parsed descriptor
+        assertSame(loaded.getParsed(3), loaded.getParsed(4));
+        assertSame(loaded.getParsed(7), loaded.getParsed(7));
+        int count = 0;
+        for (Map.Entry<Integer, byte[]> entry : loaded.entrySet()) {
+            assertEquals(loaded.getParsed(entry.getKey()), TripDescriptorMap.parse(entry.getValue()));
+            count++;
+        }
+        assertEquals(3, count);
+    }
+
+    private static TripDescriptorMap createTripDescriptorMap(Directory dir) {
+        return new TripDescriptorMap(new IntIntDataAccessMap(dir.find("trips_by_edge")),
+                new IntBytesDataAccessMap(dir.find("trips"), dir.find("trip_bytes")));
+    }
+
+    private static PlatformDescriptorMap createPlatformDescriptorMap(Directory dir) {
+        return new PlatformDescriptorMap(new IntIntDataAccessMap(dir.find("platforms_by_edge")),
+                new IntBytesDataAccessMap(dir.find("platforms"), dir.find("platform_bytes")));
+    }
+}
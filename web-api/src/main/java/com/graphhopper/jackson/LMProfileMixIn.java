@@ -23,4 +23,7 @@ import com.fasterxml.jackson.annotation.JsonProperty;
 public interface LMProfileMixIn {
     @JsonProperty("maximum_lm_weight")
     void setMaximumLMWeight(double maximumLMWeight);
+
+    @JsonProperty("landmark_threads")
+    void setLandmarkThreads(int landmarkThreads);
 }
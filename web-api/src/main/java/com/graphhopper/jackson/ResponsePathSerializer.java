@@ -18,6 +18,7 @@
 
 package com.graphhopper.jackson;
 
+import com.fasterxml.jackson.core.JsonGenerator;
 import com.fasterxml.jackson.databind.node.ArrayNode;
 import com.fasterxml.jackson.databind.node.JsonNodeFactory;
 import com.fasterxml.jackson.databind.node.ObjectNode;
@@ -26,6 +27,7 @@ import com.graphhopper.ResponsePath;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PointList;
 
+import java.io.IOException;
 import java.text.NumberFormat;
 import java.util.Arrays;
 import java.util.List;
@@ -123,4 +125,82 @@ public class ResponsePathSerializer {
         }
         return json;
     }
+
+    /**
+     * Writes the same JSON as {@link #jsonObject} directly to the specified generator, without creating the
+     * intermediate tree and the geometries of the points. The codec of the generator has to be an ObjectMapper
+     * initialized via {@link Jackson#initObjectMapper}.
+     */
+    public static void writeJson(JsonGenerator gen, GHResponse ghRsp, boolean enableInstructions, boolean calcPoints, boolean enableElevation, boolean pointsEncoded, float took) throws IOException {
+        gen.writeStartObject();
+        gen.writeObjectField("hints", ghRsp.getHints().toMap());
+        gen.writeObjectFieldStart("info");
+        gen.writeObjectField("copyrights", COPYRIGHTS);
+        gen.writeNumberField("took", Math.round(took));
+        gen.writeEndObject();
+        gen.writeArrayFieldStart("paths");
+        for (ResponsePath p : ghRsp.getAll()) {
+            gen.writeStartObject();
+            gen.writeNumberField("distance", Helper.round(p.getDistance(), 3));
+            gen.writeNumberField("weight", Helper.round6(p.getRouteWeight()));
+            gen.writeNumberField("time", p.getTime());
+            gen.writeNumberField("transfers", p.getNumChanges());
+            if (!p.getDescription().isEmpty()) {
+                gen.writeObjectField("description", p.getDescription());
+            }
+            if (calcPoints) {
+                gen.writeBooleanField("points_encoded", pointsEncoded);
+                if (p.getPoints().size() >= 2) {
+                    gen.writeObjectField("bbox", p.calcBBox2D());
+                }
+                gen.writeFieldName("points");
+                writePoints(gen, p.getPoints(), enableElevation, pointsEncoded);
+                if (enableInstructions) {
+                    gen.writeObjectField("instructions", p.getInstructions());
+                }
+                gen.writeObjectField("legs", p.getLegs());
+                gen.writeObjectField("details", p.getPathDetails());
+                gen.writeNumberField("ascend", p.getAscend());
+                gen.writeNumberField("descend", p.getDescend());
+            }
+            gen.writeFieldName("snapped_waypoints");
+            writePoints(gen, p.getWaypoints(), enableElevation, pointsEncoded);
+            if (p.getFare() != null) {
+                gen.writeStringField("fare", NumberFormat.getCurrencyInstance(Locale.ROOT).format(p.getFare()));
+            }
+            gen.writeEndObject();
+        }
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    /**
+     * Writes the points as encoded polyline or as the GeoJSON of {@link PointList#toLineString}
+     */
+    private static void writePoints(JsonGenerator gen, PointList points, boolean includeElevation, boolean pointsEncoded) throws IOException {
+        if (pointsEncoded) {
+            gen.writeString(encodePolyline(points, includeElevation, 1e5));
+            return;
+        }
+        gen.writeStartObject();
+        gen.writeStringField("type", "LineString");
+        gen.writeArrayFieldStart("coordinates");
+        for (int i = 0; i < points.size(); i++) {
+            writeCoordinate(gen, points, i, includeElevation);
+        }
+        // just 1 point is not supported in the specification #1412
+        if (points.size() == 1)
+            writeCoordinate(gen, points, 0, includeElevation);
+        gen.writeEndArray();
+        gen.writeEndObject();
+    }
+
+    private static void writeCoordinate(JsonGenerator gen, PointList points, int index, boolean includeElevation) throws IOException {
+        gen.writeStartArray();
+        gen.writeNumber(Helper.round6(points.getLon(index)));
+        gen.writeNumber(Helper.round6(points.getLat(index)));
+        if (includeElevation)
+            gen.writeNumber(Helper.round2(points.getEle(index)));
+        gen.writeEndArray();
+    }
 }
@@ -17,10 +17,19 @@
  */
 package com.graphhopper.jackson;
 
-import com.graphhopper.util.Helper;
-import com.graphhopper.util.PointList;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHResponse;
+import com.graphhopper.ResponsePath;
+import com.graphhopper.util.*;
+import com.graphhopper.util.details.PathDetail;
 import org.junit.jupiter.api.Test;
 
+import java.io.IOException;
+import java.io.StringWriter;
+import java.math.BigDecimal;
+import java.util.*;
+
 import static org.junit.jupiter.api.Assertions.assertEquals;
 
 /**
@@ -79,4 +88,69 @@ public class ResponsePathRepresentationTest {
     public void testEncode1e6() {
         assertEquals("ohdfzAgt}bVoEL", ResponsePathSerializer.encodePolyline(Helper.createPointList(47.827608, 12.123476, 47.827712, 12.123469), false, 1e6));
     }
+
+    @Test
+    public void testWriteJsonEqualsJsonObject() throws IOException {
+        GHResponse rsp = new GHResponse();
+        rsp.getHints().putObject("visited_nodes.sum", 42);
+
+        PointList points = Helper.createPointList3D(38.5, -120.2, 10.123, 40.7, -120.95, 1234, 43.252, -126.453, Double.NaN);
+        ResponsePath path = new ResponsePath().setPoints(points).setDistance(1234.5678).setTime(98765).setRouteWeight(1.2345678).
+                setAscend(1224).setDescend(5).setDescription(Arrays.asList("a", "b"));
+        path.setWaypoints(Helper.createPointList3D(38.5, -120.2, 10.123, 43.252, -126.453, Double.NaN));
+        InstructionList instructions = new InstructionList(TR);
+        instructions.add(new Instruction(Instruction.CONTINUE_ON_STREET, "street", points));
+        instructions.add(new FinishInstruction(43.252, -126.453, 0));
+        path.setInstructions(instructions);
+        PathDetail detail = new PathDetail(30.0);
+        detail.setFirst(0);
+        detail.setLast(2);
+        path.addPathDetails(Collections.singletonMap("max_speed", Collections.singletonList(detail)));
+        path.setFare(new BigDecimal("2.50"));
+        rsp.add(path);
+
+        // a path with a single point is written as line string with two equal coordinates
+        ResponsePath singlePoint = new ResponsePath().setPoints(Helper.createPointList3D(38.5, -120.2, 10));
+        singlePoint.setWaypoints(Helper.createPointList3D(38.5, -120.2, 10));
+        singlePoint.setInstructions(new InstructionList(TR));
+        rsp.add(singlePoint);
+
+        ObjectMapper objectMapper = Jackson.newObjectMapper();
+        for (boolean enableInstructions : new boolean[]{true, false}) {
+            for (boolean calcPoints : new boolean[]{true, false}) {
+                for (boolean enableElevation : new boolean[]{true, false}) {
+                    for (boolean pointsEncoded : new boolean[]{true, false}) {
+                        String expected = objectMapper.writeValueAsString(ResponsePathSerializer.jsonObject(rsp, enableInstructions, calcPoints, enableElevation, pointsEncoded, 12.6f));
+                        StringWriter writer = new StringWriter();
+                        try (JsonGenerator gen = objectMapper.getFactory().createGenerator(writer)) {
+                            ResponsePathSerializer.writeJson(gen, rsp, enableInstructions, calcPoints, enableElevation, pointsEncoded, 12.6f);
+                        }
+                        assertEquals(expected, writer.toString());
+                    }
+                }
+            }
+        }
+    }
+
+    private static final Translation TR = new Translation() {
+        @Override
+        public String tr(String key, Object... params) {
+            return key;
+        }
+
+        @Override
+        public Map<String, String> asMap() {
+            return Collections.emptyMap();
+        }
+
+        @Override
+        public Locale getLocale() {
+            return Locale.US;
+        }
+
+        @Override
+        public String getLanguage() {
+            return "en";
+        }
+    };
 }
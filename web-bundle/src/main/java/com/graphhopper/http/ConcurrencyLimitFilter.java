@@ -0,0 +1,171 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import javax.servlet.*;
+import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import javax.ws.rs.core.MediaType;
+import java.io.IOException;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Limits the number of requests that are processed at the same time per endpoint, so e.g. long running map matching
+ * requests cannot occupy all threads of the server and short route requests are still answered quickly. Requests
+ * above the limit wait in a bounded queue for a limited time. If the queue is full or the time is up the request is
+ * rejected with 503 instead of queueing up in the server until it times out. The permit is released after the
+ * response was written, so streamed responses are included.
+ */
+public class ConcurrencyLimitFilter implements Filter {
+    private final Map<String, Limit> limits = new HashMap<>();
+    private final long queueTimeoutMillis;
+    private final ObjectMapper objectMapper;
+
+    /**
+     * @param maxConcurrent the maximum number of concurrent requests by endpoint, i.e. the path of the resource like
+     *                      "match" or "route/batch"
+     * @param maxQueued     the maximum number of requests by endpoint that wait for a permit, 0 if missing
+     */
+    public ConcurrencyLimitFilter(Map<String, Integer> maxConcurrent, Map<String, Integer> maxQueued, long queueTimeoutMillis,
+                                  ObjectMapper objectMapper) {
+        for (String endpoint : maxQueued.keySet())
+            if (!maxConcurrent.containsKey(endpoint))
+                throw new IllegalArgumentException("Queue size for endpoint '" + endpoint + "' without a limit of concurrent requests");
+        for (Map.Entry<String, Integer> e : maxConcurrent.entrySet())
+            limits.put(e.getKey(), new Limit(e.getValue(), maxQueued.getOrDefault(e.getKey(), 0)));
+        if (queueTimeoutMillis < 0)
+            throw new IllegalArgumentException("queue timeout must not be negative but was " + queueTimeoutMillis);
+        this.queueTimeoutMillis = queueTimeoutMillis;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Parses limits in the format endpoint1=value1,endpoint2=value2
+     */
+    public static Map<String, Integer> parseLimits(String str) {
+        if (str.trim().isEmpty())
+            return Collections.emptyMap();
+        Map<String, Integer> limits = new HashMap<>();
+        for (String entry : str.split(",")) {
+            String[] keyValue = entry.split("=");
+            if (keyValue.length != 2)
+                throw new IllegalArgumentException("Limit has to be in the format endpoint=value, but was: " + entry);
+            try {
+                limits.put(keyValue[0].trim(), Integer.parseInt(keyValue[1].trim()));
+            } catch (NumberFormatException ex) {
+                throw new IllegalArgumentException("Limit of endpoint '" + keyValue[0].trim() + "' is not a number: " + keyValue[1]);
+            }
+        }
+        return limits;
+    }
+
+    @Override
+    public void doFilter(ServletRequest request, ServletResponse response, FilterChain chain) throws IOException, ServletException {
+        String endpoint = getEndpoint((HttpServletRequest) request);
+        Limit limit = limits.get(endpoint);
+        if (limit == null) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        boolean acquired;
+        try {
+            acquired = limit.acquire(queueTimeoutMillis);
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        if (!acquired) {
+            HttpServletResponse rsp = (HttpServletResponse) response;
+            rsp.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+            rsp.setHeader("Retry-After", "1");
+            rsp.setContentType(MediaType.APPLICATION_JSON);
+            objectMapper.writeValue(rsp.getOutputStream(), new JsonErrorEntity(Collections.singletonList(
+                    "Too many concurrent requests for /" + endpoint + ", try again later")));
+            return;
+        }
+        try {
+            chain.doFilter(request, response);
+        } finally {
+            limit.release();
+        }
+    }
+
+    static String getEndpoint(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        int start = path.startsWith("/") ? 1 : 0;
+        int end = path.endsWith("/") && path.length() > start ? path.length() - 1 : path.length();
+        return path.substring(start, Math.max(start, end));
+    }
+
+    @Override
+    public void init(FilterConfig filterConfig) {
+    }
+
+    @Override
+    public void destroy() {
+    }
+
+    static class Limit {
+        private final Semaphore permits;
+        private final int maxQueued;
+        private final AtomicInteger queued = new AtomicInteger();
+
+        Limit(int maxConcurrent, int maxQueued) {
+            if (maxConcurrent < 1)
+                throw new IllegalArgumentException("The maximum number of concurrent requests must be positive but was " + maxConcurrent);
+            if (maxQueued < 0)
+                throw new IllegalArgumentException("The maximum number of queued requests must not be negative but was " + maxQueued);
+            this.permits = new Semaphore(maxConcurrent, true);
+            this.maxQueued = maxQueued;
+        }
+
+        /**
+         * @return true if the request can be processed, false if it has to be rejected
+         */
+        boolean acquire(long timeoutMillis) throws InterruptedException {
+            // a fair semaphore ignores fairness for tryAcquire, which is fine as long as nobody waits
+            if (queued.get() == 0 && permits.tryAcquire())
+                return true;
+            if (queued.incrementAndGet() > maxQueued) {
+                queued.decrementAndGet();
+                return false;
+            }
+            try {
+                return permits.tryAcquire(timeoutMillis, TimeUnit.MILLISECONDS);
+            } finally {
+                queued.decrementAndGet();
+            }
+        }
+
+        void release() {
+            permits.release();
+        }
+
+        int getQueued() {
+            return queued.get();
+        }
+    }
+}
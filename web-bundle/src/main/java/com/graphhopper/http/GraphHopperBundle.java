@@ -19,6 +19,7 @@
 package com.graphhopper.http;
 
 import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.util.StdDateFormat;
 import com.fasterxml.jackson.datatype.jdk8.Jdk8Module;
 import com.graphhopper.GraphHopper;
@@ -34,6 +35,7 @@ import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.jackson.GraphHopperConfigModule;
 import com.graphhopper.jackson.Jackson;
 import com.graphhopper.resources.*;
+import com.graphhopper.routing.DijkstraOneToManyPool;
 import com.graphhopper.routing.ProfileResolver;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.storage.GraphHopperStorage;
@@ -47,6 +49,10 @@ import org.glassfish.hk2.api.Factory;
 import org.glassfish.hk2.utilities.binding.AbstractBinder;
 
 import javax.inject.Inject;
+import javax.servlet.DispatcherType;
+import java.util.EnumSet;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
 
 public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConfiguration> {
 
@@ -235,14 +241,21 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
         final GraphHopperManaged graphHopperManaged = new GraphHopperManaged(configuration.getGraphHopperConfiguration(), environment.getObjectMapper());
         environment.lifecycle().manage(graphHopperManaged);
         final GraphHopper graphHopper = graphHopperManaged.getGraphHopper();
+        int routeBatchThreads = configuration.getGraphHopperConfiguration().getInt("routing.batch.threads", Runtime.getRuntime().availableProcessors());
+        final ExecutorService routeBatchExecutor = environment.lifecycle().executorService("route-batch-%d").
+                minThreads(routeBatchThreads).maxThreads(routeBatchThreads).build();
         environment.jersey().register(new AbstractBinder() {
             @Override
             protected void configure() {
                 bind(configuration.getGraphHopperConfiguration()).to(GraphHopperConfig.class);
                 bind(graphHopper).to(GraphHopper.class);
                 bind(graphHopper).to(GraphHopperAPI.class);
+                bind(environment.getObjectMapper()).to(ObjectMapper.class);
+                bind(routeBatchExecutor).to(ExecutorService.class).named("routeBatchExecutor");
 
                 bind(new JTSTriangulator(graphHopper.getRouterConfig())).to(Triangulator.class);
+                bind(new DijkstraOneToManyPool(configuration.getGraphHopperConfiguration().getInt("routing.one_to_many.max_pooled_algorithms", 4))).to(DijkstraOneToManyPool.class);
+                bind(new MVTTileCache(configuration.getGraphHopperConfiguration().getInt("mvt.cache_size_mb", 0) * 1024L * 1024L)).to(MVTTileCache.class);
                 bindFactory(PathDetailsBuilderFactoryFactory.class).to(PathDetailsBuilderFactory.class);
                 bindFactory(ProfileResolverFactory.class).to(ProfileResolver.class);
                 bindFactory(HasElevation.class).to(Boolean.class).named("hasElevation");
@@ -254,9 +267,22 @@ public class GraphHopperBundle implements ConfiguredBundle<GraphHopperBundleConf
             }
         });
 
+        GraphHopperConfig ghConfig = configuration.getGraphHopperConfiguration();
+        Map<String, Integer> maxConcurrentRequests = ConcurrencyLimitFilter.parseLimits(ghConfig.getString("web.max_concurrent_requests", ""));
+        if (!maxConcurrentRequests.isEmpty()) {
+            ConcurrencyLimitFilter limitFilter = new ConcurrencyLimitFilter(maxConcurrentRequests,
+                    ConcurrencyLimitFilter.parseLimits(ghConfig.getString("web.max_queued_requests", "")),
+                    ghConfig.getLong("web.queue_timeout_ms", 1000), environment.getObjectMapper());
+            environment.servlets().addFilter("concurrency-limit", limitFilter).
+                    addMappingForUrlPatterns(EnumSet.of(DispatcherType.REQUEST), true, "/*");
+        }
+
         environment.jersey().register(MVTResource.class);
         environment.jersey().register(NearestResource.class);
         environment.jersey().register(RouteResource.class);
+        environment.jersey().register(RouteBatchResource.class);
+        environment.jersey().register(MatrixResource.class);
+        environment.jersey().register(OneToManyResource.class);
         environment.jersey().register(IsochroneResource.class);
         environment.jersey().register(MapMatchingResource.class);
         if (configuration.getGraphHopperConfiguration().has("gtfs.file")) {
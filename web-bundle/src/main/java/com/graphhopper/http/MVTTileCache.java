@@ -0,0 +1,70 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.google.common.cache.Cache;
+import com.google.common.cache.CacheBuilder;
+import com.google.common.util.concurrent.UncheckedExecutionException;
+
+import java.util.concurrent.ExecutionException;
+import java.util.function.Supplier;
+
+/**
+ * Keeps the encoded vector tiles in memory. The cache is bounded by the total number of bytes of the tiles and the
+ * least recently used tiles are evicted first. The graph does not change while the server is running, so the tiles
+ * never expire otherwise.
+ */
+public class MVTTileCache {
+    private final Cache<String, byte[]> cache;
+
+    /**
+     * @param maxBytes the maximum number of bytes of all cached tiles, 0 disables the cache
+     */
+    public MVTTileCache(long maxBytes) {
+        if (maxBytes < 0)
+            throw new IllegalArgumentException("The size of the tile cache must not be negative: " + maxBytes);
+        cache = maxBytes == 0 ? null : CacheBuilder.newBuilder()
+                .maximumWeight(maxBytes)
+                .<String, byte[]>weigher((key, value) -> value.length)
+                .build();
+    }
+
+    /**
+     * Returns the cached tile for the specified key or creates it via the loader. Concurrent requests of the same
+     * tile wait for a single loader call.
+     */
+    public byte[] get(String key, Supplier<byte[]> loader) {
+        if (cache == null)
+            return loader.get();
+        try {
+            return cache.get(key, loader::get);
+        } catch (ExecutionException | UncheckedExecutionException ex) {
+            if (ex.getCause() instanceof RuntimeException)
+                throw (RuntimeException) ex.getCause();
+            throw new IllegalStateException(ex.getCause());
+        }
+    }
+
+    public boolean isEnabled() {
+        return cache != null;
+    }
+
+    public long size() {
+        return cache == null ? 0 : cache.size();
+    }
+}
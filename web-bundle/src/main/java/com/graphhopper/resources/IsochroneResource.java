@@ -6,7 +6,7 @@ import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
 import com.graphhopper.isochrone.algorithm.ContourBuilder;
-import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.isochrone.algorithm.ArrayShortestPathTree;
 import com.graphhopper.isochrone.algorithm.Triangulator;
 import com.graphhopper.jackson.ResponsePathSerializer;
 import com.graphhopper.routing.ProfileResolver;
@@ -108,7 +108,7 @@ public class IsochroneResource {
             throw new IllegalArgumentException("Point not found:" + point);
         QueryGraph queryGraph = QueryGraph.create(graph, snap);
         TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, weighting, reverseFlow, traversalMode);
+        ArrayShortestPathTree shortestPathTree = new ArrayShortestPathTree(queryGraph, weighting, reverseFlow, traversalMode);
 
         double limit;
         if (weightLimit.get() > 0) {
@@ -127,13 +127,13 @@ public class IsochroneResource {
             zs.add((i + 1) * delta);
         }
 
-        ToDoubleFunction<ShortestPathTree.IsoLabel> fz;
+        ToDoubleFunction<ArrayShortestPathTree.Cursor> fz;
         if (weightLimit.get() > 0) {
-            fz = l -> l.weight;
+            fz = ArrayShortestPathTree.Cursor::getWeight;
         } else if (distanceLimitInMeter.get() > 0) {
-            fz = l -> l.distance;
+            fz = ArrayShortestPathTree.Cursor::getDistance;
         } else {
-            fz = l -> l.time;
+            fz = ArrayShortestPathTree.Cursor::getTime;
         }
 
         Triangulator.Result result = triangulator.triangulate(snap, queryGraph, shortestPathTree, fz, degreesFromMeters(toleranceInMeter));
@@ -1,6 +1,7 @@
 package com.graphhopper.resources;
 
 import com.graphhopper.GraphHopper;
+import com.graphhopper.http.MVTTileCache;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.util.EncodingManager;
 import com.graphhopper.storage.NodeAccess;
@@ -29,23 +30,27 @@ import javax.ws.rs.core.Context;
 import javax.ws.rs.core.MediaType;
 import javax.ws.rs.core.Response;
 import javax.ws.rs.core.UriInfo;
-import java.util.HashMap;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Consumer;
 
 @Path("mvt")
 public class MVTResource {
 
     private static final Logger logger = LoggerFactory.getLogger(MVTResource.class);
     private static final MediaType PBF = new MediaType("application", "x-protobuf");
+    // below this zoom level tiles are always empty and from this zoom level on the location index is used
+    private static final int MIN_ZOOM = 5;
+    private static final int LOCATION_INDEX_ZOOM = 10;
     private final GraphHopper graphHopper;
     private final EncodingManager encodingManager;
+    private final MVTTileCache tileCache;
 
     @Inject
-    public MVTResource(GraphHopper graphHopper, EncodingManager encodingManager) {
+    public MVTResource(GraphHopper graphHopper, EncodingManager encodingManager, MVTTileCache tileCache) {
         this.graphHopper = graphHopper;
         this.encodingManager = encodingManager;
+        this.tileCache = tileCache;
     }
 
     @GET
@@ -59,7 +64,7 @@ public class MVTResource {
             @PathParam("y") int yInfo,
             @QueryParam(Parameters.Details.PATH_DETAILS) List<String> pathDetails) {
 
-        if (zInfo <= 9) {
+        if (zInfo < MIN_ZOOM || zInfo < LOCATION_INDEX_ZOOM && graphHopper.getMajorRoadIndex() == null) {
             VectorTile.Tile.Builder mvtBuilder = VectorTile.Tile.newBuilder();
             return Response.fromResponse(Response.ok(mvtBuilder.build().toByteArray(), PBF).build())
                     .header("X-GH-Took", "0")
@@ -67,9 +72,19 @@ public class MVTResource {
         }
 
         StopWatch totalSW = new StopWatch().start();
+        // the order of the details does not change the tile
+        List<String> sortedDetails = new ArrayList<>(new TreeSet<>(pathDetails));
+        String key = zInfo + "/" + xInfo + "/" + yInfo + "?" + String.join("&", sortedDetails);
+        byte[] bytes = tileCache.get(key, () -> createTile(zInfo, xInfo, yInfo, sortedDetails));
+        totalSW.stop();
+        return Response.ok(bytes, PBF).header("X-GH-Took", "" + totalSW.getSeconds() * 1000)
+                .build();
+    }
+
+    private byte[] createTile(int zInfo, int xInfo, int yInfo, List<String> pathDetails) {
+        StopWatch sw = new StopWatch().start();
         Coordinate nw = num2deg(xInfo, yInfo, zInfo);
         Coordinate se = num2deg(xInfo + 1, yInfo + 1, zInfo);
-        LocationIndexTree locationIndex = (LocationIndexTree) graphHopper.getLocationIndex();
         final NodeAccess na = graphHopper.getGraphHopperStorage().getNodeAccess();
         BBox bbox = new BBox(nw.x, se.x, se.y, nw.y);
         if (!bbox.isValid())
@@ -90,62 +105,81 @@ public class MVTResource {
         // otherwise the decoding won't be successful and "undefined":"undefined" instead of "speed": 30 is the result
         final MvtLayerProps layerProps = new MvtLayerProps();
         final VectorTile.Tile.Layer.Builder layerBuilder = MvtLayerBuild.newLayerBuilder("roads", layerParams);
-
-        locationIndex.query(bbox, edgeId -> {
-            EdgeIteratorState edge = graphHopper.getGraphHopperStorage().getEdgeIteratorStateForKey(edgeId * 2);
-            LineString lineString;
-            RoadClass rc = edge.get(roadClassEnc);
-            if (zInfo >= 14) {
-                PointList pl = edge.fetchWayGeometry(FetchMode.ALL);
-                lineString = pl.toLineString(false);
-            } else if (rc == RoadClass.MOTORWAY
-                    || zInfo > 10 && (rc == RoadClass.PRIMARY || rc == RoadClass.TRUNK)
-                    || zInfo > 11 && (rc == RoadClass.SECONDARY)
-                    || zInfo > 12) {
-                double lat = na.getLat(edge.getBaseNode());
-                double lon = na.getLon(edge.getBaseNode());
-                double toLat = na.getLat(edge.getAdjNode());
-                double toLon = na.getLon(edge.getAdjNode());
-                lineString = geometryFactory.createLineString(new Coordinate[]{new Coordinate(lon, lat), new Coordinate(toLon, toLat)});
-            } else {
-                // skip edge for certain zoom
-                return;
-            }
-
+        final Consumer<LineString> addFeature = lineString -> {
             edgeCounter.incrementAndGet();
-            Map<String, Object> map = new HashMap<>(2);
-            map.put("name", edge.getName());
-            for (String str : pathDetails) {
-                // how to indicate an erroneous parameter?
-                if (str.contains(",") || !encodingManager.hasEncodedValue(str))
-                    continue;
-
-                EncodedValue ev = encodingManager.getEncodedValue(str, EncodedValue.class);
-                if (ev instanceof EnumEncodedValue)
-                    map.put(ev.getName(), edge.get((EnumEncodedValue) ev).toString());
-                else if (ev instanceof DecimalEncodedValue)
-                    map.put(ev.getName(), edge.get((DecimalEncodedValue) ev));
-                else if (ev instanceof BooleanEncodedValue)
-                    map.put(ev.getName(), edge.get((BooleanEncodedValue) ev));
-                else if (ev instanceof IntEncodedValue)
-                    map.put(ev.getName(), edge.get((IntEncodedValue) ev));
-            }
-
-            lineString.setUserData(map);
-
             // doing some AffineTransformation
             TileGeomResult tileGeom = JtsAdapter.createTileGeom(lineString, tileEnvelope, geometryFactory, layerParams, acceptAllGeomFilter);
             List<VectorTile.Tile.Feature> features = JtsAdapter.toFeatures(tileGeom.mvtGeoms, layerProps, converter);
             layerBuilder.addAllFeatures(features);
-        });
+        };
+
+        if (zInfo < LOCATION_INDEX_ZOOM) {
+            // for low zoom levels only the simplified geometries of the major roads are used
+            Set<RoadClass> roadClasses = EnumSet.of(RoadClass.MOTORWAY);
+            if (zInfo > 6)
+                roadClasses.add(RoadClass.TRUNK);
+            if (zInfo > 8)
+                roadClasses.add(RoadClass.PRIMARY);
+            graphHopper.getMajorRoadIndex().query(bbox, roadClasses, (edgeId, roadClass, points) -> {
+                EdgeIteratorState edge = graphHopper.getGraphHopperStorage().getEdgeIteratorState(edgeId, Integer.MIN_VALUE);
+                LineString lineString = points.toLineString(false);
+                lineString.setUserData(createAttributes(edge, pathDetails));
+                addFeature.accept(lineString);
+            });
+        } else {
+            LocationIndexTree locationIndex = (LocationIndexTree) graphHopper.getLocationIndex();
+            locationIndex.query(bbox, edgeId -> {
+                EdgeIteratorState edge = graphHopper.getGraphHopperStorage().getEdgeIteratorStateForKey(edgeId * 2);
+                LineString lineString;
+                RoadClass rc = edge.get(roadClassEnc);
+                if (zInfo >= 14) {
+                    PointList pl = edge.fetchWayGeometry(FetchMode.ALL);
+                    lineString = pl.toLineString(false);
+                } else if (rc == RoadClass.MOTORWAY
+                        || zInfo > 10 && (rc == RoadClass.PRIMARY || rc == RoadClass.TRUNK)
+                        || zInfo > 11 && (rc == RoadClass.SECONDARY)
+                        || zInfo > 12) {
+                    double lat = na.getLat(edge.getBaseNode());
+                    double lon = na.getLon(edge.getBaseNode());
+                    double toLat = na.getLat(edge.getAdjNode());
+                    double toLon = na.getLon(edge.getAdjNode());
+                    lineString = geometryFactory.createLineString(new Coordinate[]{new Coordinate(lon, lat), new Coordinate(toLon, toLat)});
+                } else {
+                    // skip edge for certain zoom
+                    return;
+                }
+
+                lineString.setUserData(createAttributes(edge, pathDetails));
+                addFeature.accept(lineString);
+            });
+        }
 
         MvtLayerBuild.writeProps(layerBuilder, layerProps);
         mvtBuilder.addLayers(layerBuilder.build());
         byte[] bytes = mvtBuilder.build().toByteArray();
-        totalSW.stop();
-        logger.debug("took: " + totalSW.getSeconds() + ", edges:" + edgeCounter.get());
-        return Response.ok(bytes, PBF).header("X-GH-Took", "" + totalSW.getSeconds() * 1000)
-                .build();
+        logger.debug("took: " + sw.stop().getSeconds() + ", edges:" + edgeCounter.get());
+        return bytes;
+    }
+
+    private Map<String, Object> createAttributes(EdgeIteratorState edge, List<String> pathDetails) {
+        Map<String, Object> map = new HashMap<>(2);
+        map.put("name", edge.getName());
+        for (String str : pathDetails) {
+            // how to indicate an erroneous parameter?
+            if (str.contains(",") || !encodingManager.hasEncodedValue(str))
+                continue;
+
+            EncodedValue ev = encodingManager.getEncodedValue(str, EncodedValue.class);
+            if (ev instanceof EnumEncodedValue)
+                map.put(ev.getName(), edge.get((EnumEncodedValue) ev).toString());
+            else if (ev instanceof DecimalEncodedValue)
+                map.put(ev.getName(), edge.get((DecimalEncodedValue) ev));
+            else if (ev instanceof BooleanEncodedValue)
+                map.put(ev.getName(), edge.get((BooleanEncodedValue) ev));
+            else if (ev instanceof IntEncodedValue)
+                map.put(ev.getName(), edge.get((IntEncodedValue) ev));
+        }
+        return map;
     }
 
     Coordinate num2deg(int xInfo, int yInfo, int zoom) {
@@ -0,0 +1,282 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.JsonNodeFactory;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.config.Profile;
+import com.graphhopper.jackson.MultiException;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.routing.ch.ManyToManyCH;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.querygraph.QueryRoutingCHGraph;
+import com.graphhopper.routing.util.DefaultSnapFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.SnapPreventionEdgeFilter;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.RoutingCHGraph;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.exceptions.ConnectionNotFoundException;
+import com.graphhopper.util.exceptions.PointNotFoundException;
+import com.graphhopper.util.exceptions.PointOutOfBoundsException;
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import java.util.*;
+
+/**
+ * Calculates a matrix of weights, times and/or distances between many origins and destinations using a CH profile.
+ * The request and response format is compatible with the one used by GraphHopperMatrixWeb of the client-hc module.
+ * Points that are given twice are snapped only once and no paths are created.
+ */
+@Path("matrix")
+public class MatrixResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(MatrixResource.class);
+    private static final List<String> OUT_ARRAYS = Arrays.asList("weights", "times", "distances");
+
+    public static class MatrixRequest {
+        @JsonProperty("profile")
+        public String profile;
+        @JsonProperty("points")
+        public List<GHPoint> points = new ArrayList<>();
+        @JsonProperty("from_points")
+        public List<GHPoint> fromPoints = new ArrayList<>();
+        @JsonProperty("to_points")
+        public List<GHPoint> toPoints = new ArrayList<>();
+        @JsonProperty("snap_preventions")
+        public List<String> snapPreventions = new ArrayList<>();
+        @JsonProperty("out_arrays")
+        public List<String> outArrays = new ArrayList<>();
+        @JsonProperty("fail_fast")
+        public boolean failFast = true;
+    }
+
+    private final GraphHopper graphHopper;
+    private final EncodingManager encodingManager;
+
+    @Inject
+    public MatrixResource(GraphHopper graphHopper, EncodingManager encodingManager) {
+        this.graphHopper = graphHopper;
+        this.encodingManager = encodingManager;
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPost(@NotNull MatrixRequest request, @Context HttpServletRequest httpReq) {
+        StopWatch sw = new StopWatch().start();
+        boolean identicalLists = !request.points.isEmpty();
+        if (identicalLists && (!request.fromPoints.isEmpty() || !request.toPoints.isEmpty()))
+            throw new IllegalArgumentException("Either specify 'points' or 'from_points' and 'to_points', but not both");
+        List<GHPoint> fromPoints = identicalLists ? request.points : request.fromPoints;
+        List<GHPoint> toPoints = identicalLists ? request.points : request.toPoints;
+        if (fromPoints.isEmpty() || toPoints.isEmpty())
+            throw new IllegalArgumentException("You have to specify at least one origin and one destination, use 'points' or 'from_points' and 'to_points'");
+        List<String> outArrays = request.outArrays.isEmpty() ? Collections.singletonList("weights") : request.outArrays;
+        for (String outArray : outArrays)
+            if (!OUT_ARRAYS.contains(outArray))
+                throw new IllegalArgumentException("Unknown out_array '" + outArray + "', supported: " + OUT_ARRAYS);
+        if (Helper.isEmpty(request.profile))
+            throw new IllegalArgumentException("You need to specify a profile to calculate a matrix");
+        Profile profile = graphHopper.getProfile(request.profile);
+        if (profile == null)
+            throw new IllegalArgumentException("The requested profile '" + request.profile + "' does not exist");
+        GraphHopperStorage ghStorage = graphHopper.getGraphHopperStorage();
+        RoutingCHGraph chGraph = ghStorage.getRoutingCHGraph(profile.getName());
+        if (chGraph == null)
+            throw new IllegalArgumentException("Cannot find CH preparation for the requested profile: '" + profile.getName() + "', the matrix calculation requires CH");
+        if (chGraph.isEdgeBased())
+            throw new IllegalArgumentException("The matrix calculation does not support profiles with turn costs yet, use a profile with turn_costs=false");
+
+        EdgeFilter snapFilter = createSnapFilter(chGraph, profile, request.snapPreventions);
+        List<Throwable> errors = new ArrayList<>();
+        // shared by both lookups, so a point that is contained in from_points and to_points is only snapped once
+        Map<GHPoint, Snap> snapsByPoint = new HashMap<>(fromPoints.size() + toPoints.size());
+        List<Snap> fromSnaps = lookup(fromPoints, snapFilter, ghStorage.getBounds(), "from_points", snapsByPoint, errors);
+        List<Snap> toSnaps = identicalLists ? fromSnaps : lookup(toPoints, snapFilter, ghStorage.getBounds(), "to_points", snapsByPoint, errors);
+        if (request.failFast && !errors.isEmpty())
+            throw new MultiException(errors);
+
+        List<Snap> validSnaps = new ArrayList<>(fromSnaps.size() + toSnaps.size());
+        addValidSnaps(fromSnaps, validSnaps);
+        if (!identicalLists)
+            addValidSnaps(toSnaps, validSnaps);
+        QueryGraph queryGraph = QueryGraph.create(ghStorage, validSnaps);
+        // the closest nodes are only known after the query graph is created
+        int[] sources = getNodes(fromSnaps);
+        int[] targets = getNodes(toSnaps);
+
+        boolean calcTimes = outArrays.contains("times");
+        boolean calcDistances = outArrays.contains("distances");
+        ManyToManyCH manyToMany = new ManyToManyCH(new QueryRoutingCHGraph(chGraph, queryGraph))
+                .setCalcTimes(calcTimes)
+                .setCalcDistances(calcDistances);
+        ManyToManyCH.Result result = manyToMany.calcMatrix(filterValid(sources), filterValid(targets));
+
+        ObjectNode json = JsonNodeFactory.instance.objectNode();
+        ArrayNode weightsJson = outArrays.contains("weights") ? json.putArray("weights") : null;
+        ArrayNode timesJson = calcTimes ? json.putArray("times") : null;
+        ArrayNode distancesJson = calcDistances ? json.putArray("distances") : null;
+        ArrayNode disconnectedPairs = JsonNodeFactory.instance.arrayNode();
+        for (int from = 0, s = 0; from < sources.length; from++) {
+            ArrayNode weightsRow = weightsJson == null ? null : weightsJson.addArray();
+            ArrayNode timesRow = timesJson == null ? null : timesJson.addArray();
+            ArrayNode distancesRow = distancesJson == null ? null : distancesJson.addArray();
+            for (int to = 0, t = 0; to < targets.length; to++) {
+                boolean connected = sources[from] >= 0 && targets[to] >= 0 && result.isConnected(s, t);
+                if (!connected) {
+                    if (sources[from] >= 0 && targets[to] >= 0) {
+                        if (request.failFast) {
+                            Map<String, Object> details = new HashMap<>(2);
+                            details.put("from", from);
+                            details.put("to", to);
+                            throw new MultiException(new ConnectionNotFoundException("Connection between locations not found: " + from + " -> " + to, details));
+                        }
+                        disconnectedPairs.addArray().add(from).add(to);
+                    }
+                    if (weightsRow != null)
+                        weightsRow.addNull();
+                    if (timesRow != null)
+                        timesRow.addNull();
+                    if (distancesRow != null)
+                        distancesRow.addNull();
+                } else {
+                    if (weightsRow != null)
+                        weightsRow.add(Helper.round(result.weights[s][t], 3));
+                    if (timesRow != null)
+                        timesRow.add(Math.round(result.times[s][t] / 1000.0));
+                    if (distancesRow != null)
+                        distancesRow.add(Math.round(result.distances[s][t]));
+                }
+                if (targets[to] >= 0)
+                    t++;
+            }
+            if (sources[from] >= 0)
+                s++;
+        }
+        if (!request.failFast) {
+            ArrayNode hints = json.putArray("hints");
+            if (!disconnectedPairs.isEmpty()) {
+                ObjectNode hint = hints.addObject();
+                hint.put("message", "There are disconnected points");
+                hint.set("point_pairs", disconnectedPairs);
+            }
+            if (!errors.isEmpty()) {
+                ObjectNode hint = hints.addObject();
+                hint.put("message", "Some points could not be found");
+                hint.putPOJO("invalid_from_points", getInvalidIndices(sources));
+                hint.putPOJO("invalid_to_points", getInvalidIndices(targets));
+            }
+        }
+        long took = sw.stop().getNanos() / 1_000_000;
+        ObjectNode info = json.putObject("info");
+        info.putPOJO("copyrights", ResponsePathSerializer.COPYRIGHTS);
+        info.put("took", took);
+        logger.info(httpReq.getRemoteAddr() + " " + fromPoints.size() + "x" + toPoints.size() + ", took: " + took + " ms"
+                + ", profile: " + profile.getName() + ", out_arrays: " + outArrays + ", visited nodes: " + manyToMany.getVisitedNodes());
+        return Response.ok(json).
+                header("X-GH-Took", "" + took).
+                type(MediaType.APPLICATION_JSON).
+                build();
+    }
+
+    private EdgeFilter createSnapFilter(RoutingCHGraph chGraph, Profile profile, List<String> snapPreventions) {
+        EdgeFilter snapFilter = new DefaultSnapFilter(chGraph.getWeighting(), encodingManager.getBooleanEncodedValue(Subnetwork.key(profile.getName())));
+        if (snapPreventions.isEmpty())
+            return snapFilter;
+        EnumEncodedValue<RoadClass> roadClassEnc = encodingManager.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        EnumEncodedValue<RoadEnvironment> roadEnvEnc = encodingManager.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class);
+        return new SnapPreventionEdgeFilter(snapFilter, roadClassEnc, roadEnvEnc, snapPreventions);
+    }
+
+    /**
+     * Snaps the given points, identical points are only snapped once and share the same {@link Snap}. The snaps of
+     * previous calls are taken from and added to snapsByPoint. Points that cannot be snapped are represented by null.
+     */
+    private List<Snap> lookup(List<GHPoint> points, EdgeFilter snapFilter, BBox bounds, String name,
+                              Map<GHPoint, Snap> snapsByPoint, List<Throwable> errors) {
+        LocationIndex locationIndex = graphHopper.getLocationIndex();
+        List<Snap> snaps = new ArrayList<>(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            GHPoint point = points.get(i);
+            if (point == null)
+                throw new IllegalArgumentException("Point " + i + " of " + name + " must not be null");
+            if (!bounds.contains(point.lat, point.lon)) {
+                errors.add(new PointOutOfBoundsException("Point " + i + " of " + name + " is out of bounds: " + point + ", the bounds are: " + bounds, i));
+                snaps.add(null);
+                continue;
+            }
+            Snap snap = snapsByPoint.computeIfAbsent(point, p -> locationIndex.findClosest(p.lat, p.lon, snapFilter));
+            if (snap.isValid()) {
+                snaps.add(snap);
+            } else {
+                errors.add(new PointNotFoundException("Cannot find point " + i + " of " + name + ": " + point, i));
+                snaps.add(null);
+            }
+        }
+        return snaps;
+    }
+
+    private static void addValidSnaps(List<Snap> snaps, List<Snap> validSnaps) {
+        Set<Snap> added = Collections.newSetFromMap(new IdentityHashMap<>());
+        added.addAll(validSnaps);
+        for (Snap snap : snaps)
+            if (snap != null && added.add(snap))
+                validSnaps.add(snap);
+    }
+
+    private static int[] getNodes(List<Snap> snaps) {
+        int[] nodes = new int[snaps.size()];
+        for (int i = 0; i < snaps.size(); i++)
+            nodes[i] = snaps.get(i) == null ? -1 : snaps.get(i).getClosestNode();
+        return nodes;
+    }
+
+    private static int[] filterValid(int[] nodes) {
+        return Arrays.stream(nodes).filter(n -> n >= 0).toArray();
+    }
+
+    private static List<Integer> getInvalidIndices(int[] nodes) {
+        List<Integer> result = new ArrayList<>();
+        for (int i = 0; i < nodes.length; i++)
+            if (nodes[i] < 0)
+                result.add(i);
+        return result;
+    }
+}
@@ -0,0 +1,254 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonFactory;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.config.Profile;
+import com.graphhopper.jackson.MultiException;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.routing.DijkstraOneToMany;
+import com.graphhopper.routing.DijkstraOneToManyPool;
+import com.graphhopper.routing.ev.*;
+import com.graphhopper.routing.querygraph.QueryGraph;
+import com.graphhopper.routing.util.DefaultSnapFilter;
+import com.graphhopper.routing.util.EdgeFilter;
+import com.graphhopper.routing.util.EncodingManager;
+import com.graphhopper.routing.util.SnapPreventionEdgeFilter;
+import com.graphhopper.routing.weighting.Weighting;
+import com.graphhopper.storage.GraphHopperStorage;
+import com.graphhopper.storage.index.LocationIndex;
+import com.graphhopper.storage.index.Snap;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.StopWatch;
+import com.graphhopper.util.exceptions.PointNotFoundException;
+import com.graphhopper.util.exceptions.PointOutOfBoundsException;
+import com.graphhopper.util.shapes.BBox;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.util.*;
+
+/**
+ * Calculates the weights, times and/or distances from every origin to many destinations without CH. For every origin
+ * a single {@link DijkstraOneToMany} search runs until all destinations are settled, so unlike the matrix endpoint
+ * this works for every profile. All points are snapped into the same query graph and the rows are streamed to the
+ * client while they are calculated.
+ */
+@Path("one-to-many")
+public class OneToManyResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(OneToManyResource.class);
+    private static final List<String> OUT_ARRAYS = Arrays.asList("weights", "times", "distances");
+    private static final JsonFactory JSON_FACTORY = new JsonFactory();
+
+    public static class OneToManyRequest {
+        @JsonProperty("profile")
+        public String profile;
+        @JsonProperty("from_points")
+        public List<GHPoint> fromPoints = new ArrayList<>();
+        @JsonProperty("to_points")
+        public List<GHPoint> toPoints = new ArrayList<>();
+        @JsonProperty("snap_preventions")
+        public List<String> snapPreventions = new ArrayList<>();
+        @JsonProperty("out_arrays")
+        public List<String> outArrays = new ArrayList<>();
+    }
+
+    private final GraphHopper graphHopper;
+    private final EncodingManager encodingManager;
+    private final DijkstraOneToManyPool algoPool;
+
+    @Inject
+    public OneToManyResource(GraphHopper graphHopper, EncodingManager encodingManager, DijkstraOneToManyPool algoPool) {
+        this.graphHopper = graphHopper;
+        this.encodingManager = encodingManager;
+        this.algoPool = algoPool;
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPost(@NotNull OneToManyRequest request, @Context HttpServletRequest httpReq) {
+        StopWatch sw = new StopWatch().start();
+        if (request.fromPoints.isEmpty() || request.toPoints.isEmpty())
+            throw new IllegalArgumentException("You have to specify at least one origin and one destination using 'from_points' and 'to_points'");
+        List<String> outArrays = request.outArrays.isEmpty() ? Collections.singletonList("weights") : request.outArrays;
+        for (String outArray : outArrays)
+            if (!OUT_ARRAYS.contains(outArray))
+                throw new IllegalArgumentException("Unknown out_array '" + outArray + "', supported: " + OUT_ARRAYS);
+        if (Helper.isEmpty(request.profile))
+            throw new IllegalArgumentException("You need to specify a profile");
+        Profile profile = graphHopper.getProfile(request.profile);
+        if (profile == null)
+            throw new IllegalArgumentException("The requested profile '" + request.profile + "' does not exist");
+        if (profile.isTurnCosts())
+            throw new IllegalArgumentException("The one-to-many calculation does not support profiles with turn costs yet, use a profile with turn_costs=false");
+
+        PMap hints = new PMap();
+        hints.putObject(Parameters.CH.DISABLE, true);
+        hints.putObject(Parameters.Landmark.DISABLE, true);
+        Weighting weighting = graphHopper.createWeighting(profile, hints);
+        GraphHopperStorage ghStorage = graphHopper.getGraphHopperStorage();
+        EdgeFilter snapFilter = createSnapFilter(weighting, profile, request.snapPreventions);
+        List<Throwable> errors = new ArrayList<>();
+        Map<GHPoint, Snap> snapsByPoint = new LinkedHashMap<>();
+        List<Snap> fromSnaps = lookup(request.fromPoints, snapFilter, ghStorage.getBounds(), "from_points", snapsByPoint, errors);
+        List<Snap> toSnaps = lookup(request.toPoints, snapFilter, ghStorage.getBounds(), "to_points", snapsByPoint, errors);
+        if (!errors.isEmpty())
+            throw new MultiException(errors);
+
+        QueryGraph queryGraph = QueryGraph.create(ghStorage, new ArrayList<>(snapsByPoint.values()));
+        // the closest nodes are only known after the query graph is created
+        int[] sources = fromSnaps.stream().mapToInt(Snap::getClosestNode).toArray();
+        int[] targets = toSnaps.stream().mapToInt(Snap::getClosestNode).toArray();
+        boolean calcWeights = outArrays.contains("weights");
+        boolean calcTimes = outArrays.contains("times");
+        boolean calcDistances = outArrays.contains("distances");
+        int maxVisitedNodes = graphHopper.getRouterConfig().getMaxVisitedNodes();
+
+        StreamingOutput out = output -> {
+            DijkstraOneToMany algo = algoPool.acquire(queryGraph, weighting);
+            algo.setMaxVisitedNodes(maxVisitedNodes);
+            long visitedNodes = 0;
+            double[] weights = new double[targets.length];
+            long[] times = new long[targets.length];
+            double[] distances = new double[targets.length];
+            try (JsonGenerator json = JSON_FACTORY.createGenerator(output)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("rows");
+                for (int source : sources) {
+                    algo.clear();
+                    for (int i = 0; i < targets.length; i++) {
+                        // the search of the previous target is continued, so every source is settled only once
+                        int node = algo.findEndNode(source, targets[i]);
+                        visitedNodes += algo.getVisitedNodes();
+                        // read the values from the shortest path tree instead of extracting a path for every target
+                        weights[i] = node < 0 ? -1 : algo.getWeight(node);
+                        times[i] = node < 0 || !calcTimes ? 0 : algo.getTime(node);
+                        distances[i] = node < 0 || !calcDistances ? 0 : algo.getDistance(node);
+                    }
+                    json.writeStartObject();
+                    if (calcWeights) {
+                        json.writeArrayFieldStart("weights");
+                        for (int i = 0; i < targets.length; i++) {
+                            if (weights[i] < 0)
+                                json.writeNull();
+                            else
+                                json.writeNumber(Helper.round(weights[i], 3));
+                        }
+                        json.writeEndArray();
+                    }
+                    if (calcTimes) {
+                        json.writeArrayFieldStart("times");
+                        for (int i = 0; i < targets.length; i++) {
+                            if (weights[i] < 0)
+                                json.writeNull();
+                            else
+                                json.writeNumber(Math.round(times[i] / 1000.0));
+                        }
+                        json.writeEndArray();
+                    }
+                    if (calcDistances) {
+                        json.writeArrayFieldStart("distances");
+                        for (int i = 0; i < targets.length; i++) {
+                            if (weights[i] < 0)
+                                json.writeNull();
+                            else
+                                json.writeNumber(Math.round(distances[i]));
+                        }
+                        json.writeEndArray();
+                    }
+                    json.writeEndObject();
+                    // send every row as soon as it is ready
+                    json.flush();
+                }
+                json.writeEndArray();
+                long took = sw.stop().getNanos() / 1_000_000;
+                json.writeObjectFieldStart("info");
+                json.writeArrayFieldStart("copyrights");
+                for (String copyright : ResponsePathSerializer.COPYRIGHTS)
+                    json.writeString(copyright);
+                json.writeEndArray();
+                json.writeNumberField("took", took);
+                json.writeEndObject();
+                json.writeEndObject();
+                logger.info(httpReq.getRemoteAddr() + " " + sources.length + "x" + targets.length + ", took: " + took + " ms"
+                        + ", profile: " + profile.getName() + ", out_arrays: " + outArrays + ", visited nodes: " + visitedNodes);
+            } finally {
+                algoPool.release(algo);
+            }
+        };
+        return Response.ok(out).type(MediaType.APPLICATION_JSON).build();
+    }
+
+    private EdgeFilter createSnapFilter(Weighting weighting, Profile profile, List<String> snapPreventions) {
+        EdgeFilter snapFilter = new DefaultSnapFilter(weighting, encodingManager.getBooleanEncodedValue(Subnetwork.key(profile.getName())));
+        if (snapPreventions.isEmpty())
+            return snapFilter;
+        EnumEncodedValue<RoadClass> roadClassEnc = encodingManager.getEnumEncodedValue(RoadClass.KEY, RoadClass.class);
+        EnumEncodedValue<RoadEnvironment> roadEnvEnc = encodingManager.getEnumEncodedValue(RoadEnvironment.KEY, RoadEnvironment.class);
+        return new SnapPreventionEdgeFilter(snapFilter, roadClassEnc, roadEnvEnc, snapPreventions);
+    }
+
+    /**
+     * Snaps the given points, identical points (also between origins and destinations) are only snapped once and share
+     * the same {@link Snap}.
+     */
+    private List<Snap> lookup(List<GHPoint> points, EdgeFilter snapFilter, BBox bounds, String name,
+                              Map<GHPoint, Snap> snapsByPoint, List<Throwable> errors) {
+        LocationIndex locationIndex = graphHopper.getLocationIndex();
+        List<Snap> snaps = new ArrayList<>(points.size());
+        for (int i = 0; i < points.size(); i++) {
+            GHPoint point = points.get(i);
+            if (point == null)
+                throw new IllegalArgumentException("Point " + i + " of " + name + " must not be null");
+            if (!bounds.contains(point.lat, point.lon)) {
+                errors.add(new PointOutOfBoundsException("Point " + i + " of " + name + " is out of bounds: " + point + ", the bounds are: " + bounds, i));
+                continue;
+            }
+            Snap snap = snapsByPoint.get(point);
+            if (snap == null) {
+                snap = locationIndex.findClosest(point.lat, point.lon, snapFilter);
+                if (!snap.isValid()) {
+                    errors.add(new PointNotFoundException("Cannot find point " + i + " of " + name + ": " + point, i));
+                    continue;
+                }
+                snapsByPoint.put(point, snap);
+            }
+            snaps.add(snap);
+        }
+        return snaps;
+    }
+}
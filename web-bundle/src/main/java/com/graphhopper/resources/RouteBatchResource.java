@@ -0,0 +1,177 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.resources;
+
+import com.fasterxml.jackson.annotation.JsonProperty;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.graphhopper.GHRequest;
+import com.graphhopper.GHResponse;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.GraphHopperConfig;
+import com.graphhopper.jackson.MultiException;
+import com.graphhopper.jackson.ResponsePathSerializer;
+import com.graphhopper.routing.SnapCache;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.StopWatch;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import javax.inject.Inject;
+import javax.inject.Named;
+import javax.servlet.http.HttpServletRequest;
+import javax.validation.constraints.NotNull;
+import javax.ws.rs.Consumes;
+import javax.ws.rs.POST;
+import javax.ws.rs.Path;
+import javax.ws.rs.Produces;
+import javax.ws.rs.core.Context;
+import javax.ws.rs.core.MediaType;
+import javax.ws.rs.core.Response;
+import javax.ws.rs.core.StreamingOutput;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+
+import static com.graphhopper.util.Parameters.Routing.CALC_POINTS;
+import static com.graphhopper.util.Parameters.Routing.INSTRUCTIONS;
+
+/**
+ * Calculates many independent routes within a single request. Every distinct point is snapped only once for all
+ * routes (see {@link SnapCache}), the routes are calculated by a shared pool of worker threads and the responses are
+ * streamed to the client in the order of the requests as soon as they are ready. A route that fails does not fail the
+ * batch, instead its errors are returned in place of its response.
+ */
+@Path("route/batch")
+public class RouteBatchResource {
+
+    private static final Logger logger = LoggerFactory.getLogger(RouteBatchResource.class);
+
+    public static class RouteBatchRequest {
+        @JsonProperty("requests")
+        public List<GHRequest> requests = new ArrayList<>();
+    }
+
+    private final GraphHopper graphHopper;
+    private final ExecutorService executor;
+    private final ObjectMapper objectMapper;
+    private final int maxRequests;
+
+    @Inject
+    public RouteBatchResource(GraphHopper graphHopper, GraphHopperConfig config, @Named("routeBatchExecutor") ExecutorService executor,
+                              ObjectMapper objectMapper) {
+        this.graphHopper = graphHopper;
+        this.executor = executor;
+        this.objectMapper = objectMapper;
+        this.maxRequests = config.getInt("routing.batch.max_requests", 1000);
+    }
+
+    @POST
+    @Consumes(MediaType.APPLICATION_JSON)
+    @Produces(MediaType.APPLICATION_JSON)
+    public Response doPost(@NotNull RouteBatchRequest batch, @Context HttpServletRequest httpReq) {
+        StopWatch sw = new StopWatch().start();
+        if (batch.requests.isEmpty())
+            throw new IllegalArgumentException("You have to specify at least one request using 'requests'");
+        if (batch.requests.size() > maxRequests)
+            throw new IllegalArgumentException("Too many requests: " + batch.requests.size() + ", the maximum is " + maxRequests);
+
+        SnapCache snapCache = new SnapCache();
+        List<Future<RouteResult>> futures = new ArrayList<>(batch.requests.size());
+        for (GHRequest request : batch.requests)
+            futures.add(executor.submit(() -> route(request, snapCache)));
+
+        StreamingOutput out = output -> {
+            int errors = 0;
+            try (JsonGenerator json = objectMapper.getFactory().createGenerator(output)) {
+                json.writeStartObject();
+                json.writeArrayFieldStart("responses");
+                for (int i = 0; i < futures.size(); i++) {
+                    RouteResult result = getResult(futures.get(i));
+                    if (result.response.hasErrors()) {
+                        errors++;
+                        json.writeObject(new MultiException(result.response.getErrors()));
+                    } else {
+                        PMap hints = batch.requests.get(i).getHints();
+                        ResponsePathSerializer.writeJson(json, result.response, hints.getBool(INSTRUCTIONS, true),
+                                hints.getBool(CALC_POINTS, true), hints.getBool("elevation", false),
+                                hints.getBool("points_encoded", true), result.took);
+                    }
+                    // send every response as soon as it is ready
+                    json.flush();
+                }
+                json.writeEndArray();
+                long took = sw.stop().getNanos() / 1_000_000;
+                json.writeObjectFieldStart("info");
+                json.writeObjectField("copyrights", ResponsePathSerializer.COPYRIGHTS);
+                json.writeNumberField("took", took);
+                json.writeEndObject();
+                json.writeEndObject();
+                logger.info(httpReq.getRemoteAddr() + " routes: " + futures.size() + ", errors: " + errors
+                        + ", snapped points: " + snapCache.size() + ", took: " + took + " ms");
+            } finally {
+                // the remaining routes are not needed if the client is gone
+                for (Future<RouteResult> future : futures)
+                    future.cancel(false);
+            }
+        };
+        return Response.ok(out).type(MediaType.APPLICATION_JSON).build();
+    }
+
+    private RouteResult route(GHRequest request, SnapCache snapCache) {
+        StopWatch sw = new StopWatch().start();
+        GHResponse ghRsp;
+        try {
+            if (Helper.isEmpty(request.getProfile()))
+                throw new IllegalArgumentException("The 'profile' parameter is required for every request of a batch");
+            RouteResource.errorIfLegacyParameters(request.getHints());
+            ghRsp = graphHopper.route(request, snapCache);
+        } catch (IllegalArgumentException ex) {
+            ghRsp = new GHResponse();
+            ghRsp.addError(ex);
+        }
+        return new RouteResult(ghRsp, sw.stop().getNanos() / 1_000_000f);
+    }
+
+    private static RouteResult getResult(Future<RouteResult> future) {
+        try {
+            return future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new IllegalStateException("Interrupted while waiting for a route of the batch", ex);
+        } catch (ExecutionException ex) {
+            logger.error("Route of the batch failed", ex.getCause());
+            GHResponse ghRsp = new GHResponse();
+            ghRsp.addError(ex.getCause());
+            return new RouteResult(ghRsp, 0);
+        }
+    }
+
+    private static class RouteResult {
+        final GHResponse response;
+        final float took;
+
+        RouteResult(GHResponse response, float took) {
+            this.response = response;
+            this.took = took;
+        }
+    }
+}
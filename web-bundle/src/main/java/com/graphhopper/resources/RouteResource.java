@@ -17,6 +17,8 @@
  */
 package com.graphhopper.resources;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.graphhopper.GHRequest;
 import com.graphhopper.GHResponse;
 import com.graphhopper.GraphHopperAPI;
@@ -59,12 +61,15 @@ public class RouteResource {
     private final GraphHopperAPI graphHopper;
     private final ProfileResolver profileResolver;
     private final Boolean hasElevation;
+    private final ObjectMapper objectMapper;
 
     @Inject
-    public RouteResource(GraphHopperAPI graphHopper, ProfileResolver profileResolver, @Named("hasElevation") Boolean hasElevation) {
+    public RouteResource(GraphHopperAPI graphHopper, ProfileResolver profileResolver, @Named("hasElevation") Boolean hasElevation,
+                         ObjectMapper objectMapper) {
         this.graphHopper = graphHopper;
         this.profileResolver = profileResolver;
         this.hasElevation = hasElevation;
+        this.objectMapper = objectMapper;
     }
 
     @GET
@@ -149,9 +154,8 @@ public class RouteResource {
                             header("X-GH-Took", "" + Math.round(took)).
                             build()
                     :
-                    Response.ok(ResponsePathSerializer.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+                    jsonSuccessResponseBuilder(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took).
                             header("X-GH-Took", "" + Math.round(took)).
-                            type(MediaType.APPLICATION_JSON).
                             build();
         }
     }
@@ -201,9 +205,8 @@ public class RouteResource {
                     + ", time0: " + Math.round(ghResponse.getBest().getTime() / 60000f) + "min"
                     + ", points0: " + ghResponse.getBest().getPoints().size()
                     + ", debugInfo: " + ghResponse.getDebugInfo());
-            return Response.ok(ResponsePathSerializer.jsonObject(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took)).
+            return jsonSuccessResponseBuilder(ghResponse, instructions, calcPoints, enableElevation, pointsEncoded, took).
                     header("X-GH-Took", "" + Math.round(took)).
-                    type(MediaType.APPLICATION_JSON).
                     build();
         }
     }
@@ -241,6 +244,17 @@ public class RouteResource {
         hints.remove("turn_costs");
     }
 
+    private Response.ResponseBuilder jsonSuccessResponseBuilder(GHResponse ghRsp, boolean instructions, boolean calcPoints,
+                                                                boolean enableElevation, boolean pointsEncoded, float took) {
+        // write the paths directly to the output stream, for long routes the JSON tree would be much larger than the response
+        StreamingOutput out = output -> {
+            try (JsonGenerator gen = objectMapper.getFactory().createGenerator(output)) {
+                ResponsePathSerializer.writeJson(gen, ghRsp, instructions, calcPoints, enableElevation, pointsEncoded, took);
+            }
+        };
+        return Response.ok(out).type(MediaType.APPLICATION_JSON);
+    }
+
     private static Response.ResponseBuilder gpxSuccessResponseBuilder(GHResponse ghRsp, String timeString, String
             trackName, boolean enableElevation, boolean withRoute, boolean withTrack, boolean withWayPoints, String version) {
         if (ghRsp.getAll().size() > 1) {
@@ -3,7 +3,7 @@ package com.graphhopper.resources;
 import com.graphhopper.GraphHopper;
 import com.graphhopper.config.Profile;
 import com.graphhopper.http.GHPointParam;
-import com.graphhopper.isochrone.algorithm.ShortestPathTree;
+import com.graphhopper.isochrone.algorithm.ArrayShortestPathTree;
 import com.graphhopper.routing.ProfileResolver;
 import com.graphhopper.routing.ev.*;
 import com.graphhopper.routing.querygraph.QueryGraph;
@@ -110,7 +110,7 @@ public class SPTResource {
         QueryGraph queryGraph = QueryGraph.create(graph, snap);
         NodeAccess nodeAccess = queryGraph.getNodeAccess();
         TraversalMode traversalMode = profile.isTurnCosts() ? EDGE_BASED : NODE_BASED;
-        ShortestPathTree shortestPathTree = new ShortestPathTree(queryGraph, weighting, reverseFlow, traversalMode);
+        ArrayShortestPathTree shortestPathTree = new ArrayShortestPathTree(queryGraph, weighting, reverseFlow, traversalMode);
 
         if (distanceInMeter.get() > 0) {
             shortestPathTree.setDistanceLimit(distanceInMeter.get());
@@ -145,8 +145,9 @@ public class SPTResource {
                 }
                 sb.append(LINE_SEP);
                 writer.write(sb.toString());
-                shortestPathTree.search(snap.getClosestNode(), l -> {
-                    IsoLabelWithCoordinates label = isoLabelWithCoordinates(nodeAccess, l);
+                ArrayShortestPathTree.Cursor cursor = shortestPathTree.search(snap.getClosestNode());
+                while (cursor.next()) {
+                    IsoLabelWithCoordinates label = isoLabelWithCoordinates(nodeAccess, cursor);
                     sb.setLength(0);
                     for (int colIndex = 0; colIndex < columns.size(); colIndex++) {
                         String col = columns.get(colIndex);
@@ -222,12 +223,8 @@ public class SPTResource {
                         }
                     }
                     sb.append(LINE_SEP);
-                    try {
-                        writer.write(sb.toString());
-                    } catch (IOException ex) {
-                        throw new RuntimeException(ex);
-                    }
-                });
+                    writer.write(sb.toString());
+                }
 
                 logger.info("took: " + sw.stop().getSeconds() + ", visited nodes:" + shortestPathTree.getVisitedNodes() + ", " + uriInfo.getQueryParameters());
             } catch (IOException e) {
@@ -238,25 +235,24 @@ public class SPTResource {
         return Response.ok(out).type("text/csv").build();
     }
 
-    private IsoLabelWithCoordinates isoLabelWithCoordinates(NodeAccess na, ShortestPathTree.IsoLabel label) {
-        double lat = na.getLat(label.node);
-        double lon = na.getLon(label.node);
+    private IsoLabelWithCoordinates isoLabelWithCoordinates(NodeAccess na, ArrayShortestPathTree.Cursor label) {
+        double lat = na.getLat(label.getNode());
+        double lon = na.getLon(label.getNode());
         IsoLabelWithCoordinates isoLabelWC = new IsoLabelWithCoordinates();
-        isoLabelWC.nodeId = label.node;
+        isoLabelWC.nodeId = label.getNode();
         isoLabelWC.coordinate = new GHPoint(lat, lon);
-        isoLabelWC.timeMillis = Math.round(label.time);
-        isoLabelWC.distance = (int) Math.round(label.distance);
-        isoLabelWC.edgeId = label.edge;
-        if (label.parent != null) {
-            ShortestPathTree.IsoLabel prevLabel = label.parent;
-            int prevNodeId = prevLabel.node;
+        isoLabelWC.timeMillis = Math.round(label.getTime());
+        isoLabelWC.distance = (int) Math.round(label.getDistance());
+        isoLabelWC.edgeId = label.getEdge();
+        if (label.hasParent()) {
+            int prevNodeId = label.getParentNode();
             double prevLat = na.getLat(prevNodeId);
             double prevLon = na.getLon(prevNodeId);
             isoLabelWC.prevNodeId = prevNodeId;
-            isoLabelWC.prevEdgeId = prevLabel.edge;
+            isoLabelWC.prevEdgeId = label.getParentEdge();
             isoLabelWC.prevCoordinate = new GHPoint(prevLat, prevLon);
-            isoLabelWC.prevDistance = (int) Math.round(prevLabel.distance);
-            isoLabelWC.prevTimeMillis = Math.round(prevLabel.time);
+            isoLabelWC.prevDistance = (int) Math.round(label.getParentDistance());
+            isoLabelWC.prevTimeMillis = Math.round(label.getParentTime());
         }
         return isoLabelWC;
     }
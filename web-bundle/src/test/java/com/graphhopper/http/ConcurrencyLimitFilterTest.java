@@ -0,0 +1,84 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.*;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class ConcurrencyLimitFilterTest {
+
+    @Test
+    public void testParseLimits() {
+        Map<String, Integer> expected = new HashMap<>();
+        expected.put("match", 4);
+        expected.put("route/batch", 2);
+        assertEquals(expected, ConcurrencyLimitFilter.parseLimits("match=4, route/batch=2"));
+        assertTrue(ConcurrencyLimitFilter.parseLimits(" ").isEmpty());
+        assertThrows(IllegalArgumentException.class, () -> ConcurrencyLimitFilter.parseLimits("match:4"));
+        assertThrows(IllegalArgumentException.class, () -> ConcurrencyLimitFilter.parseLimits("match=four"));
+    }
+
+    @Test
+    public void testRejectWithoutQueue() throws InterruptedException {
+        ConcurrencyLimitFilter.Limit limit = new ConcurrencyLimitFilter.Limit(2, 0);
+        assertTrue(limit.acquire(1000));
+        assertTrue(limit.acquire(1000));
+        // rejected immediately although the timeout is long
+        long start = System.nanoTime();
+        assertFalse(limit.acquire(10_000));
+        assertTrue(System.nanoTime() - start < TimeUnit.SECONDS.toNanos(5));
+        limit.release();
+        assertTrue(limit.acquire(1000));
+    }
+
+    @Test
+    public void testQueue() throws Exception {
+        ConcurrencyLimitFilter.Limit limit = new ConcurrencyLimitFilter.Limit(1, 1);
+        assertTrue(limit.acquire(1000));
+        // the queued request times out
+        assertFalse(limit.acquire(10));
+
+        ExecutorService executor = Executors.newSingleThreadExecutor();
+        try {
+            Future<Boolean> queued = executor.submit(() -> limit.acquire(10_000));
+            while (limit.getQueued() == 0)
+                Thread.sleep(1);
+            // the queue is full
+            assertFalse(limit.acquire(10_000));
+            limit.release();
+            assertTrue(queued.get());
+            assertEquals(0, limit.getQueued());
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    public void testInvalidLimits() {
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimitFilter.Limit(0, 0));
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimitFilter.Limit(1, -1));
+        Map<String, Integer> queued = new HashMap<>();
+        queued.put("match", 2);
+        assertThrows(IllegalArgumentException.class, () -> new ConcurrencyLimitFilter(new HashMap<>(), queued, 1000, null));
+    }
+}
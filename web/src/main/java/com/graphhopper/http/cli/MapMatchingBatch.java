@@ -0,0 +1,305 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http.cli;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.jackson.Gpx;
+import com.graphhopper.matching.MapMatching;
+import com.graphhopper.matching.MatchResult;
+import com.graphhopper.matching.Observation;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.shapes.GHPoint;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+import java.io.*;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.*;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+/**
+ * Matches many traces on a pool of worker threads. Every worker thread creates its own {@link MapMatching} instance
+ * and reuses it for all traces it matches. The traces are read one after another and the results are written as one
+ * JSON object per line in the order of the traces, as soon as the result of a trace and of all traces before it are
+ * available. A trace that cannot be matched results in a line with an error message and does not stop the batch.
+ * <p>
+ * The traces are read either from NDJSON, i.e. one JSON object per line like
+ * <pre>
+ * {"id": "trip-1", "points": [[13.40, 52.52], [13.41, 52.52], ...]}
+ * </pre>
+ * where the points are longitude, latitude pairs, or from a zip file with one GPX file per entry. The result of a
+ * trace is e.g.
+ * <pre>
+ * {"id": "trip-1", "distance": 1532.1, "time": 124023, "original_distance": 1498.2, "traversal_keys": [212, 430, ...]}
+ * {"id": "trip-2", "message": "Sequence is broken for submitted track ..."}
+ * </pre>
+ */
+public class MapMatchingBatch {
+    private static final Logger logger = LoggerFactory.getLogger(MapMatchingBatch.class);
+
+    private final GraphHopper hopper;
+    private final PMap hints;
+    private final int threads;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final XmlMapper xmlMapper = new XmlMapper();
+    private final ThreadLocal<MapMatching> mapMatching = ThreadLocal.withInitial(this::createMapMatching);
+    private double measurementErrorSigma = 50.0;
+    private double transitionProbabilityBeta = 2.0;
+    private int matchedTraces;
+    private int failedTraces;
+
+    /**
+     * @param hints   the hints for the {@link MapMatching} instances, they have to contain the profile
+     * @param threads the number of traces that are matched at the same time
+     */
+    public MapMatchingBatch(GraphHopper hopper, PMap hints, int threads) {
+        if (threads < 1)
+            throw new IllegalArgumentException("threads must be at least 1 but was " + threads);
+        this.hopper = hopper;
+        this.hints = hints;
+        this.threads = threads;
+        // fail early if the hints are invalid
+        createMapMatching();
+    }
+
+    public MapMatchingBatch setMeasurementErrorSigma(double measurementErrorSigma) {
+        this.measurementErrorSigma = measurementErrorSigma;
+        return this;
+    }
+
+    public MapMatchingBatch setTransitionProbabilityBeta(double transitionProbabilityBeta) {
+        this.transitionProbabilityBeta = transitionProbabilityBeta;
+        return this;
+    }
+
+    public int getMatchedTraces() {
+        return matchedTraces;
+    }
+
+    public int getFailedTraces() {
+        return failedTraces;
+    }
+
+    private MapMatching createMapMatching() {
+        MapMatching matching = new MapMatching(hopper, hints);
+        matching.setMeasurementErrorSigma(measurementErrorSigma);
+        matching.setTransitionProbabilityBeta(transitionProbabilityBeta);
+        return matching;
+    }
+
+    /**
+     * Matches the traces of the NDJSON input. A trace without an id gets its line number as id.
+     */
+    public void matchNDJSON(Reader input, Writer output) throws IOException {
+        BufferedReader reader = new BufferedReader(input);
+        run(output, tasks -> {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                if (line.trim().isEmpty())
+                    continue;
+                String trace = line;
+                String lineId = String.valueOf(lineNumber);
+                tasks.submit(() -> {
+                    JsonNode json;
+                    try {
+                        json = objectMapper.readTree(trace);
+                    } catch (IOException ex) {
+                        return new Result(lineId, "Cannot parse line " + lineId + ": " + ex.getMessage());
+                    }
+                    String id = json.has("id") ? json.get("id").asText() : lineId;
+                    try {
+                        return match(id, toObservations(json.get("points")));
+                    } catch (Exception ex) {
+                        return new Result(id, ex);
+                    }
+                });
+            }
+        });
+    }
+
+    /**
+     * Matches the GPX files of the zip input. The id of a trace is the name of its zip entry.
+     */
+    public void matchGPXZip(InputStream input, Writer output) throws IOException {
+        ZipInputStream zip = new ZipInputStream(input);
+        run(output, tasks -> {
+            ZipEntry entry;
+            while ((entry = zip.getNextEntry()) != null) {
+                if (entry.isDirectory() || !entry.getName().toLowerCase().endsWith(".gpx"))
+                    continue;
+                String id = entry.getName();
+                // only the reading thread can access the zip stream
+                ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+                byte[] buffer = new byte[8192];
+                int read;
+                while ((read = zip.read(buffer)) >= 0) {
+                    bytes.write(buffer, 0, read);
+                }
+                tasks.submit(() -> {
+                    try {
+                        Gpx gpx = xmlMapper.readValue(bytes.toByteArray(), Gpx.class);
+                        if (gpx.trk == null || gpx.trk.isEmpty())
+                            throw new IllegalArgumentException("No tracks found in GPX document. Are you using waypoints or routes instead?");
+                        if (gpx.trk.size() > 1)
+                            throw new IllegalArgumentException("GPX documents with multiple tracks not supported yet.");
+                        return match(id, GpxConversions.getEntries(gpx.trk.get(0)));
+                    } catch (Exception ex) {
+                        return new Result(id, ex);
+                    }
+                });
+            }
+        });
+    }
+
+    private static List<Observation> toObservations(JsonNode points) {
+        if (points == null || !points.isArray())
+            throw new IllegalArgumentException("The trace needs a points array");
+        List<Observation> observations = new ArrayList<>(points.size());
+        for (JsonNode point : points) {
+            if (!point.isArray() || point.size() < 2)
+                throw new IllegalArgumentException("Every point must be an array of longitude and latitude but was " + point);
+            observations.add(new Observation(new GHPoint(point.get(1).asDouble(), point.get(0).asDouble())));
+        }
+        return observations;
+    }
+
+    private Result match(String id, List<Observation> observations) {
+        MatchResult matchResult = mapMatching.get().match(observations);
+        int[] traversalKeys = new int[matchResult.getEdgeMatches().size()];
+        for (int i = 0; i < traversalKeys.length; i++) {
+            EdgeIteratorState edge = matchResult.getEdgeMatches().get(i).getEdgeState();
+            traversalKeys[i] = GHUtility.createEdgeKey(edge.getBaseNode(), edge.getAdjNode(), edge.getEdge(), false);
+        }
+        return new Result(id, matchResult.getMatchLength(), matchResult.getMatchMillis(), matchResult.getGpxEntriesLength(), traversalKeys);
+    }
+
+    private void run(Writer output, TraceReader traceReader) throws IOException {
+        ExecutorService executor = Executors.newFixedThreadPool(threads);
+        // limits the memory for the traces that wait for a worker or for the result of an earlier trace
+        int maxPending = threads * 4;
+        Deque<Future<Result>> pending = new ArrayDeque<>(maxPending);
+        JsonGenerator generator = objectMapper.getFactory().createGenerator(output);
+        generator.setRootValueSeparator(null);
+        try {
+            traceReader.read(task -> {
+                while (pending.size() >= maxPending) {
+                    write(generator, output, pending.poll());
+                }
+                pending.add(executor.submit(task));
+            });
+            while (!pending.isEmpty()) {
+                write(generator, output, pending.poll());
+            }
+            generator.flush();
+        } finally {
+            for (Future<Result> future : pending) {
+                future.cancel(true);
+            }
+            executor.shutdownNow();
+        }
+    }
+
+    private void write(JsonGenerator generator, Writer output, Future<Result> future) throws IOException {
+        Result result;
+        try {
+            result = future.get();
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the map matching result");
+        } catch (ExecutionException ex) {
+            throw new IllegalStateException("Map matching failed unexpectedly", ex.getCause());
+        }
+        generator.writeStartObject();
+        generator.writeStringField("id", result.id);
+        if (result.message != null) {
+            failedTraces++;
+            generator.writeStringField("message", result.message);
+        } else {
+            matchedTraces++;
+            generator.writeNumberField("distance", result.distance);
+            generator.writeNumberField("time", result.time);
+            generator.writeNumberField("original_distance", result.originalDistance);
+            generator.writeArrayFieldStart("traversal_keys");
+            for (int traversalKey : result.traversalKeys) {
+                generator.writeNumber(traversalKey);
+            }
+            generator.writeEndArray();
+        }
+        generator.writeEndObject();
+        generator.flush();
+        output.write('\n');
+    }
+
+    private interface TraceReader {
+        void read(TaskConsumer tasks) throws IOException;
+    }
+
+    private interface TaskConsumer {
+        void submit(Callable<Result> task) throws IOException;
+    }
+
+    /**
+     * Keeps only the values that are written and not the {@link MatchResult} with its query graph
+     */
+    private static class Result {
+        final String id;
+        final double distance;
+        final long time;
+        final double originalDistance;
+        final int[] traversalKeys;
+        final String message;
+
+        Result(String id, double distance, long time, double originalDistance, int[] traversalKeys) {
+            this.id = id;
+            this.distance = distance;
+            this.time = time;
+            this.originalDistance = originalDistance;
+            this.traversalKeys = traversalKeys;
+            this.message = null;
+        }
+
+        Result(String id, String message) {
+            this.id = id;
+            this.distance = 0;
+            this.time = 0;
+            this.originalDistance = 0;
+            this.traversalKeys = null;
+            this.message = message;
+        }
+
+        Result(String id, Exception ex) {
+            this(id, Helper.isEmpty(ex.getMessage()) ? ex.toString() : ex.getMessage());
+            logger.debug("Cannot match trace " + id, ex);
+        }
+    }
+}
@@ -0,0 +1,112 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+
+package com.graphhopper.http.cli;
+
+import com.graphhopper.GraphHopper;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.StopWatch;
+import io.dropwizard.cli.ConfiguredCommand;
+import io.dropwizard.setup.Bootstrap;
+import net.sourceforge.argparse4j.inf.Argument;
+import net.sourceforge.argparse4j.inf.Namespace;
+import net.sourceforge.argparse4j.inf.Subparser;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * Map-matches a large number of traces without the overhead of one HTTP request per trace, see
+ * {@link MapMatchingBatch} for the input and output format.
+ */
+public class MatchBatchCommand extends ConfiguredCommand<GraphHopperServerConfiguration> {
+
+    public MatchBatchCommand() {
+        super("match-batch", "map-match the traces of an NDJSON file or of a zip file with gpx files in parallel");
+    }
+
+    @Override
+    public void configure(Subparser subparser) {
+        subparser.addArgument("input")
+                .type(File.class)
+                .required(true)
+                .help("NDJSON file with one trace per line or zip file with gpx files");
+        subparser.addArgument("--file")
+                .required(true)
+                .help("application configuration file");
+        subparser.addArgument("--output")
+                .type(File.class)
+                .required(true)
+                .help("NDJSON file for the results, one line per trace in the order of the input");
+        subparser.addArgument("--profile")
+                .type(String.class)
+                .required(true)
+                .help("profile to use for map-matching (must be configured in configuration file)");
+        subparser.addArgument("--threads")
+                .type(Integer.class)
+                .required(false)
+                .setDefault(Runtime.getRuntime().availableProcessors())
+                .help("number of traces that are matched at the same time");
+        subparser.addArgument("--gps_accuracy")
+                .type(Integer.class)
+                .required(false)
+                .setDefault(40);
+        subparser.addArgument("--transition_probability_beta")
+                .type(Double.class)
+                .required(false)
+                .setDefault(2.0);
+    }
+
+    @Override
+    protected Argument addFileArgument(Subparser subparser) {
+        // Never called, the configuration file is a named argument like in MatchCommand
+        throw new RuntimeException();
+    }
+
+    @Override
+    protected void run(Bootstrap<GraphHopperServerConfiguration> bootstrap, Namespace args, GraphHopperServerConfiguration configuration) throws Exception {
+        GraphHopper hopper = new GraphHopper().init(configuration.getGraphHopperConfiguration());
+        hopper.importOrLoad();
+
+        PMap hints = new PMap();
+        hints.putObject("profile", args.get("profile"));
+        MapMatchingBatch batch = new MapMatchingBatch(hopper, hints, args.getInt("threads")).
+                setMeasurementErrorSigma(args.getInt("gps_accuracy")).
+                setTransitionProbabilityBeta(args.getDouble("transition_probability_beta"));
+
+        File input = args.get("input");
+        StopWatch sw = new StopWatch().start();
+        try (Writer output = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(args.<File>get("output")), StandardCharsets.UTF_8))) {
+            if (input.getName().toLowerCase().endsWith(".zip")) {
+                try (InputStream is = new BufferedInputStream(new FileInputStream(input))) {
+                    batch.matchGPXZip(is, output);
+                }
+            } else {
+                try (Reader reader = new InputStreamReader(new FileInputStream(input), StandardCharsets.UTF_8)) {
+                    batch.matchNDJSON(reader, output);
+                }
+            }
+        } finally {
+            hopper.close();
+        }
+        System.out.println("matched " + batch.getMatchedTraces() + " traces, " + batch.getFailedTraces()
+                + " failed, took: " + sw.stop().getSeconds() + "s");
+    }
+
+}
@@ -30,9 +30,12 @@ import com.graphhopper.matching.State;
 import com.graphhopper.storage.index.Snap;
 import com.graphhopper.util.Helper;
 import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
 import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
 
 import java.io.File;
 import java.io.IOException;
@@ -54,8 +57,9 @@ public class MapMatching2Test {
         Helper.removeDir(new File(GH_LOCATION));
     }
 
-    @Test
-    public void testIssue13() throws IOException {
+    @ParameterizedTest
+    @ValueSource(strings = {MapMatching.POINT_TO_POINT, MapMatching.ONE_TO_MANY})
+    public void testIssue13(String transitionRouting) throws IOException {
         GraphHopper hopper = new GraphHopper();
         hopper.setOSMFile("../map-matching/files/map-issue13.osm.gz");
         hopper.setGraphHopperLocation(GH_LOCATION);
@@ -63,7 +67,8 @@ public class MapMatching2Test {
         hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("my_profile"));
         hopper.importOrLoad();
 
-        MapMatching mapMatching = new MapMatching(hopper, new PMap().putObject("profile", "my_profile"));
+        MapMatching mapMatching = new MapMatching(hopper, new PMap().putObject("profile", "my_profile")
+                .putObject(Parameters.Routing.TRANSITION_ROUTING, transitionRouting));
 
         Gpx gpx = xmlMapper.readValue(getClass().getResourceAsStream("/issue-13.gpx"), Gpx.class);
         MatchResult mr = mapMatching.match(GpxConversions.getEntries(gpx.trk.get(0)));
@@ -79,8 +84,9 @@ public class MapMatching2Test {
         assertEquals(28790, mr.getMatchMillis(), 50);
     }
 
-    @Test
-    public void testIssue70() throws IOException {
+    @ParameterizedTest
+    @ValueSource(strings = {MapMatching.POINT_TO_POINT, MapMatching.ONE_TO_MANY})
+    public void testIssue70(String transitionRouting) throws IOException {
         GraphHopper hopper = new GraphHopper();
         hopper.setOSMFile("../map-matching/files/issue-70.osm.gz");
         hopper.setGraphHopperLocation(GH_LOCATION);
@@ -88,7 +94,8 @@ public class MapMatching2Test {
         hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("my_profile"));
         hopper.importOrLoad();
 
-        MapMatching mapMatching = new MapMatching(hopper, new PMap().putObject("profile", "my_profile"));
+        MapMatching mapMatching = new MapMatching(hopper, new PMap().putObject("profile", "my_profile")
+                .putObject(Parameters.Routing.TRANSITION_ROUTING, transitionRouting));
 
         Gpx gpx = xmlMapper.readValue(getClass().getResourceAsStream("/issue-70.gpx"), Gpx.class);
         MatchResult mr = mapMatching.match(GpxConversions.getEntries(gpx.trk.get(0)));
@@ -99,8 +106,9 @@ public class MapMatching2Test {
         }
     }
 
-    @Test
-    public void testIssue127() throws IOException {
+    @ParameterizedTest
+    @ValueSource(strings = {MapMatching.POINT_TO_POINT, MapMatching.ONE_TO_MANY})
+    public void testIssue127(String transitionRouting) throws IOException {
         GraphHopper hopper = new GraphHopper();
         hopper.setOSMFile("../map-matching/files/map-issue13.osm.gz");
         hopper.setGraphHopperLocation(GH_LOCATION);
@@ -108,7 +116,8 @@ public class MapMatching2Test {
         hopper.getLMPreparationHandler().setLMProfiles(new LMProfile("my_profile"));
         hopper.importOrLoad();
 
-        MapMatching mapMatching = new MapMatching(hopper, new PMap().putObject("profile", "my_profile"));
+        MapMatching mapMatching = new MapMatching(hopper, new PMap().putObject("profile", "my_profile")
+                .putObject(Parameters.Routing.TRANSITION_ROUTING, transitionRouting));
 
         // query with two identical points
         Gpx gpx = xmlMapper.readValue(getClass().getResourceAsStream("/issue-127.gpx"), Gpx.class);
@@ -124,6 +133,19 @@ public class MapMatching2Test {
         assertEquals(0, mr.getMatchMillis(), 50);
     }
 
+    @Test
+    public void testInvalidTransitionRouting() {
+        GraphHopper hopper = new GraphHopper();
+        hopper.setOSMFile("../map-matching/files/issue-70.osm.gz");
+        hopper.setGraphHopperLocation(GH_LOCATION);
+        hopper.setProfiles(new Profile("my_profile").setVehicle("car").setWeighting("fastest"));
+        hopper.importOrLoad();
+
+        IllegalArgumentException ex = assertThrows(IllegalArgumentException.class, () -> new MapMatching(hopper,
+                new PMap().putObject("profile", "my_profile").putObject(Parameters.Routing.TRANSITION_ROUTING, "many_to_many")));
+        assertTrue(ex.getMessage().startsWith("transition_routing must be"), ex.getMessage());
+    }
+
     private void validateEdgeMatch(EdgeMatch edgeMatch) {
         for (State state : edgeMatch.getStates()) {
             if (state.getSnap().getSnappedPosition() == Snap.Position.TOWER) {
@@ -0,0 +1,188 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.config.Profile;
+import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.http.cli.MapMatchingBatch;
+import com.graphhopper.jackson.Gpx;
+import com.graphhopper.matching.EdgeMatch;
+import com.graphhopper.matching.MapMatching;
+import com.graphhopper.matching.MatchResult;
+import com.graphhopper.matching.Observation;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.GHUtility;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MapMatchingBatchTest {
+    private static final String GH_LOCATION = "../target/mapmatchingbatchtest-gh";
+    private static GraphHopper hopper;
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    @BeforeAll
+    public static void setup() {
+        Helper.removeDir(new File(GH_LOCATION));
+        hopper = new GraphHopper();
+        hopper.setOSMFile("../map-matching/files/map-issue13.osm.gz");
+        hopper.setGraphHopperLocation(GH_LOCATION);
+        hopper.setProfiles(new Profile("my_profile").setVehicle("car").setWeighting("fastest"));
+        hopper.importOrLoad();
+    }
+
+    @AfterAll
+    public static void after() {
+        Helper.removeDir(new File(GH_LOCATION));
+        hopper = null;
+    }
+
+    private static PMap hints() {
+        return new PMap().putObject("profile", "my_profile");
+    }
+
+    private List<Observation> readObservations() throws IOException {
+        Gpx gpx = new XmlMapper().readValue(getClass().getResourceAsStream("/issue-13.gpx"), Gpx.class);
+        return GpxConversions.getEntries(gpx.trk.get(0));
+    }
+
+    private List<Integer> expectedTraversalKeys(List<Observation> observations) {
+        MatchResult matchResult = new MapMatching(hopper, hints()).match(observations);
+        List<Integer> traversalKeys = new ArrayList<>();
+        for (EdgeMatch em : matchResult.getEdgeMatches()) {
+            EdgeIteratorState edge = em.getEdgeState();
+            traversalKeys.add(GHUtility.createEdgeKey(edge.getBaseNode(), edge.getAdjNode(), edge.getEdge(), false));
+        }
+        return traversalKeys;
+    }
+
+    private List<JsonNode> readResults(String output) throws IOException {
+        List<JsonNode> results = new ArrayList<>();
+        for (String line : output.split("\n")) {
+            results.add(objectMapper.readTree(line));
+        }
+        return results;
+    }
+
+    private static List<Integer> toList(JsonNode traversalKeys) {
+        List<Integer> list = new ArrayList<>();
+        traversalKeys.forEach(k -> list.add(k.asInt()));
+        return list;
+    }
+
+    @Test
+    public void testNDJSON() throws IOException {
+        List<Observation> observations = readObservations();
+        List<Integer> expected = expectedTraversalKeys(observations);
+        StringBuilder points = new StringBuilder();
+        for (Observation o : observations) {
+            points.append(points.length() == 0 ? "" : ",").append("[").append(o.getPoint().lon).append(",").append(o.getPoint().lat).append("]");
+        }
+        StringBuilder input = new StringBuilder();
+        int traces = 20;
+        for (int i = 0; i < traces; i++) {
+            if (i == 5)
+                input.append("{\"id\":\"no_points\"}\n");
+            else if (i == 7)
+                input.append("not json\n");
+            else
+                input.append("{\"id\":\"trace_").append(i).append("\",\"points\":[").append(points).append("]}\n");
+        }
+
+        MapMatchingBatch batch = new MapMatchingBatch(hopper, hints(), 4);
+        StringWriter output = new StringWriter();
+        batch.matchNDJSON(new StringReader(input.toString()), output);
+        List<JsonNode> results = readResults(output.toString());
+        assertEquals(traces, results.size());
+        assertEquals(traces - 2, batch.getMatchedTraces());
+        assertEquals(2, batch.getFailedTraces());
+        for (int i = 0; i < traces; i++) {
+            JsonNode result = results.get(i);
+            if (i == 5) {
+                assertEquals("no_points", result.get("id").asText());
+                assertEquals("The trace needs a points array", result.get("message").asText());
+            } else if (i == 7) {
+                // without an id the line number is used
+                assertEquals("8", result.get("id").asText());
+                assertTrue(result.get("message").asText().startsWith("Cannot parse line 8"), result.toString());
+            } else {
+                assertEquals("trace_" + i, result.get("id").asText());
+                assertFalse(result.has("message"), result.toString());
+                assertEquals(expected, toList(result.get("traversal_keys")));
+                assertTrue(result.get("distance").asDouble() > 0);
+                assertTrue(result.get("time").asLong() > 0);
+            }
+        }
+    }
+
+    @Test
+    public void testGPXZip() throws IOException {
+        List<Integer> expected = expectedTraversalKeys(readObservations());
+        ByteArrayOutputStream zipBytes = new ByteArrayOutputStream();
+        try (ZipOutputStream zip = new ZipOutputStream(zipBytes); InputStream gpx = getClass().getResourceAsStream("/issue-13.gpx")) {
+            byte[] gpxBytes = Helper.isToString(gpx).getBytes(StandardCharsets.UTF_8);
+            zip.putNextEntry(new ZipEntry("traces/"));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("traces/a.gpx"));
+            zip.write(gpxBytes);
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("traces/readme.txt"));
+            zip.write("ignored".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("traces/broken.gpx"));
+            zip.write("<gpx>".getBytes(StandardCharsets.UTF_8));
+            zip.closeEntry();
+            zip.putNextEntry(new ZipEntry("traces/b.gpx"));
+            zip.write(gpxBytes);
+            zip.closeEntry();
+        }
+
+        MapMatchingBatch batch = new MapMatchingBatch(hopper, hints(), 2);
+        StringWriter output = new StringWriter();
+        batch.matchGPXZip(new ByteArrayInputStream(zipBytes.toByteArray()), output);
+        List<JsonNode> results = readResults(output.toString());
+        assertEquals(3, results.size());
+        assertEquals("traces/a.gpx", results.get(0).get("id").asText());
+        assertEquals(expected, toList(results.get(0).get("traversal_keys")));
+        assertEquals("traces/broken.gpx", results.get(1).get("id").asText());
+        assertTrue(results.get(1).has("message"));
+        assertEquals("traces/b.gpx", results.get(2).get("id").asText());
+        assertEquals(expected, toList(results.get(2).get("traversal_keys")));
+    }
+
+    @Test
+    public void testInvalidArguments() {
+        assertThrows(IllegalArgumentException.class, () -> new MapMatchingBatch(hopper, hints(), 0));
+        assertThrows(IllegalArgumentException.class, () -> new MapMatchingBatch(hopper, new PMap().putObject("profile", "unknown"), 2));
+    }
+}
@@ -0,0 +1,204 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http;
+
+import com.fasterxml.jackson.dataformat.xml.XmlMapper;
+import com.graphhopper.GraphHopper;
+import com.graphhopper.config.Profile;
+import com.graphhopper.gpx.GpxConversions;
+import com.graphhopper.jackson.Gpx;
+import com.graphhopper.matching.*;
+import com.graphhopper.util.DistanceCalcEarth;
+import com.graphhopper.util.EdgeIteratorState;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.PMap;
+import com.graphhopper.util.Parameters;
+import com.graphhopper.util.shapes.GHPoint;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.*;
+
+public class MapMatchingSessionTest {
+    private static final String GH_LOCATION = "../target/mapmatchingsessiontest-gh";
+    private static GraphHopper hopper;
+    private final XmlMapper xmlMapper = new XmlMapper();
+
+    @BeforeAll
+    public static void setup() {
+        Helper.removeDir(new File(GH_LOCATION));
+        hopper = new GraphHopper();
+        hopper.setOSMFile("../map-matching/files/map-issue13.osm.gz");
+        hopper.setGraphHopperLocation(GH_LOCATION);
+        hopper.setProfiles(new Profile("my_profile").setVehicle("car").setWeighting("fastest"));
+        hopper.importOrLoad();
+    }
+
+    @AfterAll
+    public static void after() {
+        Helper.removeDir(new File(GH_LOCATION));
+        hopper = null;
+    }
+
+    private List<Observation> readObservations() throws IOException {
+        Gpx gpx = xmlMapper.readValue(getClass().getResourceAsStream("/issue-13.gpx"), Gpx.class);
+        return GpxConversions.getEntries(gpx.trk.get(0));
+    }
+
+    private static List<String> toEdgeStrings(List<EdgeMatch> edgeMatches) {
+        return edgeMatches.stream().map(em -> {
+            EdgeIteratorState edge = em.getEdgeState();
+            return edge.getEdge() + ":" + edge.getBaseNode() + "->" + edge.getAdjNode() + ", states: " + em.getStates().size();
+        }).collect(Collectors.toList());
+    }
+
+    @Test
+    public void testSameResultAsMatch() throws IOException {
+        List<Observation> observations = readObservations();
+        MapMatching mapMatching = new MapMatching(hopper, new PMap().putObject("profile", "my_profile"));
+        // use more observations of the trace
+        mapMatching.setMeasurementErrorSigma(10);
+        MatchResult matchResult = mapMatching.match(observations);
+
+        MapMatchingSession session = mapMatching.createSession(Integer.MAX_VALUE);
+        List<EdgeMatch> edgeMatches = new ArrayList<>();
+        int observationsBeforeFirstEdgeMatch = -1;
+        for (int i = 0; i < observations.size(); i++) {
+            edgeMatches.addAll(session.addObservation(observations.get(i)));
+            if (observationsBeforeFirstEdgeMatch < 0 && !edgeMatches.isEmpty())
+                observationsBeforeFirstEdgeMatch = i;
+        }
+        // the edge matches are returned before the trace ends
+        assertTrue(observationsBeforeFirstEdgeMatch > 0 && observationsBeforeFirstEdgeMatch < observations.size() / 2,
+                "first edge match after " + observationsBeforeFirstEdgeMatch + " observations");
+        edgeMatches.addAll(session.finish());
+        assertEquals(toEdgeStrings(matchResult.getEdgeMatches()), toEdgeStrings(edgeMatches));
+
+        assertThrows(IllegalStateException.class, session::finish);
+        assertThrows(IllegalStateException.class, () -> session.addObservation(observations.get(0)));
+    }
+
+    @Test
+    public void testMaxPendingObservations() throws IOException {
+        List<Observation> observations = readObservations();
+        MapMatching mapMatching = new MapMatching(hopper, new PMap().putObject("profile", "my_profile"));
+        mapMatching.setMeasurementErrorSigma(10);
+        List<String> expected = toEdgeStrings(mapMatching.match(observations).getEdgeMatches());
+        int edgeCount = hopper.getGraphHopperStorage().getEdges();
+        for (int maxPending : new int[]{0, 2, 5}) {
+            MapMatchingSession session = mapMatching.createSession(maxPending);
+            List<EdgeMatch> edgeMatches = new ArrayList<>();
+            for (Observation observation : observations) {
+                edgeMatches.addAll(session.addObservation(observation));
+            }
+            edgeMatches.addAll(session.finish());
+
+            for (EdgeMatch em : edgeMatches) {
+                assertTrue(em.getEdgeState().getEdge() < edgeCount, "result contains virtual edges:" + em.getEdgeState());
+            }
+            // consecutive edges are connected
+            for (int i = 1; i < edgeMatches.size(); i++) {
+                assertEquals(edgeMatches.get(i - 1).getEdgeState().getAdjNode(), edgeMatches.get(i).getEdgeState().getBaseNode());
+            }
+            // only the begin of the match can differ as the first observations are finalized too early
+            List<String> actual = toEdgeStrings(edgeMatches);
+            assertEquals(expected.subList(expected.size() - 3, expected.size()), actual.subList(actual.size() - 3, actual.size()), "maxPending: " + maxPending);
+        }
+        assertThrows(IllegalArgumentException.class, () -> mapMatching.createSession(-1));
+    }
+
+    @Test
+    public void testUnreachableObservation() throws IOException {
+        List<Observation> observations = readObservations();
+        MapMatching mapMatching = new MapMatching(hopper, new PMap().putObject("profile", "my_profile"));
+        mapMatching.setMeasurementErrorSigma(10);
+        // the trace is split after an observation that is not skipped for being too close to the previous one, as
+        // the skipped observations before a break are not matched
+        int middle = 1;
+        GHPoint prevPoint = observations.get(0).getPoint();
+        for (int i = 1; i < observations.size() / 2; i++) {
+            GHPoint point = observations.get(i).getPoint();
+            if (DistanceCalcEarth.DIST_EARTH.calcDist(prevPoint.lat, prevPoint.lon, point.lat, point.lon) > 2 * 10) {
+                middle = i + 1;
+                prevPoint = point;
+            }
+        }
+        List<Observation> before = observations.subList(0, middle);
+        List<Observation> after = observations.subList(middle, observations.size());
+        List<String> expected = new ArrayList<>(toEdgeStrings(mapMatching.match(before).getEdgeMatches()));
+        expected.addAll(toEdgeStrings(mapMatching.match(after).getEdgeMatches()));
+
+        // there is no road near this observation
+        Observation unreachable = new Observation(new GHPoint(41.1, 29.2));
+        assertThrows(IllegalArgumentException.class, () -> mapMatching.match(Arrays.asList(before.get(0), unreachable, after.get(0))));
+
+        MapMatchingSession session = mapMatching.createSession(Integer.MAX_VALUE);
+        List<EdgeMatch> edgeMatches = new ArrayList<>();
+        for (Observation observation : before) {
+            edgeMatches.addAll(session.addObservation(observation));
+        }
+        // the break finalizes the sequence before the unreachable observation
+        List<EdgeMatch> beforeBreak = session.addObservation(unreachable);
+        assertFalse(beforeBreak.isEmpty());
+        edgeMatches.addAll(beforeBreak);
+        int matchesBeforeBreak = edgeMatches.size();
+        for (Observation observation : after) {
+            edgeMatches.addAll(session.addObservation(observation));
+        }
+        edgeMatches.addAll(session.finish());
+        assertEquals(Collections.singletonList(unreachable), session.getSequenceBreaks());
+        assertEquals(expected, toEdgeStrings(edgeMatches));
+        assertEquals(expected.size() - mapMatching.match(after).getEdgeMatches().size(), matchesBeforeBreak);
+
+        // the visited nodes limit only allows the transitions between consecutive observations. So an observation of
+        // the end of the trace has candidates but cannot be reached, and the next observation cannot be reached from it
+        MapMatching limitedMapMatching = new MapMatching(hopper, new PMap().putObject("profile", "my_profile").
+                putObject(Parameters.Routing.MAX_VISITED_NODES, 5));
+        limitedMapMatching.setMeasurementErrorSigma(10);
+        Observation farAway = observations.get(observations.size() - 1);
+        session = limitedMapMatching.createSession(Integer.MAX_VALUE);
+        edgeMatches.clear();
+        for (Observation observation : before) {
+            edgeMatches.addAll(session.addObservation(observation));
+        }
+        edgeMatches.addAll(session.addObservation(farAway));
+        for (Observation observation : after) {
+            edgeMatches.addAll(session.addObservation(observation));
+        }
+        edgeMatches.addAll(session.finish());
+        assertEquals(Arrays.asList(farAway, after.get(0)), session.getSequenceBreaks());
+        List<String> actual = toEdgeStrings(edgeMatches);
+        assertEquals(expected.subList(0, matchesBeforeBreak), actual.subList(0, matchesBeforeBreak));
+        assertEquals(expected.subList(matchesBeforeBreak, expected.size()), actual.subList(actual.size() - expected.size() + matchesBeforeBreak, actual.size()));
+    }
+
+    @Test
+    public void testEmptySession() {
+        MapMatching mapMatching = new MapMatching(hopper, new PMap().putObject("profile", "my_profile"));
+        assertTrue(mapMatching.createSession(10).finish().isEmpty());
+    }
+}
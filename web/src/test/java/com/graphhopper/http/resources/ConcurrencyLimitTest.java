@@ -0,0 +1,110 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.config.Profile;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class ConcurrencyLimitTest {
+    private static final String DIR = "./target/concurrency-limit-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("web.max_concurrent_requests", "route=1,route/batch=1").
+                // the permit is released shortly after the client received the response, so the next request might have to wait
+                putObject("web.max_queued_requests", "route=2,route/batch=1").
+                setProfiles(Collections.singletonList(new Profile("my_car").setVehicle("car").setWeighting("fastest")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testPermitsAreReleased() {
+        // every response, including the streamed ones and errors, releases its permit
+        for (int i = 0; i < 3; i++) {
+            Response response = clientTarget(app, "/route?profile=my_car&point=42.554851,1.536198&point=42.510071,1.548128").request().get();
+            assertEquals(200, response.getStatus());
+            response = clientTarget(app, "/route?profile=my_car&point=42.554851,1.536198&point=42.0,1.0").request().get();
+            assertEquals(400, response.getStatus());
+            response = clientTarget(app, "/route/batch").request().post(Entity.json("{\"requests\": [{\"profile\": \"my_car\", " +
+                    "\"points\": [[1.536198,42.554851], [1.548128,42.510071]]}]}"));
+            assertEquals(200, response.getStatus());
+            assertEquals(1, response.readEntity(JsonNode.class).get("responses").size());
+        }
+    }
+
+    @Test
+    public void testRejectedRequests() throws Exception {
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Response>> futures = new ArrayList<>();
+            for (int i = 0; i < 32; i++)
+                futures.add(executor.submit(() -> clientTarget(app, "/route?profile=my_car&point=42.554851,1.536198&point=42.510071,1.548128").request().get()));
+            int ok = 0;
+            for (Future<Response> future : futures) {
+                Response response = future.get();
+                if (response.getStatus() == 200) {
+                    ok++;
+                } else {
+                    assertEquals(503, response.getStatus());
+                    assertEquals("1", response.getHeaderString("Retry-After"));
+                    assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("Too many concurrent requests for /route"));
+                }
+            }
+            assertTrue(ok > 0);
+        } finally {
+            executor.shutdownNow();
+        }
+        // other endpoints are not limited
+        assertEquals(200, clientTarget(app, "/info").request().get().getStatus());
+    }
+}
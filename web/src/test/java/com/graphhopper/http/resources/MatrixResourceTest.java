@@ -0,0 +1,136 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.api.GHMRequest;
+import com.graphhopper.api.GraphHopperMatrixWeb;
+import com.graphhopper.api.MatrixResponse;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Arrays;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static com.graphhopper.http.util.TestUtils.clientUrl;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class MatrixResourceTest {
+    private static final String DIR = "./target/matrix-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                setProfiles(Arrays.asList(
+                        new Profile("my_car").setVehicle("car").setWeighting("fastest"),
+                        new Profile("my_car_no_ch").setVehicle("car").setWeighting("shortest"))).
+                setCHProfiles(Arrays.asList(new CHProfile("my_car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testMatrixMatchesRoutes() {
+        String body = "{\"profile\": \"my_car\", \"out_arrays\": [\"weights\", \"times\", \"distances\"], " +
+                "\"from_points\": [[1.536198,42.554851], [1.548128,42.510071]], " +
+                "\"to_points\": [[1.548128,42.510071], [1.536198,42.554851], [1.5352,42.5212]]}";
+        JsonNode json = clientTarget(app, "/matrix").request().post(Entity.json(body), JsonNode.class);
+        assertEquals(2, json.get("distances").size());
+        assertEquals(3, json.get("distances").get(0).size());
+        // the same point for origin and destination
+        assertEquals(0, json.get("distances").get(0).get(1).asDouble(), 1.e-6);
+        assertEquals(0, json.get("times").get(1).get(0).asLong());
+
+        GHPoint[] from = {new GHPoint(42.554851, 1.536198), new GHPoint(42.510071, 1.548128)};
+        GHPoint[] to = {new GHPoint(42.510071, 1.548128), new GHPoint(42.554851, 1.536198), new GHPoint(42.5212, 1.5352)};
+        for (int i = 0; i < from.length; i++) {
+            for (int j = 0; j < to.length; j++) {
+                JsonNode route = clientTarget(app, "/route?profile=my_car&calc_points=false&point=" + from[i] + "&point=" + to[j])
+                        .request().get(JsonNode.class).get("paths").get(0);
+                assertEquals(route.get("distance").asDouble(), json.get("distances").get(i).get(j).asDouble(), 1, i + "->" + j);
+                assertEquals(route.get("time").asLong() / 1000.0, json.get("times").get(i).get(j).asDouble(), 1, i + "->" + j);
+            }
+        }
+    }
+
+    @Test
+    public void testClientHC() {
+        GraphHopperMatrixWeb matrixWeb = new GraphHopperMatrixWeb(clientUrl(app, "/matrix"));
+        GHMRequest request = new GHMRequest();
+        request.addPoint(new GHPoint(42.554851, 1.536198));
+        request.addPoint(new GHPoint(42.510071, 1.548128));
+        request.addOutArray("distances");
+        request.addOutArray("times");
+        request.putHint("profile", "my_car");
+        MatrixResponse rsp = matrixWeb.route(request);
+        assertFalse(rsp.hasErrors(), rsp.getErrors().toString());
+        assertEquals(0, rsp.getDistance(0, 0), 1.e-6);
+        assertEquals(rsp.getDistance(0, 1), rsp.getDistance(1, 0), 500);
+        assertTrue(rsp.getDistance(0, 1) > 5_000);
+        assertTrue(rsp.getTime(0, 1) > 0);
+    }
+
+    @Test
+    public void testPointNotFound() {
+        String body = "{\"profile\": \"my_car\", \"points\": [[1.536198,42.554851], [1.548128,42.510071], [1.0,42.0]]}";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(body));
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("out of bounds"), json.toString());
+
+        body = "{\"profile\": \"my_car\", \"fail_fast\": false, \"points\": [[1.536198,42.554851], [1.0,42.0], [1.548128,42.510071]]}";
+        json = clientTarget(app, "/matrix").request().post(Entity.json(body), JsonNode.class);
+        assertTrue(json.get("weights").get(1).get(0).isNull());
+        assertTrue(json.get("weights").get(0).get(1).isNull());
+        assertTrue(json.get("weights").get(0).get(2).asDouble() > 0);
+        assertEquals("[1]", json.get("hints").get(0).get("invalid_from_points").toString());
+    }
+
+    @Test
+    public void testProfileWithoutCH() {
+        String body = "{\"profile\": \"my_car_no_ch\", \"points\": [[1.536198,42.554851], [1.548128,42.510071]]}";
+        Response response = clientTarget(app, "/matrix").request().post(Entity.json(body));
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("Cannot find CH preparation"), json.toString());
+    }
+}
@@ -45,6 +45,7 @@ import java.util.List;
 import java.util.Map;
 
 import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 
@@ -64,6 +65,8 @@ public class MvtResourceTest {
                 putObject("prepare.min_network_size", 0).
                 putObject("datareader.file", "../core/files/andorra.osm.pbf").
                 putObject("graph.location", DIR).
+                putObject("index.major_roads", true).
+                putObject("mvt.cache_size_mb", 1).
                 setProfiles(Collections.singletonList(new Profile("car").setVehicle("car").setWeighting("fastest")));
         return config;
     }
@@ -108,6 +111,35 @@ public class MvtResourceTest {
         assertEquals("primary", attributes(geometry).get("road_class"));
     }
 
+    @Test
+    public void testLowZoomFromMajorRoads() throws IOException {
+        Response response = clientTarget(app, "/mvt/9/258/189.mvt?details=road_class").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        JtsMvt result = MvtReader.loadMvt(response.readEntity(InputStream.class), new GeometryFactory(), new TagKeyValueMapConverter());
+        JtsLayer layer = result.getLayersByName().get("roads");
+        assertTrue(layer.getGeometries().size() > 10, "geometries: " + layer.getGeometries().size());
+        for (Geometry geometry : layer.getGeometries()) {
+            String roadClass = (String) attributes(geometry).get("road_class");
+            assertTrue(roadClass.equals("motorway") || roadClass.equals("trunk") || roadClass.equals("primary"), roadClass);
+        }
+
+        // below zoom 5 the tiles are still empty
+        response = clientTarget(app, "/mvt/4/8/5.mvt").request().buildGet().invoke();
+        assertEquals(200, response.getStatus());
+        result = MvtReader.loadMvt(response.readEntity(InputStream.class), new GeometryFactory(), new TagKeyValueMapConverter());
+        assertTrue(result.getLayers().isEmpty());
+    }
+
+    @Test
+    public void testCachedTile() {
+        byte[] first = clientTarget(app, "/mvt/15/16522/12102.mvt?details=max_speed&details=road_class").request().get(byte[].class);
+        // the order of the details does not matter
+        byte[] second = clientTarget(app, "/mvt/15/16522/12102.mvt?details=road_class&details=max_speed").request().get(byte[].class);
+        assertArrayEquals(first, second);
+        byte[] other = clientTarget(app, "/mvt/15/16522/12102.mvt").request().get(byte[].class);
+        assertTrue(other.length < first.length);
+    }
+
     private Map<String, Object> attributes(Geometry g) {
         return (Map<String, Object>) g.getUserData();
     }
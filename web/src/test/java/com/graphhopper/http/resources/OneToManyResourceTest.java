@@ -0,0 +1,112 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.config.LMProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.util.Helper;
+import com.graphhopper.util.shapes.GHPoint;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class OneToManyResourceTest {
+    private static final String DIR = "./target/one-to-many-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car|turn_costs=true").
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                setProfiles(Arrays.asList(
+                        new Profile("my_car").setVehicle("car").setWeighting("fastest"),
+                        new Profile("my_car_turn_costs").setVehicle("car").setWeighting("fastest").setTurnCosts(true))).
+                setLMProfiles(Collections.singletonList(new LMProfile("my_car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testOneToManyMatchesRoutes() {
+        String body = "{\"profile\": \"my_car\", \"out_arrays\": [\"weights\", \"times\", \"distances\"], " +
+                "\"from_points\": [[1.536198,42.554851], [1.548128,42.510071]], " +
+                "\"to_points\": [[1.548128,42.510071], [1.536198,42.554851], [1.5352,42.5212]]}";
+        JsonNode json = clientTarget(app, "/one-to-many").request().post(Entity.json(body), JsonNode.class);
+        JsonNode rows = json.get("rows");
+        assertEquals(2, rows.size());
+        assertEquals(3, rows.get(0).get("distances").size());
+        assertTrue(json.get("info").has("took"));
+        // the same point for origin and destination
+        assertEquals(0, rows.get(0).get("distances").get(1).asDouble(), 1.e-6);
+        assertEquals(0, rows.get(1).get("times").get(0).asLong());
+
+        GHPoint[] from = {new GHPoint(42.554851, 1.536198), new GHPoint(42.510071, 1.548128)};
+        GHPoint[] to = {new GHPoint(42.510071, 1.548128), new GHPoint(42.554851, 1.536198), new GHPoint(42.5212, 1.5352)};
+        for (int i = 0; i < from.length; i++) {
+            for (int j = 0; j < to.length; j++) {
+                JsonNode route = clientTarget(app, "/route?profile=my_car&calc_points=false&point=" + from[i] + "&point=" + to[j])
+                        .request().get(JsonNode.class).get("paths").get(0);
+                assertEquals(route.get("distance").asDouble(), rows.get(i).get("distances").get(j).asDouble(), 1, i + "->" + j);
+                assertEquals(route.get("time").asLong() / 1000.0, rows.get(i).get("times").get(j).asDouble(), 1, i + "->" + j);
+            }
+        }
+
+        // the arrays of the pooled algorithm are reused for the next request
+        JsonNode json2 = clientTarget(app, "/one-to-many").request().post(Entity.json(body), JsonNode.class);
+        assertEquals(rows, json2.get("rows"));
+    }
+
+    @Test
+    public void testErrors() {
+        String body = "{\"profile\": \"my_car\", \"from_points\": [[1.536198,42.554851]], \"to_points\": [[1.548128,42.510071], [1.0,42.0]]}";
+        Response response = clientTarget(app, "/one-to-many").request().post(Entity.json(body));
+        assertEquals(400, response.getStatus());
+        JsonNode json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("out of bounds"), json.toString());
+
+        body = "{\"profile\": \"my_car_turn_costs\", \"from_points\": [[1.536198,42.554851]], \"to_points\": [[1.548128,42.510071]]}";
+        response = clientTarget(app, "/one-to-many").request().post(Entity.json(body));
+        assertEquals(400, response.getStatus());
+        json = response.readEntity(JsonNode.class);
+        assertTrue(json.get("message").asText().contains("turn costs"), json.toString());
+    }
+}
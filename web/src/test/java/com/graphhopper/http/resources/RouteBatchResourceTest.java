@@ -0,0 +1,115 @@
+/*
+ *  Licensed to GraphHopper GmbH under one or more contributor
+ *  license agreements. See the NOTICE file distributed with this work for
+ *  additional information regarding copyright ownership.
+ *
+ *  GraphHopper GmbH licenses this file to you under the Apache License,
+ *  Version 2.0 (the "License"); you may not use this file except in
+ *  compliance with the License. You may obtain a copy of the License at
+ *
+ *       http://www.apache.org/licenses/LICENSE-2.0
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package com.graphhopper.http.resources;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.graphhopper.config.CHProfile;
+import com.graphhopper.config.Profile;
+import com.graphhopper.http.GraphHopperApplication;
+import com.graphhopper.http.GraphHopperServerConfiguration;
+import com.graphhopper.http.util.GraphHopperServerTestConfiguration;
+import com.graphhopper.util.Helper;
+import io.dropwizard.testing.junit5.DropwizardAppExtension;
+import io.dropwizard.testing.junit5.DropwizardExtensionsSupport;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+
+import javax.ws.rs.client.Entity;
+import javax.ws.rs.core.Response;
+import java.io.File;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static com.graphhopper.http.util.TestUtils.clientTarget;
+import static org.junit.jupiter.api.Assertions.*;
+
+@ExtendWith(DropwizardExtensionsSupport.class)
+public class RouteBatchResourceTest {
+    private static final String DIR = "./target/route-batch-gh/";
+    private static final DropwizardAppExtension<GraphHopperServerConfiguration> app = new DropwizardAppExtension<>(GraphHopperApplication.class, createConfig());
+
+    private static GraphHopperServerConfiguration createConfig() {
+        GraphHopperServerConfiguration config = new GraphHopperServerTestConfiguration();
+        config.getGraphHopperConfiguration().
+                putObject("graph.flag_encoders", "car").
+                putObject("datareader.file", "../core/files/andorra.osm.pbf").
+                putObject("graph.location", DIR).
+                putObject("routing.batch.threads", 2).
+                putObject("routing.batch.max_requests", 5).
+                setProfiles(Collections.singletonList(new Profile("my_car").setVehicle("car").setWeighting("fastest"))).
+                setCHProfiles(Collections.singletonList(new CHProfile("my_car")));
+        return config;
+    }
+
+    @BeforeAll
+    @AfterAll
+    public static void cleanUp() {
+        Helper.removeDir(new File(DIR));
+    }
+
+    @Test
+    public void testBatchMatchesRoutes() {
+        List<String> requests = Arrays.asList(
+                "{\"profile\": \"my_car\", \"points\": [[1.536198,42.554851], [1.548128,42.510071]]}",
+                "{\"profile\": \"my_car\", \"points\": [[1.548128,42.510071], [1.536198,42.554851]], \"points_encoded\": false}",
+                "{\"profile\": \"my_car\", \"points\": [[1.536198,42.554851], [1.5352,42.5212], [1.548128,42.510071]], \"instructions\": false}",
+                "{\"profile\": \"my_car\", \"points\": [[1.5352,42.5212], [1.548128,42.510071]], \"ch.disable\": true, \"calc_points\": false}");
+        JsonNode json = clientTarget(app, "/route/batch").request().post(Entity.json("{\"requests\": [" + String.join(",", requests) + "]}"), JsonNode.class);
+        JsonNode responses = json.get("responses");
+        assertEquals(requests.size(), responses.size());
+        assertTrue(json.get("info").has("took"));
+        for (int i = 0; i < requests.size(); i++) {
+            JsonNode expected = clientTarget(app, "/route").request().post(Entity.json(requests.get(i)), JsonNode.class).get("paths").get(0);
+            JsonNode path = responses.get(i).get("paths").get(0);
+            assertEquals(expected.get("distance").asDouble(), path.get("distance").asDouble(), 1.e-3, "request " + i);
+            assertEquals(expected.get("time").asLong(), path.get("time").asLong(), "request " + i);
+            assertEquals(expected.get("points"), path.get("points"), "request " + i);
+            assertEquals(expected.get("instructions"), path.get("instructions"), "request " + i);
+            assertEquals(expected.get("snapped_waypoints"), path.get("snapped_waypoints"), "request " + i);
+        }
+        assertFalse(responses.get(1).get("paths").get(0).get("points_encoded").asBoolean());
+        assertFalse(responses.get(2).get("paths").get(0).has("instructions"));
+        assertFalse(responses.get(3).get("paths").get(0).has("points"));
+    }
+
+    @Test
+    public void testErrors() {
+        // failing requests do not fail the batch
+        String body = "{\"requests\": [" +
+                "{\"profile\": \"my_car\", \"points\": [[1.536198,42.554851], [1.0,42.0]]}," +
+                "{\"points\": [[1.536198,42.554851], [1.548128,42.510071]]}," +
+                "{\"profile\": \"my_car\", \"points\": [[1.536198,42.554851], [1.548128,42.510071]]}]}";
+        JsonNode responses = clientTarget(app, "/route/batch").request().post(Entity.json(body), JsonNode.class).get("responses");
+        assertEquals(3, responses.size());
+        assertTrue(responses.get(0).get("message").asText().contains("out of bounds"), responses.get(0).toString());
+        assertTrue(responses.get(1).get("message").asText().contains("'profile' parameter is required"), responses.get(1).toString());
+        assertTrue(responses.get(2).get("paths").get(0).get("distance").asDouble() > 0, responses.get(2).toString());
+
+        Response response = clientTarget(app, "/route/batch").request().post(Entity.json("{\"requests\": []}"));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("at least one request"));
+
+        String request = "{\"profile\": \"my_car\", \"points\": [[1.536198,42.554851], [1.548128,42.510071]]}";
+        response = clientTarget(app, "/route/batch").request().post(Entity.json("{\"requests\": [" + String.join(",", Collections.nCopies(6, request)) + "]}"));
+        assertEquals(400, response.getStatus());
+        assertTrue(response.readEntity(JsonNode.class).get("message").asText().contains("the maximum is 5"));
+    }
+}